@@ -0,0 +1,123 @@
+package com.serialcomm.bench;
+
+import com.MAVLink.MAVLinkPacket;
+import com.MAVLink.Parser;
+import com.serialcomm.link.SyntheticTraffic;
+import com.serialcomm.service.ByteAppender;
+import com.serialcomm.util.HexText;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Receive path to the MAVLink tab, before and after the byte-oriented API: bytes/sec and
+ * bytes allocated per received byte on the delivering thread.
+ * <ul>
+ *   <li>before: the old {@code bytesToHex} ({@code String.format("%02X ")} per byte), then the
+ *   tab splitting that text and {@code Integer.parseInt}-ing each token back into
+ *   {@code Parser.mavlink_parse_char};</li>
+ *   <li>after: the chunk wrapped as a {@link ByteBuffer}, copied into a {@link ByteAppender}
+ *   and parsed from the bytes; HEX is rendered only for what the view shows (at most
+ *   {@value #VISIBLE_BYTES} bytes per 100 ms of wire time at 921600 baud), or for every byte
+ *   in the "render all" variant.</li>
+ * </ul>
+ * Input is loopback traffic (4 vehicles, default rates) cut into {@value #CHUNK}-byte reads.
+ * Usage: {@code gradle bench -Pmain=com.serialcomm.bench.ByteAppenderBench [-Pargs="MB rounds"]}
+ */
+public final class ByteAppenderBench {
+    private static final int CHUNK = 1024;
+    private static final int VISIBLE_BYTES = 4096;
+    /** 921600 baud, 10 bits per byte, 100 ms */
+    private static final int WIRE_BYTES_PER_FLUSH = 9216;
+    private static long sink;
+
+    public static void main(String[] args) {
+        int mb = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        byte[] stream = loopbackStream(mb << 20);
+        System.out.printf("stream %d bytes in %d-byte reads%n", stream.length, CHUNK);
+        for (int r = 0; r < rounds; r++) {
+            boolean last = r == rounds - 1;
+            report("before (hex string round trip)", stream, () -> before(stream), last);
+            report("after (render visible)", stream, () -> after(stream, false), last);
+            report("after (render all)", stream, () -> after(stream, true), last);
+        }
+    }
+
+    private static void before(byte[] stream) {
+        Parser parser = new Parser();
+        for (int off = 0; off < stream.length; off += CHUNK) {
+            int n = Math.min(CHUNK, stream.length - off);
+            byte[] read = new byte[n];
+            System.arraycopy(stream, off, read, 0, n);
+            String batch = legacyBytesToHex(read, n);
+            for (String hexByte : batch.trim().split("\\s+")) {
+                if (hexByte.isEmpty()) continue;
+                MAVLinkPacket pkt = parser.mavlink_parse_char(Integer.parseInt(hexByte, 16) & 0xFF);
+                if (pkt != null) sink += pkt.msgid;
+            }
+        }
+    }
+
+    /** BaseController.bytesToHex as it was before the byte API. */
+    private static String legacyBytesToHex(byte[] bytes, int length) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < length; i++) sb.append(String.format("%02X ", bytes[i]));
+        return sb.toString().toUpperCase();
+    }
+
+    private static void after(byte[] stream, boolean renderAll) {
+        Parser parser = new Parser();
+        // Long interval: the bench drains the appender itself, no FX thread is running
+        ByteAppender appender = new ByteAppender(chunk -> { }).setFlushIntervalMs(1000).setBufferCapBytes(64 * 1024);
+        int sinceFlush = 0;
+        for (int off = 0; off < stream.length; off += CHUNK) {
+            int n = Math.min(CHUNK, stream.length - off);
+            ByteBuffer data = ByteBuffer.wrap(stream, off, n);
+            appender.append(data);
+            for (int i = data.position(), end = data.limit(); i < end; i++) {
+                MAVLinkPacket pkt = parser.mavlink_parse_char(stream[i] & 0xFF);
+                if (pkt != null) sink += pkt.msgid;
+            }
+            if (renderAll) {
+                sink += HexText.toHex(stream, off, n).length();
+            } else if ((sinceFlush += n) >= WIRE_BYTES_PER_FLUSH) {
+                int shown = Math.min(VISIBLE_BYTES, off + n);
+                sink += HexText.toHex(stream, off + n - shown, shown).length();
+                appender.clearBuffer();
+                sinceFlush = 0;
+            }
+        }
+        appender.stop();
+    }
+
+    private static void report(String name, byte[] stream, Runnable run, boolean print) {
+        com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) java.lang.management.ManagementFactory.getThreadMXBean();
+        long a0 = mx.getCurrentThreadAllocatedBytes();
+        long t0 = System.nanoTime();
+        run.run();
+        long t1 = System.nanoTime();
+        long a1 = mx.getCurrentThreadAllocatedBytes();
+        if (!print) return;
+        System.out.printf("%-32s %8.1f MB/s  %8.2f bytes allocated per byte%n",
+                name, stream.length / ((t1 - t0) / 1e9) / (1 << 20), (a1 - a0) / (double) stream.length);
+    }
+
+    static byte[] loopbackStream(int bytes) {
+        return loopbackStream("vehicles=4&scale=0&seed=1", bytes);
+    }
+
+    /** {@code bytes} of flood traffic from a loopback {@code spec}, see {@link SyntheticTraffic#parse}. */
+    static byte[] loopbackStream(String spec, int bytes) {
+        SyntheticTraffic gen = new SyntheticTraffic(SyntheticTraffic.parse(spec));
+        byte[] out = new byte[bytes];
+        byte[] buf = new byte[64 * 1024];
+        int pos = 0;
+        while (pos < bytes) {
+            int n = gen.emitDue(buf);
+            int take = Math.min(n, bytes - pos);
+            System.arraycopy(buf, 0, out, pos, take);
+            pos += take;
+        }
+        return out;
+    }
+}
@@ -0,0 +1,80 @@
+package com.serialcomm.bench;
+
+import com.MAVLink.MAVLinkPacket;
+import com.MAVLink.Messages.MAVLinkMessage;
+import com.serialcomm.service.MessageNames;
+import com.serialcomm.service.PacketEnvelope;
+
+/**
+ * Cost of one name lookup plus {@value #CONSUMERS} consumers of the decoded message per
+ * packet: time and bytes allocated per packet on the delivering thread, and what that means
+ * at {@value #RATE_HZ} packets/s.
+ * <ul>
+ *   <li>unpack per listener: the name from {@code unpack().getClass()}, as the Inspector did,
+ *   and every consumer calling {@code unpack()} itself;</li>
+ *   <li>shared envelope: one {@link PacketEnvelope} per packet, the name from
+ *   {@link MessageNames} and every consumer calling {@link PacketEnvelope#message()}, so the
+ *   packet is unpacked once.</li>
+ * </ul>
+ * Packets are parsed from loopback traffic (10 vehicles, default rates).
+ * Usage: {@code gradle bench -Pmain=com.serialcomm.bench.EnvelopeDecodeBench [-Pargs="passes rounds"]}
+ */
+public final class EnvelopeDecodeBench {
+    private static final int CONSUMERS = 3;
+    private static final int RATE_HZ = 5000;
+    private static long sink;
+
+    public static void main(String[] args) {
+        int passes = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        MAVLinkPacket[] packets = HubDispatchBench.loopbackPackets("vehicles=10&scale=0&seed=1", 1 << 20);
+        MessageNames.size();
+        System.out.printf("%d packets x %d passes%n", packets.length, passes);
+        for (int r = 0; r < rounds; r++) {
+            boolean last = r == rounds - 1;
+            report("unpack per listener", packets.length * (long) passes, () -> perListener(packets, passes), last);
+            report("shared envelope", packets.length * (long) passes, () -> shared(packets, passes), last);
+        }
+    }
+
+    private static void perListener(MAVLinkPacket[] packets, int passes) {
+        for (int pass = 0; pass < passes; pass++) {
+            for (MAVLinkPacket p : packets) {
+                MAVLinkMessage named = p.unpack();
+                String name = named != null ? named.getClass().getSimpleName() : "MSG#" + p.msgid;
+                sink += name.length();
+                for (int c = 0; c < CONSUMERS; c++) consume(p.unpack());
+            }
+        }
+    }
+
+    private static void shared(MAVLinkPacket[] packets, int passes) {
+        for (int pass = 0; pass < passes; pass++) {
+            for (MAVLinkPacket p : packets) {
+                PacketEnvelope env = new PacketEnvelope("bench", p);
+                String simple = MessageNames.simpleName(p.msgid);
+                String name = simple != null ? simple : "MSG#" + p.msgid;
+                sink += name.length();
+                for (int c = 0; c < CONSUMERS; c++) consume(env.message());
+            }
+        }
+    }
+
+    private static void consume(MAVLinkMessage m) {
+        if (m != null) sink += m.msgid + m.sysid;
+    }
+
+    private static void report(String name, long packets, Runnable run, boolean print) {
+        com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) java.lang.management.ManagementFactory.getThreadMXBean();
+        long a0 = mx.getCurrentThreadAllocatedBytes();
+        long t0 = System.nanoTime();
+        run.run();
+        long t1 = System.nanoTime();
+        long a1 = mx.getCurrentThreadAllocatedBytes();
+        if (!print) return;
+        double ns = (t1 - t0) / (double) packets;
+        double bytes = (a1 - a0) / (double) packets;
+        System.out.printf("%-22s %6.0f ns/pkt %6.0f B/pkt  (at %d pkt/s: %.2f%% core, %.2f MB/s garbage)%n",
+                name, ns, bytes, RATE_HZ, ns * RATE_HZ / 1e7, bytes * RATE_HZ / 1e6);
+    }
+}
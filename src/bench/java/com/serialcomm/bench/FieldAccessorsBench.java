@@ -0,0 +1,194 @@
+package com.serialcomm.bench;
+
+import com.MAVLink.MAVLinkPacket;
+import com.MAVLink.Messages.MAVLinkMessage;
+import com.MAVLink.common.msg_attitude;
+import com.MAVLink.common.msg_global_position_int;
+import com.MAVLink.common.msg_sys_status;
+import com.serialcomm.service.FieldAccessors;
+import com.serialcomm.service.TelemetryRegistry;
+import com.serialcomm.service.TelemetryStore;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reading every payload field of ATTITUDE, GLOBAL_POSITION_INT and SYS_STATUS, round-robin,
+ * per update: time and bytes allocated on the calling thread.
+ * <ul>
+ *   <li>ingest end to end: jar {@link TelemetryRegistry#ingest} against
+ *   {@link TelemetryStore#ingest};</li>
+ *   <li>fields into primitive columns: {@link Field#get} on each field (boxed, then unboxed),
+ *   {@link FieldAccessors} read field by field, and {@link FieldAccessors#copyInto}, which
+ *   the store uses;</li>
+ *   <li>fields as text: {@code String.valueOf(Field.get)}, as the jar's {@code stringify} and
+ *   the Protocol tab's {@code readFieldSafe} did, against {@link FieldAccessors#format}.</li>
+ * </ul>
+ * Before timing, every accessor value is checked against {@link Field#get}. The speed-up
+ * printed is against the reflective read of the same shape (columns or text).
+ * Usage: {@code gradle bench -Pmain=com.serialcomm.bench.FieldAccessorsBench [-Pargs="updates rounds"]}
+ */
+public final class FieldAccessorsBench {
+    private static double sink;
+    private static long lengthSink;
+
+    public static void main(String[] args) throws Exception {
+        int updates = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        MAVLinkMessage[] msgs = messages();
+        MAVLinkPacket[] packets = new MAVLinkPacket[msgs.length];
+        Field[][] fields = new Field[msgs.length][];
+        FieldAccessors[] accessors = new FieldAccessors[msgs.length];
+        for (int m = 0; m < msgs.length; m++) {
+            packets[m] = msgs[m].pack();
+            packets[m].sysid = 1;
+            packets[m].compid = 1;
+            fields[m] = payloadFields(msgs[m].getClass());
+            accessors[m] = FieldAccessors.of(msgs[m].getClass());
+        }
+        check(msgs, fields, accessors);
+        TelemetryRegistry registry = TelemetryRegistry.getInstance();
+        TelemetryStore store = new TelemetryStore(4096);
+        long[] longs = new long[256];
+        double[] doubles = new double[256];
+        Object[] refs = new Object[256];
+        for (int r = 0; r < rounds; r++) {
+            boolean last = r == rounds - 1;
+            report("jar TelemetryRegistry.ingest", updates / 10, () -> {
+                for (int i = 0; i < updates / 10; i++) registry.ingest(packets[i % 3], msgs[i % 3]);
+            }, 0, last);
+            report("TelemetryStore.ingest", updates, () -> {
+                for (int i = 0; i < updates; i++) store.ingest(1, 1, msgs[i % 3].msgid, msgs[i % 3], i);
+            }, 0, last);
+            double reflect = report("reflection, into columns", updates, () -> {
+                for (int i = 0; i < updates; i++) {
+                    Field[] fs = fields[i % 3];
+                    int base = (i % 3) * 64;
+                    for (int k = 0; k < fs.length; k++) {
+                        try {
+                            Object v = fs[k].get(msgs[i % 3]);
+                            if (v instanceof Float || v instanceof Double) doubles[base + k] = ((Number) v).doubleValue();
+                            else if (v instanceof Number) longs[base + k] = ((Number) v).longValue();
+                            else refs[base + k] = v;
+                        } catch (IllegalAccessException e) {
+                            throw new IllegalStateException(e);
+                        }
+                    }
+                }
+            }, 0, last);
+            report("accessors, field by field", updates, () -> {
+                for (int i = 0; i < updates; i++) {
+                    FieldAccessors a = accessors[i % 3];
+                    MAVLinkMessage msg = msgs[i % 3];
+                    int base = (i % 3) * 64;
+                    for (int k = 0, n = a.fieldCount(); k < n; k++) {
+                        switch (a.kind(k)) {
+                            case INTEGRAL: longs[base + k] = a.getLong(msg, k); break;
+                            case FLOATING: doubles[base + k] = a.getDouble(msg, k); break;
+                            default: refs[base + k] = a.get(msg, k);
+                        }
+                    }
+                }
+            }, reflect, last);
+            report("accessors, copyInto", updates, () -> {
+                for (int i = 0; i < updates; i++) accessors[i % 3].copyInto(msgs[i % 3], longs, doubles, refs, (i % 3) * 64);
+            }, reflect, last);
+            double reflectText = report("reflection, String.valueOf", updates / 4, () -> {
+                for (int i = 0; i < updates / 4; i++) {
+                    for (Field f : fields[i % 3]) {
+                        try {
+                            lengthSink += String.valueOf(f.get(msgs[i % 3])).length();
+                        } catch (IllegalAccessException e) {
+                            throw new IllegalStateException(e);
+                        }
+                    }
+                }
+            }, 0, last);
+            report("accessors, format", updates / 4, () -> {
+                for (int i = 0; i < updates / 4; i++) {
+                    FieldAccessors a = accessors[i % 3];
+                    for (int k = 0; k < a.fieldCount(); k++) lengthSink += a.format(msgs[i % 3], k).length();
+                }
+            }, reflectText, last);
+            sink += doubles[1] + longs[1];
+        }
+    }
+
+    private static MAVLinkMessage[] messages() {
+        msg_attitude att = new msg_attitude();
+        att.time_boot_ms = 123_456L;
+        att.roll = 0.12f;
+        att.pitch = -0.05f;
+        att.yaw = 1.57f;
+        att.rollspeed = 0.01f;
+        msg_global_position_int pos = new msg_global_position_int();
+        pos.time_boot_ms = 123_456L;
+        pos.lat = 473_977_418;
+        pos.lon = 85_455_939;
+        pos.alt = 488_000;
+        pos.relative_alt = 12_000;
+        pos.vx = -120;
+        pos.hdg = 35_999;
+        msg_sys_status sys = new msg_sys_status();
+        sys.onboard_control_sensors_present = 0x3FFFFFFFL;
+        sys.load = 512;
+        sys.voltage_battery = 12_400;
+        sys.current_battery = 1_530;
+        sys.battery_remaining = 87;
+        return new MAVLinkMessage[] {att, pos, sys};
+    }
+
+    /** Public instance fields outside the {@link MAVLinkMessage} header, as {@link FieldAccessors} indexes them. */
+    private static Field[] payloadFields(Class<?> type) {
+        List<Field> out = new ArrayList<>();
+        for (Field f : type.getFields()) {
+            if (Modifier.isStatic(f.getModifiers()) || f.getDeclaringClass() == MAVLinkMessage.class) continue;
+            out.add(f);
+        }
+        return out.toArray(new Field[0]);
+    }
+
+    private static void check(MAVLinkMessage[] msgs, Field[][] fields, FieldAccessors[] accessors) throws Exception {
+        int checked = 0;
+        for (int m = 0; m < msgs.length; m++) {
+            FieldAccessors a = accessors[m];
+            if (a.fieldCount() != fields[m].length) throw new IllegalStateException(a.type().getSimpleName() + " field count");
+            long[] longs = new long[a.fieldCount() + 1];
+            double[] doubles = new double[a.fieldCount() + 1];
+            Object[] refs = new Object[a.fieldCount() + 1];
+            a.copyInto(msgs[m], longs, doubles, refs, 1);
+            for (Field f : fields[m]) {
+                int k = a.indexOf(f.getName());
+                Object expected = f.get(msgs[m]);
+                boolean numeric = a.kind(k) == FieldAccessors.Kind.INTEGRAL || a.kind(k) == FieldAccessors.Kind.FLOATING;
+                boolean same = numeric
+                        ? ((Number) expected).doubleValue() == a.getDouble(msgs[m], k)
+                        && String.valueOf(expected).equals(a.format(msgs[m], k))
+                        && ((Number) expected).doubleValue()
+                        == (a.kind(k) == FieldAccessors.Kind.INTEGRAL ? longs[1 + k] : doubles[1 + k])
+                        : String.valueOf(expected).equals(String.valueOf(a.get(msgs[m], k))) && refs[1 + k] == expected;
+                if (!same) throw new IllegalStateException(a.type().getSimpleName() + "." + f.getName() + " differs");
+                checked++;
+            }
+        }
+        System.out.printf("%d fields of %d messages match Field.get (getters, format, copyInto)%n", checked, msgs.length);
+    }
+
+    /** @return ns per update */
+    private static double report(String name, int updates, Runnable run, double baselineNs, boolean print) {
+        com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) java.lang.management.ManagementFactory.getThreadMXBean();
+        long a0 = mx.getCurrentThreadAllocatedBytes();
+        long t0 = System.nanoTime();
+        run.run();
+        long t1 = System.nanoTime();
+        long a1 = mx.getCurrentThreadAllocatedBytes();
+        double ns = (t1 - t0) / (double) updates;
+        if (!print) return ns;
+        double bytes = (a1 - a0) / (double) updates;
+        System.out.printf("%-30s %7.1f ns/update %6.0f B/update%s%n",
+                name, ns, bytes, baselineNs > 0 ? String.format("  %.1fx", baselineNs / ns) : "");
+        return ns;
+    }
+}
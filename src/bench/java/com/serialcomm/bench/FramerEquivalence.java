@@ -0,0 +1,219 @@
+package com.serialcomm.bench;
+
+import com.MAVLink.MAVLinkPacket;
+import com.MAVLink.Parser;
+import com.serialcomm.link.SyntheticTraffic;
+import com.serialcomm.service.MavlinkFramer;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * {@link MavlinkFramer} against {@code Parser.mavlink_parse_char}: both must return the same
+ * packets, in order, header and payload and CRC alike, for the same byte stream.
+ * <ul>
+ *   <li>corpus: loopback traffic ({@link SyntheticTraffic}, v1 and v2, with and without
+ *   corrupted frames and sequence gaps);</li>
+ *   <li>fuzz: the corpus cut up and mixed with random bytes, stray start bytes, bit flips,
+ *   signed v2 frames (with a start byte inside the signature), bad incompat flags and
+ *   frames of unknown msgids; plus pure random bytes;</li>
+ * </ul>
+ * Each stream is fed to the framer whole, then in random reads of 1 to 700 bytes through both
+ * {@code feed} overloads, so frames straddle reads. The first mismatch is printed and the run
+ * exits with status 1. Afterwards both are timed over {@value #SPEED_CHUNK}-byte reads.
+ * Usage: {@code gradle bench -Pmain=com.serialcomm.bench.FramerEquivalence [-Pargs="seed speedMB"]}
+ */
+public final class FramerEquivalence {
+    private static final String[] CORPUS = {
+            "vehicles=4&seed=1",
+            "vehicles=20&corrupt=0.05&gap=0.02&seed=2",
+            "vehicles=3&v1&corrupt=0.1&seed=3",
+            "vehicles=100&corrupt=0.01&seed=4",
+    };
+    private static final int CORPUS_BYTES = 2_000_000;
+    private static final int FUZZ_BYTES = 1_500_000;
+    private static final int FUZZ_ROUNDS = 3;
+    /** Random read splits per stream, after the single whole-stream feed */
+    private static final int SPLITS = 2;
+    private static final int SPEED_CHUNK = 4096;
+    private static long sink;
+
+    public static void main(String[] args) {
+        long seed = args.length > 0 ? Long.parseLong(args[0]) : 1L;
+        int speedMb = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int streams = 0;
+        long frames = 0;
+        for (String spec : CORPUS) {
+            byte[] corpus = synthetic(spec + "&scale=0", CORPUS_BYTES);
+            for (int round = 0; round <= FUZZ_ROUNDS; round++) {
+                byte[] stream = round == 0 ? corpus : fuzz(new Random(seed * 31 + round * 7919L + spec.hashCode()), corpus);
+                frames += compare(spec + (round == 0 ? "" : " fuzz#" + round), stream, new Random(seed + round));
+                streams++;
+            }
+        }
+        byte[] noise = new byte[3_000_000];
+        new Random(seed).nextBytes(noise);
+        frames += compare("random bytes", noise, new Random(seed));
+        streams++;
+        System.out.printf("equivalent: %d streams, %d frames, each fed whole and in %d random splits%n", streams, frames, SPLITS);
+        if (speedMb > 0) speed(synthetic("vehicles=20&corrupt=0.01&seed=5&scale=0", speedMb << 20));
+    }
+
+    /** Frames in {@code stream}; exits on the first difference. */
+    private static int compare(String name, byte[] stream, Random split) {
+        List<String> expected = parser(stream);
+        for (int s = 0; s <= SPLITS; s++) {
+            List<String> actual = framer(stream, s == 0 ? null : split);
+            if (expected.equals(actual)) continue;
+            int i = 0;
+            while (i < Math.min(expected.size(), actual.size()) && expected.get(i).equals(actual.get(i))) i++;
+            System.out.printf("MISMATCH %s (split %d): Parser %d frames, framer %d, first difference at frame %d%n  Parser %s%n  framer %s%n",
+                    name, s, expected.size(), actual.size(), i,
+                    i < expected.size() ? expected.get(i) : "-", i < actual.size() ? actual.get(i) : "-");
+            System.exit(1);
+        }
+        return expected.size();
+    }
+
+    private static List<String> parser(byte[] stream) {
+        Parser parser = new Parser();
+        List<String> out = new ArrayList<>();
+        for (byte b : stream) {
+            MAVLinkPacket pkt = parser.mavlink_parse_char(b & 0xFF);
+            if (pkt != null) out.add(describe(pkt));
+        }
+        return out;
+    }
+
+    /** {@code split == null}: one feed of the whole stream. */
+    private static List<String> framer(byte[] stream, Random split) {
+        List<String> out = new ArrayList<>();
+        MavlinkFramer framer = new MavlinkFramer(frame -> out.add(describe(frame.toPacket())));
+        int off = 0;
+        while (off < stream.length) {
+            int n = split == null ? stream.length
+                    : Math.min(stream.length - off, split.nextInt(4) == 0 ? 1 + split.nextInt(3) : 1 + split.nextInt(700));
+            if (split != null && split.nextBoolean()) {
+                framer.feed(java.nio.ByteBuffer.wrap(Arrays.copyOfRange(stream, off, off + n)));
+            } else {
+                framer.feed(stream, off, n);
+            }
+            off += n;
+        }
+        return out;
+    }
+
+    /** Every field the application reads from a packet. */
+    private static String describe(MAVLinkPacket p) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(p.isMavlink2 ? "v2" : "v1").append(" msgid=").append(p.msgid).append(" sys=").append(p.sysid)
+                .append(" comp=").append(p.compid).append(" seq=").append(p.seq).append(" compat=").append(p.compatFlags)
+                .append(" incompat=").append(p.incompatFlags).append(" len=").append(p.len).append(" payload=");
+        p.payload.resetIndex();
+        for (int i = 0; i < p.len; i++) sb.append(String.format("%02x", p.payload.getByte() & 0xFF));
+        p.payload.resetIndex();
+        return sb.append(" crc=").append(p.crc.getMSB()).append('/').append(p.crc.getLSB()).toString();
+    }
+
+    static byte[] synthetic(String spec, int bytes) {
+        SyntheticTraffic gen = new SyntheticTraffic(SyntheticTraffic.parse(spec));
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes);
+        byte[] buf = new byte[16 * 1024];
+        while (out.size() < bytes) out.write(buf, 0, gen.emitDue(buf));
+        return out.toByteArray();
+    }
+
+    /** Pieces of {@code corpus} mixed with damage, about {@value #FUZZ_BYTES} bytes. */
+    private static byte[] fuzz(Random r, byte[] corpus) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(FUZZ_BYTES + 1024);
+        int pos = 0;
+        while (out.size() < FUZZ_BYTES) {
+            int kind = r.nextInt(10);
+            if (kind < 5) {
+                int n = Math.min(corpus.length - pos, 1 + r.nextInt(200));
+                out.write(corpus, pos, n);
+                pos = (pos + n) % corpus.length;
+            } else if (kind == 5) {
+                for (int i = r.nextInt(40); i > 0; i--) out.write(r.nextInt(256));
+            } else if (kind == 6) {
+                out.write(r.nextBoolean() ? 0xFD : 0xFE);
+            } else if (kind == 7) {
+                byte[] piece = Arrays.copyOfRange(corpus, pos, Math.min(corpus.length, pos + 100));
+                if (piece.length > 0) piece[r.nextInt(piece.length)] ^= (byte) (1 << r.nextInt(8));
+                out.write(piece, 0, piece.length);
+                pos = (pos + 100) % corpus.length;
+            } else if (kind == 8) {
+                byte[] signed = signedHeartbeat(r);
+                out.write(signed, 0, signed.length);
+                byte[] signature = new byte[13];
+                r.nextBytes(signature);
+                if (r.nextBoolean()) signature[r.nextInt(signature.length)] = (byte) 0xFE;
+                out.write(signature, 0, signature.length);
+                if (r.nextBoolean()) {
+                    signed[2] = (byte) (2 + r.nextInt(200));
+                    out.write(signed, 0, signed.length);
+                }
+            } else {
+                // Plausible header, unknown or mismatched msgid and CRC
+                int len = r.nextInt(30);
+                out.write(r.nextBoolean() ? 0xFD : 0xFE);
+                out.write(len);
+                for (int i = 0; i < len + 10; i++) out.write(r.nextInt(256));
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /** v2 HEARTBEAT with the signed incompat flag and a valid checksum, without its signature. */
+    private static byte[] signedHeartbeat(Random r) {
+        int len = 9;
+        MAVLinkPacket p = new MAVLinkPacket(len, true);
+        p.incompatFlags = 1;
+        p.seq = r.nextInt(256);
+        p.sysid = 1;
+        p.compid = 1;
+        p.msgid = 0;
+        for (int i = 0; i < len; i++) p.payload.add((byte) r.nextInt(256));
+        p.generateCRC(len);
+        byte[] frame = new byte[MAVLinkPacket.MAVLINK2_HEADER_LEN + 1 + len + 2];
+        frame[0] = (byte) 0xFD;
+        frame[1] = (byte) len;
+        frame[2] = 1;
+        frame[4] = (byte) p.seq;
+        frame[5] = 1;
+        frame[6] = 1;
+        p.payload.resetIndex();
+        for (int i = 0; i < len; i++) frame[10 + i] = p.payload.getByte();
+        frame[10 + len] = (byte) p.crc.getLSB();
+        frame[11 + len] = (byte) p.crc.getMSB();
+        return frame;
+    }
+
+    private static void speed(byte[] stream) {
+        double mb = stream.length / (double) (1 << 20);
+        for (int round = 0; round < 5; round++) {
+            long t0 = System.nanoTime();
+            Parser parser = new Parser();
+            long parsed = 0;
+            for (byte b : stream) {
+                MAVLinkPacket pkt = parser.mavlink_parse_char(b & 0xFF);
+                if (pkt != null) { parsed++; sink += pkt.msgid; }
+            }
+            long t1 = System.nanoTime();
+            long[] viewed = {0};
+            MavlinkFramer views = new MavlinkFramer(f -> { viewed[0]++; sink += f.msgid() + f.sysid(); });
+            for (int off = 0; off < stream.length; off += SPEED_CHUNK) views.feed(stream, off, Math.min(SPEED_CHUNK, stream.length - off));
+            long t2 = System.nanoTime();
+            long[] packets = {0};
+            MavlinkFramer full = new MavlinkFramer(f -> { packets[0]++; sink += f.toPacket().msgid; });
+            for (int off = 0; off < stream.length; off += SPEED_CHUNK) full.feed(stream, off, Math.min(SPEED_CHUNK, stream.length - off));
+            long t3 = System.nanoTime();
+            if (round < 4) continue;
+            System.out.printf("Parser %.0f MB/s (%d frames)  framer views %.0f MB/s (%d)  framer + toPacket %.0f MB/s (%d)%n",
+                    mb / ((t1 - t0) / 1e9), parsed, mb / ((t2 - t1) / 1e9), viewed[0], mb / ((t3 - t2) / 1e9), packets[0]);
+        }
+    }
+}
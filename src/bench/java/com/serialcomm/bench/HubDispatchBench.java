@@ -0,0 +1,129 @@
+package com.serialcomm.bench;
+
+import com.MAVLink.MAVLinkPacket;
+import com.MAVLink.Parser;
+import com.serialcomm.service.PacketEnvelope;
+import com.serialcomm.service.PacketHub;
+import com.serialcomm.service.PipelineLatency;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Dispatch cost per packet with 10, 50 and 200 listeners spread over {@value #MSGIDS} msgids:
+ * <ul>
+ *   <li>all-see-all: every listener is called for every packet and checks the msgid itself,
+ *   as with plain {@code MavlinkDispatcher} listeners;</li>
+ *   <li>msgid-indexed: {@link PacketHub#dispatch}, which calls only the listeners of the
+ *   packet's msgid, including the shared {@link PacketEnvelope} it builds per packet. Latency
+ *   sampling is off, as it is unless debug logging is on;</li>
+ *   <li>sampled: the same with {@link PipelineLatency} sampling one packet in
+ *   {@value PipelineLatency#DEFAULT_SAMPLE_EVERY}.</li>
+ * </ul>
+ * Packets are parsed from loopback traffic (4 vehicles, default rates), whose msgids get
+ * the first listeners; the others listen to msgids that never arrive. The cost of one
+ * {@code System.nanoTime()} is printed as well: for a sampled packet the hub reads the clock
+ * once per listener it calls.
+ * Usage: {@code gradle bench -Pmain=com.serialcomm.bench.HubDispatchBench [-Pargs="passes rounds"]}
+ */
+public final class HubDispatchBench {
+    private static final int MSGIDS = 40;
+    private static final int[] LISTENERS = {10, 50, 200};
+    private static long sink;
+
+    public static void main(String[] args) {
+        int passes = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        MAVLinkPacket[] packets = loopbackPackets(1 << 20);
+        int[] msgids = listenedMsgids(packets);
+        System.out.printf("%d packets x %d passes, listeners over %d msgids%n", packets.length, passes, MSGIDS);
+        for (int r = 0; r < rounds; r++) {
+            boolean last = r == rounds - 1;
+            for (int n : LISTENERS) {
+                double flat = allSeeAll(packets, msgids, n, passes);
+                double hub = indexed(packets, msgids, n, passes, 0);
+                double sampled = indexed(packets, msgids, n, passes, PipelineLatency.DEFAULT_SAMPLE_EVERY);
+                if (last) {
+                    System.out.printf("%4d listeners: all-see-all %7.1f ns/pkt, msgid-indexed %7.1f ns/pkt, sampled %7.1f ns/pkt%n",
+                            n, flat, hub, sampled);
+                }
+            }
+            double clock = clockNanos();
+            if (last) System.out.printf("System.nanoTime(): %.1f ns%n", clock);
+        }
+    }
+
+    private static double clockNanos() {
+        int n = 10_000_000;
+        long t0 = System.nanoTime();
+        for (int i = 0; i < n; i++) sink += System.nanoTime();
+        return (System.nanoTime() - t0) / (double) n;
+    }
+
+    private static double allSeeAll(MAVLinkPacket[] packets, int[] msgids, int listeners, int passes) {
+        List<Consumer<MAVLinkPacket>> list = new ArrayList<>();
+        for (int i = 0; i < listeners; i++) {
+            int id = msgids[i % MSGIDS];
+            list.add(p -> { if (p.msgid == id) sink += p.seq; });
+        }
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Consumer<MAVLinkPacket>[] all = list.toArray(new Consumer[0]);
+        long t0 = System.nanoTime();
+        for (int pass = 0; pass < passes; pass++) {
+            for (MAVLinkPacket p : packets) {
+                for (Consumer<MAVLinkPacket> l : all) l.accept(p);
+            }
+        }
+        return (System.nanoTime() - t0) / (double) ((long) passes * packets.length);
+    }
+
+    private static double indexed(MAVLinkPacket[] packets, int[] msgids, int listeners, int passes, int sampleEvery) {
+        PacketHub hub = PacketHub.getInstance();
+        PipelineLatency.getInstance().setSampleEvery(sampleEvery);
+        PacketHub.Subscription[] subs = new PacketHub.Subscription[listeners];
+        for (int i = 0; i < listeners; i++) subs[i] = hub.subscribe(msgids[i % MSGIDS], env -> sink += env.packet().seq);
+        try {
+            long t0 = System.nanoTime();
+            for (int pass = 0; pass < passes; pass++) {
+                for (MAVLinkPacket p : packets) hub.dispatch("bench", p);
+            }
+            return (System.nanoTime() - t0) / (double) ((long) passes * packets.length);
+        } finally {
+            for (PacketHub.Subscription s : subs) s.close();
+            PipelineLatency.getInstance().setSampleEvery(0);
+        }
+    }
+
+    /** Msgids in the traffic first, then ones that never arrive, {@value #MSGIDS} in all. */
+    private static int[] listenedMsgids(MAVLinkPacket[] packets) {
+        int[] ids = new int[MSGIDS];
+        int n = 0;
+        boolean[] seen = new boolean[1 << 16];
+        for (MAVLinkPacket p : packets) {
+            if (!seen[p.msgid] && n < MSGIDS) ids[n++] = p.msgid;
+            seen[p.msgid] = true;
+        }
+        for (int id = 100; n < MSGIDS; id++) {
+            if (!seen[id]) ids[n++] = id;
+        }
+        return ids;
+    }
+
+    /** Loopback traffic (4 vehicles) parsed into packets. */
+    static MAVLinkPacket[] loopbackPackets(int bytes) {
+        return loopbackPackets("vehicles=4&scale=0&seed=1", bytes);
+    }
+
+    /** {@code bytes} of traffic from a loopback {@code spec} parsed into packets. */
+    static MAVLinkPacket[] loopbackPackets(String spec, int bytes) {
+        byte[] stream = ByteAppenderBench.loopbackStream(spec, bytes);
+        Parser parser = new Parser();
+        List<MAVLinkPacket> out = new ArrayList<>();
+        for (byte b : stream) {
+            MAVLinkPacket p = parser.mavlink_parse_char(b & 0xFF);
+            if (p != null) out.add(p);
+        }
+        return out.toArray(new MAVLinkPacket[0]);
+    }
+}
@@ -0,0 +1,94 @@
+package com.serialcomm.bench;
+
+import com.serialcomm.util.LatencyHistogram;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Overhead of leaving {@link LatencyHistogram} on in production:
+ * <ul>
+ *   <li>{@code record} cost single-threaded, over values spread across the buckets;</li>
+ *   <li>{@value #WRITERS} writers recording while another thread closes intervals with
+ *   {@code snapshotAndReset} in a loop; the intervals together must hold exactly what was
+ *   recorded;</li>
+ *   <li>one {@code System.nanoTime()}, which timing a stage adds on top of the record
+ *   ({@code PacketHub} reads the clock once per listener it calls).</li>
+ * </ul>
+ * Usage: {@code gradle bench -Pmain=com.serialcomm.bench.LatencyHistogramBench [-Pargs="records rounds"]}
+ */
+public final class LatencyHistogramBench {
+    private static final int WRITERS = 4;
+    private static long sink;
+
+    public static void main(String[] args) throws InterruptedException {
+        int records = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        long[] values = values();
+        for (int r = 0; r < rounds; r++) {
+            boolean last = r == rounds - 1;
+            double single = single(values, records * WRITERS);
+            if (last) System.out.printf("record, 1 thread: %.1f ns/op%n", single);
+            concurrent(values, records, last);
+            double clock = clockNanos();
+            if (last) System.out.printf("System.nanoTime(): %.1f ns%n", clock);
+        }
+    }
+
+    /** Durations from 10 ns to about 10 ms, log-uniform. */
+    private static long[] values() {
+        long[] v = new long[4096];
+        SplittableRandom rnd = new SplittableRandom(1);
+        for (int i = 0; i < v.length; i++) v[i] = (long) Math.pow(10, 1 + rnd.nextDouble() * 6);
+        return v;
+    }
+
+    private static double single(long[] values, int n) {
+        LatencyHistogram h = new LatencyHistogram();
+        long t0 = System.nanoTime();
+        for (int i = 0; i < n; i++) h.record(values[i & (values.length - 1)]);
+        double ns = (System.nanoTime() - t0) / (double) n;
+        sink += h.count();
+        return ns;
+    }
+
+    private static void concurrent(long[] values, int perWriter, boolean print) throws InterruptedException {
+        LatencyHistogram h = new LatencyHistogram();
+        AtomicBoolean done = new AtomicBoolean();
+        long[] collected = new long[1];
+        int[] intervals = new int[1];
+        Thread reader = new Thread(() -> {
+            while (!done.get()) {
+                collected[0] += h.snapshotAndReset().count();
+                intervals[0]++;
+                Thread.yield();
+            }
+        }, "snapshot");
+        Thread[] writers = new Thread[WRITERS];
+        for (int w = 0; w < WRITERS; w++) {
+            int offset = w * 1024;
+            writers[w] = new Thread(() -> {
+                for (int i = 0; i < perWriter; i++) h.record(values[(i + offset) & (values.length - 1)]);
+            }, "writer-" + w);
+        }
+        reader.start();
+        long t0 = System.nanoTime();
+        for (Thread t : writers) t.start();
+        for (Thread t : writers) t.join();
+        long elapsed = System.nanoTime() - t0;
+        done.set(true);
+        reader.join();
+        long total = collected[0] + h.snapshotAndReset().count();
+        long expected = (long) perWriter * WRITERS;
+        if (!print) return;
+        System.out.printf("record, %d writers + interval snapshots: %.1f ns/op, %d intervals, %d of %d collected%s%n",
+                WRITERS, elapsed / (double) expected, intervals[0], total, expected, total == expected ? "" : "  MISMATCH");
+    }
+
+    private static double clockNanos() {
+        int n = 10_000_000;
+        long t0 = System.nanoTime();
+        for (int i = 0; i < n; i++) sink += System.nanoTime();
+        return (System.nanoTime() - t0) / (double) n;
+    }
+}
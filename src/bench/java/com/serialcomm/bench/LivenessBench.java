@@ -0,0 +1,155 @@
+package com.serialcomm.bench;
+
+import com.serialcomm.service.HeartbeatMonitor;
+import com.serialcomm.service.VehicleState;
+import com.serialcomm.util.LatencyHistogram;
+import com.serialcomm.util.TimingWheel;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Liveness tracking of {@value #VEHICLES} vehicles sending HEARTBEAT at 1 Hz, with the
+ * settings {@code VehicleLiveness} uses ({@value #OFFLINE_MS} ms offline timeout, 100 ms tick):
+ * <ul>
+ *   <li>scan CPU: the jar's {@code HeartbeatMonitor.check} (private, called via reflection),
+ *   which walks every snapshot and then runs {@code VehicleState.purgeStaleEntries}, against
+ *   one heartbeat (a {@link TimingWheel} reschedule) and one 100 ms wheel tick;</li>
+ *   <li>detection accuracy on a simulated clock: {@value #SILENT} vehicles go silent at
+ *   random times, and the delay from their deadline to the moment it is reported is
+ *   compared for the 100 ms wheel and a 1 s scan.</li>
+ * </ul>
+ * Usage: {@code gradle bench -Pmain=com.serialcomm.bench.LivenessBench}
+ */
+public final class LivenessBench {
+    private static final int VEHICLES = 1000;
+    private static final int SILENT = 200;
+    private static final long OFFLINE_MS = 3000L;
+    private static final long TICK_MS = 100L;
+    private static final long SCAN_MS = 1000L;
+    private static long sink;
+
+    public static void main(String[] args) throws Exception {
+        oldScan();
+        wheelCost();
+        detection();
+    }
+
+    private static int id(int v) { return (v / 4 + 1) << 8 | (v % 4 + 1); }
+
+    private static void oldScan() throws Exception {
+        VehicleState state = VehicleState.getInstance();
+        for (int v = 0; v < VEHICLES; v++) {
+            int id = id(v);
+            state.updateHeartbeat("bench", id >>> 8, id & 0xFF, true, 2, 3, 81, 4);
+        }
+        Method check = HeartbeatMonitor.class.getDeclaredMethod("check", long.class);
+        check.setAccessible(true);
+        HeartbeatMonitor monitor = HeartbeatMonitor.getInstance();
+        int n = 20_000;
+        double checkUs = 0;
+        double purgeUs = 0;
+        for (int round = 0; round < 3; round++) {
+            long t0 = System.nanoTime();
+            for (int i = 0; i < n; i++) check.invoke(monitor, OFFLINE_MS);
+            long t1 = System.nanoTime();
+            for (int i = 0; i < n; i++) state.purgeStaleEntries(60_000L);
+            long t2 = System.nanoTime();
+            checkUs = (t1 - t0) / 1e3 / n;
+            purgeUs = (t2 - t1) / 1e3 / n;
+        }
+        System.out.printf("old HeartbeatMonitor.check, %d vehicles: %.1f us per check (purgeStaleEntries alone %.1f us)%n",
+                VEHICLES, checkUs, purgeUs);
+    }
+
+    private static void wheelCost() {
+        long now = 0;
+        TimingWheel wheel = new TimingWheel(1 << 17, (int) (OFFLINE_MS / TICK_MS + 1), TICK_MS, now);
+        int n = 20_000_000;
+        double heartbeatNs = 0;
+        for (int round = 0; round < 3; round++) {
+            long t0 = System.nanoTime();
+            for (int i = 0; i < n; i++) wheel.schedule(id(i % VEHICLES) << 1, (now + (i >> 10)) + OFFLINE_MS);
+            heartbeatNs = (System.nanoTime() - t0) / (double) n;
+        }
+        System.out.printf("wheel heartbeat (one reschedule): %.1f ns%n", heartbeatNs);
+
+        // Every vehicle alive at 1 Hz: a tenth of them heartbeat per tick, nothing expires
+        LatencyHistogram ticks = new LatencyHistogram();
+        now = 0;
+        wheel = new TimingWheel(1 << 17, (int) (OFFLINE_MS / TICK_MS + 1), TICK_MS, now);
+        for (int t = 0; t < 200_000; t++) {
+            now += TICK_MS;
+            int first = (t % 10) * VEHICLES / 10;
+            for (int v = first; v < first + VEHICLES / 10; v++) wheel.schedule(id(v) << 1, now + OFFLINE_MS);
+            long t0 = System.nanoTime();
+            sink += wheel.advance(now, key -> sink += key);
+            if (t >= 100_000) ticks.record(System.nanoTime() - t0);
+        }
+        System.out.printf("wheel %d ms tick, all alive: %s%n", TICK_MS, ticks.snapshot());
+    }
+
+    /** Offline detection delay past the deadline: wheel ticks against a periodic scan. */
+    private static void detection() {
+        SplittableRandom rnd = new SplittableRandom(1);
+        long[] phase = new long[VEHICLES];
+        long[] silentAt = new long[VEHICLES];
+        Arrays.fill(silentAt, Long.MAX_VALUE);
+        for (int v = 0; v < VEHICLES; v++) phase[v] = rnd.nextLong(1000);
+        for (int k = 0; k < SILENT; ) {
+            int v = rnd.nextInt(VEHICLES);
+            if (silentAt[v] != Long.MAX_VALUE) continue;
+            silentAt[v] = 5_000 + rnd.nextLong(10_000);
+            k++;
+        }
+        long scanPhase = rnd.nextLong(SCAN_MS);
+        long[] lastBeat = new long[VEHICLES];
+        boolean[] wheelSeen = new boolean[VEHICLES];
+        boolean[] scanSeen = new boolean[VEHICLES];
+        long[] wheelDelay = new long[SILENT];
+        long[] scanDelay = new long[SILENT];
+        int wheelN = 0;
+        int scanN = 0;
+        TimingWheel wheel = new TimingWheel(1 << 17, (int) (OFFLINE_MS / TICK_MS + 1), TICK_MS, 0);
+        int[] byId = new int[1 << 16];
+        for (int v = 0; v < VEHICLES; v++) byId[id(v)] = v;
+        long[] fired = new long[VEHICLES];
+        for (long now = 1; now <= 25_000; now++) {
+            for (int v = 0; v < VEHICLES; v++) {
+                if (now % 1000 == phase[v] && now < silentAt[v]) {
+                    lastBeat[v] = now;
+                    wheel.schedule(id(v) << 1, now + OFFLINE_MS);
+                }
+            }
+            if (now % TICK_MS == 0) {
+                long t = now;
+                wheel.advance(now, key -> fired[byId[key >>> 1]] = t);
+                for (int v = 0; v < VEHICLES; v++) {
+                    if (fired[v] != 0 && !wheelSeen[v]) {
+                        wheelSeen[v] = true;
+                        wheelDelay[wheelN++] = fired[v] - (lastBeat[v] + OFFLINE_MS);
+                    }
+                }
+            }
+            if (now % SCAN_MS == scanPhase) {
+                for (int v = 0; v < VEHICLES; v++) {
+                    if (!scanSeen[v] && now - lastBeat[v] > OFFLINE_MS) {
+                        scanSeen[v] = true;
+                        scanDelay[scanN++] = now - (lastBeat[v] + OFFLINE_MS);
+                    }
+                }
+            }
+        }
+        System.out.printf("detection delay, %d of %d vehicles silent:%n", SILENT, VEHICLES);
+        System.out.printf("  wheel (%d ms tick): %s%n", TICK_MS, delays(wheelDelay, wheelN));
+        System.out.printf("  %d s scan:          %s%n", SCAN_MS / 1000, delays(scanDelay, scanN));
+    }
+
+    private static String delays(long[] d, int n) {
+        long[] s = Arrays.copyOf(d, n);
+        Arrays.sort(s);
+        return n == 0 ? "none detected"
+                : String.format("n=%d min %d ms, p50 %d ms, max %d ms", n, s[0], s[n / 2], s[n - 1]);
+    }
+}
@@ -0,0 +1,139 @@
+package com.serialcomm.bench;
+
+import com.MAVLink.MAVLinkPacket;
+import com.MAVLink.minimal.msg_heartbeat;
+import com.serialcomm.link.NetworkRouter;
+import com.serialcomm.link.NioNetworkRouter;
+import com.serialcomm.service.MavlinkDispatcher;
+import com.serialcomm.util.LatencyHistogram;
+
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * UDP receive latency of the blocking {@link NetworkRouter} (one reader thread per socket)
+ * against {@link NioNetworkRouter} (shared selector and receiver thread): time from handing a
+ * HEARTBEAT datagram to the loopback interface until a dispatcher listener sees the parsed
+ * packet, plus the live thread count with all listeners open.
+ * Each run opens {@code links} UDP ports from {@value #BASE_PORT} (the NIO router from
+ * {@code BASE_PORT + }{@value #NIO_PORT_OFFSET}, clear of sockets the other one may still
+ * be releasing) and sends {@code packets}
+ * frames round-robin over them, one every {@value #SEND_GAP_MICROS} us; the frame index
+ * travels in {@code custom_mode}. A port counts as open once a probe frame came through:
+ * the blocking router starts its reader before marking itself connected, and the reader
+ * quits at once when it loses that race (nearly always on one CPU), so the bench starts
+ * the reader again through reflection until the probe arrives.
+ * Usage: {@code gradle bench -Pmain=com.serialcomm.bench.NetworkReceiveBench [-Pargs="packets rounds"]}
+ */
+public final class NetworkReceiveBench {
+    private static final int BASE_PORT = 24550;
+    private static final int NIO_PORT_OFFSET = 100;
+    private static final long SEND_GAP_MICROS = 500;
+    private static final int[] LINKS = {1, 20};
+
+    private static volatile AtomicLongArray receivedAt;
+
+    public static void main(String[] args) throws Exception {
+        int packets = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        MavlinkDispatcher.getInstance().addListener(NetworkReceiveBench::onPacket);
+        for (int r = 0; r < rounds; r++) {
+            boolean last = r == rounds - 1;
+            for (int links : LINKS) {
+                run("blocking NetworkRouter", links, packets, last, false);
+                run("nio NioNetworkRouter", links, packets, last, true);
+            }
+        }
+        System.exit(0);
+    }
+
+    private static void onPacket(MAVLinkPacket p) {
+        AtomicLongArray at = receivedAt;
+        if (p.msgid != msg_heartbeat.MAVLINK_MSG_ID_HEARTBEAT || at == null) return;
+        int i = (int) new msg_heartbeat(p).custom_mode;
+        if (i >= 0 && i < at.length()) at.compareAndSet(i, 0L, System.nanoTime());
+    }
+
+    private static Object listen(int port, boolean nio) {
+        if (nio) {
+            NioNetworkRouter router = new NioNetworkRouter();
+            if (!router.listenUdp(port)) throw new IllegalStateException("listen " + port);
+            return router;
+        }
+        NetworkRouter router = new NetworkRouter();
+        if (!router.listenUdp(port)) throw new IllegalStateException("listen " + port);
+        return router;
+    }
+
+    private static void restartReader(Object router) throws ReflectiveOperationException {
+        if (!(router instanceof NetworkRouter)) return;
+        java.lang.reflect.Field f = NetworkRouter.class.getDeclaredField("udpReaderThread");
+        f.setAccessible(true);
+        f.set(router, null);
+        java.lang.reflect.Method m = NetworkRouter.class.getDeclaredMethod("startUdpReader");
+        m.setAccessible(true);
+        m.invoke(router);
+    }
+
+    private static void close(Object router) {
+        if (router instanceof NetworkRouter) ((NetworkRouter) router).disconnect();
+        else ((NioNetworkRouter) router).disconnect();
+    }
+
+    private static void send(DatagramSocket out, int index, int port) throws java.io.IOException {
+        msg_heartbeat hb = new msg_heartbeat();
+        hb.custom_mode = index;
+        MAVLinkPacket pkt = hb.pack();
+        pkt.seq = index & 0xFF;
+        pkt.sysid = 1;
+        pkt.compid = 1;
+        byte[] frame = pkt.encodePacket();
+        out.send(new DatagramPacket(frame, frame.length, InetAddress.getLoopbackAddress(), port));
+    }
+
+    private static void run(String name, int links, int packets, boolean print, boolean nio) throws Exception {
+        int threadsBefore = Thread.activeCount();
+        Object[] routers = new Object[links];
+        int base = nio ? BASE_PORT + NIO_PORT_OFFSET : BASE_PORT;
+        long[] sentAt = new long[packets];
+        // Slots past the packets are the probes, one per port
+        receivedAt = new AtomicLongArray(packets + links);
+        try (DatagramSocket out = new DatagramSocket()) {
+            for (int l = 0; l < links; l++) {
+                int probe = packets + l;
+                routers[l] = listen(base + l, nio);
+                for (int attempt = 0; receivedAt.get(probe) == 0L; attempt++) {
+                    if (attempt == 20) throw new IllegalStateException("no probe through port " + (base + l));
+                    if (attempt > 0) restartReader(routers[l]);
+                    Thread.sleep(20);
+                    send(out, probe, base + l);
+                    Thread.sleep(30);
+                }
+            }
+            int threads = Thread.activeCount() - threadsBefore;
+            long next = System.nanoTime();
+            for (int i = 0; i < packets; i++) {
+                long wait = next - System.nanoTime();
+                if (wait > 0) LockSupport.parkNanos(wait);
+                next += SEND_GAP_MICROS * 1000L;
+                sentAt[i] = System.nanoTime();
+                send(out, i, base + i % links);
+            }
+            Thread.sleep(500);
+            for (Object router : routers) close(router);
+            Thread.sleep(300);
+            AtomicLongArray at = receivedAt;
+            receivedAt = null;
+            if (!print) return;
+            LatencyHistogram h = new LatencyHistogram();
+            for (int i = 0; i < packets; i++) {
+                long rx = at.get(i);
+                if (rx != 0L) h.record(rx - sentAt[i]);
+            }
+            System.out.printf("%-24s links=%-3d threads=+%-3d received %d/%d  %s%n", name, links, threads, h.count(), packets, h);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.serialcomm.bench;
+
+import com.MAVLink.MAVLinkPacket;
+import com.serialcomm.service.MessageStatsRegistry;
+import com.serialcomm.util.RateCounter;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Memory and speed of per-key rate counting at {@value #RATE} msgs/s spread over
+ * {@value #KEYS} keys, {@value #SECONDS} s of a simulated clock:
+ * <ul>
+ *   <li>old inspector deque: one boxed timestamp per message, pruned only when its rate is
+ *   read, as the Inspector's {@code Counter} did; nothing reads it here, as for keys nobody
+ *   displays;</li>
+ *   <li>jar {@link MessageStatsRegistry}: the same deque per key, fed through
+ *   {@code onPacket} (it stamps with the wall clock);</li>
+ *   <li>{@link RateCounter}: fixed ring of per-second buckets.</li>
+ * </ul>
+ * Heap retained after GC is printed every 30 simulated seconds. Then the cost of
+ * {@code record} and of an {@code hz(5 s)} read, an exactness check with 4 threads recording
+ * into one bucket, and the rates read for a steady 20 Hz key.
+ * Usage: {@code gradle bench -Pmain=com.serialcomm.bench.RateCounterBench}
+ */
+public final class RateCounterBench {
+    private static final int RATE = 10_000;
+    private static final int KEYS = 500;
+    private static final int SECONDS = 120;
+    private static final int REPORT_EVERY_S = 30;
+    private static double sink;
+
+    private interface Sink {
+        void record(int key, long nowMs);
+    }
+
+    /** The Inspector's counter before {@link RateCounter}. */
+    private static final class DequeCounter {
+        private final ArrayDeque<Long> times = new ArrayDeque<>();
+        synchronized void add(long t) { times.addLast(t); }
+        synchronized double hz(long now, long windowMs) {
+            while (!times.isEmpty() && now - times.peekFirst() > windowMs) {
+                times.removeFirst();
+            }
+            return times.size() * 1000.0 / Math.max(1, windowMs);
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        RateCounter[] rings = new RateCounter[KEYS];
+        for (int k = 0; k < KEYS; k++) rings[k] = new RateCounter();
+        retained("RateCounter", (k, now) -> rings[k].record(now));
+
+        Map<Integer, DequeCounter> deques = new HashMap<>();
+        retained("old inspector deque", (k, now) -> deques.computeIfAbsent(k, x -> new DequeCounter()).add(now));
+        deques.clear();
+
+        MessageStatsRegistry stats = MessageStatsRegistry.getInstance();
+        MAVLinkPacket pkt = new MAVLinkPacket(0, true);
+        retained("jar MessageStatsRegistry", (k, now) -> {
+            pkt.sysid = k % 250 + 1;
+            pkt.compid = k / 250 + 1;
+            stats.onPacket(pkt, "bench");
+        });
+
+        speed();
+        exact();
+        steady();
+    }
+
+    private static void retained(String name, Sink target) {
+        long base = usedAfterGc();
+        StringBuilder line = new StringBuilder(String.format("%-26s", name));
+        long now = 1_700_000_000_000L;
+        for (int s = 1; s <= SECONDS; s++) {
+            for (int i = 0; i < RATE; i++) {
+                target.record(i % KEYS, now + (long) i * 1000 / RATE);
+            }
+            now += 1000;
+            if (s % REPORT_EVERY_S == 0) {
+                line.append(String.format(" %5.1f MB@%ds", (usedAfterGc() - base) / 1e6, s));
+            }
+        }
+        System.out.println(line);
+    }
+
+    private static void speed() {
+        RateCounter c = new RateCounter();
+        int n = 50_000_000;
+        long now = 1_700_000_000_000L;
+        for (int round = 0; round < 3; round++) {
+            long t0 = System.nanoTime();
+            for (int i = 0; i < n; i++) c.record(now + (i >> 12));
+            long t1 = System.nanoTime();
+            long end = now + (n >> 12);
+            for (int i = 0; i < n / 10; i++) sink += c.hz(end + (i & 1023), 5000);
+            long t2 = System.nanoTime();
+            if (round == 2) {
+                System.out.printf("record %.1f ns, hz(5 s) %.1f ns%n", (t1 - t0) / (double) n, (t2 - t1) / (n / 10.0));
+            }
+        }
+    }
+
+    private static void exact() throws InterruptedException {
+        RateCounter c = new RateCounter();
+        long now = 1_700_000_000_500L;
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 1_000_000; i++) c.record(now);
+            });
+            threads[t].start();
+        }
+        for (Thread t : threads) t.join();
+        // A 1 s window over one bucket reads back its count
+        System.out.printf("4 threads x 1M records: %d counted%n", Math.round(c.hz(now + 499, 1000)));
+    }
+
+    private static void steady() {
+        RateCounter c = new RateCounter();
+        long t = 1_700_000_000_000L;
+        for (int i = 0; i < 20 * 10; i++) c.record(t + i * 50L);
+        long now = t + 10_000 - 25;
+        System.out.printf("steady 20 Hz: hz(1 s)=%.1f hz(5 s)=%.1f ewma(tau 3 s)=%.1f%n",
+                c.hz(now, 1000), c.hz(now, 5000), c.ewmaHz(now, 3000));
+    }
+
+    private static long usedAfterGc() {
+        for (int i = 0; i < 3; i++) System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,157 @@
+package com.serialcomm.bench;
+
+import com.serialcomm.link.ThreadedLinkRouter;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.Pipe;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Write coalescing in the {@link ThreadedLinkRouter} sender loop. A router whose
+ * {@code writeBytes} is a real blocking write into a {@link Pipe} (drained by another thread)
+ * is fed telemetry-sized frames ({@code SIZES}), 1 in {@value #HIGH_EVERY} HIGH and 1 in {@value #LOW_EVERY}
+ * LOW: at 1000 msgs/s one by one, at 1000 and 5000 msgs/s in bursts on a 50 Hz tick (as
+ * streams scheduled together arrive), and as fast as the queue takes them. Compared per load:
+ * <ul>
+ *   <li>budget 0: one write per frame, the sender before coalescing;</li>
+ *   <li>64 B: what {@code SerialLinkRouter} coalesces at 115200 baud (5 ms of line time);</li>
+ *   <li>576 B: 921600 baud.</li>
+ * </ul>
+ * Printed: frames and bytes sent per second, write calls (one syscall each) per second,
+ * frames per write and frames dropped. Last, the 115200 and 921600 baud setups with their
+ * token buckets ({@code configureRateLimit(baud / 10, 0.2)}) offered more than the line
+ * carries: sent bytes per second must stay at the line rate, with HIGH kept whole.
+ * Usage: {@code gradle bench -Pmain=com.serialcomm.bench.SenderCoalesceBench [-Pargs="seconds"]}
+ */
+public final class SenderCoalesceBench {
+    private static final int HIGH_EVERY = 10;
+    private static final int LOW_EVERY = 4;
+    /** Frame sizes cycled through, 21 to 100 bytes (HEARTBEAT to PARAM_VALUE in MAVLink v2) */
+    private static final int[] SIZES = {21, 40, 36, 43, 100, 40, 28};
+    private static final int[] BUDGETS = {0, 64, 576};
+    /** msgs/s and frames per tick; rate 0 floods */
+    private static final int[][] LOADS = {{1000, 1}, {1000, 20}, {5000, 100}, {0, 0}};
+
+    /** Router writing to a pipe; frames are offered by the bench thread. */
+    private static final class PipeRouter extends ThreadedLinkRouter {
+        private final Pipe.SinkChannel sink;
+        private final int budget;
+        private volatile boolean connected = true;
+
+        PipeRouter(Pipe.SinkChannel sink, int budget) {
+            this.sink = sink;
+            this.budget = budget;
+            setOutboundCapacity(1024);
+            startSenderLoop();
+        }
+
+        void send(byte[] frame, int weight) { offerOutbound(frame, weight); }
+
+        void close() {
+            connected = false;
+            stopSenderLoop();
+        }
+
+        @Override
+        protected int writeBytes(byte[] data) throws Exception {
+            ByteBuffer b = ByteBuffer.wrap(data);
+            while (b.hasRemaining()) sink.write(b);
+            return data.length;
+        }
+
+        @Override
+        protected int coalesceBudgetBytes() { return budget; }
+
+        @Override
+        protected boolean isConnected() { return connected; }
+
+        @Override
+        protected void dispatchInbound(byte[] buf, int n) {}
+    }
+
+    public static void main(String[] args) throws Exception {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        byte[][] frames = frames();
+        System.out.printf("%-13s %-6s %9s %9s %9s %7s %8s%n", "load", "budget", "frames/s", "writes/s", "KB/s", "fr/wr", "dropped");
+        for (int[] load : LOADS) {
+            for (int budget : BUDGETS) {
+                run(frames, load[0], load[1], budget, 0L, Math.max(1, seconds / 3), false);
+                run(frames, load[0], load[1], budget, 0L, seconds, true);
+            }
+        }
+        System.out.println("token bucket at the line rate, 20% HIGH reserve:");
+        run(frames, 1000, 20, 64, 11_520L, seconds, true);
+        run(frames, 5000, 100, 576, 92_160L, seconds, true);
+    }
+
+    private static byte[][] frames() {
+        byte[][] f = new byte[1000][];
+        for (int i = 0; i < f.length; i++) {
+            f[i] = new byte[SIZES[i % SIZES.length]];
+            f[i][0] = (byte) 0xFD;
+        }
+        return f;
+    }
+
+    private static int weight(int i) {
+        if (i % HIGH_EVERY == 0) return ThreadedLinkRouter.WEIGHT_HIGH;
+        return i % LOW_EVERY == 1 ? ThreadedLinkRouter.WEIGHT_LOW : ThreadedLinkRouter.WEIGHT_NORMAL;
+    }
+
+    /** {@code rate} 0 offers as fast as the queue has room. */
+    private static void run(byte[][] frames, int rate, int burst, int budget, long bytesPerSec, int seconds, boolean print)
+            throws Exception {
+        Pipe pipe = Pipe.open();
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicLong drained = new AtomicLong();
+        Thread reader = new Thread(() -> {
+            ByteBuffer buf = ByteBuffer.allocate(64 * 1024);
+            try {
+                while (!done.get()) {
+                    int n = pipe.source().read(buf);
+                    if (n > 0) drained.addAndGet(n);
+                    buf.clear();
+                }
+            } catch (Exception ignore) {}
+        }, "pipe-reader");
+        reader.start();
+        PipeRouter router = new PipeRouter(pipe.sink(), budget);
+        if (bytesPerSec > 0) router.configureRateLimit(bytesPerSec, 0.2);
+        long step = rate == 0 ? 0L : 1_000_000_000L / rate * burst;
+        long start = System.nanoTime();
+        long end = start + seconds * 1_000_000_000L;
+        long next = start;
+        int i = 0;
+        while (System.nanoTime() < end) {
+            if (step != 0L) {
+                LockSupport.parkNanos(next - System.nanoTime());
+                next += step;
+            } else if (router.getOutboundQueueSize() >= router.getOutboundCapacity() / 2) {
+                Thread.onSpinWait();
+                continue;
+            }
+            for (int b = Math.max(1, burst); b > 0; b--, i++) router.send(frames[i % frames.length], weight(i));
+        }
+        long writes = router.getWriteCalls();
+        long sent = router.getFramesWritten();
+        long bytes = drained.get();
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        router.close();
+        done.set(true);
+        pipe.sink().close();
+        pipe.source().close();
+        reader.join();
+        if (!print) return;
+        long dropped = router.getDroppedHigh() + router.getDroppedNormal() + router.getDroppedLow();
+        String load = rate == 0 ? "flood" : burst == 1 ? rate + "/s" : rate + "/s x" + burst;
+        System.out.printf("%-13s %-6s %9.0f %9.0f %9.1f %7.2f %8d%n", load, budget + " B",
+                sent / elapsed, writes / elapsed, bytes / elapsed / 1024, writes == 0 ? 0.0 : sent / (double) writes, dropped);
+        if (bytesPerSec > 0) {
+            System.out.printf("              %.0f B/s sent, dropped high/normal/low %d/%d/%d, link bucket throttled %d times%n",
+                    bytes / elapsed, router.getDroppedHigh(), router.getDroppedNormal(), router.getDroppedLow(),
+                    router.getLinkBucket().throttleEvents());
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.serialcomm.bench;
+
+import com.MAVLink.MAVLinkPacket;
+import com.MAVLink.minimal.msg_heartbeat;
+import com.fazecast.jSerialComm.SerialPort;
+import com.serialcomm.link.SerialLinkRouter;
+import com.serialcomm.service.MavlinkDispatcher;
+import com.serialcomm.util.LatencyHistogram;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * End-to-end receive latency of {@link SerialLinkRouter} per {@link SerialLinkRouter.ReceiveMode},
+ * over a real pair of ports: {@code txPort} is written with plain jSerialComm, {@code rxPort}
+ * is read by the router. Each frame is a HEARTBEAT carrying its index in {@code custom_mode},
+ * timed from the return of the write (the bytes are with the driver) to the moment a
+ * {@link MavlinkDispatcher} listener sees it parsed, so the line time of the frame is part of
+ * every figure. Modes: EVENT, BLOCKING, and POLL at 10 and 50 ms timer periods.
+ * <p>
+ * Frames go out at {@code hz}, spread evenly. Per mode the latency percentiles, frames received,
+ * and the process CPU time over {@value #IDLE_SECONDS} s of an idle connected link are printed.
+ * Any two ports wired together will do: a null-modem cable between two adapters, or on Linux
+ * a pty pair from {@code socat -d -d pty,raw,echo=0 pty,raw,echo=0}.
+ * Usage: {@code gradle bench -Pmain=com.serialcomm.bench.SerialReceiveBench -Pargs="txPort rxPort [baud frames hz]"}
+ */
+public final class SerialReceiveBench {
+    private static final int IDLE_SECONDS = 5;
+    private static final int SYSID = 77;
+
+    private static volatile AtomicLongArray receivedAt;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.out.println("usage: SerialReceiveBench txPort rxPort [baud frames hz]");
+            return;
+        }
+        String txName = args[0];
+        String rxName = args[1];
+        int baud = args.length > 2 ? Integer.parseInt(args[2]) : 115_200;
+        int frames = args.length > 3 ? Integer.parseInt(args[3]) : 2000;
+        int hz = args.length > 4 ? Integer.parseInt(args[4]) : 50;
+        SerialPort tx = SerialPort.getCommPort(txName);
+        tx.setComPortParameters(baud, 8, SerialPort.ONE_STOP_BIT, SerialPort.NO_PARITY);
+        if (!tx.openPort()) throw new IllegalStateException("open " + txName);
+        MavlinkDispatcher.getInstance().addListener(SerialReceiveBench::onPacket);
+        byte[][] encoded = new byte[frames][];
+        for (int i = 0; i < frames; i++) encoded[i] = frame(i);
+        System.out.printf("%s -> %s @%d, %d frames at %d Hz%n", txName, rxName, baud, frames, hz);
+        try {
+            run(tx, rxName, baud, SerialLinkRouter.ReceiveMode.EVENT, 0, encoded, hz);
+            run(tx, rxName, baud, SerialLinkRouter.ReceiveMode.BLOCKING, 0, encoded, hz);
+            run(tx, rxName, baud, SerialLinkRouter.ReceiveMode.POLL, 10, encoded, hz);
+            run(tx, rxName, baud, SerialLinkRouter.ReceiveMode.POLL, 50, encoded, hz);
+        } finally {
+            tx.closePort();
+        }
+        System.exit(0);
+    }
+
+    private static void onPacket(MAVLinkPacket p) {
+        AtomicLongArray at = receivedAt;
+        if (p.msgid != msg_heartbeat.MAVLINK_MSG_ID_HEARTBEAT || p.sysid != SYSID || at == null) return;
+        int i = (int) new msg_heartbeat(p).custom_mode;
+        if (i >= 0 && i < at.length()) at.compareAndSet(i, 0L, System.nanoTime());
+    }
+
+    private static byte[] frame(int index) {
+        msg_heartbeat hb = new msg_heartbeat();
+        hb.custom_mode = index;
+        MAVLinkPacket pkt = hb.pack();
+        pkt.seq = index & 0xFF;
+        pkt.sysid = SYSID;
+        pkt.compid = 1;
+        return pkt.encodePacket();
+    }
+
+    private static void run(SerialPort tx, String rxName, int baud, SerialLinkRouter.ReceiveMode mode, int periodMs,
+                            byte[][] encoded, int hz) throws Exception {
+        SerialLinkRouter rx = new SerialLinkRouter();
+        rx.setReceiveMode(mode);
+        if (periodMs > 0) rx.setTimerPeriodMs(periodMs);
+        if (!rx.connect(rxName, baud)) throw new IllegalStateException("connect " + rxName);
+        try {
+            Thread.sleep(200);
+            long cpu = processCpuNanos();
+            Thread.sleep(IDLE_SECONDS * 1000L);
+            double idleCpuMs = (processCpuNanos() - cpu) / 1e6;
+
+            int frames = encoded.length;
+            AtomicLongArray at = new AtomicLongArray(frames);
+            long[] sentAt = new long[frames];
+            receivedAt = at;
+            long step = 1_000_000_000L / hz;
+            long next = System.nanoTime();
+            for (int i = 0; i < frames; i++) {
+                LockSupport.parkNanos(next - System.nanoTime());
+                next += step;
+                tx.writeBytes(encoded[i], encoded[i].length);
+                sentAt[i] = System.nanoTime();
+            }
+            for (int idle = 0; idle < 100 && at.get(frames - 1) == 0L; idle++) Thread.sleep(10);
+            receivedAt = null;
+
+            LatencyHistogram h = new LatencyHistogram();
+            for (int i = 0; i < frames; i++) {
+                long t = at.get(i);
+                if (t != 0L) h.record(Math.max(0L, t - sentAt[i]));
+            }
+            String name = periodMs > 0 ? mode + " " + periodMs + " ms" : mode.toString();
+            System.out.printf("%-12s %s  received %d/%d  idle CPU %.1f ms in %d s%n",
+                    name, h, h.count(), frames, idleCpuMs, IDLE_SECONDS);
+        } finally {
+            rx.disconnect();
+        }
+    }
+
+    private static long processCpuNanos() {
+        return ((com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean()).getProcessCpuTime();
+    }
+}
@@ -0,0 +1,156 @@
+package com.serialcomm.bench;
+
+import com.MAVLink.MAVLinkPacket;
+import com.MAVLink.minimal.msg_heartbeat;
+import com.serialcomm.link.NioTcpServer;
+import com.serialcomm.service.MavlinkDispatcher;
+import com.serialcomm.util.LatencyHistogram;
+
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Load on {@link NioTcpServer} from N loopback clients dialling in at once, as a swarm of
+ * simulators does: each client connects, then writes {@code frames} HEARTBEAT frames (its
+ * index in sysid, the frame index in {@code custom_mode}). Every connection gets its own
+ * session and parser on the server; a dispatcher listener stamps each frame when it comes
+ * out parsed. Two runs per N:
+ * <ul>
+ *   <li>flood: clients write as fast as their sockets take it, for the aggregate ceiling
+ *   (latency there is mostly the backlog);</li>
+ *   <li>paced: each client at {@code hz} frames/s, spread evenly, for the latency a
+ *   connection sees under that load.</li>
+ * </ul>
+ * Printed: throughput from the first send to the last frame parsed, latency from write to
+ * parsed over all frames, the spread of the per-connection p99, frames received, and how
+ * many server-side clients were left after the clients closed.
+ * Usage: {@code gradle bench -Pmain=com.serialcomm.bench.TcpServerLoadBench [-Pargs="frames hz rounds"]}
+ */
+public final class TcpServerLoadBench {
+    private static final int PORT = 25760;
+    private static final int[] CLIENTS = {1, 20, 50};
+
+    /** receivedAt[client * frames + i] */
+    private static volatile AtomicLongArray receivedAt;
+    private static volatile int framesPerClient;
+
+    public static void main(String[] args) throws Exception {
+        int frames = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int hz = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+        MavlinkDispatcher.getInstance().addListener(TcpServerLoadBench::onPacket);
+        NioTcpServer server = new NioTcpServer();
+        if (!server.listen(PORT)) throw new IllegalStateException("listen " + PORT);
+        try {
+            for (int r = 0; r < rounds; r++) {
+                for (int n : CLIENTS) {
+                    run(server, n, frames, 0, r == rounds - 1);
+                    run(server, n, frames, hz, r == rounds - 1);
+                }
+            }
+        } finally {
+            server.close();
+        }
+        System.exit(0);
+    }
+
+    private static void onPacket(MAVLinkPacket p) {
+        AtomicLongArray at = receivedAt;
+        if (p.msgid != msg_heartbeat.MAVLINK_MSG_ID_HEARTBEAT || at == null) return;
+        int i = (p.sysid - 1) * framesPerClient + (int) new msg_heartbeat(p).custom_mode;
+        if (i >= 0 && i < at.length()) at.compareAndSet(i, 0L, System.nanoTime());
+    }
+
+    private static byte[] frame(int client, int index) {
+        msg_heartbeat hb = new msg_heartbeat();
+        hb.custom_mode = index;
+        MAVLinkPacket pkt = hb.pack();
+        pkt.seq = index & 0xFF;
+        pkt.sysid = client + 1;
+        pkt.compid = 1;
+        return pkt.encodePacket();
+    }
+
+    /** {@code hz} 0 floods. */
+    private static void run(NioTcpServer server, int clients, int frames, int hz, boolean print) throws Exception {
+        framesPerClient = frames;
+        receivedAt = new AtomicLongArray(clients * frames);
+        long[] sentAt = new long[clients * frames];
+        Socket[] sockets = new Socket[clients];
+        for (int c = 0; c < clients; c++) {
+            sockets[c] = new Socket(InetAddress.getLoopbackAddress(), PORT);
+            sockets[c].setTcpNoDelay(true);
+        }
+        for (int wait = 0; server.clientCount() < clients; wait++) {
+            if (wait == 200) throw new IllegalStateException(server.clientCount() + " of " + clients + " accepted");
+            Thread.sleep(10);
+        }
+        CountDownLatch go = new CountDownLatch(1);
+        Thread[] senders = new Thread[clients];
+        for (int c = 0; c < clients; c++) {
+            int client = c;
+            byte[][] encoded = new byte[frames][];
+            for (int i = 0; i < frames; i++) encoded[i] = frame(client, i);
+            senders[c] = new Thread(() -> {
+                try {
+                    OutputStream out = sockets[client].getOutputStream();
+                    go.await();
+                    long step = hz == 0 ? 0L : 1_000_000_000L / hz;
+                    long next = System.nanoTime() + step * client / clients;
+                    for (int i = 0; i < frames; i++) {
+                        if (step != 0L) {
+                            LockSupport.parkNanos(next - System.nanoTime());
+                            next += step;
+                        }
+                        sentAt[client * frames + i] = System.nanoTime();
+                        out.write(encoded[i]);
+                    }
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }, "client-" + c);
+            senders[c].start();
+        }
+        long start = System.nanoTime();
+        go.countDown();
+        for (Thread t : senders) t.join();
+        AtomicLongArray at = receivedAt;
+        int total = clients * frames;
+        for (int idle = 0; idle < 100 && received(at) < total; idle++) Thread.sleep(10);
+        for (Socket s : sockets) s.close();
+        for (int wait = 0; wait < 200 && server.clientCount() > 0; wait++) Thread.sleep(10);
+        receivedAt = null;
+        if (!print) return;
+
+        LatencyHistogram all = new LatencyHistogram();
+        long last = 0L;
+        long worstP99 = 0L;
+        long bestP99 = Long.MAX_VALUE;
+        for (int c = 0; c < clients; c++) {
+            LatencyHistogram one = new LatencyHistogram();
+            for (int i = c * frames; i < (c + 1) * frames; i++) {
+                long rx = at.get(i);
+                if (rx == 0L) continue;
+                one.record(rx - sentAt[i]);
+                all.record(rx - sentAt[i]);
+                last = Math.max(last, rx);
+            }
+            worstP99 = Math.max(worstP99, one.percentile(0.99));
+            bestP99 = Math.min(bestP99, one.percentile(0.99));
+        }
+        double seconds = (last - start) / 1e9;
+        System.out.printf("N=%-3d %-9s %7.0f frames/s  %s  per-connection p99 %s..%s  received %d/%d  left=%d%n",
+                clients, hz == 0 ? "flood" : hz + " Hz", all.count() / seconds, all, LatencyHistogram.format(bestP99), LatencyHistogram.format(worstP99),
+                all.count(), total, server.clientCount());
+    }
+
+    private static int received(AtomicLongArray at) {
+        int n = 0;
+        for (int i = 0; i < at.length(); i++) if (at.get(i) != 0L) n++;
+        return n;
+    }
+}
@@ -0,0 +1,101 @@
+package com.serialcomm.bench;
+
+import com.MAVLink.MAVLinkPacket;
+import com.MAVLink.Messages.MAVLinkMessage;
+import com.serialcomm.service.MessageNames;
+import com.serialcomm.service.TelemetryRegistry;
+import com.serialcomm.service.TelemetryStore;
+import com.serialcomm.util.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Ingest latency under continuous key churn: {@value #SYSIDS} sysids x {@value #COMPIDS}
+ * compids x {@value #TYPES} message types (102,400 distinct keys) ingested in uniform random
+ * order, far more fields than the store holds, so nearly every ingest is a miss that evicts.
+ * <ul>
+ *   <li>{@link TelemetryStore} with {@value #SLOTS} field slots, CLOCK eviction;</li>
+ *   <li>the jar's {@link TelemetryRegistry}, which sorts all items in {@code shrinkToLimit}
+ *   once it is over its limit.</li>
+ * </ul>
+ * Each ingest is timed on its own; p50/p99/p99.9/max are printed per window of
+ * {@code window} ingests after one warm-up window, so a flat store shows the same line each
+ * time.
+ * Usage: {@code gradle bench -Pmain=com.serialcomm.bench.TelemetryChurnBench [-Pargs="window windows"]}
+ */
+public final class TelemetryChurnBench {
+    private static final int SYSIDS = 256;
+    private static final int COMPIDS = 4;
+    private static final int TYPES = 100;
+    private static final int SLOTS = 65_536;
+
+    public static void main(String[] args) {
+        int window = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int windows = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        MAVLinkMessage[] messages = messageTypes();
+        MAVLinkPacket[] packets = new MAVLinkPacket[TYPES];
+        for (int i = 0; i < TYPES; i++) packets[i] = messages[i].pack();
+        System.out.printf("%d keys, %d-ingest windows%n", SYSIDS * COMPIDS * TYPES, window);
+
+        TelemetryStore store = new TelemetryStore(SLOTS);
+        run("TelemetryStore", window, windows, messages, (sys, comp, t) ->
+                store.ingest(sys, comp, messages[t].msgid, messages[t], System.currentTimeMillis()));
+        System.out.printf("  rows=%d evictions=%d rejected=%d%n", store.rowCount(), store.evictions(), store.rejectedRows());
+
+        TelemetryRegistry registry = TelemetryRegistry.getInstance();
+        run("jar TelemetryRegistry", window, windows, messages, (sys, comp, t) -> {
+            MAVLinkPacket p = packets[t];
+            p.sysid = sys;
+            p.compid = comp;
+            registry.ingest("bench", p, messages[t]);
+        });
+    }
+
+    private interface Ingest {
+        void ingest(int sysid, int compid, int type);
+    }
+
+    private static void run(String name, int window, int windows, MAVLinkMessage[] messages, Ingest target) {
+        SplittableRandom rnd = new SplittableRandom(1);
+        LatencyHistogram hist = new LatencyHistogram();
+        System.out.println(name);
+        for (int w = 0; w <= windows; w++) {
+            for (int i = 0; i < window; i++) {
+                int key = rnd.nextInt(SYSIDS * COMPIDS * TYPES);
+                int type = key % TYPES;
+                int comp = (key / TYPES) % COMPIDS;
+                int sys = key / (TYPES * COMPIDS);
+                long t0 = System.nanoTime();
+                target.ingest(sys, comp, type);
+                hist.record(System.nanoTime() - t0);
+            }
+            LatencyHistogram.Snapshot s = hist.snapshotAndReset();
+            if (w > 0) System.out.printf("  window %d: %s%n", w, s);
+        }
+    }
+
+    /** The first {@value #TYPES} messages of the bundled dialects, one instance each. */
+    private static MAVLinkMessage[] messageTypes() {
+        List<MAVLinkMessage> out = new ArrayList<>();
+        for (int id = 0; id < 0x10000 && out.size() < TYPES; id++) {
+            String simple = MessageNames.simpleName(id);
+            if (simple == null) continue;
+            MAVLinkMessage m = instantiate(simple);
+            if (m != null) out.add(m);
+        }
+        return out.toArray(new MAVLinkMessage[0]);
+    }
+
+    private static MAVLinkMessage instantiate(String simple) {
+        for (String dialect : new String[] {"minimal", "common", "ardupilotmega"}) {
+            try {
+                return (MAVLinkMessage) Class.forName("com.MAVLink." + dialect + "." + simple).getConstructor().newInstance();
+            } catch (ReflectiveOperationException e) {
+                // next dialect
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,122 @@
+package com.serialcomm.bench;
+
+import com.MAVLink.common.msg_attitude;
+import com.serialcomm.service.VehicleState;
+import com.serialcomm.service.VehicleStore;
+import com.serialcomm.util.LatencyHistogram;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Update latency of {@value #VEHICLES} vehicles sending ATTITUDE at {@value #HZ} Hz each
+ * from {@value #WRITERS} writer threads, with 0 or 2 reader threads copying the whole fleet
+ * in a loop:
+ * <ul>
+ *   <li>jar {@link VehicleState}: one lock over a map keyed by "sys:comp" strings; readers
+ *   call {@code getSnapshots()};</li>
+ *   <li>{@link VehicleStore}: one seqlock per vehicle slot; readers {@code read} every id
+ *   into a reused view.</li>
+ * </ul>
+ * Each update is timed on its own; p50/p99/p99.9/max are printed per run, with the full-fleet
+ * reads per second and, for the store, the optimistic reads that were repeated.
+ * Usage: {@code gradle bench -Pmain=com.serialcomm.bench.VehicleStoreBench [-Pargs="seconds"]}
+ */
+public final class VehicleStoreBench {
+    private static final int VEHICLES = 200;
+    private static final int HZ = 50;
+    private static final int WRITERS = 4;
+    private static volatile long sink;
+
+    private interface Target {
+        /** Apply one ATTITUDE of vehicle {@code v}; {@code msg} is owned by the calling writer. */
+        void update(int v, msg_attitude msg, long nowMs);
+        /** Copy the whole fleet once. */
+        void readAll();
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        VehicleState jar = VehicleState.getInstance();
+        Target jarTarget = new Target() {
+            @Override public void update(int v, msg_attitude m, long nowMs) {
+                jar.updateAttitude("bench", sysid(v), 1, m.roll, m.pitch, m.yaw);
+            }
+            @Override public void readAll() { sink += jar.getSnapshots().size(); }
+        };
+        VehicleStore store = new VehicleStore();
+        ThreadLocal<VehicleStore.View> views = ThreadLocal.withInitial(VehicleStore.View::new);
+        Target storeTarget = new Target() {
+            @Override public void update(int v, msg_attitude m, long nowMs) {
+                store.update("bench", sysid(v), 1, true, m, nowMs);
+            }
+            @Override public void readAll() {
+                VehicleStore.View view = views.get();
+                for (int id : store.ids()) {
+                    if (store.read(id, view)) sink += view.attitudeTimeMs;
+                }
+            }
+        };
+        System.out.printf("%d vehicles x %d Hz from %d writers, %d s per run%n", VEHICLES, HZ, WRITERS, seconds);
+        // Warm-up, not printed
+        run("jar", jarTarget, 2, Math.max(1, seconds / 4), false);
+        run("store", storeTarget, 2, Math.max(1, seconds / 4), false);
+        for (int readers : new int[] {0, 2}) {
+            run("jar", jarTarget, readers, seconds, true);
+            long retries = store.readRetries();
+            run("store", storeTarget, readers, seconds, true);
+            if (readers > 0) System.out.printf("      store read retries: %d%n", store.readRetries() - retries);
+        }
+    }
+
+    private static int sysid(int v) { return v + 1; }
+
+    private static void run(String name, Target target, int readers, int seconds, boolean print) throws InterruptedException {
+        LatencyHistogram hist = new LatencyHistogram();
+        AtomicBoolean stop = new AtomicBoolean();
+        LongAdder reads = new LongAdder();
+        Thread[] threads = new Thread[WRITERS + readers];
+        for (int w = 0; w < WRITERS; w++) {
+            int first = w * VEHICLES / WRITERS;
+            int last = (w + 1) * VEHICLES / WRITERS;
+            threads[w] = new Thread(() -> write(target, first, last, hist, stop), "writer-" + w);
+        }
+        for (int r = 0; r < readers; r++) {
+            threads[WRITERS + r] = new Thread(() -> {
+                while (!stop.get()) {
+                    target.readAll();
+                    reads.increment();
+                }
+            }, "reader-" + r);
+        }
+        for (Thread t : threads) t.start();
+        Thread.sleep(seconds * 1000L);
+        stop.set(true);
+        for (Thread t : threads) t.join();
+        if (!print) return;
+        System.out.printf("%-5s %d readers: %s, %.0f fleet reads/s%n",
+                name, readers, hist.snapshot(), reads.sum() / (double) seconds);
+    }
+
+    /** Vehicles first..last-1, each updated every 1/{@value #HZ} s, spread evenly over the period. */
+    private static void write(Target target, int first, int last, LatencyHistogram hist, AtomicBoolean stop) {
+        msg_attitude msg = new msg_attitude();
+        long stepNanos = 1_000_000_000L / HZ / (last - first);
+        long next = System.nanoTime();
+        int v = first;
+        while (!stop.get()) {
+            long wait = next - System.nanoTime();
+            if (wait > 50_000L) LockSupport.parkNanos(wait - 50_000L);
+            while (System.nanoTime() < next) Thread.onSpinWait();
+            msg.roll = v * 0.01f;
+            msg.pitch = -msg.roll;
+            msg.yaw += 0.001f;
+            long t0 = System.nanoTime();
+            target.update(v, msg, System.currentTimeMillis());
+            hist.record(System.nanoTime() - t0);
+            next += stepNanos;
+            if (++v == last) v = first;
+        }
+    }
+}
@@ -71,6 +71,11 @@ public class App extends Application {
             logger.error(languageManager.getString("log.exception.uncaught"), exception);
         });
         
+        // Vehicle state subscribes before any view does, so views read it after each update
+        try { com.serialcomm.service.VehicleStore.getInstance().start(); } catch (Throwable t) { com.serialcomm.util.ErrorMonitor.record("vehicle.store.start", t); }
+        try { com.serialcomm.service.LinkLossStats.getInstance().start(); } catch (Throwable t) { com.serialcomm.util.ErrorMonitor.record("link.loss.start", t); }
+        try { com.serialcomm.service.PipelineLatency.getInstance().startUiProbe(100L); } catch (Throwable t) { com.serialcomm.util.ErrorMonitor.record("latency.probe.start", t); }
+
         try {
             // Load the main FXML and set the resource bundle for i18n
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/fxml/main.fxml"));
@@ -163,6 +168,24 @@ public class App extends Application {
             // Initialize the capability service (subscribes dispatcher for capability/version logs)
             try { com.serialcomm.service.CapabilityService.getInstance(); } catch (Throwable ignore) {}
 
+            // Register per-link adapters (selector-based network, token-bucket serial) preferred by multi-link mode
+            try {
+                com.serialcomm.link.spi.LinkRegistry.getInstance().register(new com.serialcomm.link.spi.adapters.SerialLinkAdapter());
+                com.serialcomm.link.spi.LinkRegistry.getInstance().register(new com.serialcomm.link.spi.adapters.NioUdpAdapter());
+                com.serialcomm.link.spi.LinkRegistry.getInstance().register(new com.serialcomm.link.spi.adapters.NioTcpClientAdapter());
+                com.serialcomm.link.spi.LinkRegistry.getInstance().register(new com.serialcomm.link.spi.adapters.TcpServerAdapter());
+                com.serialcomm.link.spi.LinkRegistry.getInstance().register(new com.serialcomm.link.spi.adapters.LoopbackAdapter());
+            } catch (Throwable t) { com.serialcomm.util.ErrorMonitor.record("link.registry.nio", t); }
+
+            // Build the msgid -> name table off the UI thread (loads every message class once)
+            try {
+                com.serialcomm.service.Scheduler.getInstance().ensureBackground()
+                    .submit(() -> { try { com.serialcomm.service.MessageNames.size(); } catch (Throwable ignore) {} });
+            } catch (Throwable ignore) {}
+
+            // Latest field values for the status tab, fed from the packet hub
+            try { com.serialcomm.service.TelemetryStore.getInstance().start(); } catch (Throwable t) { com.serialcomm.util.ErrorMonitor.record("telemetry.store.start", t); }
+
             // Start periodic ErrorMonitor aggregation (every 10s) via the shared Scheduler
             try {
                 com.serialcomm.service.Scheduler.getInstance().ensureBackground()
@@ -172,8 +195,8 @@ public class App extends Application {
                     }, 10_000L, 10_000L, java.util.concurrent.TimeUnit.MILLISECONDS);
             } catch (Throwable t) { com.serialcomm.util.ErrorMonitor.record("error.monitor.schedule", t); }
 
-            // Start online-state monitor (3s offline threshold; check every 1s)
-            com.serialcomm.service.HeartbeatMonitor.getInstance().start(1000L, 3000L);
+            // Start online-state monitor (3s offline threshold, 100ms resolution; purge after 60s silence)
+            com.serialcomm.service.VehicleLiveness.getInstance().start(100L, 3000L, 60_000L);
         } catch (Exception e) {
             // Log startup failure error
             logger.error(languageManager.getString("log.app.start.failed"), e);
@@ -11,6 +11,7 @@ import javafx.scene.control.Alert;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.Timer;
 import java.util.TimerTask;
@@ -136,12 +137,14 @@ public abstract class BaseController {
             } catch (Exception ignore) {
                 // ignore
             }
+            com.serialcomm.link.MultiLinkManager.getInstance().setActiveController(this);
         }
     }
     
     /** Query link connection state (prefer centralized router). */
     public boolean isPortConnected() {
         // Prefer centralized router query
+        if (com.serialcomm.link.MultiLinkManager.getInstance().isConnected()) return true;
         if (com.serialcomm.service.TransportViewModel.getInstance().isConnected()) return true;
         return serialPort != null && serialPort.isOpen();
     }
@@ -222,6 +225,14 @@ public abstract class BaseController {
             return;
         }
         try {
+            com.serialcomm.link.MultiLinkManager multi = com.serialcomm.link.MultiLinkManager.getInstance();
+            if (multi.isActive()) {
+                byte[] raw = currentReceiveMode == ReceiveMode.HEX
+                        ? hexStringToByteArray(data)
+                        : data.getBytes(StandardCharsets.UTF_8);
+                multi.send(raw, com.serialcomm.serial.SerialRouter.Priority.NORMAL, 0);
+                return;
+            }
             // 使用集中路由器进行合流发送
             if (currentReceiveMode == ReceiveMode.HEX) {
                 com.serialcomm.service.TransportViewModel.getInstance().sendHex(data);
@@ -233,6 +244,16 @@ public abstract class BaseController {
         }
     }
     
+    /** Send a MAVLink packet through multi-link routing when active, else the single-link transport. */
+    protected void sendPacket(com.MAVLink.MAVLinkPacket pkt, com.serialcomm.serial.SerialRouter.Priority priority) {
+        com.serialcomm.link.MultiLinkManager multi = com.serialcomm.link.MultiLinkManager.getInstance();
+        if (multi.isActive()) {
+            multi.send(pkt, priority);
+        } else {
+            com.serialcomm.service.TransportViewModel.getInstance().sendPacket(pkt, priority);
+        }
+    }
+
     /** Deprecated: 统一由 Router 推送，本方法不再启动轮询。 */
     @Deprecated
     protected void startReceiveTimer() {
@@ -304,11 +325,7 @@ public abstract class BaseController {
     }
     
     private String bytesToHex(byte[] bytes, int length) {
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < length; i++) {
-            sb.append(String.format("%02X ", bytes[i]));
-        }
-        return sb.toString().toUpperCase();
+        return com.serialcomm.util.HexText.toHex(bytes, 0, length);
     }
     
     private byte[] hexStringToByteArray(String hexString) {
@@ -345,18 +362,38 @@ public abstract class BaseController {
     /** Subclasses must handle received text (ASCII/HEX). */
     protected abstract void onDataReceived(String data);
 
-    /** Callback from router: convert bytes to current receive-mode text, deliver if active. */
+    /**
+     * Byte-oriented receive hook for the active controller.
+     * The buffer is only valid for the duration of the call; implementations that defer
+     * work must copy what they need. The default renders the bytes in the current
+     * receive mode and forwards the text to {@link #onDataReceived(String)}.
+     */
+    protected void onBytes(ByteBuffer data) {
+        String receivedData;
+        if (currentReceiveMode == ReceiveMode.HEX) {
+            receivedData = com.serialcomm.util.HexText.toHex(data);
+        } else {
+            ByteBuffer view = data.duplicate();
+            receivedData = StandardCharsets.UTF_8.decode(view).toString();
+        }
+        onDataReceived(receivedData);
+    }
+
+    /** Pipeline sink registered once; chunks carry its id, so they reach this controller even after a tab switch */
+    private final int pipelineSinkId = com.serialcomm.service.ReceivePipeline.getInstance().register(this::deliverBytes);
+
+    /**
+     * Callback from router (reader thread): hand the chunk to the receive pipeline and return.
+     * Delivery to {@link #onBytes(ByteBuffer)} happens on the pipeline consumer thread.
+     */
     public void onBytesFromRouter(byte[] buffer, int length) {
+        if (!isActive || buffer == null || length <= 0) return;
+        com.serialcomm.service.ReceivePipeline.getInstance().offer(pipelineSinkId, buffer, 0, Math.min(length, buffer.length));
+    }
+
+    private void deliverBytes(ByteBuffer data) {
         try {
-            String receivedData;
-            if (currentReceiveMode == ReceiveMode.HEX) {
-                receivedData = bytesToHex(buffer, length);
-            } else {
-                receivedData = new String(buffer, 0, length, StandardCharsets.UTF_8);
-            }
-            if (isActive) {
-                onDataReceived(receivedData);
-            }
+            onBytes(data);
         } catch (Exception e) {
             logger.error(languageManager.getString("log.serial.receive.error"), e);
         }
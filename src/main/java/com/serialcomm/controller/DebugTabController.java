@@ -14,6 +14,10 @@ import javafx.scene.input.KeyCode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
 import java.util.function.IntConsumer;
 
@@ -89,7 +93,8 @@ public class DebugTabController extends BaseController {
                 // On mode switch, clear UI and any pending background buffer to avoid
                 // waiting for old backlog to flush to the UI
                 try {
-                    if (uiAppender != null) uiAppender.clearBuffer();
+                    if (byteAppender != null) byteAppender.clearBuffer();
+                    resetAsciiDecoder();
                     receiveTextArea.clear();
                     lastTrimMs = 0L; lastScrollMs = 0L;
                 } catch (Exception e) { com.serialcomm.util.ErrorMonitor.record("ui.debug.clear", e); }
@@ -101,7 +106,8 @@ public class DebugTabController extends BaseController {
                     statusCallback.updateStatus(languageManager.getString("status.mode.hex"));
                 }
                 try {
-                    if (uiAppender != null) uiAppender.clearBuffer();
+                    if (byteAppender != null) byteAppender.clearBuffer();
+                    resetAsciiDecoder();
                     receiveTextArea.clear();
                     lastTrimMs = 0L; lastScrollMs = 0L;
                 } catch (Exception e) { com.serialcomm.util.ErrorMonitor.record("ui.debug.clear", e); }
@@ -234,19 +240,64 @@ public class DebugTabController extends BaseController {
         }
     }
     
-    private com.serialcomm.service.UiAppender uiAppender;
+    private com.serialcomm.service.ByteAppender byteAppender;
     @Override
-    protected void onDataReceived(String data) {
-        if (uiAppender == null) {
-            // In ASCII mode, cap the maximum characters per flush to avoid pushing
-            // very long text to the UI thread at once
-            uiAppender = new com.serialcomm.service.UiAppender(this::appendToReceiveArea)
+    protected void onBytes(ByteBuffer data) {
+        if (byteAppender == null) {
+            // Raw bytes are buffered and only the flushed chunk is rendered. The per-flush
+            // cap keeps ASCII text pushed to the UI thread small; HEX triples the size.
+            byteAppender = new com.serialcomm.service.ByteAppender(this::renderReceivedBytes)
                     .setFlushIntervalMs(100)
-                    .setMaxFlushChars(2048)
-                    .setBufferCapChars(20000);
-            uiAppender.start();
+                    .setMaxFlushBytes(2048)
+                    .setBufferCapBytes(20000);
+            byteAppender.start();
+        }
+        byteAppender.append(data);
+    }
+
+    @Override
+    protected void onDataReceived(String data) {
+        // Text path is only used by legacy callers; routed bytes arrive through onBytes
+        Platform.runLater(() -> appendToReceiveArea(data));
+    }
+
+    private void renderReceivedBytes(byte[] chunk) {
+        String text = (currentReceiveMode == ReceiveMode.HEX)
+                ? com.serialcomm.util.HexText.toHex(chunk, 0, chunk.length)
+                : decodeAscii(chunk);
+        appendToReceiveArea(text);
+    }
+
+    /** ASCII view decoder; FX thread only, like every flush it decodes */
+    private final CharsetDecoder asciiDecoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    /** Start of a UTF-8 sequence cut off by the last flush (at most 3 bytes) */
+    private final ByteBuffer asciiCarry = ByteBuffer.allocate(4);
+
+    /**
+     * Decode one flushed chunk, continuing a multi-byte sequence the previous flush ended in;
+     * an incomplete sequence at the end is kept for the next flush instead of becoming U+FFFD.
+     */
+    private String decodeAscii(byte[] chunk) {
+        ByteBuffer in;
+        if (asciiCarry.position() > 0) {
+            asciiCarry.flip();
+            in = ByteBuffer.allocate(asciiCarry.remaining() + chunk.length).put(asciiCarry).put(chunk).flip();
+            asciiCarry.clear();
+        } else {
+            in = ByteBuffer.wrap(chunk);
         }
-        uiAppender.append(data);
+        // UTF-8 never decodes to more chars than bytes
+        CharBuffer out = CharBuffer.allocate(in.remaining());
+        asciiDecoder.decode(in, out, false);
+        if (in.remaining() <= asciiCarry.capacity()) asciiCarry.put(in);
+        return out.flip().toString();
+    }
+
+    private void resetAsciiDecoder() {
+        asciiDecoder.reset();
+        asciiCarry.clear();
     }
     
     private long lastTrimMs = 0L;
@@ -1,7 +1,6 @@
 package com.serialcomm.controller;
 
 import com.MAVLink.MAVLinkPacket;
-import com.MAVLink.Messages.MAVLinkMessage;
 import com.MAVLink.Parser;
 import com.serialcomm.util.LanguageManager;
 import javafx.application.Platform;
@@ -42,7 +41,7 @@ public class InspectorTabController extends BaseController {
 	private final ObservableList<Row> rows = FXCollections.observableArrayList();
 	private final Map<String, Row> keyToRow = new ConcurrentHashMap<>();
 	private final Parser parser = new Parser();
-	private final Map<String, Counter> freq = new ConcurrentHashMap<>();
+	private final Map<String, com.serialcomm.util.RateCounter> freq = new ConcurrentHashMap<>();
 	private volatile long windowMs = 1000;
     private final ConcurrentLinkedQueue<Update> pending = new ConcurrentLinkedQueue<>();
     private static final class Update {
@@ -86,8 +85,10 @@ public class InspectorTabController extends BaseController {
 
 			// Subscribe to central dispatcher for real-time updates
             try {
-                com.serialcomm.service.MavlinkDispatcher.getInstance().addListener(pkt -> {
-                    try { handlePacket(pkt); } catch (Exception t) { com.serialcomm.util.ErrorMonitor.record("inspector.handlePacket", t); }
+                // Own queue: a busy table never slows parsing; under overload the oldest rows are skipped
+                com.serialcomm.service.PacketHub.getInstance().subscribeAsync("inspector", new int[0],
+                        com.serialcomm.service.AsyncSubscriber.Overflow.DROP_OLDEST, 4096, env -> {
+                    try { handlePacket(env); } catch (Exception t) { com.serialcomm.util.ErrorMonitor.record("inspector.handlePacket", t); }
                 });
             } catch (Throwable t) { com.serialcomm.util.ErrorMonitor.record("inspector.subscribe", t); }
 
@@ -103,13 +104,15 @@ public class InspectorTabController extends BaseController {
         // do not re-parse here to avoid double-counting frequencies
     }
 
-    private void handlePacket(MAVLinkPacket pkt) {
-        MAVLinkMessage msg = pkt.unpack();
-        String name = (msg != null) ? msg.getClass().getSimpleName() : ("MSG#" + pkt.msgid);
+    private void handlePacket(com.serialcomm.service.PacketEnvelope env) {
+        MAVLinkPacket pkt = env.packet();
+        // Name from the static msgid table; no decode needed just to label the row
+        String simple = com.serialcomm.service.MessageNames.simpleName(pkt.msgid);
+        String name = (simple != null) ? simple : ("MSG#" + pkt.msgid);
         String key = pkt.sysid + ":" + pkt.compid + ":" + name;
-        Counter c = freq.computeIfAbsent(key, k -> new Counter());
+        com.serialcomm.util.RateCounter c = freq.computeIfAbsent(key, k -> new com.serialcomm.util.RateCounter());
         long now = System.currentTimeMillis();
-        c.add(now);
+        c.record(now);
         pending.add(new Update(pkt.sysid, pkt.compid, pkt.msgid, name, now));
         UiUpdateQueue.get().submit("inspector.tick", this::drainAndApply);
     }
@@ -149,7 +152,7 @@ public class InspectorTabController extends BaseController {
             }
             long now = System.currentTimeMillis();
             for (Map.Entry<String, Row> e : keyToRow.entrySet()) {
-                Counter cc = freq.get(e.getKey());
+                com.serialcomm.util.RateCounter cc = freq.get(e.getKey());
                 if (cc == null) continue;
                 double hz = cc.hz(now, windowMs);
                 e.getValue().freqProperty().set(String.format("%.2f", hz));
@@ -227,17 +230,6 @@ public class InspectorTabController extends BaseController {
         } catch (Exception e) { com.serialcomm.util.ErrorMonitor.record("ui.inspector.globalChange", e); }
     }
 
-	private static final class Counter {
-		private final java.util.ArrayDeque<Long> times = new java.util.ArrayDeque<>();
-		synchronized void add(long t) { times.addLast(t); }
-		synchronized double hz(long now, long windowMs) {
-			while (!times.isEmpty() && now - times.peekFirst() > windowMs) {
-				times.removeFirst();
-			}
-			return times.size() * 1000.0 / Math.max(1, windowMs);
-		}
-	}
-
 	public static final class Row {
 		private final javafx.beans.property.SimpleStringProperty time;
 		private final javafx.beans.property.SimpleStringProperty sys;
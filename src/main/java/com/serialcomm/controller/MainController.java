@@ -6,7 +6,6 @@ import com.serialcomm.serial.SerialRouter;
 import com.serialcomm.link.LinkManager;
 import com.serialcomm.util.LanguageChangeListener;
 import com.serialcomm.util.LanguageManager;
-import com.serialcomm.service.VehicleState;
 import com.serialcomm.util.UiUpdateQueue;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
@@ -96,6 +95,11 @@ public class MainController implements StatusCallback, LanguageChangeListener {
     private final AtomicLong totalBytesReceived = new AtomicLong(0);
     private final AtomicLong totalBytesSent = new AtomicLong(0);
     private long lastBytesReceived = 0;
+    private long lastRxOverruns = 0;
+    private long lastLinkRxOverruns = 0;
+    /** Latency histograms are logged (and restarted) every this many monitor ticks */
+    private static final int LATENCY_LOG_TICKS = 10;
+    private int latencyTicks = 0;
     private long lastBytesSent = 0;
     private final AtomicLong rxBitPerSec = new AtomicLong(0);
     private final AtomicLong txBitPerSec = new AtomicLong(0);
@@ -158,6 +162,7 @@ public class MainController implements StatusCallback, LanguageChangeListener {
 
             // 将全局字节统计回调设置到统一链路管理（同时覆盖串口与网络）
             com.serialcomm.service.TransportViewModel.getInstance().setByteCountCallbacks(this::addReceivedBytes, this::addSentBytes);
+            com.serialcomm.link.MultiLinkManager.getInstance().setByteCountCallbacks(this::addReceivedBytes, this::addSentBytes);
             // 初始时确保网络侧的活动控制器也同步
             BaseController owner = getActiveController();
             if (owner != null) com.serialcomm.service.TransportViewModel.getInstance().setActiveController(owner);
@@ -397,7 +402,7 @@ public class MainController implements StatusCallback, LanguageChangeListener {
      */
     private void updateConnectButtonText() {
         if (connectButton != null) {
-            boolean connected = com.serialcomm.service.TransportViewModel.getInstance().isConnected();
+            boolean connected = isAnyLinkConnected();
             String buttonText = connected ? 
                 languageManager.getString("ui.main.disconnect") : 
                 languageManager.getString("ui.main.connect");
@@ -542,6 +547,7 @@ public class MainController implements StatusCallback, LanguageChangeListener {
             int period = Integer.parseInt(periodStr.replace("ms", ""));
             // 更新集中路由器的定时器周期（统一由 TransportViewModel 代理）
             com.serialcomm.service.TransportViewModel.getInstance().setTimerPeriod(period);
+            com.serialcomm.link.MultiLinkManager.getInstance().setSerialTimerPeriod(period);
 
             updateStatusBar(languageManager.getString("status.timer.period.changed", period));
             MDC.put("sid", safeCurrentSessionId());
@@ -686,6 +692,8 @@ public class MainController implements StatusCallback, LanguageChangeListener {
                         MDC.put("sid", safeCurrentSessionId());
                         try { logger.info("MAVLink tab set active on init"); }
                         finally { MDC.remove("sid"); }
+            } else if ("tabStatus".equals(tabId) && statusTabController != null) {
+                statusTabController.setActive(true);
             }
             // 启动后将活动控制器注册到当前传输层
             BaseController owner = getActiveController();
@@ -784,8 +792,45 @@ public class MainController implements StatusCallback, LanguageChangeListener {
         }
     }
     
+    /** Single-link transport or any multi-link session connected. */
+    private boolean isAnyLinkConnected() {
+        return com.serialcomm.link.MultiLinkManager.getInstance().isActive()
+                || com.serialcomm.service.TransportViewModel.getInstance().isConnected();
+    }
+
+    /** Multi-link mode: the connect button opens/closes all configured endpoints together. */
+    private void toggleMultiLink() {
+        com.serialcomm.link.MultiLinkManager multi = com.serialcomm.link.MultiLinkManager.getInstance();
+        if (multi.isActive()) {
+            multi.disconnectAll();
+            updateStatusBar(languageManager.getString("status.multilink.closed"));
+            cancelAutoDevicePick();
+        } else {
+            if (com.serialcomm.service.TransportViewModel.getInstance().isConnected()) {
+                com.serialcomm.service.TransportViewModel.getInstance().disconnect();
+            }
+            BaseController owner = getActiveController();
+            if (owner != null) multi.setActiveController(owner);
+            int opened = multi.openConfigured();
+            if (opened == 0) {
+                showAlert(Alert.AlertType.ERROR, languageManager.getString("dialog.title.error"), languageManager.getString("status.multilink.none"));
+                return;
+            }
+            updateStatusBar(String.format(languageManager.getString("status.multilink.opened"), opened));
+            startAutoDevicePickOnce();
+        }
+        if (debugTabController != null) debugTabController.updateUI();
+        if (protocolTabController != null) protocolTabController.updateUI();
+        if (mavlinkTabController != null) mavlinkTabController.updateUI();
+        updateConnectButtonText();
+    }
+
     private void toggleConnection(ActionEvent event) {
         try {
+            if (com.serialcomm.link.MultiLinkManager.isEnabled() || com.serialcomm.link.MultiLinkManager.getInstance().isActive()) {
+                toggleMultiLink();
+                return;
+            }
             // Network path with proper toggle behavior
             if (!isSerialSelected()) {
                 if (com.serialcomm.service.TransportViewModel.getInstance().isConnected()) {
@@ -995,6 +1040,7 @@ public class MainController implements StatusCallback, LanguageChangeListener {
             finally { MDC.remove("sid"); }
             updateStatusBar(languageManager.getString("log.cleanup.main.start"));
             
+            com.serialcomm.link.MultiLinkManager.getInstance().disconnectAll();
             com.serialcomm.service.TransportViewModel.getInstance().disconnect();
 
             if (uiMonitorTask != null) { try { uiMonitorTask.cancel(true); } catch (Exception e) { com.serialcomm.util.ErrorMonitor.record("ui.main.uimonitor.cancel", e); } uiMonitorTask = null; }
@@ -1036,7 +1082,7 @@ public class MainController implements StatusCallback, LanguageChangeListener {
         java.util.concurrent.ScheduledExecutorService exec = com.serialcomm.service.Scheduler.getInstance().ensureMonitoring();
         uiMonitorTask = exec.scheduleAtFixedRate(() -> {
             try {
-                boolean connected = com.serialcomm.service.TransportViewModel.getInstance().isConnected();
+                boolean connected = isAnyLinkConnected();
                 String port = portComboBox != null && portComboBox.getValue() != null ? portComboBox.getValue() : languageManager.getString("statusbar.port.unknown");
                 String tab = mainTabPane != null && mainTabPane.getSelectionModel().getSelectedItem() != null ? mainTabPane.getSelectionModel().getSelectedItem().getText() : "";
                 // 仅在需要时做轻量检查
@@ -1058,19 +1104,58 @@ public class MainController implements StatusCallback, LanguageChangeListener {
                 updateBandwidthDisplay();
                 updateOnlineIndicator();
                 refreshDeviceComboItems();
+                reportPipelineHealth();
             } catch (Exception e) { com.serialcomm.util.ErrorMonitor.record("ui.main.monitor.tick", e); }
         }, 1000, 1000, java.util.concurrent.TimeUnit.MILLISECONDS);
     }
 
+    /**
+     * Once a second: warn when the receive ring or a link receive ring overflowed since the last
+     * tick, and every {@link #LATENCY_LOG_TICKS} ticks close the latency interval (at any log
+     * level, so interval and listener histograms never span more than one interval). Throttling,
+     * subscriber queues, loss and the interval latencies are logged at debug level; the hub only
+     * samples receive latencies while that logging is on.
+     */
+    private void reportPipelineHealth() {
+        com.serialcomm.service.ReceivePipeline rx = com.serialcomm.service.ReceivePipeline.getInstance();
+        long overruns = rx.overruns();
+        if (overruns != lastRxOverruns) {
+            logger.warn("Receive ring overrun: {} chunks ({} bytes) dropped so far, high-water {}/{} bytes",
+                    overruns, rx.droppedBytes(), rx.highWaterMark(), rx.capacity());
+            lastRxOverruns = overruns;
+        }
+        long linkOverruns = com.serialcomm.link.MultiLinkManager.getInstance().receiveOverruns();
+        if (linkOverruns > lastLinkRxOverruns) {
+            logger.warn("Link receive ring overrun (parser fell behind the reader):\n{}",
+                    com.serialcomm.link.MultiLinkManager.getInstance().receiveOverrunSummary());
+        }
+        lastLinkRxOverruns = linkOverruns;
+        com.serialcomm.service.PipelineLatency pipeline = com.serialcomm.service.PipelineLatency.getInstance();
+        pipeline.setSampleEvery(logger.isDebugEnabled() ? com.serialcomm.service.PipelineLatency.DEFAULT_SAMPLE_EVERY : 0);
+        String latency = ++latencyTicks % LATENCY_LOG_TICKS == 0 ? pipeline.intervalSummary() : "";
+        if (logger.isDebugEnabled()) {
+            String throttle = com.serialcomm.link.MultiLinkManager.getInstance().rateLimitSummary();
+            if (!throttle.isEmpty()) logger.debug("Link rate limit: {}", throttle);
+            String subscribers = com.serialcomm.service.PacketHub.getInstance().asyncSummary();
+            if (!subscribers.isEmpty()) logger.debug("Async subscribers: {}", subscribers);
+            String loss = com.serialcomm.service.LinkLossStats.getInstance().summary();
+            if (!loss.isEmpty()) logger.debug("Link loss: {}", loss);
+            if (!latency.isEmpty()) logger.debug("Latency over the last {}s:\n{}", LATENCY_LOG_TICKS, latency);
+        }
+    }
+
     private void updateOnlineIndicator() {
         try {
             if (onlineValueLabel == null || languageManager == null) return;
-            java.util.List<VehicleState.Snapshot> snaps = VehicleState.getInstance().getSnapshots();
+            com.serialcomm.service.VehicleStore vehicles = com.serialcomm.service.VehicleStore.getInstance();
+            com.serialcomm.service.VehicleStore.View s = new com.serialcomm.service.VehicleStore.View();
+            com.serialcomm.service.LinkLossStats loss = com.serialcomm.service.LinkLossStats.getInstance();
             long now = System.currentTimeMillis();
             long offlineThresholdMs = 3000L;
 
             StringBuilder sb = new StringBuilder();
-            for (VehicleState.Snapshot s : snaps) {
+            for (int id : vehicles.ids()) {
+                if (!vehicles.read(id, s)) continue;
                 long hb = s.heartbeatTimeMs;
                 long ageSec = hb <= 0 ? -1L : Math.max(0L, (now - hb) / 1000L);
                 boolean isOnline = hb > 0 && (now - hb) <= offlineThresholdMs;
@@ -1081,6 +1166,8 @@ public class MainController implements StatusCallback, LanguageChangeListener {
                     Math.max(0L, ageSec),
                     (s.systemId > 0 ? (s.systemId + ":" + s.componentId) : "-"),
                     (s.mavlink2 ? "v2" : "v1"));
+                double lossPct = loss.windowLossPercent(s.systemId, s.componentId, now);
+                if (lossPct >= 0) line += String.format(languageManager.getString("ui.main.online.loss"), lossPct);
                 if (sb.length() > 0) sb.append('\n');
                 sb.append(line);
             }
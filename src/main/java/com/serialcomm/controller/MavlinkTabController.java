@@ -14,8 +14,6 @@ import javafx.scene.text.TextFlow;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -27,13 +25,6 @@ public class MavlinkTabController extends BaseController implements StatusCallba
     /** Logger */
     private static final Logger logger = LoggerFactory.getLogger(MavlinkTabController.class);
     
-    // Legacy hand-rolled parse constants retained; gradually superseded by Parser
-    private static final byte MAVLINK_V1_START = (byte) 0xFE;
-    private static final byte MAVLINK_V2_START = (byte) 0xFD;
-    private static final int MAVLINK_V1_HEADER_LEN = 6;
-    private static final int MAVLINK_V2_HEADER_LEN = 10;
-    private static final int MAVLINK_MAX_PAYLOAD_LEN = 255;
-    
     // UI components
     @FXML
     private ComboBox<String> protocolVersionComboBox;
@@ -85,10 +76,7 @@ public class MavlinkTabController extends BaseController implements StatusCallba
     }
     
     /** Currently selected protocol version */
-    private ProtocolVersion currentProtocolVersion = ProtocolVersion.AUTO;
-    
-    /** Byte buffer for incremental extraction (legacy path) */
-    private final List<Byte> dataBuffer = new ArrayList<>();
+    private volatile ProtocolVersion currentProtocolVersion = ProtocolVersion.AUTO;
     
     /** Frame statistics */
     private final AtomicLong totalFrames = new AtomicLong(0);
@@ -101,8 +89,28 @@ public class MavlinkTabController extends BaseController implements StatusCallba
     private long lastFrameTime = System.currentTimeMillis();
     private long frameCount = 0;
 
-    // Use generated library Parser for actual CRC checking and frame parsing
-    private final com.MAVLink.Parser parser = new com.MAVLink.Parser();
+    // Bulk framer (same accept/reject rules as the library Parser) over each received chunk,
+    // on the receive pipeline thread; rejected candidates are shown too so the view reports
+    // real CRC errors
+    private final com.serialcomm.service.MavlinkFramer framer =
+            new com.serialcomm.service.MavlinkFramer(f -> collectFrame(f, true))
+                    .setRejectListener(f -> collectFrame(f, false));
+    /** Set by UI-side resets, applied by the receive thread before the next feed */
+    private volatile boolean framerResetPending;
+    /** Mirrors the light mode check box for the receive thread */
+    private volatile boolean lightMode;
+
+    /** Frames rendered per flush (the pane keeps ~100); older ones since the last flush are only counted */
+    private static final int DISPLAY_SLOTS = 32;
+    /** Guards the display slots: filled by the receive thread, formatted by the flush thread */
+    private final Object displayLock = new Object();
+    /** Ring of the newest frames since the last flush, copied into fixed slots (no per-frame allocation) */
+    private final byte[][] displaySlots = new byte[DISPLAY_SLOTS][10 + 255 + 2];
+    private final int[] displayLength = new int[DISPLAY_SLOTS];
+    private final boolean[] displayV2 = new boolean[DISPLAY_SLOTS];
+    private final boolean[] displayCrcOk = new boolean[DISPLAY_SLOTS];
+    private int displayNext;
+    private int displayCount;
     // Light mode listener reference
     private java.util.function.Consumer<com.MAVLink.MAVLinkPacket> lightModeListener;
     
@@ -171,67 +179,67 @@ public class MavlinkTabController extends BaseController implements StatusCallba
             currentProtocolVersion = ProtocolVersion.AUTO;
         }
         logger.info("Protocol version changed to: {}", currentProtocolVersion);
-        synchronized (dataBuffer) {
-            dataBuffer.clear();
-        }
+        framerResetPending = true;
     }
     
-    /** Process data reception (batch append and parse). */
-    private com.serialcomm.service.UiAppender uiAppender;
+    /** Raw byte batching: parsing consumes every byte, rendering only the visible tail. */
+    private com.serialcomm.service.ByteAppender byteAppender;
+    /** Upper bound of bytes rendered as HEX per flush (the raw area keeps ~100k chars) */
+    private static final int MAX_RENDER_BYTES = 8192;
+
+    /** Receive pipeline thread: frame the chunk, then queue its bytes for the raw view. */
     @Override
-    protected void onDataReceived(String data) {
-        if (uiAppender == null) {
-            uiAppender = new com.serialcomm.service.UiAppender(this::appendHexBatch).setFlushIntervalMs(100);
-            uiAppender.start();
+    protected void onBytes(java.nio.ByteBuffer data) {
+        if (byteAppender == null) {
+            byteAppender = new com.serialcomm.service.ByteAppender(this::flushBatch)
+                    .setFlushIntervalMs(100)
+                    .setBufferCapBytes(512 * 1024)
+                    .setDeliverOnFxThread(false);
+            byteAppender.start();
         }
-        uiAppender.append(data);
+        // Light mode: frame display comes from the central dispatcher listener instead
+        if (!lightMode) {
+            synchronized (displayLock) {
+                if (framerResetPending) {
+                    framerResetPending = false;
+                    framer.reset();
+                }
+                framer.feed(data.duplicate());
+            }
+        }
+        byteAppender.append(data);
     }
 
-    private void appendHexBatch(String batch) {
+    @Override
+    protected void onDataReceived(String data) {
+        // Routed bytes arrive through onBytes; the text path is not used by this tab
+    }
+
+    /**
+     * Flush thread: render the raw tail as HEX and format the frames collected since the last
+     * flush, then hand both to the FX thread in one update.
+     */
+    private void flushBatch(byte[] batch) {
+        int renderFrom = Math.max(0, batch.length - MAX_RENDER_BYTES);
+        String hex = com.serialcomm.util.HexText.toHex(batch, renderFrom, batch.length - renderFrom);
+        String[] texts;
+        boolean[] ok;
+        synchronized (displayLock) {
+            String timestamp = java.time.LocalTime.now().format(FRAME_TIME_FORMAT);
+            texts = new String[displayCount];
+            ok = new boolean[displayCount];
+            int first = (displayNext - displayCount + DISPLAY_SLOTS) % DISPLAY_SLOTS;
+            for (int i = 0; i < displayCount; i++) {
+                int slot = (first + i) % DISPLAY_SLOTS;
+                texts[i] = formatFrame(displaySlots[slot], 0, displayLength[slot], displayV2[slot], displayCrcOk[slot], timestamp);
+                ok[i] = displayCrcOk[slot];
+            }
+            displayCount = 0;
+        }
         Platform.runLater(() -> {
             try {
-                rawDataTextArea.appendText(batch);
-                String[] hexBytes = batch.trim().split("\\s+");
-                boolean light = false;
-                try { light = (lightModeCheckBox != null && lightModeCheckBox.isSelected()); } catch (Exception e) { com.serialcomm.util.ErrorMonitor.record("ui.mavtab.light.read", e); }
-                for (String hexByte : hexBytes) {
-                    if (hexByte.isEmpty()) continue;
-                    try {
-                        if (!light) {
-                            int value = Integer.parseInt(hexByte, 16) & 0xFF;
-                            com.MAVLink.MAVLinkPacket pkt = parser.mavlink_parse_char(value);
-                            if (pkt != null) {
-                                boolean pktIsV2 = pkt.isMavlink2;
-                                boolean allow =
-                                    (currentProtocolVersion == ProtocolVersion.AUTO) ||
-                                    (currentProtocolVersion == ProtocolVersion.V1_ONLY && !pktIsV2) ||
-                                    (currentProtocolVersion == ProtocolVersion.V2_ONLY && pktIsV2);
-                                if (!allow) continue;
-                                boolean isV2 = pkt.isMavlink2;
-                                // Global device filter (ALL means no filter)
-                                try {
-                                    int selSys = com.serialcomm.service.DeviceSelectionService.getInstance().selectedSys();
-                                    int selComp = com.serialcomm.service.DeviceSelectionService.getInstance().selectedComp();
-                                    if (!(selSys < 0 && selComp < 0)) {
-                                        if (selSys >= 0 && pkt.sysid != selSys) continue;
-                                        if (selComp >= 0 && pkt.compid != selComp) continue;
-                                    }
-                                } catch (Exception e) { com.serialcomm.util.ErrorMonitor.record("ui.mavtab.filter", e); }
-                                List<Byte> frame = new ArrayList<>();
-                                byte[] encoded = pkt.encodePacket();
-                                for (byte b : encoded) frame.add(b);
-                                boolean crcValid = true;
-                                displayExtractedFrame(frame, isV2, crcValid);
-                                totalFrames.incrementAndGet();
-                                successFrames.incrementAndGet();
-                            }
-                        } else {
-                            // Light mode: do not parse byte-by-byte; frame display comes from central subscription callback
-                        }
-                    } catch (NumberFormatException ignore) {
-                        // ignore
-                    }
-                }
+                rawDataTextArea.appendText(hex);
+                for (int i = 0; i < texts.length; i++) addFrameText(texts[i], ok[i]);
                 updateFrameRate();
                 updateFrameStats();
             } catch (Exception e) {
@@ -240,7 +248,38 @@ public class MavlinkTabController extends BaseController implements StatusCallba
         });
     }
 
+    /** Framer callback (receive thread, under displayLock) for accepted and rejected frames; the view is only valid during the call. */
+    private void collectFrame(com.serialcomm.service.MavlinkFramer.Frame f, boolean accepted) {
+        boolean pktIsV2 = f.isV2();
+        boolean allow =
+            (currentProtocolVersion == ProtocolVersion.AUTO) ||
+            (currentProtocolVersion == ProtocolVersion.V1_ONLY && !pktIsV2) ||
+            (currentProtocolVersion == ProtocolVersion.V2_ONLY && pktIsV2);
+        if (!allow) return;
+        // Global device filter (ALL means no filter)
+        try {
+            int selSys = com.serialcomm.service.DeviceSelectionService.getInstance().selectedSys();
+            int selComp = com.serialcomm.service.DeviceSelectionService.getInstance().selectedComp();
+            if (!(selSys < 0 && selComp < 0)) {
+                if (selSys >= 0 && f.sysid() != selSys) return;
+                if (selComp >= 0 && f.compid() != selComp) return;
+            }
+        } catch (Exception e) { com.serialcomm.util.ErrorMonitor.record("ui.mavtab.filter", e); }
+        totalFrames.incrementAndGet();
+        if (accepted) successFrames.incrementAndGet();
+        else if (f.crcValid()) failedFrames.incrementAndGet(); // signed frames are not supported
+        else crcErrors.incrementAndGet();
+        int slot = displayNext;
+        System.arraycopy(f.array(), f.offset(), displaySlots[slot], 0, f.length());
+        displayLength[slot] = f.length();
+        displayV2[slot] = pktIsV2;
+        displayCrcOk[slot] = f.crcValid();
+        displayNext = (slot + 1) % DISPLAY_SLOTS;
+        if (displayCount < DISPLAY_SLOTS) displayCount++;
+    }
+
     private void attachLightMode() {
+        lightMode = true;
         if (lightModeListener != null) return;
         lightModeListener = pkt -> {
             try {
@@ -260,10 +299,7 @@ public class MavlinkTabController extends BaseController implements StatusCallba
                     }
                 } catch (Exception ignore) {}
                 byte[] encoded = pkt.encodePacket();
-                List<Byte> frame = new ArrayList<>(encoded.length);
-                for (byte b : encoded) frame.add(b);
-                boolean crcValid = true;
-                displayExtractedFrame(frame, pkt.isMavlink2, crcValid);
+                displayExtractedFrame(encoded, pkt.isMavlink2, true);
                 totalFrames.incrementAndGet();
                 successFrames.incrementAndGet();
                 updateFrameRate();
@@ -274,173 +310,68 @@ public class MavlinkTabController extends BaseController implements StatusCallba
     }
 
     private void detachLightMode() {
+        lightMode = false;
+        framerResetPending = true;
         if (lightModeListener == null) return;
         try { com.serialcomm.service.MavlinkDispatcher.getInstance().removeListener(lightModeListener); } catch (Throwable t) { com.serialcomm.util.ErrorMonitor.record("ui.mavtab.unsubscribe", t); }
         lightModeListener = null;
     }
     
-    /** Extract MAVLink frames from the legacy incremental buffer. */
-    private void extractMavlinkFrames() {
-        while (!dataBuffer.isEmpty()) {
-            // Find start sentinel byte
-            int startIndex = findStartByte();
-            if (startIndex < 0) {
-                // No start sentinel found -> clear buffer and wait for more
-                dataBuffer.clear();
-                break;
-            }
-            
-            // Drop any data before the start sentinel
-            if (startIndex > 0) {
-                dataBuffer.subList(0, startIndex).clear();
-            }
-            
-            // Ensure we have enough bytes to form a frame
-            if (dataBuffer.size() < 2) {
-                break; // wait for more data
-            }
-            
-            byte startByte = dataBuffer.get(0);
-            boolean isV2 = (startByte == MAVLINK_V2_START);
-            int headerLen = isV2 ? MAVLINK_V2_HEADER_LEN : MAVLINK_V1_HEADER_LEN;
-            
-            // Check for a complete header
-            if (dataBuffer.size() < headerLen) {
-                break; // wait for more data
-            }
-            
-            // Read payload length
-            int payloadLen = dataBuffer.get(1) & 0xFF;
-            if (payloadLen > MAVLINK_MAX_PAYLOAD_LEN) {
-                // Invalid payload length -> drop the start byte and continue
-                dataBuffer.remove(0);
-                failedFrames.incrementAndGet();
-                continue;
-            }
-            
-            // Compute full frame length
-            int frameLen = headerLen + payloadLen + 2; // +2 for CRC
-            if (isV2 && (dataBuffer.get(2) & 0x01) != 0) {
-                frameLen += 13; // signed frame
-            }
-            
-            // Ensure a full frame is present
-            if (dataBuffer.size() < frameLen) {
-                break; // wait for more data
-            }
-            
-            // Extract a complete frame
-            List<Byte> frame = new ArrayList<>(dataBuffer.subList(0, frameLen));
-            dataBuffer.subList(0, frameLen).clear();
-            
-            // Validate CRC (simplified; real CRC should be implemented)
-            boolean crcValid = validateCRC(frame, isV2);
-            
-            // Display the extracted frame
-            displayExtractedFrame(frame, isV2, crcValid);
-            
-            // Update statistics
-            totalFrames.incrementAndGet();
-            if (crcValid) {
-                successFrames.incrementAndGet();
-            } else {
-                crcErrors.incrementAndGet();
-            }
-            
-            updateFrameStats();
-        }
+    private static final java.time.format.DateTimeFormatter FRAME_TIME_FORMAT =
+            java.time.format.DateTimeFormatter.ofPattern("HH:mm:ss.SSS");
+
+    /** Render a single extracted frame into the UI with metadata and raw bytes. */
+    private void displayExtractedFrame(byte[] frame, boolean isV2, boolean crcValid) {
+        String text = formatFrame(frame, 0, frame.length, isV2, crcValid, java.time.LocalTime.now().format(FRAME_TIME_FORMAT));
+        Platform.runLater(() -> addFrameText(text, crcValid));
     }
-    
-    /** Find the start sentinel byte for a frame. */
-    private int findStartByte() {
-        for (int i = 0; i < dataBuffer.size(); i++) {
-            byte b = dataBuffer.get(i);
-            
-            switch (currentProtocolVersion) {
-                case V1_ONLY:
-                    if (b == MAVLINK_V1_START) return i;
-                    break;
-                case V2_ONLY:
-                    if (b == MAVLINK_V2_START) return i;
-                    break;
-                case AUTO:
-                    if (b == MAVLINK_V1_START || b == MAVLINK_V2_START) return i;
-                    break;
-            }
+
+    /** One frame as text: time, version, ids, length, CRC status and raw HEX. */
+    private static String formatFrame(byte[] frame, int off, int len, boolean isV2, boolean crcValid, String timestamp) {
+        StringBuilder sb = new StringBuilder(64 + len * 3);
+        sb.append("[").append(timestamp).append("] ");
+        sb.append(isV2 ? "v2.0" : "v1.0").append(" ");
+
+        int sysId = frame[off + (isV2 ? 5 : 3)] & 0xFF;
+        int compId = frame[off + (isV2 ? 6 : 4)] & 0xFF;
+        sb.append("SYS:").append(sysId).append(" COMP:").append(compId).append(" ");
+
+        int msgId;
+        if (isV2) {
+            msgId = (frame[off + 7] & 0xFF) |
+                   ((frame[off + 8] & 0xFF) << 8) |
+                   ((frame[off + 9] & 0xFF) << 16);
+        } else {
+            msgId = frame[off + 5] & 0xFF;
         }
-        return -1;
-    }
-    
-    /** Validate CRC (placeholder implementation). */
-    private boolean validateCRC(List<Byte> frame, boolean isV2) {
-        // TODO: Implement full MAVLink CRC validation.
-        // Currently returns true; replace with proper algorithm.
-        return true;
+        sb.append("MSG:").append(msgId).append(" ");
+        sb.append("LEN:").append(frame[off + 1] & 0xFF).append(" ");
+        sb.append(crcValid ? "[CRC OK]" : "[CRC ERROR]");
+        sb.append("\n");
+
+        sb.append("  RAW: ");
+        com.serialcomm.util.HexText.appendHex(sb, frame, off, len);
+        sb.append("\n\n");
+        return sb.toString();
     }
-    
-    /** Render a single extracted frame into the UI with metadata and raw bytes. */
-    private void displayExtractedFrame(List<Byte> frame, boolean isV2, boolean crcValid) {
-        Platform.runLater(() -> {
-            // Build the textual representation for the frame
-            Text frameText = new Text();
-            StringBuilder sb = new StringBuilder();
-            
-            // Add timestamp
-            String timestamp = java.time.LocalTime.now().format(
-                java.time.format.DateTimeFormatter.ofPattern("HH:mm:ss.SSS")
-            );
-            sb.append("[").append(timestamp).append("] ");
-            
-            // Add protocol version
-            sb.append(isV2 ? "v2.0" : "v1.0").append(" ");
-            
-            // Add System ID and Component ID
-            int sysId = frame.get(isV2 ? 5 : 3) & 0xFF;
-            int compId = frame.get(isV2 ? 6 : 4) & 0xFF;
-            sb.append("SYS:").append(sysId).append(" COMP:").append(compId).append(" ");
-            
-            // Add message ID
-            int msgId;
-            if (isV2) {
-                msgId = (frame.get(7) & 0xFF) | 
-                       ((frame.get(8) & 0xFF) << 8) | 
-                       ((frame.get(9) & 0xFF) << 16);
-            } else {
-                msgId = frame.get(5) & 0xFF;
-            }
-            sb.append("MSG:").append(msgId).append(" ");
-            
-            // Add payload length
-            int payloadLen = frame.get(1) & 0xFF;
-            sb.append("LEN:").append(payloadLen).append(" ");
-            
-            // Add CRC status
-            sb.append(crcValid ? "[CRC OK]" : "[CRC ERROR]");
-            sb.append("\n");
-            
-            // Append raw bytes (HEX)
-            sb.append("  RAW: ");
-            for (Byte b : frame) {
-                sb.append(String.format("%02X ", b));
-            }
-            sb.append("\n\n");
-            
-            frameText.setText(sb.toString());
-            frameText.setFill(crcValid ? Color.GREEN : Color.RED);
-            
-            extractedFramesFlow.getChildren().add(frameText);
-            
-            // Cap the number of rendered frames to avoid unbounded growth
-            if (extractedFramesFlow.getChildren().size() > 100) {
-                extractedFramesFlow.getChildren().remove(0);
-            }
-            
-            // Auto-scroll to bottom
-            extractedFramesScrollPane.setVvalue(1.0);
 
-            // Trim buffers to avoid memory growth
-            pruneIfNeeded();
-        });
+    /** FX thread: append one formatted frame, keeping the pane bounded. */
+    private void addFrameText(String text, boolean crcValid) {
+        Text frameText = new Text(text);
+        frameText.setFill(crcValid ? Color.GREEN : Color.RED);
+
+        extractedFramesFlow.getChildren().add(frameText);
+
+        // Cap the number of rendered frames to avoid unbounded growth
+        if (extractedFramesFlow.getChildren().size() > 100) {
+            extractedFramesFlow.getChildren().remove(0);
+        }
+
+        // Auto-scroll to bottom
+        extractedFramesScrollPane.setVvalue(1.0);
+
+        // Trim buffers to avoid memory growth
+        pruneIfNeeded();
     }
     
     /** Update frame rate once per second. */
@@ -594,8 +525,10 @@ public class MavlinkTabController extends BaseController implements StatusCallba
         try {
             logger.info("Starting MavlinkTabController resource cleanup");
             
-            synchronized (dataBuffer) {
-                dataBuffer.clear();
+            framerResetPending = true;
+            if (byteAppender != null) {
+                byteAppender.stop();
+                byteAppender.clearBuffer();
             }
             
             // Detach light mode listener if attached
@@ -155,24 +155,27 @@ public class ParamTabController extends BaseController {
                 filterField.textProperty().addListener((o,a,b) -> applyFilterAndGrouping());
             }
 
-            // Subscribe to dispatcher to ingest PARAM_VALUE
-            com.serialcomm.service.MavlinkDispatcher.getInstance().addListener(pkt -> {
-                if (pkt == null) return;
-                if (pkt.msgid == com.MAVLink.common.msg_param_value.MAVLINK_MSG_ID_PARAM_VALUE) {
-                    // Global device filter (ALL means no filter)
-                    try {
-                        int selSys = com.serialcomm.service.DeviceSelectionService.getInstance().selectedSys();
-                        int selComp = com.serialcomm.service.DeviceSelectionService.getInstance().selectedComp();
-                        if (!(selSys < 0 && selComp < 0)) {
-                            if (selSys >= 0 && pkt.sysid != selSys) return;
-                            if (selComp >= 0 && pkt.compid != selComp) return;
-                        }
-                    } catch (Exception e) { com.serialcomm.util.ErrorMonitor.record("ui.params.meta.verify.cancel", e); }
-                    try {
-                        com.MAVLink.common.msg_param_value pv = (com.MAVLink.common.msg_param_value) pkt.unpack();
-                        onParamValue(pv);
-                    } catch (Throwable t) { com.serialcomm.util.ErrorMonitor.record("param.ingest", t); }
-                }
+            // Subscribe to PARAM_VALUE only, off the parsing thread. BLOCK keeps a download whole
+            // while the table keeps up; a stuck table holds the parser at most
+            // BLOCK_MAX_WAIT_MS per value (dropped values count in the hub summary; a new
+            // PARAM_REQUEST_LIST fetches them again)
+            com.serialcomm.service.PacketHub.getInstance().subscribeAsync("params",
+                    new int[] { com.MAVLink.common.msg_param_value.MAVLINK_MSG_ID_PARAM_VALUE },
+                    com.serialcomm.service.AsyncSubscriber.Overflow.BLOCK, 1024, env -> {
+                com.MAVLink.MAVLinkPacket pkt = env.packet();
+                // Global device filter (ALL means no filter)
+                try {
+                    int selSys = com.serialcomm.service.DeviceSelectionService.getInstance().selectedSys();
+                    int selComp = com.serialcomm.service.DeviceSelectionService.getInstance().selectedComp();
+                    if (!(selSys < 0 && selComp < 0)) {
+                        if (selSys >= 0 && pkt.sysid != selSys) return;
+                        if (selComp >= 0 && pkt.compid != selComp) return;
+                    }
+                } catch (Exception e) { com.serialcomm.util.ErrorMonitor.record("ui.params.meta.verify.cancel", e); }
+                try {
+                    com.MAVLink.common.msg_param_value pv = env.message(com.MAVLink.common.msg_param_value.class);
+                    if (pv != null) onParamValue(pv);
+                } catch (Throwable t) { com.serialcomm.util.ErrorMonitor.record("param.ingest", t); }
             });
         } catch (Exception e) {
             logger.error("ParamTab init failed", e);
@@ -201,7 +204,7 @@ public class ParamTabController extends BaseController {
             req.target_component = (short) targetComp;
             com.MAVLink.MAVLinkPacket pkt = req.pack();
             pkt.seq = com.serialcomm.service.TransportViewModel.getInstance().nextSequence();
-            com.serialcomm.service.TransportViewModel.getInstance().sendPacket(pkt, com.serialcomm.serial.SerialRouter.Priority.LOW);
+            sendPacket(pkt, com.serialcomm.serial.SerialRouter.Priority.LOW);
             if (statusCallback != null) statusCallback.updateStatus("TX PARAM_REQUEST_LIST");
         } catch (Exception e) {
             handleException("requestAllParams", e);
@@ -246,7 +249,7 @@ public class ParamTabController extends BaseController {
             byte[] id = new byte[16]; byte[] src = name.getBytes(); System.arraycopy(src, 0, id, 0, Math.min(16, src.length));
             set.param_id = id; set.param_value = value; set.param_type = (short) com.MAVLink.enums.MAV_PARAM_TYPE.MAV_PARAM_TYPE_REAL32;
             com.MAVLink.MAVLinkPacket pkt = set.pack(); pkt.seq = com.serialcomm.service.TransportViewModel.getInstance().nextSequence();
-            com.serialcomm.service.TransportViewModel.getInstance().sendPacket(pkt, com.serialcomm.serial.SerialRouter.Priority.NORMAL);
+            sendPacket(pkt, com.serialcomm.serial.SerialRouter.Priority.NORMAL);
             // Confirmation dialog with two choices
             showWriteConfirmDialog(name, value);
         } catch (Exception e) {
@@ -292,7 +295,7 @@ public class ParamTabController extends BaseController {
             byte[] id = new byte[16]; byte[] src = name.getBytes(); System.arraycopy(src, 0, id, 0, Math.min(16, src.length));
             rr.param_id = id; rr.param_index = -1;
             com.MAVLink.MAVLinkPacket pkt = rr.pack(); pkt.seq = com.serialcomm.service.TransportViewModel.getInstance().nextSequence();
-            com.serialcomm.service.TransportViewModel.getInstance().sendPacket(pkt, com.serialcomm.serial.SerialRouter.Priority.NORMAL);
+            sendPacket(pkt, com.serialcomm.serial.SerialRouter.Priority.NORMAL);
             if (statusCallback != null) statusCallback.updateStatus("Verify PARAM_REQUEST_READ " + name);
         } catch (Exception e) {
             handleException("requestSingleParam", e);
@@ -123,13 +123,11 @@ public class ProtocolTabController extends BaseController implements StatusCallb
                 });
             }
 
-            // Subscribe dispatcher to fill capability summary on relevant messages
-            com.serialcomm.service.MavlinkDispatcher.getInstance().addListener(pkt -> {
+            // Subscribe to PROTOCOL_VERSION and AUTOPILOT_VERSION (148) to fill the capability summary
+            com.serialcomm.service.PacketHub.getInstance().subscribe(new int[] {
+                    com.MAVLink.minimal.msg_protocol_version.MAVLINK_MSG_ID_PROTOCOL_VERSION, 148 }, env -> {
                 try {
-                    if (pkt == null) return;
-                    if (pkt.msgid == com.MAVLink.minimal.msg_protocol_version.MAVLINK_MSG_ID_PROTOCOL_VERSION || pkt.msgid == 148) {
-                        updateCapabilitySummary(pkt);
-                    }
+                    updateCapabilitySummary(env);
                 } catch (Exception ex) {
                     com.serialcomm.util.ErrorMonitor.record("protocol.cap.summary", ex);
                 }
@@ -337,7 +335,7 @@ public class ProtocolTabController extends BaseController implements StatusCallb
         int seq = com.serialcomm.service.TransportViewModel.getInstance().nextSequence();
         pkt.seq = seq;
         byte[] bytes = pkt.encodePacket();
-        com.serialcomm.service.TransportViewModel.getInstance().sendPacket(pkt, com.serialcomm.serial.SerialRouter.Priority.HIGH);
+        sendPacket(pkt, com.serialcomm.serial.SerialRouter.Priority.HIGH);
         appendStatus(String.format("TX HEARTBEAT sys:%d comp:%d v%s\n", gcsSys, gcsComp, isV2?"2":"1"));
     }
 
@@ -385,7 +383,7 @@ public class ProtocolTabController extends BaseController implements StatusCallb
         req.start_stop = 1;
         MAVLinkPacket pkt = req.pack();
         pkt.seq = com.serialcomm.service.TransportViewModel.getInstance().nextSequence();
-        com.serialcomm.service.TransportViewModel.getInstance().sendPacket(pkt, com.serialcomm.serial.SerialRouter.Priority.NORMAL);
+        sendPacket(pkt, com.serialcomm.serial.SerialRouter.Priority.NORMAL);
         appendStatus(String.format("TX REQ_DATA_STREAM id:%d rate:%sHz\n", req.req_stream_id, req.req_message_rate));
     }
 
@@ -402,7 +400,7 @@ public class ProtocolTabController extends BaseController implements StatusCallb
         req.target_component = (short) targetComp;
         MAVLinkPacket pkt = req.pack();
         pkt.seq = com.serialcomm.service.TransportViewModel.getInstance().nextSequence();
-        com.serialcomm.service.TransportViewModel.getInstance().sendPacket(pkt, com.serialcomm.serial.SerialRouter.Priority.NORMAL);
+        sendPacket(pkt, com.serialcomm.serial.SerialRouter.Priority.NORMAL);
         appendStatus("TX PARAM_REQUEST_LIST (background)\n");
     }
 
@@ -426,7 +424,7 @@ public class ProtocolTabController extends BaseController implements StatusCallb
 
             com.MAVLink.MAVLinkPacket pkt = cmd.pack();
             pkt.seq = com.serialcomm.service.TransportViewModel.getInstance().nextSequence();
-            com.serialcomm.service.TransportViewModel.getInstance().sendPacket(pkt, com.serialcomm.serial.SerialRouter.Priority.NORMAL);
+            sendPacket(pkt, com.serialcomm.serial.SerialRouter.Priority.NORMAL);
             appendStatus("TX MAV_CMD_REQUEST_MESSAGE AUTOPILOT_VERSION\n");
         } catch (Exception e) {
             handleException("sendRequestAutopilotVersion", e);
@@ -437,9 +435,10 @@ public class ProtocolTabController extends BaseController implements StatusCallb
 
     // Protocol tab is intentionally decoupled from global device selection
 
-    private void updateCapabilitySummary(com.MAVLink.MAVLinkPacket pkt) {
+    private void updateCapabilitySummary(com.serialcomm.service.PacketEnvelope env) {
         try {
-            com.MAVLink.Messages.MAVLinkMessage msg = pkt.unpack();
+            com.MAVLink.MAVLinkPacket pkt = env.packet();
+            com.MAVLink.Messages.MAVLinkMessage msg = env.message();
             StringBuilder sb = new StringBuilder();
             sb.append("SYS:").append(pkt.sysid).append(" COMP:").append(pkt.compid).append('\n');
             if (pkt.msgid == com.MAVLink.minimal.msg_protocol_version.MAVLINK_MSG_ID_PROTOCOL_VERSION) {
@@ -472,9 +471,12 @@ public class ProtocolTabController extends BaseController implements StatusCallb
 
     private static String readFieldSafe(Object obj, String fieldName) {
         try {
-            java.lang.reflect.Field f = obj.getClass().getDeclaredField(fieldName);
-            f.setAccessible(true);
-            Object v = f.get(obj);
+            if (obj == null) return "-";
+            com.serialcomm.service.FieldAccessors acc = com.serialcomm.service.FieldAccessors.of(obj.getClass());
+            int i = acc.indexOf(fieldName);
+            if (i < 0) return "-";
+            if (acc.kind(i) != com.serialcomm.service.FieldAccessors.Kind.ARRAY) return acc.format(obj, i);
+            Object v = acc.get(obj, i);
             if (v == null) return "-";
             if (v.getClass().isArray()) {
                 if (v instanceof byte[]) return toHex((byte[]) v);
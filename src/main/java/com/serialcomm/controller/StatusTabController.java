@@ -2,8 +2,7 @@ package com.serialcomm.controller;
 
 import com.serialcomm.service.VehicleState;
 import com.serialcomm.util.LanguageManager;
-import com.serialcomm.service.TelemetryRegistry;
-import com.serialcomm.service.MessageStatsRegistry;
+import com.serialcomm.service.TelemetryStore;
 import javafx.application.Platform;
 import com.serialcomm.util.UiUpdateQueue;
 import javafx.fxml.FXML;
@@ -17,6 +16,8 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Live status tab - TreeTableView (2-level): MSG -> fields, with SYS:COMP filter dropdown.
+ * While the tab is shown it watches the telemetry store for the selected device and updates
+ * only the rows that changed, once per refresh period; hidden, it does no work at all.
  */
 public class StatusTabController extends BaseController {
 	private static final Logger logger = LoggerFactory.getLogger(StatusTabController.class);
@@ -29,7 +30,21 @@ public class StatusTabController extends BaseController {
 	@FXML private TreeTableColumn<NodeRow, String> colFreq;
     @FXML private Label statusRefreshLabel; @FXML private javafx.scene.control.ComboBox<String> statusRefreshCombo; @FXML private Button refreshBtn;
 
-    private java.util.concurrent.ScheduledFuture<?> refreshTask;
+    /** Frequencies are refreshed once more this long after the last change (rate window is 1s) */
+    private static final long HZ_SETTLE_MS = 1500L;
+
+    private volatile TelemetryStore.Watch watch;
+    private int watchSys = -1, watchComp = -1;
+    private volatile long periodMs = 250L;
+    /** Changed rows delivered by the watch, applied on the FX thread */
+    private final java.util.concurrent.ConcurrentLinkedQueue<int[]> changedRows = new java.util.concurrent.ConcurrentLinkedQueue<>();
+    private volatile long lastChangeMs;
+    private final java.util.concurrent.atomic.AtomicBoolean hzSettleScheduled = new java.util.concurrent.atomic.AtomicBoolean(false);
+    // FX thread: what the last full render showed, for in-place updates
+    private long[] renderedKeys = new long[0];
+    private final java.util.Map<Integer, java.util.List<TreeItem<NodeRow>>> rowItems = new java.util.HashMap<>();
+    private final java.util.Map<String, TreeItem<NodeRow>> msgItems = new java.util.HashMap<>();
+    private final java.util.Map<String, java.util.List<Integer>> msgRows = new java.util.HashMap<>();
     private volatile String selectedSysComp;
     private final java.util.Map<String, java.util.Set<String>> expandedBySysComp = new java.util.HashMap<>();
 	private final java.util.concurrent.atomic.AtomicBoolean renderEnqueued = new java.util.concurrent.atomic.AtomicBoolean(false);
@@ -55,23 +70,139 @@ public class StatusTabController extends BaseController {
 			if (statusRefreshCombo != null) {
 				statusRefreshCombo.setItems(javafx.collections.FXCollections.observableArrayList("250ms", "500ms", "1s"));
 				statusRefreshCombo.setValue("250ms");
-				statusRefreshCombo.valueProperty().addListener((o,a,b)->restartTimer(b));
+				statusRefreshCombo.valueProperty().addListener((o,a,b)->setPeriod(b));
 			}
 
             // selectedSysComp now driven by DeviceSelectionService (global toolbar)
-            restartTimer(statusRefreshCombo != null ? statusRefreshCombo.getValue() : "250ms");
+            setPeriod(statusRefreshCombo != null ? statusRefreshCombo.getValue() : "250ms");
 		} catch (Exception e) {
 			logger.error("StatusTab init failed", e);
 		}
 	}
 
-    private void restartTimer(String label) {
-        stopTimer();
-        long period = parsePeriodMs(label, 250L);
-        java.util.concurrent.ScheduledExecutorService exec = com.serialcomm.service.Scheduler.getInstance().ensureMonitoring();
-        refreshTask = exec.scheduleAtFixedRate(this::renderOnce, period, period, java.util.concurrent.TimeUnit.MILLISECONDS);
+	@Override
+	public void setActive(boolean active) {
+		super.setActive(active);
+		if (active) {
+			openWatch(selectedSys(), selectedComp());
+			renderOnce();
+		} else {
+			closeWatch();
+		}
+	}
+
+    private void setPeriod(String label) {
+        periodMs = parsePeriodMs(label, 250L);
+        if (watch != null) openWatch(watchSys, watchComp);
     }
 
+	/** Watch the store rows of one device (-1 = any); changes arrive at most once per period. */
+	private synchronized void openWatch(int sys, int comp) {
+		closeWatch();
+		watchSys = sys;
+		watchComp = comp;
+		watch = TelemetryStore.getInstance().watch(sys, comp, -1, periodMs, this::onRowsChanged);
+	}
+
+	private synchronized void closeWatch() {
+		TelemetryStore.Watch w = watch;
+		watch = null;
+		if (w != null) w.close();
+	}
+
+	private int selectedSys() {
+		try { return com.serialcomm.service.DeviceSelectionService.getInstance().selectedSys(); }
+		catch (Exception e) { com.serialcomm.util.ErrorMonitor.record("ui.status.sel", e); return -1; }
+	}
+
+	private int selectedComp() {
+		try { return com.serialcomm.service.DeviceSelectionService.getInstance().selectedComp(); }
+		catch (Exception e) { com.serialcomm.util.ErrorMonitor.record("ui.status.sel", e); return -1; }
+	}
+
+	/** Watch callback (scheduler thread): queue the rows and refresh frequencies with them. */
+	private void onRowsChanged(int[] rows) {
+		changedRows.add(rows);
+		lastChangeMs = System.currentTimeMillis();
+		scheduleHzSettle();
+		UiUpdateQueue.get().submit("status.rows", this::applyChangedRows);
+	}
+
+	/** One last frequency refresh after changes stop, so stale rates fall to zero. */
+	private void scheduleHzSettle() {
+		if (!hzSettleScheduled.compareAndSet(false, true)) return;
+		com.serialcomm.service.Scheduler.getInstance().ensureMonitoring().schedule(() -> {
+			hzSettleScheduled.set(false);
+			if (watch == null) return;
+			if (System.currentTimeMillis() - lastChangeMs < HZ_SETTLE_MS) {
+				scheduleHzSettle();
+				return;
+			}
+			UiUpdateQueue.get().submit("status.hz", this::applyHz);
+		}, HZ_SETTLE_MS, java.util.concurrent.TimeUnit.MILLISECONDS);
+	}
+
+	/** FX thread: rewrite the cells of changed rows; new or re-keyed rows need a full render. */
+	private void applyChangedRows() {
+		TelemetryStore store = TelemetryStore.getInstance();
+		com.serialcomm.util.LatencyHistogram readToUi = com.serialcomm.service.PipelineLatency.getInstance().readToUi();
+		boolean rebuild = false;
+		int[] rows;
+		while ((rows = changedRows.poll()) != null) {
+			for (int row : rows) {
+				if (row >= renderedKeys.length || renderedKeys[row] != rowKey(store, row)) {
+					rebuild = true;
+					continue;
+				}
+				java.util.List<TreeItem<NodeRow>> items = rowItems.get(row);
+				// Not shown (other device or over the cap), or collapsed: values are formatted on expand
+				if (items == null || items.isEmpty() || !items.get(0).getParent().isExpanded()) continue;
+				String msgName = store.messageName(row);
+				com.serialcomm.service.FieldAccessors acc = store.accessors(row);
+				for (int k = 0; k < items.size(); k++) {
+					int field = acc.fieldByName(k);
+					NodeRow node = items.get(k).getValue();
+					String value = store.format(row, field);
+					if (value.equals(node.valueProperty().get())) continue;
+					node.valueProperty().set(value);
+					node.enumProperty().set(com.serialcomm.service.EnumLabeler.label(msgName, acc.fieldName(field), value));
+				}
+				long read = store.readNanos(row);
+				if (read != 0L) readToUi.record(System.nanoTime() - read);
+			}
+		}
+		if (rebuild) {
+			renderOnce();
+			return;
+		}
+		applyHz();
+	}
+
+	/** FX thread: message frequency = sum of the 1s rates of its shown rows. */
+	private void applyHz() {
+		TelemetryStore store = TelemetryStore.getInstance();
+		long now = System.currentTimeMillis();
+		for (java.util.Map.Entry<String, TreeItem<NodeRow>> me : msgItems.entrySet()) {
+			String hz = formatHz(messageHz(store, msgRows.get(me.getKey()), now));
+			javafx.beans.property.SimpleStringProperty freq = me.getValue().getValue().freqProperty();
+			if (!hz.equals(freq.get())) freq.set(hz);
+		}
+	}
+
+	private double messageHz(TelemetryStore store, java.util.List<Integer> rows, long now) {
+		double hz = 0.0;
+		if (rows == null) return hz;
+		for (int row : rows) {
+			// A re-keyed row now counts another message
+			if (row < renderedKeys.length && renderedKeys[row] == rowKey(store, row)) hz += store.rate(row).hz(now, 1000L);
+		}
+		return hz;
+	}
+
+	private static long rowKey(TelemetryStore store, int row) {
+		return (long) store.sysid(row) << 32 | (long) store.compid(row) << 24 | store.msgid(row);
+	}
+
 	private long parsePeriodMs(String label, long def) {
 		if (label == null) return def;
 		try {
@@ -89,17 +220,9 @@ public class StatusTabController extends BaseController {
 		return def;
 	}
 
-    private void stopTimer() {
-        if (refreshTask != null) { try { refreshTask.cancel(true); } catch (Exception e) { com.serialcomm.util.ErrorMonitor.record("ui.status.timer.cancel", e); } refreshTask = null; }
-    }
-
 	private void renderOnce() {
+		if (!isActive) return;
 		if (!renderEnqueued.compareAndSet(false, true)) return;
-        final java.util.List<TelemetryRegistry.Item> snapshot = TelemetryRegistry.getInstance().snapshotOrdered();
-		final java.util.Map<String, java.lang.Double> msgHz = new java.util.HashMap<>();
-		for (MessageStatsRegistry.Entry e : MessageStatsRegistry.getInstance().snapshot(1000)) {
-			msgHz.put(e.key, e.hz);
-		}
         UiUpdateQueue.get().submit("status.render", () -> {
 			TreeItem<NodeRow> root = statusTree.getRoot();
 			if (root == null) {
@@ -108,11 +231,13 @@ public class StatusTabController extends BaseController {
 			}
 
             // Use global device selection
+            int selSys = -1, selComp = -1;
             try {
-                int selSys = com.serialcomm.service.DeviceSelectionService.getInstance().selectedSys();
-                int selComp = com.serialcomm.service.DeviceSelectionService.getInstance().selectedComp();
+                selSys = com.serialcomm.service.DeviceSelectionService.getInstance().selectedSys();
+                selComp = com.serialcomm.service.DeviceSelectionService.getInstance().selectedComp();
                 selectedSysComp = (selSys < 0 && selComp < 0) ? null : (selSys + ":" + selComp);
             } catch (Exception e) { com.serialcomm.util.ErrorMonitor.record("ui.status.sel", e); }
+            if (watch != null && (selSys != watchSys || selComp != watchComp)) openWatch(selSys, selComp);
 
 			// Save previous expanded messages for this syscomp
 			java.util.Set<String> prevExpanded = new java.util.HashSet<>();
@@ -125,44 +250,53 @@ public class StatusTabController extends BaseController {
 				expandedBySysComp.put(selectedSysComp, prevExpanded);
 			}
 
-			// Rebuild as 2-level: MSG -> fields (filtered by selected sys:comp)
+			// Rebuild as 2-level: MSG -> fields (filtered by selected sys:comp), reading store rows in place
 			root.getChildren().clear();
-			java.util.Map<String, java.util.List<TelemetryRegistry.Item>> fieldsByMsg = new java.util.LinkedHashMap<>();
-			for (TelemetryRegistry.Item it : snapshot) {
-				int sp = it.key.indexOf(' ');
-				if (sp <= 0) continue;
-                String syscomp = it.key.substring(0, sp);
-                if (selectedSysComp != null && !selectedSysComp.equals(syscomp)) continue;
-				String rest = it.key.substring(sp+1);
-				int dot = rest.indexOf('.');
-				if (dot <= 0) continue;
-				String msgName = rest.substring(0, dot);
-				fieldsByMsg.computeIfAbsent(msgName, k -> new java.util.ArrayList<>()).add(it);
+			msgItems.clear();
+			msgRows.clear();
+			rowItems.clear();
+			TelemetryStore store = TelemetryStore.getInstance();
+			java.util.Map<String, java.util.List<Integer>> rowsByMsg = new java.util.TreeMap<>();
+			renderedKeys = new long[store.rowCount()];
+			for (int row = 0, n = renderedKeys.length; row < n; row++) {
+				renderedKeys[row] = rowKey(store, row);
+				if (selSys >= 0 && store.sysid(row) != selSys) continue;
+				if (selComp >= 0 && store.compid(row) != selComp) continue;
+				rowsByMsg.computeIfAbsent(store.messageName(row), k -> new java.util.ArrayList<>()).add(row);
 			}
 
-			java.util.List<String> msgNames = new java.util.ArrayList<>(fieldsByMsg.keySet());
-			java.util.Collections.sort(msgNames);
 			java.util.Set<String> savedExpanded = selectedSysComp == null ? java.util.Collections.emptySet() : expandedBySysComp.getOrDefault(selectedSysComp, java.util.Collections.emptySet());
+			long nowMs = System.currentTimeMillis();
 			int added = 0;
-			for (String msgName : msgNames) {
-				String hzKey = (selectedSysComp == null ? "" : selectedSysComp + ":") + msgName;
-				TreeItem<NodeRow> msgItem = new TreeItem<>(new NodeRow(msgName, "", "", "", formatHz(msgHz.getOrDefault(hzKey, 0.0))));
-				java.util.List<TelemetryRegistry.Item> fields = fieldsByMsg.get(msgName);
-				fields.sort(java.util.Comparator.comparing(i -> i.key));
-				for (TelemetryRegistry.Item it : fields) {
-					String key = it.key;
-					int sp = key.indexOf(' ');
-					String rest = key.substring(sp+1);
-					int dot = rest.indexOf('.');
-					String field = rest.substring(dot+1);
-					String enumText = com.serialcomm.service.EnumLabeler.label(msgName, field, it.value);
-					String remark = com.serialcomm.service.RemarkLabeler.remark(msgName, field);
-					msgItem.getChildren().add(new TreeItem<>(new NodeRow(field, remark, it.value, enumText, "")));
-					if (++added > 1000) break; // safety cap
-				}
+			for (java.util.Map.Entry<String, java.util.List<Integer>> me : rowsByMsg.entrySet()) {
+				String msgName = me.getKey();
+				java.util.List<Integer> rows = me.getValue();
+				TreeItem<NodeRow> msgItem = new TreeItem<>(new NodeRow(msgName, "", "", "", formatHz(messageHz(store, rows, nowMs))));
 				boolean expand = savedExpanded.isEmpty() || savedExpanded.contains(msgName);
+				rows.sort(java.util.Comparator.comparingInt(r -> store.sysid(r) << 8 | store.compid(r)));
+				for (int row : rows) {
+					com.serialcomm.service.FieldAccessors acc = store.accessors(row);
+					java.util.List<TreeItem<NodeRow>> items = new java.util.ArrayList<>(acc.fieldCount());
+					rowItems.put(row, items);
+					for (int k = 0; k < acc.fieldCount(); k++) {
+						int field = acc.fieldByName(k);
+						String name = acc.fieldName(field);
+						// Values are formatted only for expanded (visible) messages
+						String value = expand ? store.format(row, field) : "";
+						String enumText = expand ? com.serialcomm.service.EnumLabeler.label(msgName, name, value) : "";
+						String remark = com.serialcomm.service.RemarkLabeler.remark(msgName, name);
+						TreeItem<NodeRow> item = new TreeItem<>(new NodeRow(name, remark, value, enumText, ""));
+						items.add(item);
+						msgItem.getChildren().add(item);
+						if (++added > 1000) break; // safety cap
+					}
+					if (added > 1000) break;
+				}
 				msgItem.setExpanded(expand);
+				msgItem.expandedProperty().addListener((o, was, now) -> { if (now) renderOnce(); });
 				root.getChildren().add(msgItem);
+				msgItems.put(msgName, msgItem);
+				msgRows.put(msgName, rows);
 				if (added > 1000) break;
 			}
             statusTree.refresh();
@@ -201,7 +335,7 @@ public class StatusTabController extends BaseController {
 
 	@Override
 	public void cleanup() {
-        stopTimer();
+		closeWatch();
 		super.cleanup();
 	}
 
@@ -2,8 +2,7 @@ package com.serialcomm.controller;
 
 import com.MAVLink.MAVLinkPacket;
 import com.serialcomm.service.DeviceSelectionService;
-import com.serialcomm.service.MavlinkDispatcher;
-import com.serialcomm.service.VehicleState;
+import com.serialcomm.service.VehicleStore;
 import com.serialcomm.util.LanguageManager;
 import com.serialcomm.util.UiUpdateQueue;
 import javafx.application.Platform;
@@ -19,10 +18,12 @@ import org.slf4j.LoggerFactory;
  * Visual Real-time Status tab.
  * Left: attitude visualization (artificial horizon style).
  * Bottom: 18 key telemetry items in big font.
- * No extra smoothing; display values as-is from VehicleState.
+ * No extra smoothing; display values as-is from VehicleStore.
  */
 public class VisualStatusTabController extends BaseController {
     private static final Logger logger = LoggerFactory.getLogger(VisualStatusTabController.class);
+    /** HEARTBEAT, SYS_STATUS, GPS_RAW_INT, SCALED_PRESSURE, ATTITUDE, GLOBAL_POSITION_INT, VFR_HUD */
+    private static final int[] VISUAL_MSGIDS = {0, 1, 24, 29, 30, 33, 74};
 
     @FXML private Canvas attitudeCanvas;
     @FXML private GridPane grid;
@@ -56,7 +57,10 @@ public class VisualStatusTabController extends BaseController {
         currentReceiveMode = ReceiveMode.HEX; // not used; driven by dispatcher events
         setupGrid();
         try {
-            MavlinkDispatcher.getInstance().addListener(this::onPacket);
+            // Only the messages that feed the VehicleStore fields shown here; the view shows
+            // current state, so a backlog collapses to the newest packet per message and vehicle
+            com.serialcomm.service.PacketHub.getInstance().subscribeAsync("visual", VISUAL_MSGIDS,
+                    com.serialcomm.service.AsyncSubscriber.Overflow.LATEST_PER_MSGID, VISUAL_MSGIDS.length, env -> onPacket(env.packet()));
         } catch (Throwable t) { com.serialcomm.util.ErrorMonitor.record("visual.subscribe", t); }
         bindResponsiveCanvas();
         redrawAttitude(0,0,0,0,0);
@@ -76,7 +80,7 @@ public class VisualStatusTabController extends BaseController {
 					Platform.runLater(() -> {
 						if (mapView != null) {
 							java.util.List<com.serialcomm.map.TileSource> offline = com.serialcomm.service.MapDataService.getInstance().getOfflineSources();
-							for (com.serialcomm.map.TileSource ts : offline) mapView.addTileSource(ts);
+							for (com.serialcomm.map.TileSource ts : offline) mapView.addTileSource(com.serialcomm.service.PipelineLatency.getInstance().timed(ts));
 							// default to first offline if available
 							if (!offline.isEmpty()) {
 								mapView.setActiveSourceById(offline.get(0).getId());
@@ -184,7 +188,7 @@ public class VisualStatusTabController extends BaseController {
             }
         } catch (Exception e) { com.serialcomm.util.ErrorMonitor.record("visual.device.filter", e); }
 
-        VehicleState.Snapshot s = VehicleState.getInstance().getSnapshotOf(pkt.sysid, pkt.compid);
+        VehicleStore.View s = VehicleStore.getInstance().get(pkt.sysid, pkt.compid);
         if (s == null) return;
 
         // Update platform label
@@ -239,7 +243,7 @@ public class VisualStatusTabController extends BaseController {
         });
     }
 
-    private boolean isValidLatLon(VehicleState.Snapshot s) {
+    private boolean isValidLatLon(VehicleStore.View s) {
         try {
             if (s == null) return false;
             if (s.latE7 == 0 && s.lonE7 == 0) return false; // 0,0 invalid default
@@ -248,7 +252,7 @@ public class VisualStatusTabController extends BaseController {
         } catch (Throwable t) { return false; }
     }
 
-    private void updatePlatformLabel(VehicleState.Snapshot s) {
+    private void updatePlatformLabel(VehicleStore.View s) {
         UiUpdateQueue.get().submit("visual.platform", () -> {
             String vendor = "-";
             try {
@@ -613,8 +617,8 @@ public class VisualStatusTabController extends BaseController {
                 // Add offline first, then online
                 java.util.List<com.serialcomm.map.TileSource> offline = com.serialcomm.service.MapDataService.getInstance().getOfflineSources();
                 java.util.List<com.serialcomm.map.TileSource> online = com.serialcomm.service.MapDataService.getInstance().getOnlineSources();
-                for (com.serialcomm.map.TileSource ts : offline) mapView.addTileSource(ts);
-                for (com.serialcomm.map.TileSource ts : online) mapView.addTileSource(ts);
+                for (com.serialcomm.map.TileSource ts : offline) mapView.addTileSource(com.serialcomm.service.PipelineLatency.getInstance().timed(ts));
+                for (com.serialcomm.map.TileSource ts : online) mapView.addTileSource(com.serialcomm.service.PipelineLatency.getInstance().timed(ts));
                 // Restore saved active source if present
                 try {
                     String savedId = com.serialcomm.util.Settings.getSavedMapSourceId();
@@ -0,0 +1,312 @@
+package com.serialcomm.link;
+
+import com.serialcomm.serial.SerialRouter;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+
+/**
+ * Router base with a per-instance outbound structure; it queues, it does not write.
+ * Unlike {@link AbstractRouter}, whose queue is static and shared by every router, each
+ * link owns one lock-free queue per priority level (HIGH=0, NORMAL=1, LOW=2), so links
+ * never contend with or starve each other. Admission rules match AbstractRouter: when
+ * full, HIGH/NORMAL evict the oldest LOW, HIGH may further evict the oldest NORMAL,
+ * otherwise the new message is dropped. Accepted/dropped counters are tracked per link.
+ * Subclasses decide who writes: {@link ThreadedLinkRouter} runs a sender thread over a
+ * blocking write, a selector-driven link takes batches with {@link #pollBatch} when writable.
+ * <p>
+ * Inbound, each link owns an off-heap {@link com.serialcomm.util.SpscByteRing}: the reader
+ * (driver callback, reader thread or selector) only copies each read into the ring with its
+ * {@code nanoTime} and returns, and a {@link ReceiveWorker} parses the records through
+ * {@link #dispatchInbound}, on a thread of the link's own unless {@link #sharedReceiveWorker()}
+ * names one. A slow parser or hub listener therefore drops whole reads (counted in
+ * {@link #getReceiveOverruns()}) instead of stalling the driver.
+ */
+public abstract class LinkRouter {
+    public static final int WEIGHT_HIGH = 0;
+    public static final int WEIGHT_NORMAL = 1;
+    public static final int WEIGHT_LOW = 2;
+    static final int LEVELS = 3;
+    private static final int DEFAULT_CAPACITY = 64;
+    static final int MAX_BATCH_FRAMES = 64;
+    /** Receive ring of a link that does not choose its own size */
+    public static final int DEFAULT_RX_RING_BYTES = 1 << 20;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private final ConcurrentLinkedQueue<byte[]>[] outbound = new ConcurrentLinkedQueue[LEVELS];
+    private final AtomicInteger outboundSize = new AtomicInteger();
+    private volatile int outboundCapacity = DEFAULT_CAPACITY;
+
+    private final AtomicLong[] accepted = new AtomicLong[LEVELS];
+    private final AtomicLong[] dropped = new AtomicLong[LEVELS];
+    /** Write operations issued and frames carried by them (frames/writes = coalescing ratio) */
+    private final AtomicLong writeCalls = new AtomicLong();
+    private final AtomicLong framesWritten = new AtomicLong();
+
+    /** Inbound ring, replaced on every start so a stopping receiver keeps its own */
+    private volatile com.serialcomm.util.SpscByteRing inbound;
+    private volatile ReceiveWorker receiveWorker;
+    /** Size of the ring created on the next start */
+    private volatile int receiveRingBytes;
+    private final AtomicLong receiveOverruns = new AtomicLong();
+    private final AtomicLong receiveDroppedBytes = new AtomicLong();
+    private volatile long receiveHighWater;
+
+    private IntConsumer bytesReceivedCallback;
+    private IntConsumer bytesSentCallback;
+
+    protected LinkRouter() {
+        this(DEFAULT_RX_RING_BYTES);
+    }
+
+    /** @param receiveRingBytes receive ring size, rounded up to a power of two (min 1024) */
+    protected LinkRouter(int receiveRingBytes) {
+        this.receiveRingBytes = receiveRingBytes;
+        for (int i = 0; i < LEVELS; i++) {
+            outbound[i] = new ConcurrentLinkedQueue<>();
+            accepted[i] = new AtomicLong();
+            dropped[i] = new AtomicLong();
+        }
+    }
+
+    /** Map the public priority enum to an internal weight. */
+    public static int weightOf(SerialRouter.Priority p) {
+        if (p == null) return WEIGHT_NORMAL;
+        switch (p) {
+            case HIGH: return WEIGHT_HIGH;
+            case LOW: return WEIGHT_LOW;
+            default: return WEIGHT_NORMAL;
+        }
+    }
+
+    /** Queue a frame for sending with the given weight; never blocks. */
+    protected void offerOutbound(byte[] data, int weight) {
+        if (data == null || data.length == 0) return;
+        int w = Math.max(WEIGHT_HIGH, Math.min(WEIGHT_LOW, weight));
+        if (outboundSize.incrementAndGet() > outboundCapacity && !makeRoomFor(w)) {
+            outboundSize.decrementAndGet();
+            dropped[w].incrementAndGet();
+            return;
+        }
+        outbound[w].offer(data);
+        accepted[w].incrementAndGet();
+        onOutboundQueued();
+    }
+
+    /** Called after a frame was queued, on the enqueuing thread: wake whatever writes this link. */
+    protected abstract void onOutboundQueued();
+
+    /** Evict one lower-priority frame to make room; the slot is handed over to the caller. */
+    private boolean makeRoomFor(int weight) {
+        try {
+            if (weight <= WEIGHT_NORMAL && evictOldest(WEIGHT_LOW)) return true;
+            if (weight == WEIGHT_HIGH && evictOldest(WEIGHT_NORMAL)) return true;
+        } catch (Throwable t) {
+            com.serialcomm.util.ErrorMonitor.record("router.makeroom", t);
+        }
+        return false;
+    }
+
+    private boolean evictOldest(int weight) {
+        if (outbound[weight].poll() == null) return false;
+        outboundSize.decrementAndGet();
+        dropped[weight].incrementAndGet();
+        return true;
+    }
+
+    /** Level of the next frame in priority order, or -1 if all levels are empty. */
+    protected final int headLevel() {
+        for (int w = 0; w < LEVELS; w++) {
+            if (outbound[w].peek() != null) return w;
+        }
+        return -1;
+    }
+
+    /** Next frame of level {@code w} without removing it, or null. */
+    protected final byte[] peekHead(int w) { return outbound[w].peek(); }
+
+    /** Remove the frame at the head of level {@code w}; the writing thread only, after a peek. */
+    protected final byte[] takeHead(int w) {
+        byte[] data = outbound[w].poll();
+        if (data != null) outboundSize.decrementAndGet();
+        return data;
+    }
+
+    /** Discard every queued frame (on disconnect). */
+    protected final void clearOutbound() {
+        for (int w = 0; w < LEVELS; w++) {
+            while (outbound[w].poll() != null) outboundSize.decrementAndGet();
+        }
+    }
+
+    /**
+     * Move the next frames in priority order into {@code batch}, coalesced up to
+     * {@link #coalesceBudgetBytes()}, with each frame's level in {@code levels}; for links whose
+     * writes are driven by a selector. No send gap or rate limit applies (see
+     * {@link ThreadedLinkRouter}). Only one thread may take batches.
+     * @return number of frames taken, 0 when all queues are empty
+     */
+    protected final int pollBatch(byte[][] batch, int[] levels) {
+        int budget = coalesceBudgetBytes();
+        int count = 0;
+        int total = 0;
+        while (count < batch.length) {
+            int w = headLevel();
+            if (w < 0) break;
+            byte[] next = outbound[w].peek();
+            if (next == null || (count > 0 && next.length > budget - total)) break;
+            if (takeHead(w) == null) break;
+            levels[count] = w;
+            batch[count++] = next;
+            total += next.length;
+        }
+        return count;
+    }
+
+    /** Account a batch taken from the queues as written ({@code written} of {@code total} bytes). */
+    protected final void batchWritten(byte[][] batch, int count, int total, int written) {
+        writeCalls.incrementAndGet();
+        framesWritten.addAndGet(count);
+        try {
+            if (written > 0 && bytesSentCallback != null) bytesSentCallback.accept(written);
+            if (count == 1) {
+                onBytesSent(batch[0], written);
+            } else {
+                boolean complete = written >= total;
+                for (int i = 0; i < count; i++) onBytesSent(batch[i], complete ? batch[i].length : 0);
+            }
+        } catch (Throwable t) { com.serialcomm.util.ErrorMonitor.record("router.bytesSentCb", t); }
+    }
+
+    /** Account a batch taken from the queues but never sent as dropped, by level. */
+    protected final void batchDropped(int[] levels, int count) {
+        for (int i = 0; i < count; i++) dropped[levels[i]].incrementAndGet();
+    }
+
+    /** Start receiving into an empty ring (call on connect, before reads can arrive). */
+    protected synchronized void startReceiveLoop() {
+        stopReceiveLoop();
+        com.serialcomm.util.SpscByteRing ring = new com.serialcomm.util.SpscByteRing(receiveRingBytes);
+        ReceiveWorker shared = sharedReceiveWorker();
+        ReceiveWorker w = shared != null ? shared : new ReceiveWorker(receiverThreadName());
+        w.attach(this, ring);
+        receiveWorker = w;
+        inbound = ring;
+    }
+
+    /** Stop receiving; reads still buffered are discarded. */
+    protected synchronized void stopReceiveLoop() {
+        com.serialcomm.util.SpscByteRing ring = inbound;
+        ReceiveWorker w = receiveWorker;
+        inbound = null;
+        receiveWorker = null;
+        if (w != null) {
+            w.detach(this);
+            if (w != sharedReceiveWorker()) w.shutdown();
+        }
+        if (ring != null) {
+            receiveOverruns.addAndGet(ring.overruns());
+            receiveDroppedBytes.addAndGet(ring.droppedBytes());
+            receiveHighWater = Math.max(receiveHighWater, ring.highWaterMark());
+        }
+    }
+
+    /**
+     * Reader thread: queue {@code n} received bytes for the receiver thread, stamped with the
+     * time of this read; never blocks. A read longer than a ring record is queued as several,
+     * but always whole: when no receiver runs or the ring lacks room for all of it, the
+     * entire read is dropped (and counted as one overrun).
+     */
+    protected void offerInbound(byte[] buf, int n) {
+        com.serialcomm.util.SpscByteRing ring = inbound;
+        ReceiveWorker w = receiveWorker;
+        if (ring == null || w == null || n <= 0) return;
+        ring.offerRecords(buf, 0, n, System.nanoTime(), ReceiveWorker.RECORD_BYTES);
+        w.wake();
+    }
+
+    /**
+     * Whether a read of {@code n} bytes would fit in the receive ring now; false when no
+     * receiver runs. For producers that can wait, unlike a driver, so they hold back instead
+     * of overrunning the ring.
+     */
+    protected boolean hasInboundRoom(int n) {
+        com.serialcomm.util.SpscByteRing ring = inbound;
+        if (ring == null) return false;
+        int records = (n + ReceiveWorker.RECORD_BYTES - 1) / ReceiveWorker.RECORD_BYTES;
+        return ring.free() >= n + records * com.serialcomm.util.SpscByteRing.RECORD_HEADER;
+    }
+
+    /** Receiver thread: parse {@code n} received bytes (one read, or a slice of a large one). */
+    protected abstract void dispatchInbound(byte[] buf, int n);
+
+    /** Thread name of a link's own receive worker. */
+    protected String receiverThreadName() { return "Link-Receiver"; }
+
+    /** Worker shared with other links of the same kind, or null (default) for one of the link's own. */
+    ReceiveWorker sharedReceiveWorker() { return null; }
+
+    /** Reads dropped because the receive ring was full, since creation. */
+    public long getReceiveOverruns() {
+        com.serialcomm.util.SpscByteRing ring = inbound;
+        return receiveOverruns.get() + (ring != null ? ring.overruns() : 0L);
+    }
+
+    public long getReceiveDroppedBytes() {
+        com.serialcomm.util.SpscByteRing ring = inbound;
+        return receiveDroppedBytes.get() + (ring != null ? ring.droppedBytes() : 0L);
+    }
+
+    /** Highest fill level of the receive ring since creation (bytes). */
+    public long getReceiveHighWater() {
+        com.serialcomm.util.SpscByteRing ring = inbound;
+        return Math.max(receiveHighWater, ring != null ? ring.highWaterMark() : 0L);
+    }
+
+    /** Capacity of the current receive ring, or the size the next one will get. */
+    public int getReceiveCapacity() {
+        com.serialcomm.util.SpscByteRing ring = inbound;
+        return ring != null ? ring.capacity() : receiveRingBytes;
+    }
+
+    /** Receive ring size for the next connect (the current ring keeps its size). */
+    public void setReceiveRingBytes(int bytes) { this.receiveRingBytes = bytes; }
+
+    /**
+     * Upper bound of bytes coalesced into one write; 0 (default) sends one frame per write.
+     * A single frame larger than the budget is still sent on its own.
+     */
+    protected int coalesceBudgetBytes() { return 0; }
+
+    /** Hook invoked after each write, on the writing thread. */
+    protected void onBytesSent(byte[] data, int written) {}
+
+    protected abstract boolean isConnected();
+
+    public void setByteCountCallbacks(IntConsumer receivedCallback, IntConsumer sentCallback) {
+        this.bytesReceivedCallback = receivedCallback;
+        this.bytesSentCallback = sentCallback;
+    }
+
+    protected void acceptBytesReceived(int n) {
+        if (n > 0 && bytesReceivedCallback != null) bytesReceivedCallback.accept(n);
+    }
+
+    public int getOutboundQueueSize() { return Math.max(0, outboundSize.get()); }
+
+    public int getOutboundCapacity() { return outboundCapacity; }
+
+    public void setOutboundCapacity(int capacity) { this.outboundCapacity = Math.max(DEFAULT_CAPACITY, capacity); }
+
+    public long getDroppedHigh() { return dropped[WEIGHT_HIGH].get(); }
+    public long getDroppedNormal() { return dropped[WEIGHT_NORMAL].get(); }
+    public long getDroppedLow() { return dropped[WEIGHT_LOW].get(); }
+    public long getAcceptedHigh() { return accepted[WEIGHT_HIGH].get(); }
+    public long getAcceptedNormal() { return accepted[WEIGHT_NORMAL].get(); }
+    public long getAcceptedLow() { return accepted[WEIGHT_LOW].get(); }
+
+    public long getWriteCalls() { return writeCalls.get(); }
+    public long getFramesWritten() { return framesWritten.get(); }
+}
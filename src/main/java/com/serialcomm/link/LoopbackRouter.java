@@ -0,0 +1,141 @@
+package com.serialcomm.link;
+
+import com.serialcomm.controller.BaseController;
+import com.serialcomm.serial.SerialRouter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * In-process link fed by {@link SyntheticTraffic}: no sockets or ports, but received bytes
+ * take the same path as a real link (byte counters, receive ring and
+ * {@code MavlinkDispatcher.ingest}, active tab). Frames due together are delivered as one
+ * chunk, like a driver read. Outbound frames go through the normal queues and are counted
+ * and discarded.
+ * <p>
+ * Paced traffic is offered like a driver read, so a receiver that falls behind shows up in
+ * {@link #getReceiveOverruns()}. Flood traffic instead waits for room in the receive ring
+ * before each chunk, so its rate is what the parser and hub sustain, not what was dropped.
+ * Session id {@code loopback:<name>}.
+ */
+public final class LoopbackRouter extends ThreadedLinkRouter implements LinkSession {
+    private static final Logger logger = LoggerFactory.getLogger(LoopbackRouter.class);
+    private static final int CHUNK_BYTES = 16 * 1024;
+    /** Flood mode: recheck for receive ring space this often while it is full */
+    private static final long FLOOD_BACKOFF_NANOS = 50_000L;
+
+    private volatile BaseController activeController;
+    private volatile String sessionId = "loopback-default";
+    private volatile boolean connected;
+    private volatile SyntheticTraffic traffic;
+    private volatile Thread generatorThread;
+
+    public void setActiveController(BaseController controller) { this.activeController = controller; }
+
+    @Override
+    public String getSessionId() { return sessionId; }
+
+    /** Reported as UDP, the closest real transport (datagram-like chunks, no port settings). */
+    @Override
+    public LinkManager.Transport getTransport() { return LinkManager.Transport.UDP; }
+
+    @Override
+    public boolean isConnected() { return connected; }
+
+    public boolean start(String name, SyntheticTraffic.Config config) {
+        disconnect();
+        try {
+            SyntheticTraffic t = new SyntheticTraffic(config);
+            this.traffic = t;
+            this.sessionId = "loopback:" + name;
+            this.connected = true;
+            startReceiveLoop();
+            startSenderLoop();
+            Thread g = com.serialcomm.service.Scheduler.getInstance().namedFactory("Loopback-Gen").newThread(() -> generate(t));
+            g.setDaemon(true);
+            generatorThread = g;
+            g.start();
+            logger.info("Loopback {} started: {} vehicles, {} streams each{}", sessionId, config.vehicles,
+                    config.rates.size(), t.isFlood() ? ", flood" : "");
+            return true;
+        } catch (Exception e) {
+            logger.error("Loopback start failed", e);
+            disconnect();
+            return false;
+        }
+    }
+
+    @Override
+    public void disconnect() {
+        connected = false;
+        stopSenderLoop();
+        stopReceiveLoop();
+        Thread g = generatorThread;
+        generatorThread = null;
+        if (g != null) g.interrupt();
+        sessionId = "loopback-default";
+    }
+
+    @Override
+    public void enqueue(byte[] data, SerialRouter.Priority priority) {
+        offerOutbound(data, weightOf(priority));
+    }
+
+    @Override
+    protected int writeBytes(byte[] data) { return data.length; }
+
+    @Override
+    protected String senderThreadName() { return "Loopback-Sender"; }
+
+    @Override
+    protected String receiverThreadName() { return "Loopback-Receiver"; }
+
+    private void generate(SyntheticTraffic t) {
+        byte[] chunk = new byte[CHUNK_BYTES];
+        while (connected && traffic == t && !Thread.currentThread().isInterrupted()) {
+            try {
+                if (t.isFlood() && !awaitInboundRoom(t)) continue;
+                int n = t.emitDue(chunk);
+                if (n > 0) deliver(chunk, n);
+                if (!t.isFlood()) {
+                    long wait = t.nextDueNanos() - System.nanoTime();
+                    if (wait > 0) LockSupport.parkNanos(this, wait);
+                }
+            } catch (Exception e) {
+                com.serialcomm.util.ErrorMonitor.record("loopback.generate", e);
+            }
+        }
+    }
+
+    /** Flood mode back-pressure: wait until a whole chunk fits in the receive ring. */
+    private boolean awaitInboundRoom(SyntheticTraffic t) {
+        while (!hasInboundRoom(CHUNK_BYTES)) {
+            if (!connected || traffic != t || Thread.currentThread().isInterrupted()) return false;
+            LockSupport.parkNanos(this, FLOOD_BACKOFF_NANOS);
+        }
+        return true;
+    }
+
+    private void deliver(byte[] buf, int n) {
+        acceptBytesReceived(n);
+        offerInbound(buf, n);
+        BaseController c = activeController;
+        if (c != null) c.onBytesFromRouter(buf, n);
+    }
+
+    @Override
+    protected void dispatchInbound(byte[] buf, int n) {
+        try {
+            com.serialcomm.service.MavlinkDispatcher.getInstance().ingest(sessionId, buf, n);
+        } catch (Exception e) {
+            com.serialcomm.util.ErrorMonitor.record("loopback.dispatch", e);
+        }
+    }
+
+    /** Generator counters; zero when not started. */
+    public long getFramesGenerated() { SyntheticTraffic t = traffic; return t != null ? t.framesGenerated() : 0L; }
+    public long getBytesGenerated() { SyntheticTraffic t = traffic; return t != null ? t.bytesGenerated() : 0L; }
+    public long getFramesCorrupted() { SyntheticTraffic t = traffic; return t != null ? t.framesCorrupted() : 0L; }
+    public long getSeqGaps() { SyntheticTraffic t = traffic; return t != null ? t.seqGaps() : 0L; }
+}
@@ -0,0 +1,460 @@
+package com.serialcomm.link;
+
+import com.MAVLink.MAVLinkPacket;
+import com.MAVLink.Messages.MAVLinkMessage;
+import com.serialcomm.controller.BaseController;
+import com.serialcomm.link.spi.LinkAdapter;
+import com.serialcomm.link.spi.LinkRegistry;
+import com.serialcomm.serial.SerialRouter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntConsumer;
+
+/**
+ * Concurrent multi-link mode: any number of {@link LinkAdapter} sessions live at once.
+ * Each link is a fresh adapter instance created from the {@link LinkRegistry} prototype of
+ * its transport, so every link gets its own router and its own parser in
+ * {@code MavlinkDispatcher} (keyed by session id). Outbound packets are routed to the link
+ * on which the target system was last heard; unknown or broadcast targets go to all links.
+ * The send/receive path only touches concurrent maps and an atomic sysid table; no global lock.
+ *
+ * Enabled with setting {@code link.multi.enabled=true}; endpoints come from
+ * {@code link.multi.endpoints}, e.g. {@code serial:COM3@57600,udp:14550,tcp:127.0.0.1:5760};
+ * a UDP port range such as {@code udp:14550-14600} opens one link per port,
+ * {@code tcp-listen:5760} accepts any number of inbound TCP clients, and
+ * {@code loopback:vehicles=20&ATTITUDE=50} starts a synthetic link. Endpoints are separated
+ * by commas, semicolons or whitespace, so loopback options use {@code &}.
+ */
+public final class MultiLinkManager {
+    private static final Logger logger = LoggerFactory.getLogger(MultiLinkManager.class);
+    private static final MultiLinkManager INSTANCE = new MultiLinkManager();
+
+    public static final String KEY_ENABLED = "link.multi.enabled";
+    public static final String KEY_ENDPOINTS = "link.multi.endpoints";
+
+    private static final java.util.regex.Pattern ENDPOINT_SEPARATOR = java.util.regex.Pattern.compile("[,;\\s]+");
+    private static final java.util.regex.Pattern UDP_RANGE = java.util.regex.Pattern.compile("(?i)udp:(?:.*:)?(\\d+)-(\\d+)");
+
+    /** Registry ids picked over the jar builtins when a transport has several adapters */
+    private static final java.util.Set<String> PREFERRED_ADAPTERS = java.util.Set.of("serial-link", "tcp-nio", "udp-nio");
+
+    /** Live links keyed by dispatcher session id */
+    private final ConcurrentHashMap<String, LinkAdapter> links = new ConcurrentHashMap<>();
+    /** sysid -> session id of the link it was last heard on */
+    private final AtomicReferenceArray<String> routeBySysid = new AtomicReferenceArray<>(256);
+    /** Payload offset of target_system + 1 per msgid below 65536; 0 not yet known, -1 no such field */
+    private final AtomicIntegerArray targetOffsetByMsgid = new AtomicIntegerArray(1 << 16);
+
+    private volatile BaseController activeController;
+    /** Only this link delivers raw bytes to the active tab; the others feed telemetry only */
+    private volatile String primarySessionId;
+    private volatile IntConsumer bytesReceivedCallback;
+    private volatile IntConsumer bytesSentCallback;
+    private volatile boolean routeListenerInstalled;
+
+    public static MultiLinkManager getInstance() { return INSTANCE; }
+
+    private MultiLinkManager() {}
+
+    public static boolean isEnabled() {
+        return Boolean.parseBoolean(com.serialcomm.util.Settings.getString(KEY_ENABLED, "false").trim());
+    }
+
+    /** Whether multi-link mode currently owns the transport (at least one live link). */
+    public boolean isActive() { return !links.isEmpty(); }
+
+    public boolean isConnected() {
+        for (LinkAdapter a : links.values()) {
+            if (a.isConnected()) return true;
+        }
+        return false;
+    }
+
+    public List<String> sessionIds() { return new ArrayList<>(links.keySet()); }
+
+    public void setByteCountCallbacks(IntConsumer received, IntConsumer sent) {
+        this.bytesReceivedCallback = received;
+        this.bytesSentCallback = sent;
+        for (LinkAdapter a : links.values()) {
+            try { a.setByteCountCallbacks(received, sent); } catch (Exception e) { com.serialcomm.util.ErrorMonitor.record("link.multi.byteCb", e); }
+        }
+    }
+
+    public void setActiveController(BaseController controller) {
+        this.activeController = controller;
+        String primary = primarySessionId;
+        LinkAdapter a = primary != null ? links.get(primary) : null;
+        if (a != null) {
+            try { a.setActiveController(controller); } catch (Exception e) { com.serialcomm.util.ErrorMonitor.record("link.multi.active", e); }
+        }
+    }
+
+    /** Open every endpoint listed in {@link #KEY_ENDPOINTS}; returns the number of links opened. */
+    public int openConfigured() {
+        String spec = com.serialcomm.util.Settings.getString(KEY_ENDPOINTS, "");
+        int opened = 0;
+        for (String raw : ENDPOINT_SEPARATOR.split(spec)) {
+            String ep = raw.trim();
+            if (ep.isEmpty()) continue;
+            try {
+                opened += openAll(ep);
+            } catch (Exception e) {
+                logger.warn("Multi-link endpoint '{}' failed: {}", ep, e.getMessage());
+                com.serialcomm.util.ErrorMonitor.record("link.multi.open", e);
+            }
+        }
+        return opened;
+    }
+
+    /** Expand a UDP port range ({@code udp:14550-14600}) and open each port; other endpoints open once. */
+    private int openAll(String ep) {
+        java.util.regex.Matcher m = UDP_RANGE.matcher(ep);
+        if (!m.matches()) return open(ep) != null ? 1 : 0;
+        int from = Integer.parseInt(m.group(1));
+        int to = Integer.parseInt(m.group(2));
+        int opened = 0;
+        for (int port = from; port <= to; port++) {
+            if (listenUdp(port) != null) opened++;
+        }
+        return opened;
+    }
+
+    /**
+     * Open one endpoint: {@code serial:PORT@BAUD}, {@code tcp:HOST:PORT}, {@code udp:PORT},
+     * {@code tcp-listen:PORT} or {@code loopback:OPTIONS} (see {@link SyntheticTraffic#parse}).
+     * @return the session id, or null if the link could not be opened
+     */
+    public String open(String endpoint) {
+        String ep = endpoint.trim();
+        int colon = ep.indexOf(':');
+        if (colon <= 0) throw new IllegalArgumentException("Bad endpoint: " + endpoint);
+        String kind = ep.substring(0, colon).toLowerCase(Locale.ROOT);
+        String rest = ep.substring(colon + 1);
+        switch (kind) {
+            case "serial": {
+                int at = rest.lastIndexOf('@');
+                if (at <= 0) throw new IllegalArgumentException("Bad serial endpoint: " + endpoint);
+                return connectSerial(rest.substring(0, at), Integer.parseInt(rest.substring(at + 1)));
+            }
+            case "tcp": {
+                int c = rest.lastIndexOf(':');
+                if (c <= 0) throw new IllegalArgumentException("Bad tcp endpoint: " + endpoint);
+                return connectTcp(rest.substring(0, c), Integer.parseInt(rest.substring(c + 1)));
+            }
+            case "tcp-listen": {
+                int c = rest.lastIndexOf(':');
+                return listenTcp(Integer.parseInt(c >= 0 ? rest.substring(c + 1) : rest));
+            }
+            case "udp": {
+                int c = rest.lastIndexOf(':');
+                return listenUdp(Integer.parseInt(c >= 0 ? rest.substring(c + 1) : rest));
+            }
+            case "loopback":
+                return openLoopback(SyntheticTraffic.parse(rest));
+            default:
+                throw new IllegalArgumentException("Unknown transport: " + kind);
+        }
+    }
+
+    /** Each serial link gets its own {@link SerialLinkRouter}, so several ports can be open at once. */
+    public String connectSerial(String port, int baud) {
+        String sid = "serial:" + port + "@" + baud;
+        return attach(sid, LinkManager.Transport.SERIAL, detachOnClose(sid, a -> a.connectSerial(port, baud)));
+    }
+
+    public String connectTcp(String host, int port) {
+        String sid = "tcp:" + host + ":" + port;
+        return attach(sid, LinkManager.Transport.TCP, detachOnClose(sid, a -> a.connectTcp(host, port)));
+    }
+
+    /**
+     * Wrap {@code connector} so that a link closing underneath us (port unplugged, peer
+     * gone) is detached like an explicit {@link #disconnect(String)}, instead of staying
+     * a dead routing target.
+     */
+    private java.util.function.Predicate<LinkAdapter> detachOnClose(String sid, java.util.function.Predicate<LinkAdapter> connector) {
+        return a -> {
+            Runnable onClose = () -> {
+                // Only while this adapter still holds the session (not after a reopen)
+                if (links.get(sid) == a) disconnect(sid);
+            };
+            if (a instanceof com.serialcomm.link.spi.adapters.SerialLinkAdapter) {
+                ((com.serialcomm.link.spi.adapters.SerialLinkAdapter) a).router().setCloseListener(onClose);
+            } else if (a instanceof com.serialcomm.link.spi.adapters.NioTcpClientAdapter) {
+                ((com.serialcomm.link.spi.adapters.NioTcpClientAdapter) a).router().setCloseListener(onClose);
+            }
+            return connector.test(a);
+        };
+    }
+
+    public String listenUdp(int port) {
+        return attach("udp:0.0.0.0:" + port, LinkManager.Transport.UDP, a -> a.listenUdp(port));
+    }
+
+    /**
+     * Listen for inbound TCP clients; every accepted connection is added as its own link
+     * (session {@code tcp-in:PORT:HOST:PORT}) and removed again when it closes.
+     */
+    public String listenTcp(int port) {
+        String sid = "tcp-listen:" + port;
+        if (links.containsKey(sid)) return sid;
+        com.serialcomm.link.spi.adapters.TcpServerAdapter server = new com.serialcomm.link.spi.adapters.TcpServerAdapter();
+        server.setConnectionListener((clientSid, client) -> attach(clientSid, client, a -> true), this::disconnect);
+        return attach(sid, server, a -> server.listenTcp(port));
+    }
+
+    /** Start an in-process synthetic link; session ids are {@code loopback:1}, {@code loopback:2}, ... */
+    public synchronized String openLoopback(SyntheticTraffic.Config config) {
+        int n = 1;
+        while (links.containsKey("loopback:" + n)) n++;
+        String name = String.valueOf(n);
+        com.serialcomm.link.spi.adapters.LoopbackAdapter loop = new com.serialcomm.link.spi.adapters.LoopbackAdapter();
+        return attach("loopback:" + name, loop, a -> loop.start(name, config));
+    }
+
+    /** Register an already-constructed adapter (e.g. a custom transport) under a session id. */
+    public String attach(String sessionId, LinkAdapter adapter, java.util.function.Predicate<LinkAdapter> connector) {
+        if (links.containsKey(sessionId)) return sessionId;
+        ensureRouteListener();
+        adapter.setByteCountCallbacks(bytesReceivedCallback, bytesSentCallback);
+        if (!connector.test(adapter)) {
+            logger.warn("Multi-link open failed: {}", sessionId);
+            return null;
+        }
+        if (links.putIfAbsent(sessionId, adapter) != null) {
+            adapter.disconnect();
+            return sessionId;
+        }
+        synchronized (this) {
+            if (primarySessionId == null && !isListener(adapter)) {
+                primarySessionId = sessionId;
+                adapter.setActiveController(activeController);
+            }
+        }
+        logger.info("Multi-link opened {} ({} live)", sessionId, links.size());
+        return sessionId;
+    }
+
+    private String attach(String sessionId, LinkManager.Transport kind, java.util.function.Predicate<LinkAdapter> connector) {
+        if (links.containsKey(sessionId)) return sessionId;
+        return attach(sessionId, newAdapter(kind), connector);
+    }
+
+    public void disconnect(String sessionId) {
+        LinkAdapter a = links.remove(sessionId);
+        if (a == null) return;
+        try { a.setActiveController(null); } catch (Exception e) { com.serialcomm.util.ErrorMonitor.record("link.multi.detach", e); }
+        try { a.disconnect(); } catch (Exception e) { com.serialcomm.util.ErrorMonitor.record("link.multi.disconnect", e); }
+        for (int i = 0; i < routeBySysid.length(); i++) routeBySysid.compareAndSet(i, sessionId, null);
+        synchronized (this) {
+            if (sessionId.equals(primarySessionId)) {
+                primarySessionId = null;
+                for (java.util.Map.Entry<String, LinkAdapter> e : links.entrySet()) {
+                    if (isListener(e.getValue())) continue;
+                    primarySessionId = e.getKey();
+                    e.getValue().setActiveController(activeController);
+                    break;
+                }
+            }
+        }
+        logger.info("Multi-link closed {} ({} live)", sessionId, links.size());
+    }
+
+    public void disconnectAll() {
+        for (String sid : sessionIds()) disconnect(sid);
+    }
+
+    /** Apply the "Timer Period" setting to serial links that poll (rx mode {@code poll}). */
+    public void setSerialTimerPeriod(int periodMs) {
+        for (LinkAdapter a : links.values()) {
+            if (a instanceof com.serialcomm.link.spi.adapters.SerialLinkAdapter) {
+                ((com.serialcomm.link.spi.adapters.SerialLinkAdapter) a).router().setTimerPeriodMs(periodMs);
+            }
+        }
+    }
+
+    /**
+     * One line per rate-limited link: bucket fill levels and throttle counts
+     * ({@code sid link=0.85/12 bulk=0.10/340}), or an empty string if none is throttled.
+     */
+    public String rateLimitSummary() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, LinkAdapter> e : links.entrySet()) {
+            if (!(e.getValue() instanceof com.serialcomm.link.spi.adapters.SerialLinkAdapter)) continue;
+            ThreadedLinkRouter r = ((com.serialcomm.link.spi.adapters.SerialLinkAdapter) e.getValue()).router();
+            com.serialcomm.util.TokenBucket link = r.getLinkBucket();
+            com.serialcomm.util.TokenBucket bulk = r.getBulkBucket();
+            if (link == null || bulk == null) continue;
+            if (sb.length() > 0) sb.append('\n');
+            sb.append(String.format("%s link=%.2f/%d bulk=%.2f/%d", e.getKey(),
+                    link.fillRatio(), link.throttleEvents(), bulk.fillRatio(), bulk.throttleEvents()));
+        }
+        return sb.toString();
+    }
+
+    /** Reads dropped so far by the receive rings of the live links. */
+    public long receiveOverruns() {
+        long n = 0;
+        for (LinkAdapter a : links.values()) {
+            LinkRouter r = routerOf(a);
+            if (r != null) n += r.getReceiveOverruns();
+        }
+        return n;
+    }
+
+    /**
+     * One line per live link whose receive ring dropped reads
+     * ({@code sid overruns=3 dropped=4096B high-water=1048576/1048576}), or an empty string.
+     */
+    public String receiveOverrunSummary() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, LinkAdapter> e : links.entrySet()) {
+            LinkRouter r = routerOf(e.getValue());
+            if (r == null || r.getReceiveOverruns() == 0) continue;
+            if (sb.length() > 0) sb.append('\n');
+            sb.append(e.getKey()).append(" overruns=").append(r.getReceiveOverruns())
+                    .append(" dropped=").append(r.getReceiveDroppedBytes()).append('B')
+                    .append(" high-water=").append(r.getReceiveHighWater()).append('/').append(r.getReceiveCapacity());
+        }
+        return sb.toString();
+    }
+
+    /** Router behind one of the built-in adapters, or null for adapters without one. */
+    private static LinkRouter routerOf(LinkAdapter a) {
+        if (a instanceof com.serialcomm.link.spi.adapters.SerialLinkAdapter) return ((com.serialcomm.link.spi.adapters.SerialLinkAdapter) a).router();
+        if (a instanceof com.serialcomm.link.spi.adapters.NioUdpAdapter) return ((com.serialcomm.link.spi.adapters.NioUdpAdapter) a).router();
+        if (a instanceof com.serialcomm.link.spi.adapters.NioTcpClientAdapter) return ((com.serialcomm.link.spi.adapters.NioTcpClientAdapter) a).router();
+        if (a instanceof com.serialcomm.link.spi.adapters.TcpServerAdapter.ClientLink) return ((com.serialcomm.link.spi.adapters.TcpServerAdapter.ClientLink) a).router();
+        if (a instanceof com.serialcomm.link.spi.adapters.LoopbackAdapter) return ((com.serialcomm.link.spi.adapters.LoopbackAdapter) a).router();
+        return null;
+    }
+
+    /** Session id a system was last heard on, or null. */
+    public String routeFor(int sysid) {
+        return (sysid > 0 && sysid < 256) ? routeBySysid.get(sysid) : null;
+    }
+
+    /** Send to the link of the packet's target system, or to all links if unknown/broadcast. */
+    public void send(MAVLinkPacket pkt, SerialRouter.Priority priority) {
+        if (pkt == null) return;
+        send(pkt.encodePacket(), priority, targetSystemOf(pkt));
+    }
+
+    public void send(byte[] frame, SerialRouter.Priority priority, int targetSystem) {
+        if (frame == null || frame.length == 0) return;
+        String sid = routeFor(targetSystem);
+        LinkAdapter target = sid != null ? links.get(sid) : null;
+        if (target != null && target.isConnected()) {
+            target.enqueue(frame, priority);
+            return;
+        }
+        for (LinkAdapter a : links.values()) {
+            // Listeners would duplicate what their client links already receive
+            if (a.isConnected() && !isListener(a)) a.enqueue(frame, priority);
+        }
+    }
+
+    /** Listening adapters carry no traffic themselves; their accepted clients are separate links. */
+    private static boolean isListener(LinkAdapter a) {
+        return a instanceof com.serialcomm.link.spi.adapters.TcpServerAdapter;
+    }
+
+    private void ensureRouteListener() {
+        if (routeListenerInstalled) return;
+        synchronized (this) {
+            if (routeListenerInstalled) return;
+            com.serialcomm.service.MavlinkDispatcher.getInstance().addSessionListener(this::learnRoute);
+            routeListenerInstalled = true;
+        }
+    }
+
+    private void learnRoute(String sessionId, MAVLinkPacket pkt) {
+        if (pkt == null || sessionId == null) return;
+        int sys = pkt.sysid & 0xFF;
+        if (sys == 0) return;
+        // Plain read first: the route rarely changes, so avoid a write per packet
+        if (!sessionId.equals(routeBySysid.get(sys))) routeBySysid.set(sys, sessionId);
+    }
+
+    /**
+     * target_system of an outbound packet, 0 if it has none. Read straight from the payload at
+     * an offset learned from the first packet of each msgid; only that first one is unpacked.
+     */
+    private int targetSystemOf(MAVLinkPacket pkt) {
+        int msgid = pkt.msgid;
+        boolean cacheable = msgid >= 0 && msgid < targetOffsetByMsgid.length();
+        int known = cacheable ? targetOffsetByMsgid.get(msgid) : 0;
+        if (known < 0) return 0;
+        if (known > 0) {
+            // MAVLink 2 may carry the payload truncated at trailing zeros
+            return known - 1 < pkt.payload.size() ? pkt.payload.getData().get(known - 1) & 0xFF : 0;
+        }
+        try {
+            MAVLinkMessage msg = pkt.unpack();
+            if (msg == null) return 0;
+            com.serialcomm.service.FieldAccessors acc = com.serialcomm.service.FieldAccessors.of(msg.getClass());
+            int i = acc.indexOf("target_system");
+            if (i < 0 || acc.kind(i) != com.serialcomm.service.FieldAccessors.Kind.INTEGRAL) {
+                if (cacheable) targetOffsetByMsgid.set(msgid, -1);
+                return 0;
+            }
+            if (cacheable) {
+                int off = targetSystemOffset(msg.getClass(), acc.fieldType(i));
+                if (off >= 0) targetOffsetByMsgid.set(msgid, off + 1);
+            }
+            return (int) acc.getLong(msg, i) & 0xFF;
+        } catch (Exception e) {
+            com.serialcomm.util.ErrorMonitor.record("link.multi.target", e);
+            return 0;
+        }
+    }
+
+    /**
+     * Payload offset of target_system in {@code type}: packs an otherwise empty message with
+     * a marker in that field and looks for the one non-zero byte; -1 if that is not conclusive.
+     */
+    private static int targetSystemOffset(Class<? extends MAVLinkMessage> type, Class<?> fieldType) throws ReflectiveOperationException {
+        MAVLinkMessage probe = type.getConstructor().newInstance();
+        java.lang.reflect.Field field = type.getField("target_system");
+        if (fieldType == short.class) field.setShort(probe, (short) 0xA5);
+        else if (fieldType == int.class) field.setInt(probe, 0xA5);
+        else if (fieldType == long.class) field.setLong(probe, 0xA5);
+        else return -1;
+        MAVLinkPacket packed = probe.pack();
+        java.nio.ByteBuffer payload = packed.payload.getData();
+        int found = -1;
+        for (int i = 0, n = packed.payload.size(); i < n; i++) {
+            if (payload.get(i) == 0) continue;
+            if (found >= 0 || (payload.get(i) & 0xFF) != 0xA5) return -1;
+            found = i;
+        }
+        return found;
+    }
+
+    /**
+     * Fresh adapter of the given transport, instantiated from the registry prototype.
+     * Per-link adapters are preferred: selector-based network links share one I/O thread and
+     * serial links get their own queues and rate limit instead of the singleton SerialRouter.
+     */
+    private static LinkAdapter newAdapter(LinkManager.Transport kind) {
+        LinkAdapter chosen = null;
+        for (LinkAdapter proto : LinkRegistry.getInstance().adapters()) {
+            if (proto.transportKind() != kind || isListener(proto) || proto instanceof com.serialcomm.link.spi.adapters.LoopbackAdapter) continue;
+            if (chosen == null || PREFERRED_ADAPTERS.contains(proto.id())) chosen = proto;
+        }
+        if (chosen == null) throw new IllegalStateException("No adapter registered for " + kind);
+        try {
+            return chosen.getClass().getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot instantiate adapter " + chosen.id(), e);
+        }
+    }
+}
@@ -0,0 +1,323 @@
+package com.serialcomm.link;
+
+import com.serialcomm.controller.BaseController;
+import com.serialcomm.serial.SerialRouter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Selector-driven network router for UDP listen and TCP client links.
+ * Reads run on the shared {@link NioReactor} thread into its one direct read buffer and are
+ * copied once into its scratch array and from there into the link's receive ring
+ * ({@value #RX_RING_BYTES} bytes by default), which one receiver thread shared by all these
+ * links parses. So there is no reader thread or read buffer per socket, no allocation per
+ * read, and parsing never holds up the selector.
+ * <p>
+ * Writes run on the selector thread as well: queuing a frame in the per-link queues of
+ * {@link LinkRouter} arms {@code OP_WRITE}, and while the socket is writable the selector
+ * drains the queues into it, disarming once they are empty. A link therefore costs no
+ * thread of its own; a full socket buffer just leaves the batch pending until writable.
+ */
+public final class NioNetworkRouter extends LinkRouter implements LinkSession {
+    private static final Logger logger = LoggerFactory.getLogger(NioNetworkRouter.class);
+    /** One TCP segment worth of frames per gathering write; UDP keeps one frame per datagram */
+    private static final int TCP_COALESCE_BYTES = 1460;
+    /** Reads and batches written per ready event, so one busy link cannot hold the selector */
+    private static final int READS_PER_SELECT = 16;
+    private static final int BATCHES_PER_SELECT = 16;
+    private static final ReceiveWorker RECEIVE_WORKER = new ReceiveWorker("Net-Receiver");
+    /** Receive ring per link: network reads are at most 64 KiB and the shared parser drains often */
+    public static final int RX_RING_BYTES = 128 * 1024;
+
+    private volatile BaseController activeController;
+    private volatile String sessionId = "net-default";
+    private volatile LinkManager.Transport transport = LinkManager.Transport.UDP;
+    private volatile SocketChannel tcp;
+    private volatile DatagramChannel udp;
+    private volatile InetSocketAddress lastUdpSender;
+    private volatile boolean connected;
+
+    /** Notified when the live channel drops (peer close or I/O error), not on disconnect() */
+    private volatile Runnable closeListener;
+
+    /** OP_WRITE is requested (or about to be) because frames are queued */
+    private final AtomicBoolean writeArmed = new AtomicBoolean();
+    /** Batch being written, with the channel it is for; touched only by the selector thread */
+    private final byte[][] batch = new byte[MAX_BATCH_FRAMES][];
+    private final int[] batchLevels = new int[MAX_BATCH_FRAMES];
+    private final ByteBuffer[] batchBuffers = new ByteBuffer[MAX_BATCH_FRAMES];
+    private int batchCount;
+    private int batchBytes;
+    private long batchDone;
+    private SelectableChannel batchChannel;
+
+    public NioNetworkRouter() { super(RX_RING_BYTES); }
+
+    public void setActiveController(BaseController controller) { this.activeController = controller; }
+
+    void setCloseListener(Runnable listener) { this.closeListener = listener; }
+
+    @Override
+    public String getSessionId() { return sessionId; }
+
+    @Override
+    public LinkManager.Transport getTransport() { return transport; }
+
+    @Override
+    public boolean isConnected() { return connected; }
+
+    @Override
+    public InetSocketAddress getLastUdpPeer() { return lastUdpSender; }
+
+    public boolean connectTcp(String host, int port) {
+        disconnect();
+        SocketChannel ch = null;
+        try {
+            ch = SocketChannel.open();
+            ch.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            // Blocking connect with timeout, then hand the channel to the selector
+            ch.socket().connect(new InetSocketAddress(host, port), 3000);
+            attachTcp(ch, "tcp:" + host + ":" + port);
+            logger.info("TCP connected {}:{} (nio)", host, port);
+            return true;
+        } catch (Exception e) {
+            logger.error("TCP connect failed", e);
+            if (ch != null) try { ch.close(); } catch (IOException ignore) {}
+            disconnect();
+            return false;
+        }
+    }
+
+    /** Take ownership of an already-connected channel (e.g. accepted by a server adapter). */
+    void attachTcp(SocketChannel ch, String sid) throws IOException {
+        this.transport = LinkManager.Transport.TCP;
+        this.sessionId = sid;
+        this.tcp = ch;
+        this.connected = true;
+        startReceiveLoop();
+        NioReactor.getInstance().register(ch, SelectionKey.OP_READ, new NioReactor.Handler() {
+            @Override public void onReady(SelectionKey key) throws IOException {
+                if (key.isReadable()) readTcp(ch);
+                if (key.isValid() && key.isWritable()) flushOutbound(key, ch);
+            }
+            @Override public void onClosed(Throwable cause) { onChannelClosed(ch, cause); }
+        });
+        rearmWrites();
+    }
+
+    public boolean listenUdp(int port) {
+        disconnect();
+        try {
+            DatagramChannel ch = DatagramChannel.open();
+            ch.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            ch.setOption(StandardSocketOptions.SO_RCVBUF, 1 << 20);
+            ch.bind(new InetSocketAddress("0.0.0.0", port));
+            this.transport = LinkManager.Transport.UDP;
+            this.sessionId = "udp:0.0.0.0:" + port;
+            this.udp = ch;
+            this.connected = true;
+            startReceiveLoop();
+            NioReactor.getInstance().register(ch, SelectionKey.OP_READ, new NioReactor.Handler() {
+                @Override public void onReady(SelectionKey key) throws IOException {
+                    if (key.isReadable()) readUdp(ch);
+                    if (key.isValid() && key.isWritable()) flushOutbound(key, ch);
+                }
+                @Override public void onClosed(Throwable cause) { onChannelClosed(ch, cause); }
+            });
+            rearmWrites();
+            logger.info("UDP listening on {} (nio)", port);
+            return true;
+        } catch (Exception e) {
+            logger.error("UDP listen failed", e);
+            disconnect();
+            return false;
+        }
+    }
+
+    @Override
+    public void disconnect() {
+        connected = false;
+        clearOutbound();
+        stopReceiveLoop();
+        // Forget the channels before the selector closes them, so onChannelClosed sees a
+        // deliberate close rather than a dropped link
+        SocketChannel t = tcp;
+        DatagramChannel u = udp;
+        tcp = null;
+        udp = null;
+        NioReactor.getInstance().close(t);
+        NioReactor.getInstance().close(u);
+        lastUdpSender = null;
+        sessionId = "net-default";
+    }
+
+    @Override
+    public void enqueue(byte[] data, SerialRouter.Priority priority) {
+        offerOutbound(data, weightOf(priority));
+    }
+
+    @Override
+    protected int coalesceBudgetBytes() { return tcp != null ? TCP_COALESCE_BYTES : 0; }
+
+    /** Enqueuing thread: ask the selector for OP_WRITE unless it is already requested. */
+    @Override
+    protected void onOutboundQueued() {
+        SelectableChannel ch = tcp != null ? tcp : udp;
+        if (ch == null || writeArmed.get() || !writeArmed.compareAndSet(false, true)) return;
+        NioReactor.getInstance().interestOps(ch, SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+    }
+
+    /**
+     * After registering a new channel: a request made before the registration was applied
+     * found no key, so clear the flag and request again for frames already queued.
+     */
+    private void rearmWrites() {
+        writeArmed.set(false);
+        if (getOutboundQueueSize() > 0) onOutboundQueued();
+    }
+
+    /** Selector thread: write queued batches until the socket is full or the queues are empty. */
+    private void flushOutbound(SelectionKey key, SelectableChannel ch) throws IOException {
+        if (batchCount > 0 && batchChannel != ch) dropBatch();
+        for (int i = 0; i < BATCHES_PER_SELECT; i++) {
+            if (batchCount == 0 && !takeBatch(ch)) break;
+            // Socket buffer full: keep the rest of the batch and OP_WRITE until writable again
+            if (!writeBatch(ch)) return;
+        }
+        if (batchCount > 0 || getOutboundQueueSize() > 0) return;
+        key.interestOps(SelectionKey.OP_READ);
+        writeArmed.set(false);
+        // A frame queued after the queues looked empty may have seen the flag still set
+        if (getOutboundQueueSize() > 0 && writeArmed.compareAndSet(false, true)) {
+            key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        }
+    }
+
+    private boolean takeBatch(SelectableChannel ch) {
+        int n = pollBatch(batch, batchLevels);
+        if (n == 0) return false;
+        int total = 0;
+        for (int i = 0; i < n; i++) {
+            batchBuffers[i] = ByteBuffer.wrap(batch[i]);
+            total += batch[i].length;
+        }
+        batchCount = n;
+        batchBytes = total;
+        batchDone = 0;
+        batchChannel = ch;
+        return true;
+    }
+
+    /**
+     * Write the pending batch: TCP as one gathering write, continued on the next writable
+     * event when the socket takes only part; UDP as one datagram, which a full socket buffer
+     * rejects whole (send returns 0), so it is retried the same way.
+     * @return false while the batch is still pending
+     */
+    private boolean writeBatch(SelectableChannel ch) throws IOException {
+        if (!connected || (ch != tcp && ch != udp)) {
+            dropBatch();
+            return true;
+        }
+        if (ch instanceof SocketChannel) {
+            batchDone += ((SocketChannel) ch).write(batchBuffers, 0, batchCount);
+            if (batchDone < batchBytes) return false;
+        } else {
+            InetSocketAddress peer = lastUdpSender;
+            if (peer == null) {
+                // Nobody has sent to this port yet, so there is no one to reply to
+                dropBatch();
+                return true;
+            }
+            if (((DatagramChannel) ch).send(batchBuffers[0], peer) == 0) return false;
+            batchDone = batchBytes;
+        }
+        batchWritten(batch, batchCount, batchBytes, (int) batchDone);
+        clearBatch();
+        return true;
+    }
+
+    private void dropBatch() {
+        batchDropped(batchLevels, batchCount);
+        clearBatch();
+    }
+
+    private void clearBatch() {
+        java.util.Arrays.fill(batch, 0, batchCount, null);
+        java.util.Arrays.fill(batchBuffers, 0, batchCount, null);
+        batchCount = 0;
+        batchChannel = null;
+    }
+
+    /** All selector-driven links parse on one thread, as they read on one */
+    @Override
+    ReceiveWorker sharedReceiveWorker() { return RECEIVE_WORKER; }
+
+    /** Selector thread: read what is there, up to {@value #READS_PER_SELECT} reads; the rest stays ready. */
+    private void readTcp(SocketChannel ch) throws IOException {
+        ByteBuffer buf = NioReactor.getInstance().readBuffer();
+        for (int i = 0; i < READS_PER_SELECT; i++) {
+            int n = ch.read(buf);
+            if (n < 0) throw new IOException("TCP peer closed");
+            if (n == 0) return;
+            deliver(buf);
+        }
+    }
+
+    private void readUdp(DatagramChannel ch) throws IOException {
+        ByteBuffer buf = NioReactor.getInstance().readBuffer();
+        for (int i = 0; i < READS_PER_SELECT; i++) {
+            SocketAddress from = ch.receive(buf);
+            if (from == null) return;
+            if (from instanceof InetSocketAddress) lastUdpSender = (InetSocketAddress) from;
+            deliver(buf);
+        }
+    }
+
+    /** Copy the filled part of the direct buffer once and hand it to the receive ring and tab. */
+    private void deliver(ByteBuffer buf) {
+        byte[] scratch = NioReactor.getInstance().readScratch();
+        buf.flip();
+        int n = buf.remaining();
+        buf.get(scratch, 0, n);
+        buf.clear();
+        acceptBytesReceived(n);
+        offerInbound(scratch, n);
+        BaseController c = activeController;
+        if (c != null) c.onBytesFromRouter(scratch, n);
+    }
+
+    @Override
+    protected void dispatchInbound(byte[] buf, int n) {
+        try {
+            com.serialcomm.service.MavlinkDispatcher.getInstance().ingest(sessionId, buf, n);
+        } catch (Exception e) {
+            com.serialcomm.util.ErrorMonitor.record("network.dispatch", e);
+        }
+    }
+
+    /** Selector thread: a channel went away, either by disconnect() or by peer/IO error. */
+    private void onChannelClosed(SelectableChannel ch, Throwable cause) {
+        if (batchCount > 0 && batchChannel == ch) dropBatch();
+        // Otherwise a deliberate close, or a stale channel from before a reconnect
+        if (ch != tcp && ch != udp) return;
+        // Still the live channel: the link dropped underneath us
+        if (cause != null) logger.warn("{} closed: {}", sessionId, cause.getMessage());
+        connected = false;
+        clearOutbound();
+        stopReceiveLoop();
+        Runnable l = closeListener;
+        if (l != null) l.run();
+    }
+}
@@ -0,0 +1,137 @@
+package com.serialcomm.link;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Single selector thread shared by all NIO links.
+ * Channels are registered with a {@link Handler} attachment; the selector thread invokes
+ * the handler for every ready key, so any number of UDP ports or TCP peers is served by
+ * one thread, for reads and writes alike. Registration, interest changes and cancellation
+ * are queued and applied on the selector thread. Since only that thread reads, all channels
+ * share one direct read buffer and one heap copy of it.
+ */
+public final class NioReactor {
+    private static final Logger logger = LoggerFactory.getLogger(NioReactor.class);
+    private static final NioReactor INSTANCE = new NioReactor();
+
+    /** 64 KiB covers the largest UDP datagram */
+    private static final int READ_BUFFER_BYTES = 64 * 1024;
+
+    /** Readiness callback executed on the selector thread; must not block. */
+    public interface Handler {
+        void onReady(SelectionKey key) throws IOException;
+
+        /** Called once when the key is cancelled or the handler threw. */
+        default void onClosed(Throwable cause) {}
+    }
+
+    private final ConcurrentLinkedQueue<Runnable> pending = new ConcurrentLinkedQueue<>();
+    /** Selector thread only: every handler reads into these and copies out before returning */
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_BYTES);
+    private final byte[] readScratch = new byte[READ_BUFFER_BYTES];
+    private volatile Selector selector;
+    private volatile Thread thread;
+
+    public static NioReactor getInstance() { return INSTANCE; }
+
+    private NioReactor() {}
+
+    /** Shared read buffer, cleared; selector thread only, valid until the handler returns. */
+    ByteBuffer readBuffer() {
+        readBuffer.clear();
+        return readBuffer;
+    }
+
+    /** Heap array as large as {@link #readBuffer()}; selector thread only. */
+    byte[] readScratch() { return readScratch; }
+
+    /** Register a non-blocking channel for the given interest set. */
+    public void register(SelectableChannel channel, int ops, Handler handler) throws IOException {
+        ensureStarted();
+        channel.configureBlocking(false);
+        pending.offer(() -> {
+            try {
+                channel.register(selector, ops, handler);
+            } catch (Exception e) {
+                com.serialcomm.util.ErrorMonitor.record("nio.register", e);
+                handler.onClosed(e);
+            }
+        });
+        selector.wakeup();
+    }
+
+    /** Replace the interest set of a registered channel; ignored once it is closed. */
+    public void interestOps(SelectableChannel channel, int ops) {
+        Selector sel = selector;
+        if (channel == null || sel == null) return;
+        pending.offer(() -> {
+            SelectionKey key = channel.keyFor(sel);
+            if (key != null && key.isValid()) key.interestOps(ops);
+        });
+        sel.wakeup();
+    }
+
+    /** Deregister and close a channel on the selector thread. */
+    public void close(SelectableChannel channel) {
+        if (channel == null) return;
+        Selector sel = selector;
+        if (sel == null) {
+            try { channel.close(); } catch (IOException ignore) {}
+            return;
+        }
+        pending.offer(() -> {
+            SelectionKey key = channel.keyFor(sel);
+            Handler h = key != null ? (Handler) key.attachment() : null;
+            if (key != null) key.cancel();
+            try { channel.close(); } catch (IOException ignore) {}
+            if (h != null) h.onClosed(null);
+        });
+        sel.wakeup();
+    }
+
+    private synchronized void ensureStarted() throws IOException {
+        if (thread != null && thread.isAlive()) return;
+        selector = Selector.open();
+        Thread t = com.serialcomm.service.Scheduler.getInstance().namedFactory("Net-Selector").newThread(this::loop);
+        t.setDaemon(true);
+        thread = t;
+        t.start();
+    }
+
+    private void loop() {
+        final Selector sel = selector;
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                Runnable task;
+                while ((task = pending.poll()) != null) task.run();
+                sel.select();
+                Iterator<SelectionKey> it = sel.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    Handler h = (Handler) key.attachment();
+                    if (h == null || !key.isValid()) continue;
+                    try {
+                        h.onReady(key);
+                    } catch (Throwable t) {
+                        key.cancel();
+                        try { key.channel().close(); } catch (IOException ignore) {}
+                        h.onClosed(t);
+                    }
+                }
+            } catch (Throwable t) {
+                logger.error("Selector loop error", t);
+                com.serialcomm.util.ErrorMonitor.record("nio.selector", t);
+            }
+        }
+    }
+}
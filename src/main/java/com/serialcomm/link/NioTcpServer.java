@@ -0,0 +1,109 @@
+package com.serialcomm.link;
+
+import com.serialcomm.serial.SerialRouter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * TCP listener accepting many inbound connections on the shared {@link NioReactor}.
+ * Every accepted connection becomes its own {@link NioNetworkRouter} with session id
+ * {@code tcp-in:<listenPort>:<peerHost>:<peerPort>}, so each client gets its own parser,
+ * outbound queue and counters. Owners are told about connections coming and going.
+ */
+public final class NioTcpServer {
+    private static final Logger logger = LoggerFactory.getLogger(NioTcpServer.class);
+
+    private final Map<String, NioNetworkRouter> clients = new ConcurrentHashMap<>();
+    private volatile ServerSocketChannel server;
+    private volatile int port;
+    private volatile BiConsumer<String, NioNetworkRouter> onAccepted = (sid, r) -> {};
+    private volatile Consumer<String> onClosed = sid -> {};
+
+    public void setConnectionListener(BiConsumer<String, NioNetworkRouter> accepted, Consumer<String> closed) {
+        this.onAccepted = accepted != null ? accepted : (sid, r) -> {};
+        this.onClosed = closed != null ? closed : sid -> {};
+    }
+
+    public boolean listen(int listenPort) {
+        close();
+        try {
+            ServerSocketChannel ch = ServerSocketChannel.open();
+            ch.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            ch.bind(new InetSocketAddress("0.0.0.0", listenPort), 128);
+            this.server = ch;
+            this.port = listenPort;
+            NioReactor.getInstance().register(ch, SelectionKey.OP_ACCEPT, key -> acceptAll(ch));
+            logger.info("TCP server listening on {} (nio)", listenPort);
+            return true;
+        } catch (Exception e) {
+            logger.error("TCP server listen failed", e);
+            close();
+            return false;
+        }
+    }
+
+    public boolean isListening() { return server != null; }
+
+    public int getPort() { return port; }
+
+    public int clientCount() { return clients.size(); }
+
+    /** Send to every connected client. */
+    public void broadcast(byte[] data, SerialRouter.Priority priority) {
+        for (NioNetworkRouter r : clients.values()) {
+            if (r.isConnected()) r.enqueue(data, priority);
+        }
+    }
+
+    /** Stop listening and drop all clients. */
+    public void close() {
+        ServerSocketChannel ch = server;
+        server = null;
+        NioReactor.getInstance().close(ch);
+        for (String sid : clients.keySet()) drop(sid);
+    }
+
+    /** Selector thread: accept every pending connection. */
+    private void acceptAll(ServerSocketChannel ch) throws IOException {
+        SocketChannel sc;
+        while ((sc = ch.accept()) != null) {
+            try {
+                sc.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                InetSocketAddress peer = (InetSocketAddress) sc.getRemoteAddress();
+                String sid = "tcp-in:" + port + ":" + peer.getHostString() + ":" + peer.getPort();
+                NioNetworkRouter r = new NioNetworkRouter();
+                r.setCloseListener(() -> drop(sid));
+                r.attachTcp(sc, sid);
+                clients.put(sid, r);
+                logger.info("TCP client connected {}", sid);
+                onAccepted.accept(sid, r);
+            } catch (Exception e) {
+                com.serialcomm.util.ErrorMonitor.record("tcp.server.accept", e);
+                try { sc.close(); } catch (IOException ignore) {}
+            }
+        }
+    }
+
+    /** Close one client connection. */
+    public void disconnectClient(String sid) { drop(sid); }
+
+    private void drop(String sid) {
+        NioNetworkRouter r = clients.remove(sid);
+        if (r == null) return;
+        r.setCloseListener(null);
+        r.disconnect();
+        logger.info("TCP client closed {}", sid);
+        onClosed.accept(sid);
+    }
+}
@@ -0,0 +1,107 @@
+package com.serialcomm.link;
+
+import com.serialcomm.util.SpscByteRing;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Thread that drains the receive rings of one or more {@link LinkRouter}s and parses the
+ * records through {@link LinkRouter#dispatchInbound}. Serial and loopback links get one
+ * each; all selector-driven links share one, so dozens of sockets still cost one thread.
+ * Rings are visited in turn, at most {@value #RECORDS_PER_TURN} records each, so a busy
+ * link cannot starve the others. The thread starts with the first ring, parks while all
+ * rings are empty, and ends with {@link #shutdown()}; a worker is not restarted.
+ */
+final class ReceiveWorker {
+    private static final int RECORDS_PER_TURN = 64;
+    /** Reads larger than this are split into several records */
+    static final int RECORD_BYTES = 16 * 1024;
+    private static final Entry[] NONE = new Entry[0];
+
+    private static final class Entry {
+        final LinkRouter router;
+        final SpscByteRing ring;
+
+        Entry(LinkRouter router, SpscByteRing ring) {
+            this.router = router;
+            this.ring = ring;
+        }
+    }
+
+    private final String threadName;
+    private volatile Entry[] entries = NONE;
+    private volatile Thread thread;
+    private volatile boolean running = true;
+    private volatile boolean parked;
+
+    ReceiveWorker(String threadName) { this.threadName = threadName; }
+
+    /** Start draining {@code ring} for {@code router}, replacing its previous ring. */
+    synchronized void attach(LinkRouter router, SpscByteRing ring) {
+        Entry[] cur = entries;
+        int keep = 0;
+        Entry[] next = new Entry[cur.length + 1];
+        for (Entry e : cur) if (e.router != router) next[keep++] = e;
+        next[keep++] = new Entry(router, ring);
+        entries = keep == next.length ? next : java.util.Arrays.copyOf(next, keep);
+        if (thread == null && running) {
+            Thread t = com.serialcomm.service.Scheduler.getInstance().namedFactory(threadName).newThread(this::loop);
+            t.setDaemon(true);
+            thread = t;
+            t.start();
+        }
+    }
+
+    /** Stop draining for {@code router}; records still in its ring are dropped with it. */
+    synchronized void detach(LinkRouter router) {
+        Entry[] cur = entries;
+        int keep = 0;
+        Entry[] next = new Entry[cur.length];
+        for (Entry e : cur) if (e.router != router) next[keep++] = e;
+        entries = keep == 0 ? NONE : java.util.Arrays.copyOf(next, keep);
+    }
+
+    /** End the thread; attached rings are no longer drained. */
+    void shutdown() {
+        running = false;
+        Thread t = thread;
+        if (t != null) LockSupport.unpark(t);
+    }
+
+    /** Producer side, after publishing to a ring: unpark the thread if it is idle. */
+    void wake() {
+        // The ring publishes with a release store; order it before reading the parked flag
+        java.lang.invoke.VarHandle.fullFence();
+        if (parked) LockSupport.unpark(thread);
+    }
+
+    private void loop() {
+        byte[] chunk = new byte[RECORD_BYTES];
+        long[] stamp = new long[1];
+        while (running) {
+            boolean drained = false;
+            for (Entry e : entries) {
+                for (int i = 0; i < RECORDS_PER_TURN; i++) {
+                    int n = e.ring.drainRecord(chunk, stamp);
+                    if (n == 0) break;
+                    drained = true;
+                    com.serialcomm.service.ReadStamp.set(stamp[0]);
+                    try {
+                        e.router.dispatchInbound(chunk, n);
+                    } catch (Throwable t) {
+                        com.serialcomm.util.ErrorMonitor.record("router.receive", t);
+                    }
+                }
+            }
+            if (drained) continue;
+            parked = true;
+            if (running && allEmpty()) LockSupport.park(this);
+            parked = false;
+        }
+    }
+
+    private boolean allEmpty() {
+        for (Entry e : entries) if (e.ring.size() != 0) return false;
+        return true;
+    }
+}
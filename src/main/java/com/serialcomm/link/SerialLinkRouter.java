@@ -0,0 +1,266 @@
+package com.serialcomm.link;
+
+import com.fazecast.jSerialComm.SerialPort;
+import com.serialcomm.controller.BaseController;
+import com.serialcomm.serial.SerialRouter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Per-instance serial router for multi-link mode.
+ * Outbound pacing comes from a byte-rate token bucket sized from the baud rate (8N1 = 10
+ * bits per byte) instead of the fixed per-frame gaps of {@link SerialRouter}: frames go out
+ * back to back while the line has capacity, and HIGH priority keeps a reserved share of
+ * the rate ({@value #KEY_HIGH_RESERVE}, default 0.2) that bulk traffic cannot consume.
+ * <p>
+ * Receiving follows {@value #KEY_RX_MODE}: {@code event} (default) reads from jSerialComm's
+ * data-available callback, {@code blocking} parks a reader thread in a semi-blocking read,
+ * and {@code poll} keeps the old timer-period polling. The first two hand bytes over as
+ * soon as the driver has them and cost nothing while the link is idle. Either way the read
+ * side only queues the bytes; parsing runs on the link's receiver thread, so a slow hub
+ * listener never holds up jSerialComm's event thread.
+ */
+public final class SerialLinkRouter extends ThreadedLinkRouter implements LinkSession {
+    private static final Logger logger = LoggerFactory.getLogger(SerialLinkRouter.class);
+    public static final String KEY_HIGH_RESERVE = "link.serial.highReserve";
+    private static final double DEFAULT_HIGH_RESERVE = 0.2;
+    /** Coalesce at most ~5 ms of line time per write, so a HIGH frame never waits behind a long batch */
+    private static final double COALESCE_LINE_SECONDS = 0.005;
+    private static final int MIN_COALESCE_BYTES = 64;
+    public static final String KEY_RX_MODE = "link.serial.rxMode";
+    /** Semi-blocking read returns on the first byte; the timeout only bounds shutdown latency */
+    private static final int BLOCKING_READ_TIMEOUT_MS = 100;
+    private static final int READ_BUFFER_BYTES = 4096;
+
+    /** How received bytes are picked up from the driver. */
+    public enum ReceiveMode { EVENT, BLOCKING, POLL }
+
+    private volatile BaseController activeController;
+    private volatile String sessionId = "serial-default";
+    private volatile SerialPort port;
+    private volatile boolean connected;
+    private volatile int coalesceBytes = MIN_COALESCE_BYTES;
+    private volatile Thread readerThread;
+    private volatile ReceiveMode receiveMode = ReceiveMode.EVENT;
+    private volatile int timerPeriodMs = 50;
+    /** Notified after the driver closed the port underneath us, not on disconnect() */
+    private volatile Runnable closeListener;
+    /** Reused by whichever single thread is reading (event thread or reader thread) */
+    private final byte[] readBuffer = new byte[READ_BUFFER_BYTES];
+
+    public void setActiveController(BaseController controller) { this.activeController = controller; }
+
+    void setCloseListener(Runnable listener) { this.closeListener = listener; }
+
+    @Override
+    public String getSessionId() { return sessionId; }
+
+    @Override
+    public LinkManager.Transport getTransport() { return LinkManager.Transport.SERIAL; }
+
+    @Override
+    public boolean isConnected() { return connected; }
+
+    /** Poll period for {@link ReceiveMode#POLL} (the "Timer Period" setting). */
+    public void setTimerPeriodMs(int periodMs) { this.timerPeriodMs = Math.max(1, periodMs); }
+
+    public ReceiveMode getReceiveMode() { return receiveMode; }
+
+    /** Receive mode used by the next {@link #connect}. */
+    public void setReceiveMode(ReceiveMode mode) { this.receiveMode = mode != null ? mode : ReceiveMode.EVENT; }
+
+    public boolean connect(String portName, int baud) {
+        disconnect();
+        try {
+            ReceiveMode mode = receiveMode;
+            SerialPort p = SerialPort.getCommPort(portName);
+            p.setComPortParameters(baud, 8, SerialPort.ONE_STOP_BIT, SerialPort.NO_PARITY);
+            if (mode == ReceiveMode.BLOCKING) {
+                p.setComPortTimeouts(SerialPort.TIMEOUT_READ_SEMI_BLOCKING, BLOCKING_READ_TIMEOUT_MS, 0);
+            } else {
+                p.setComPortTimeouts(SerialPort.TIMEOUT_NONBLOCKING, 0, 0);
+            }
+            if (!p.openPort()) {
+                logger.error("Serial open failed {}", portName);
+                return false;
+            }
+            this.port = p;
+            this.sessionId = "serial:" + portName + "@" + baud;
+            this.connected = true;
+            configureRateLimit(baud / 10L, highReserve());
+            this.coalesceBytes = Math.max(MIN_COALESCE_BYTES, (int) (baud / 10L * COALESCE_LINE_SECONDS));
+            startReceiveLoop();
+            startSenderLoop();
+            if (mode == ReceiveMode.EVENT) {
+                if (!p.addDataListener(new DataAvailableListener(p))) throw new IllegalStateException("Serial event listener rejected");
+            } else {
+                startReader(p, mode);
+            }
+            logger.info("Serial connected {}@{} (link router, rx {})", portName, baud, mode);
+            return true;
+        } catch (Exception e) {
+            logger.error("Serial connect failed", e);
+            disconnect();
+            return false;
+        }
+    }
+
+    /** Parse a {@value #KEY_RX_MODE} value; unknown values fall back to EVENT. */
+    public static ReceiveMode parseReceiveMode(String value) {
+        if (value == null) return ReceiveMode.EVENT;
+        try {
+            return ReceiveMode.valueOf(value.trim().toUpperCase(java.util.Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return ReceiveMode.EVENT;
+        }
+    }
+
+    private static double highReserve() {
+        try {
+            return Double.parseDouble(com.serialcomm.util.Settings.getString(KEY_HIGH_RESERVE, String.valueOf(DEFAULT_HIGH_RESERVE)).trim());
+        } catch (Exception e) {
+            return DEFAULT_HIGH_RESERVE;
+        }
+    }
+
+    @Override
+    public void disconnect() {
+        connected = false;
+        stopSenderLoop();
+        stopReceiveLoop();
+        Thread t = readerThread;
+        readerThread = null;
+        if (t != null) t.interrupt();
+        SerialPort p = port;
+        port = null;
+        if (p != null) {
+            try { p.removeDataListener(); } catch (Exception ignore) {}
+            try { p.closePort(); } catch (Exception e) { com.serialcomm.util.ErrorMonitor.record("serial.link.close", e); }
+        }
+        sessionId = "serial-default";
+    }
+
+    @Override
+    public void enqueue(byte[] data, SerialRouter.Priority priority) {
+        offerOutbound(data, weightOf(priority));
+    }
+
+    @Override
+    protected int writeBytes(byte[] data) throws Exception {
+        SerialPort p = port;
+        if (p == null) return 0;
+        int n = p.writeBytes(data, data.length);
+        return Math.max(0, n);
+    }
+
+    @Override
+    protected int coalesceBudgetBytes() { return coalesceBytes; }
+
+    @Override
+    protected String senderThreadName() { return "Serial-Link-Sender"; }
+
+    @Override
+    protected String receiverThreadName() { return "Serial-Link-Receiver"; }
+
+    private void startReader(SerialPort p, ReceiveMode mode) {
+        Thread t = com.serialcomm.service.Scheduler.getInstance().namedFactory("Serial-Link-Reader").newThread(() -> readLoop(p, mode));
+        t.setDaemon(true);
+        readerThread = t;
+        t.start();
+    }
+
+    /** Reader thread for BLOCKING and POLL modes. */
+    private void readLoop(SerialPort p, ReceiveMode mode) {
+        byte[] buf = readBuffer;
+        while (connected && port == p && !Thread.currentThread().isInterrupted()) {
+            try {
+                int n;
+                if (mode == ReceiveMode.BLOCKING) {
+                    // Returns as soon as at least one byte is there, or 0 after the timeout
+                    n = p.readBytes(buf, buf.length);
+                } else {
+                    int avail = p.bytesAvailable();
+                    if (avail == 0) {
+                        Thread.sleep(timerPeriodMs);
+                        continue;
+                    }
+                    n = avail < 0 ? -1 : p.readBytes(buf, Math.min(avail, buf.length));
+                }
+                if (n < 0) {
+                    onDriverClosed(p);
+                    break;
+                }
+                if (n > 0) deliver(buf, n);
+            } catch (InterruptedException ie) {
+                break;
+            } catch (Exception e) {
+                com.serialcomm.util.ErrorMonitor.record("serial.link.read", e);
+            }
+        }
+    }
+
+    /**
+     * The port went away (unplugged, driver error): shut the link down like disconnect()
+     * and tell the listener, so the session stops being a routing target. Runs on a
+     * background thread, as closing the port waits for the event and reader threads.
+     */
+    private void onDriverClosed(SerialPort p) {
+        if (port != p) return;
+        logger.warn("{} closed by driver", sessionId);
+        connected = false;
+        com.serialcomm.service.Scheduler.getInstance().ensureBackground().execute(() -> {
+            // Reconnected or disconnected meanwhile
+            if (port != p) return;
+            disconnect();
+            Runnable l = closeListener;
+            if (l != null) l.run();
+        });
+    }
+
+    /** EVENT mode: drain the driver from jSerialComm's event thread whenever data arrives. */
+    private final class DataAvailableListener implements com.fazecast.jSerialComm.SerialPortDataListener {
+        private final SerialPort p;
+
+        DataAvailableListener(SerialPort p) { this.p = p; }
+
+        @Override
+        public int getListeningEvents() {
+            return SerialPort.LISTENING_EVENT_DATA_AVAILABLE | SerialPort.LISTENING_EVENT_PORT_DISCONNECTED;
+        }
+
+        @Override
+        public void serialEvent(com.fazecast.jSerialComm.SerialPortEvent event) {
+            if (event.getEventType() == SerialPort.LISTENING_EVENT_PORT_DISCONNECTED) {
+                onDriverClosed(p);
+                return;
+            }
+            try {
+                byte[] buf = readBuffer;
+                int avail;
+                while (connected && port == p && (avail = p.bytesAvailable()) > 0) {
+                    int n = p.readBytes(buf, Math.min(avail, buf.length));
+                    if (n <= 0) break;
+                    deliver(buf, n);
+                }
+            } catch (Exception e) {
+                com.serialcomm.util.ErrorMonitor.record("serial.link.read", e);
+            }
+        }
+    }
+
+    private void deliver(byte[] buf, int n) {
+        acceptBytesReceived(n);
+        offerInbound(buf, n);
+        BaseController c = activeController;
+        if (c != null) c.onBytesFromRouter(buf, n);
+    }
+
+    @Override
+    protected void dispatchInbound(byte[] buf, int n) {
+        try {
+            com.serialcomm.service.MavlinkDispatcher.getInstance().ingest(sessionId, buf, n);
+        } catch (Exception e) {
+            com.serialcomm.util.ErrorMonitor.record("serial.link.dispatch", e);
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package com.serialcomm.link;
+
+import com.MAVLink.MAVLinkPacket;
+import com.MAVLink.Messages.MAVLinkMessage;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Synthetic MAVLink stream for N simulated vehicles.
+ * Every (vehicle, message) pair is a periodic stream with its own phase; {@link #emitDue}
+ * encodes the frames that are due into a byte chunk, with optional random corruption
+ * (one flipped byte, so the CRC fails) and sequence gaps (skipped seq numbers). Values
+ * move smoothly over time so telemetry views have something to show.
+ * Owned by one generator thread; only the counters may be read from elsewhere.
+ */
+public final class SyntheticTraffic {
+    private static final String[] DIALECTS = {"minimal", "common", "ardupilotmega"};
+    /** Catch-up limit: after a longer stall the schedule is resynced instead of bursting */
+    private static final long MAX_LAG_NANOS = 1_000_000_000L;
+    private static final int MAX_FRAME_BYTES = 280;
+    private static final java.util.regex.Pattern OPTION_SEPARATOR = java.util.regex.Pattern.compile("[&;]");
+
+    /** Parsed generator settings, see {@link #parse}. */
+    public static final class Config {
+        public final int vehicles;
+        /** Message name (e.g. ATTITUDE) -> rate in Hz */
+        public final Map<String, Double> rates;
+        public final double corruptProbability;
+        public final double seqGapProbability;
+        /**
+         * Multiplier on all rates; 0 = flood (no pacing: each call emits the next 1 ms of
+         * virtual time, and the caller decides how fast to call, see {@link LoopbackRouter})
+         */
+        public final double scale;
+        public final boolean mavlink2;
+        public final long seed;
+
+        Config(int vehicles, Map<String, Double> rates, double corrupt, double gap, double scale, boolean mavlink2, long seed) {
+            this.vehicles = vehicles;
+            this.rates = rates;
+            this.corruptProbability = corrupt;
+            this.seqGapProbability = gap;
+            this.scale = scale;
+            this.mavlink2 = mavlink2;
+            this.seed = seed;
+        }
+
+        /** Typical autopilot stream set. */
+        public static Map<String, Double> defaultRates() {
+            Map<String, Double> m = new LinkedHashMap<>();
+            m.put("HEARTBEAT", 1.0);
+            m.put("SYS_STATUS", 2.0);
+            m.put("ATTITUDE", 50.0);
+            m.put("GLOBAL_POSITION_INT", 10.0);
+            m.put("GPS_RAW_INT", 5.0);
+            m.put("VFR_HUD", 4.0);
+            return m;
+        }
+    }
+
+    /**
+     * Parse {@code vehicles=4&ATTITUDE=50&GLOBAL_POSITION_INT=10&corrupt=0.001&gap=0.01&scale=1&v1&seed=7}.
+     * Options are separated by {@code &} (safe inside a {@code link.multi.endpoints} list) or {@code ;}.
+     * Upper-case keys are message rates in Hz; without any, {@link Config#defaultRates()} is used.
+     */
+    public static Config parse(String spec) {
+        int vehicles = 1;
+        double corrupt = 0, gap = 0, scale = 1;
+        boolean mavlink2 = true;
+        long seed = System.nanoTime();
+        Map<String, Double> rates = new LinkedHashMap<>();
+        if (spec != null) {
+            for (String part : OPTION_SEPARATOR.split(spec)) {
+                String p = part.trim();
+                if (p.isEmpty()) continue;
+                int eq = p.indexOf('=');
+                String key = eq < 0 ? p : p.substring(0, eq).trim();
+                String val = eq < 0 ? "" : p.substring(eq + 1).trim();
+                switch (key) {
+                    case "vehicles": vehicles = Math.max(1, Math.min(255, Integer.parseInt(val))); break;
+                    case "corrupt": corrupt = Double.parseDouble(val); break;
+                    case "gap": gap = Double.parseDouble(val); break;
+                    case "scale": scale = Math.max(0.0, Double.parseDouble(val)); break;
+                    case "seed": seed = Long.parseLong(val); break;
+                    case "v1": mavlink2 = false; break;
+                    default:
+                        if (!key.equals(key.toUpperCase(Locale.ROOT))) throw new IllegalArgumentException("Unknown loopback option: " + key);
+                        rates.put(key, Double.parseDouble(val));
+                }
+            }
+        }
+        if (rates.isEmpty()) rates = Config.defaultRates();
+        return new Config(vehicles, rates, corrupt, gap, scale, mavlink2, seed);
+    }
+
+    /** One periodic message stream of one vehicle. */
+    private static final class Stream {
+        final int vehicle;
+        final MAVLinkMessage msg;
+        final long periodNanos;
+        long due;
+
+        Stream(int vehicle, MAVLinkMessage msg, long periodNanos, long due) {
+            this.vehicle = vehicle;
+            this.msg = msg;
+            this.periodNanos = periodNanos;
+            this.due = due;
+        }
+    }
+
+    private final Config config;
+    private final Stream[] streams;
+    private final int[] seq;
+    private final SplittableRandom random;
+    private final boolean flood;
+    private final long startNanos;
+    /** Flood mode advances this virtual clock instead of following nanoTime */
+    private long virtualNow;
+    /** Last emitDue ran out of room; the flood clock waits until the backlog is out */
+    private boolean truncated;
+
+    /** Written by the generator thread only; volatile so metrics can be read anywhere */
+    private volatile long frames;
+    private volatile long bytes;
+    private volatile long corrupted;
+    private volatile long seqGaps;
+
+    public SyntheticTraffic(Config config) {
+        this.config = config;
+        this.random = new SplittableRandom(config.seed);
+        this.flood = config.scale <= 0;
+        this.startNanos = System.nanoTime();
+        this.virtualNow = startNanos;
+        this.seq = new int[config.vehicles];
+        List<Stream> list = new ArrayList<>();
+        for (int v = 0; v < config.vehicles; v++) {
+            for (Map.Entry<String, Double> e : config.rates.entrySet()) {
+                double hz = e.getValue() * (flood ? 1.0 : config.scale);
+                if (hz <= 0) continue;
+                long period = Math.max(1L, (long) (1_000_000_000L / hz));
+                // Random phase so vehicles do not all transmit in the same instant
+                list.add(new Stream(v, newMessage(e.getKey()), period, startNanos + (long) (random.nextDouble() * period)));
+            }
+        }
+        this.streams = list.toArray(new Stream[0]);
+    }
+
+    public Config config() { return config; }
+
+    /** Flood mode: no pacing, the caller emits back to back as far as its consumer keeps up. */
+    public boolean isFlood() { return flood; }
+
+    /** Earliest due time over all streams (nanoTime clock). */
+    public long nextDueNanos() {
+        long min = Long.MAX_VALUE;
+        for (Stream s : streams) min = Math.min(min, s.due);
+        return min;
+    }
+
+    /**
+     * Encode every frame due by now into {@code out} starting at 0.
+     * Stops early when the next frame might not fit; those stay due for the next call.
+     * @return bytes written
+     */
+    public int emitDue(byte[] out) {
+        long now;
+        if (flood) {
+            // Advance 1 ms of virtual time per call
+            if (!truncated) virtualNow += 1_000_000L;
+            now = virtualNow;
+        } else {
+            now = System.nanoTime();
+        }
+        int pos = 0;
+        truncated = false;
+        for (Stream s : streams) {
+            if (now - s.due > MAX_LAG_NANOS) s.due = now;
+            while (s.due <= now) {
+                if (pos + MAX_FRAME_BYTES > out.length) {
+                    truncated = true;
+                    return pos;
+                }
+                pos += encode(s, now, out, pos);
+                s.due += s.periodNanos;
+            }
+        }
+        return pos;
+    }
+
+    private int encode(Stream s, long now, byte[] out, int pos) {
+        int sysid = s.vehicle + 1;
+        animate(s.msg, s.vehicle, (now - startNanos) / 1e9);
+        s.msg.sysid = sysid;
+        s.msg.compid = 1;
+        s.msg.isMavlink2 = config.mavlink2;
+        MAVLinkPacket pkt = s.msg.pack();
+        if (config.seqGapProbability > 0 && random.nextDouble() < config.seqGapProbability) {
+            seq[s.vehicle] = (seq[s.vehicle] + 1 + random.nextInt(3)) & 0xFF;
+            seqGaps++;
+        }
+        pkt.seq = seq[s.vehicle];
+        seq[s.vehicle] = (seq[s.vehicle] + 1) & 0xFF;
+        byte[] frame = pkt.encodePacket();
+        if (config.corruptProbability > 0 && random.nextDouble() < config.corruptProbability) {
+            frame[1 + random.nextInt(frame.length - 1)] ^= (byte) (1 << random.nextInt(8));
+            corrupted++;
+        }
+        System.arraycopy(frame, 0, out, pos, frame.length);
+        frames++;
+        bytes += frame.length;
+        return frame.length;
+    }
+
+    /** Smooth, per-vehicle-distinct values for the common telemetry messages. */
+    private static void animate(MAVLinkMessage m, int v, double t) {
+        long bootMs = (long) (t * 1000.0);
+        double phase = t * 0.2 + v;
+        if (m instanceof com.MAVLink.minimal.msg_heartbeat) {
+            com.MAVLink.minimal.msg_heartbeat hb = (com.MAVLink.minimal.msg_heartbeat) m;
+            hb.type = 2;            // MAV_TYPE_QUADROTOR
+            hb.autopilot = 3;       // MAV_AUTOPILOT_ARDUPILOTMEGA
+            hb.base_mode = 209;     // armed, custom mode, stabilize, guided
+            hb.custom_mode = 5;     // LOITER
+            hb.system_status = 4;   // MAV_STATE_ACTIVE
+            hb.mavlink_version = 3;
+        } else if (m instanceof com.MAVLink.common.msg_attitude) {
+            com.MAVLink.common.msg_attitude a = (com.MAVLink.common.msg_attitude) m;
+            a.time_boot_ms = bootMs;
+            a.roll = (float) (0.2 * Math.sin(phase * 3));
+            a.pitch = (float) (0.1 * Math.cos(phase * 2));
+            a.yaw = (float) (phase % (2 * Math.PI) - Math.PI);
+            a.rollspeed = (float) (0.6 * Math.cos(phase * 3));
+        } else if (m instanceof com.MAVLink.common.msg_global_position_int) {
+            com.MAVLink.common.msg_global_position_int g = (com.MAVLink.common.msg_global_position_int) m;
+            g.time_boot_ms = bootMs;
+            g.lat = latE7(v, phase);
+            g.lon = lonE7(v, phase);
+            g.relative_alt = 50_000 + v * 2_000;
+            g.alt = 100_000 + g.relative_alt;
+            g.vx = (short) (500 * Math.cos(phase));
+            g.vy = (short) (500 * Math.sin(phase));
+            g.hdg = (int) (((phase * 180 / Math.PI) % 360) * 100);
+        } else if (m instanceof com.MAVLink.common.msg_gps_raw_int) {
+            com.MAVLink.common.msg_gps_raw_int g = (com.MAVLink.common.msg_gps_raw_int) m;
+            g.time_usec = bootMs * 1000L;
+            g.lat = latE7(v, phase);
+            g.lon = lonE7(v, phase);
+            g.alt = 150_000 + v * 2_000;
+            g.fix_type = 3;
+            g.satellites_visible = 14;
+            g.eph = 80;
+            g.epv = 120;
+        } else if (m instanceof com.MAVLink.common.msg_vfr_hud) {
+            com.MAVLink.common.msg_vfr_hud h = (com.MAVLink.common.msg_vfr_hud) m;
+            h.groundspeed = (float) (5 + Math.sin(phase));
+            h.airspeed = h.groundspeed;
+            h.alt = 50 + v * 2;
+            h.heading = (short) ((phase * 180 / Math.PI) % 360);
+            h.throttle = 45;
+        } else if (m instanceof com.MAVLink.common.msg_sys_status) {
+            com.MAVLink.common.msg_sys_status s = (com.MAVLink.common.msg_sys_status) m;
+            s.voltage_battery = (int) Math.max(10_500, 12_600 - t * 2);
+            s.current_battery = 1_250;
+            s.battery_remaining = (byte) Math.max(5, 100 - (int) (t / 30));
+            s.load = 350;
+        }
+    }
+
+    private static int latE7(int v, double phase) { return 473_977_000 + v * 20_000 + (int) (5_000 * Math.sin(phase)); }
+
+    private static int lonE7(int v, double phase) { return 85_456_000 + v * 20_000 + (int) (5_000 * Math.cos(phase)); }
+
+    /** Message instance from its MAVLink name (HEARTBEAT -> msg_heartbeat) in the bundled dialects. */
+    static MAVLinkMessage newMessage(String name) {
+        String cls = "msg_" + name.toLowerCase(Locale.ROOT);
+        for (String d : DIALECTS) {
+            try {
+                return (MAVLinkMessage) Class.forName("com.MAVLink." + d + "." + cls).getDeclaredConstructor().newInstance();
+            } catch (ClassNotFoundException ignore) {
+                // try next dialect
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalArgumentException("Cannot create " + name, e);
+            }
+        }
+        throw new IllegalArgumentException("Unknown MAVLink message: " + name);
+    }
+
+    public long framesGenerated() { return frames; }
+    public long bytesGenerated() { return bytes; }
+    public long framesCorrupted() { return corrupted; }
+    public long seqGaps() { return seqGaps; }
+}
@@ -0,0 +1,208 @@
+package com.serialcomm.link;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * {@link LinkRouter} written by a sender thread of its own through a blocking
+ * {@link #writeBytes}, for drivers without readiness notification (serial ports, loopback).
+ * The thread takes frames in priority order, coalesces them up to
+ * {@link #coalesceBudgetBytes()} per write, and applies the per-weight send gap and the
+ * optional token-bucket rate limit ({@link #configureRateLimit}) before each write; it parks
+ * while the queues are empty or bulk traffic is out of tokens.
+ */
+public abstract class ThreadedLinkRouter extends LinkRouter {
+    /** MAVLink v2 maximum frame: 10 header + 255 payload + 2 CRC + 13 signature */
+    private static final int MAX_FRAME_BYTES = 280;
+
+    private final AtomicBoolean senderRunning = new AtomicBoolean(false);
+    private volatile Thread senderThread;
+    private volatile boolean senderParked;
+
+    /** Optional byte-rate control; null means unthrottled */
+    private volatile RateLimit rateLimit;
+
+    protected ThreadedLinkRouter() {}
+
+    /** Wake the sender thread if it parked on empty queues or on the rate limit. */
+    @Override
+    protected void onOutboundQueued() {
+        if (senderParked) LockSupport.unpark(senderThread);
+    }
+
+    protected void startSenderLoop() {
+        if (!senderRunning.compareAndSet(false, true)) return;
+        senderThread = com.serialcomm.service.Scheduler.getInstance().namedFactory(senderThreadName()).newThread(this::senderLoop);
+        senderThread.start();
+    }
+
+    protected void stopSenderLoop() {
+        senderRunning.set(false);
+        Thread t = senderThread;
+        if (t != null) {
+            try { t.interrupt(); } catch (Throwable ignore) {}
+            senderThread = null;
+        }
+        clearOutbound();
+    }
+
+    private void senderLoop() {
+        final byte[][] batch = new byte[MAX_BATCH_FRAMES][];
+        final int[] levels = new int[MAX_BATCH_FRAMES];
+        while (senderRunning.get()) {
+            int count = 0;
+            try {
+                int level = headLevel();
+                RateLimit limit = rateLimit;
+                long bulkWait = level > WEIGHT_HIGH ? bulkWaitNanos(limit, 0, peekHead(level), 0) : 0L;
+                if (level < 0 || bulkWait > 0) {
+                    // Idle, or bulk traffic out of tokens: wake on the refill or on any new frame,
+                    // so a HIGH frame queued meanwhile goes first
+                    senderParked = true;
+                    if (level < 0 ? getOutboundQueueSize() <= 0 : headLevel() == level) {
+                        if (level < 0) LockSupport.park(this); else LockSupport.parkNanos(this, bulkWait);
+                    }
+                    senderParked = false;
+                    if (Thread.interrupted()) break;
+                    continue;
+                }
+                byte[] first = takeHead(level);
+                if (first == null) continue;
+                // Coalesce queued frames (still in priority order) up to the per-write budget;
+                // a bulk frame joins only if its tokens are there, so the batch never waits on it
+                int batchWeight = level;
+                int total = first.length;
+                int bulkBytes = level > WEIGHT_HIGH ? first.length : 0;
+                levels[count] = level;
+                batch[count++] = first;
+                int budget = coalesceBudgetBytes();
+                while (count < MAX_BATCH_FRAMES && total < budget) {
+                    int w = headLevel();
+                    if (w < 0) break;
+                    byte[] next = peekHead(w);
+                    if (next == null || next.length > budget - total) break;
+                    if (w > WEIGHT_HIGH && bulkWaitNanos(limit, total, next, bulkBytes) > 0) break;
+                    takeHead(w);
+                    levels[count] = w;
+                    batch[count++] = next;
+                    total += next.length;
+                    if (w > WEIGHT_HIGH) bulkBytes += next.length;
+                    batchWeight = Math.max(batchWeight, w);
+                }
+                long gap = sendGapMsForWeight(batchWeight);
+                if (gap > 0) {
+                    try { Thread.sleep(gap); } catch (InterruptedException ie) { Thread.currentThread().interrupt(); break; }
+                }
+                long waitNanos = rateWaitNanos(limit, total, bulkBytes);
+                if (waitNanos > 0) {
+                    long deadline = System.nanoTime() + waitNanos;
+                    long left;
+                    while ((left = deadline - System.nanoTime()) > 0 && !Thread.currentThread().isInterrupted()) {
+                        LockSupport.parkNanos(this, left);
+                    }
+                    if (Thread.interrupted()) break;
+                }
+                if (!isConnected()) {
+                    // The link went away while the batch waited: count it like an overflow drop
+                    batchDropped(levels, count);
+                    continue;
+                }
+                int written = 0;
+                try {
+                    written = writeBatch(batch, count, total);
+                } catch (Exception e) { com.serialcomm.util.ErrorMonitor.record("router.write", e); }
+                batchWritten(batch, count, total, written);
+            } catch (Throwable t) {
+                com.serialcomm.util.ErrorMonitor.record("router.senderLoop", t);
+            } finally {
+                java.util.Arrays.fill(batch, 0, count, null);
+            }
+        }
+    }
+
+    /**
+     * Throttle outbound bytes with token buckets: the whole link is held to
+     * {@code bytesPerSec}, and NORMAL/LOW together to {@code (1 - highReserve)} of it, so
+     * bulk transfers can fill the link while HIGH traffic always keeps a reserved share.
+     * Pass {@code bytesPerSec <= 0} to disable.
+     */
+    public void configureRateLimit(long bytesPerSec, double highReserve) {
+        if (bytesPerSec <= 0) {
+            rateLimit = null;
+            return;
+        }
+        double reserve = Math.max(0.0, Math.min(0.9, highReserve));
+        // Burst: 50 ms of traffic, but at least one maximum-size MAVLink v2 frame
+        double burst = Math.max(MAX_FRAME_BYTES, bytesPerSec * 0.05);
+        RateLimit current = rateLimit;
+        if (current == null) {
+            rateLimit = new RateLimit(new com.serialcomm.util.TokenBucket(bytesPerSec, burst),
+                    new com.serialcomm.util.TokenBucket(bytesPerSec * (1.0 - reserve), burst));
+        } else {
+            current.link.reconfigure(bytesPerSec, burst);
+            current.bulk.reconfigure(bytesPerSec * (1.0 - reserve), burst);
+        }
+    }
+
+    /** Bucket limiting the whole link, or null when unthrottled. */
+    public com.serialcomm.util.TokenBucket getLinkBucket() {
+        RateLimit r = rateLimit;
+        return r != null ? r.link : null;
+    }
+
+    /** Bucket shared by NORMAL and LOW traffic, or null when unthrottled. */
+    public com.serialcomm.util.TokenBucket getBulkBucket() {
+        RateLimit r = rateLimit;
+        return r != null ? r.bulk : null;
+    }
+
+    /**
+     * Reserve a batch of {@code bytes}, {@code bulkBytes} of them NORMAL/LOW: every frame is
+     * charged to the link bucket, and only the bulk frames to the bulk bucket.
+     */
+    private static long rateWaitNanos(RateLimit r, int bytes, int bulkBytes) {
+        if (r == null) return 0L;
+        long wait = r.link.reserve(bytes);
+        if (bulkBytes > 0) wait = Math.max(wait, r.bulk.reserve(bulkBytes));
+        return wait;
+    }
+
+    /** Time until bulk {@code frame} could follow {@code batchBytes} ({@code batchBulkBytes} of them bulk) without waiting. */
+    private static long bulkWaitNanos(RateLimit r, int batchBytes, byte[] frame, int batchBulkBytes) {
+        if (r == null || frame == null) return 0L;
+        return Math.max(r.link.waitNanos(batchBytes + frame.length), r.bulk.waitNanos(batchBulkBytes + frame.length));
+    }
+
+    private static final class RateLimit {
+        final com.serialcomm.util.TokenBucket link;
+        final com.serialcomm.util.TokenBucket bulk;
+
+        RateLimit(com.serialcomm.util.TokenBucket link, com.serialcomm.util.TokenBucket bulk) {
+            this.link = link;
+            this.bulk = bulk;
+        }
+    }
+
+    /**
+     * Write {@code count} frames totalling {@code totalBytes} as one operation, on the sender thread.
+     * The default concatenates them for {@link #writeBytes(byte[])}; channel-based routers
+     * can override this with a gathering write.
+     */
+    protected int writeBatch(byte[][] frames, int count, int totalBytes) throws Exception {
+        if (count == 1) return writeBytes(frames[0]);
+        byte[] joined = new byte[totalBytes];
+        int p = 0;
+        for (int i = 0; i < count; i++) {
+            System.arraycopy(frames[i], 0, joined, p, frames[i].length);
+            p += frames[i].length;
+        }
+        return writeBytes(joined);
+    }
+
+    /** Minimum gap before sending a frame of the given weight (ms); 0 by default. */
+    protected long sendGapMsForWeight(int weight) { return 0L; }
+
+    protected String senderThreadName() { return "Link-Sender"; }
+
+    protected abstract int writeBytes(byte[] data) throws Exception;
+}
@@ -0,0 +1,31 @@
+package com.serialcomm.link.spi.adapters;
+
+import com.serialcomm.controller.BaseController;
+import com.serialcomm.link.LinkManager;
+import com.serialcomm.link.LoopbackRouter;
+import com.serialcomm.link.SyntheticTraffic;
+import com.serialcomm.link.spi.LinkAdapter;
+import com.serialcomm.serial.SerialRouter;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Synthetic in-process link for benchmarks and soak tests (see {@link LoopbackRouter}).
+ * Opened through multi-link with an endpoint such as {@code loopback:vehicles=20&ATTITUDE=50}.
+ */
+public final class LoopbackAdapter implements LinkAdapter {
+    private final LoopbackRouter loop = new LoopbackRouter();
+
+    @Override public String id() { return "loopback"; }
+    @Override public LinkManager.Transport transportKind() { return LinkManager.Transport.UDP; }
+
+    public boolean start(String name, SyntheticTraffic.Config config) { return loop.start(name, config); }
+
+    @Override public void disconnect() { loop.disconnect(); }
+    @Override public boolean isConnected() { return loop.isConnected(); }
+    @Override public void enqueue(byte[] data, SerialRouter.Priority priority) { loop.enqueue(data, priority); }
+    @Override public void setByteCountCallbacks(IntConsumer rx, IntConsumer tx) { loop.setByteCountCallbacks(rx, tx); }
+    @Override public void setActiveController(BaseController controller) { loop.setActiveController(controller); }
+
+    public LoopbackRouter router() { return loop; }
+}
@@ -0,0 +1,25 @@
+package com.serialcomm.link.spi.adapters;
+
+import com.serialcomm.controller.BaseController;
+import com.serialcomm.link.LinkManager;
+import com.serialcomm.link.NioNetworkRouter;
+import com.serialcomm.link.spi.LinkAdapter;
+import com.serialcomm.serial.SerialRouter;
+
+import java.util.function.IntConsumer;
+
+/** TCP client served by the shared selector thread (see {@link NioNetworkRouter}). */
+public final class NioTcpClientAdapter implements LinkAdapter {
+    private final NioNetworkRouter net = new NioNetworkRouter();
+
+    @Override public String id() { return "tcp-nio"; }
+    @Override public LinkManager.Transport transportKind() { return LinkManager.Transport.TCP; }
+    @Override public boolean connectTcp(String host, int port) { return net.connectTcp(host, port); }
+    @Override public void disconnect() { net.disconnect(); }
+    @Override public boolean isConnected() { return net.isConnected(); }
+    @Override public void enqueue(byte[] data, SerialRouter.Priority priority) { net.enqueue(data, priority); }
+    @Override public void setByteCountCallbacks(IntConsumer rx, IntConsumer tx) { net.setByteCountCallbacks(rx, tx); }
+    @Override public void setActiveController(BaseController controller) { net.setActiveController(controller); }
+
+    public NioNetworkRouter router() { return net; }
+}
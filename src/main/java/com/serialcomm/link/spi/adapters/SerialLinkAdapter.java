@@ -0,0 +1,32 @@
+package com.serialcomm.link.spi.adapters;
+
+import com.serialcomm.controller.BaseController;
+import com.serialcomm.link.LinkManager;
+import com.serialcomm.link.SerialLinkRouter;
+import com.serialcomm.link.spi.LinkAdapter;
+import com.serialcomm.serial.SerialRouter;
+
+import java.util.function.IntConsumer;
+
+/** Serial port with its own queues and token-bucket pacing (see {@link SerialLinkRouter}). */
+public final class SerialLinkAdapter implements LinkAdapter {
+    private final SerialLinkRouter serial = new SerialLinkRouter();
+
+    @Override public String id() { return "serial-link"; }
+    @Override public LinkManager.Transport transportKind() { return LinkManager.Transport.SERIAL; }
+
+    @Override
+    public boolean connectSerial(String port, int baud) {
+        serial.setReceiveMode(SerialLinkRouter.parseReceiveMode(
+                com.serialcomm.util.Settings.getString(SerialLinkRouter.KEY_RX_MODE, "event")));
+        return serial.connect(port, baud);
+    }
+
+    @Override public void disconnect() { serial.disconnect(); }
+    @Override public boolean isConnected() { return serial.isConnected(); }
+    @Override public void enqueue(byte[] data, SerialRouter.Priority priority) { serial.enqueue(data, priority); }
+    @Override public void setByteCountCallbacks(IntConsumer rx, IntConsumer tx) { serial.setByteCountCallbacks(rx, tx); }
+    @Override public void setActiveController(BaseController controller) { serial.setActiveController(controller); }
+
+    public SerialLinkRouter router() { return serial; }
+}
@@ -0,0 +1,73 @@
+package com.serialcomm.link.spi.adapters;
+
+import com.serialcomm.controller.BaseController;
+import com.serialcomm.link.LinkManager;
+import com.serialcomm.link.NioNetworkRouter;
+import com.serialcomm.link.NioTcpServer;
+import com.serialcomm.link.spi.LinkAdapter;
+import com.serialcomm.serial.SerialRouter;
+
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * Multi-client TCP listener (simulator swarms dialing in to the GCS).
+ * The adapter itself only owns the listening socket; each accepted connection is
+ * reported as a separate {@link LinkAdapter} session through the connection listener.
+ * {@link #enqueue} broadcasts to all clients.
+ */
+public final class TcpServerAdapter implements LinkAdapter {
+    private final NioTcpServer server = new NioTcpServer();
+    private volatile IntConsumer rxCallback;
+    private volatile IntConsumer txCallback;
+
+    @Override public String id() { return "tcp-server"; }
+    @Override public LinkManager.Transport transportKind() { return LinkManager.Transport.TCP; }
+
+    public boolean listenTcp(int port) { return server.listen(port); }
+
+    /** Report accepted/closed client sessions; accepted ones arrive as ready-to-use adapters. */
+    public void setConnectionListener(BiConsumer<String, LinkAdapter> accepted, Consumer<String> closed) {
+        server.setConnectionListener(
+                (sid, router) -> { if (accepted != null) accepted.accept(sid, new ClientLink(sid, router)); },
+                closed);
+    }
+
+    public int clientCount() { return server.clientCount(); }
+
+    @Override public void disconnect() { server.close(); }
+    @Override public boolean isConnected() { return server.isListening(); }
+    @Override public void enqueue(byte[] data, SerialRouter.Priority priority) { server.broadcast(data, priority); }
+
+    @Override
+    public void setByteCountCallbacks(IntConsumer rx, IntConsumer tx) {
+        this.rxCallback = rx;
+        this.txCallback = tx;
+    }
+
+    /** Raw bytes of inbound clients are delivered per client session, not by the listener. */
+    @Override public void setActiveController(BaseController controller) {}
+
+    /** One accepted connection exposed as its own link. */
+    public final class ClientLink implements LinkAdapter {
+        private final String sessionId;
+        private final NioNetworkRouter router;
+
+        ClientLink(String sessionId, NioNetworkRouter router) {
+            this.sessionId = sessionId;
+            this.router = router;
+            router.setByteCountCallbacks(rxCallback, txCallback);
+        }
+
+        @Override public String id() { return sessionId; }
+        @Override public LinkManager.Transport transportKind() { return LinkManager.Transport.TCP; }
+        @Override public void disconnect() { server.disconnectClient(sessionId); }
+        @Override public boolean isConnected() { return router.isConnected(); }
+        @Override public void enqueue(byte[] data, SerialRouter.Priority priority) { router.enqueue(data, priority); }
+        @Override public void setByteCountCallbacks(IntConsumer rx, IntConsumer tx) { router.setByteCountCallbacks(rx, tx); }
+        @Override public void setActiveController(BaseController controller) { router.setActiveController(controller); }
+
+        public NioNetworkRouter router() { return router; }
+    }
+}
@@ -0,0 +1,282 @@
+package com.serialcomm.service;
+
+import com.serialcomm.util.LatencyHistogram;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * {@link PacketHub} subscriber that runs its listener on its own virtual thread.
+ * The parsing thread only enqueues; what happens when the listener falls behind is the
+ * declared {@link Overflow} policy, so a slow tab or writer never stalls parsing (under
+ * {@link Overflow#BLOCK} for at most {@value #BLOCK_MAX_WAIT_MS} ms per packet). Every
+ * policy holds at most {@code capacity} packets. Queue depth, drops, and queue-wait and
+ * processing time histograms are kept per subscriber.
+ */
+public final class AsyncSubscriber implements Consumer<PacketEnvelope>, AutoCloseable {
+
+    /** What to do with a packet when the queue is full. */
+    public enum Overflow {
+        /** Discard the oldest queued packet to make room. */
+        DROP_OLDEST,
+        /**
+         * Keep only the newest packet per (msgid, sysid, compid); older unprocessed ones are
+         * replaced. When {@code capacity} keys are pending, the oldest pending one is dropped.
+         */
+        LATEST_PER_MSGID,
+        /**
+         * Block the publisher until there is room, for at most {@value #BLOCK_MAX_WAIT_MS} ms;
+         * then the packet is dropped. Back-pressures parsing, so only for low-rate streams.
+         */
+        BLOCK
+    }
+
+    /** Longest a BLOCK publisher waits for room, so a stuck listener cannot stall a link */
+    public static final long BLOCK_MAX_WAIT_MS = 50;
+
+    private final String name;
+    private final Overflow overflow;
+    private final int capacity;
+    private final Consumer<PacketEnvelope> listener;
+
+    /** DROP_OLDEST / BLOCK */
+    private final ArrayBlockingQueue<PacketEnvelope> queue;
+    /** LATEST_PER_MSGID */
+    private final LatestSlots latest;
+
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    /** Receive (hub entry) until the listener starts, for the packets the hub timed */
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+    /** Listener run time */
+    private final LatencyHistogram processing = new LatencyHistogram();
+
+    private volatile PacketHub.Subscription[] subscriptions = new PacketHub.Subscription[0];
+    private volatile boolean running = true;
+    private final Thread worker;
+
+    AsyncSubscriber(String name, Overflow overflow, int capacity, Consumer<PacketEnvelope> listener) {
+        this.name = name;
+        this.overflow = overflow;
+        this.capacity = Math.max(1, capacity);
+        this.listener = listener;
+        if (overflow == Overflow.LATEST_PER_MSGID) {
+            this.queue = null;
+            this.latest = new LatestSlots(this.capacity);
+        } else {
+            this.queue = new ArrayBlockingQueue<>(this.capacity);
+            this.latest = null;
+        }
+        this.worker = Thread.ofVirtual().name("hub-" + name).unstarted(this::drainLoop);
+        this.worker.start();
+    }
+
+    void bind(PacketHub.Subscription[] subs) { this.subscriptions = subs; }
+
+    /** Publisher side (parsing thread): enqueue according to the overflow policy. */
+    @Override
+    public void accept(PacketEnvelope env) {
+        if (!running) return;
+        enqueued.incrementAndGet();
+        switch (overflow) {
+            case LATEST_PER_MSGID: {
+                long key = ((long) env.msgid() << 16) | (env.sysid() << 8) | env.compid();
+                if (!latest.put(key, env)) dropped.incrementAndGet();
+                break;
+            }
+            case BLOCK:
+                try {
+                    if (!queue.offer(env, BLOCK_MAX_WAIT_MS, TimeUnit.MILLISECONDS)) dropped.incrementAndGet();
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    dropped.incrementAndGet();
+                }
+                break;
+            default:
+                while (!queue.offer(env)) {
+                    if (queue.poll() != null) dropped.incrementAndGet();
+                }
+        }
+    }
+
+    private void drainLoop() {
+        while (running) {
+            PacketEnvelope env;
+            try {
+                env = queue != null ? queue.poll(500, TimeUnit.MILLISECONDS) : latest.poll(500, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ie) {
+                break;
+            }
+            if (env == null) continue;
+            long start = System.nanoTime();
+            if (env.timed()) queueWait.record(start - env.receivedNanos());
+            try {
+                listener.accept(env);
+            } catch (Throwable t) {
+                failed.incrementAndGet();
+                com.serialcomm.util.ErrorMonitor.record("hub.async.listener", t);
+            }
+            processing.record(System.nanoTime() - start);
+            processed.incrementAndGet();
+        }
+    }
+
+    /** Unsubscribe, stop the worker and discard anything still queued. */
+    @Override
+    public void close() {
+        running = false;
+        for (PacketHub.Subscription s : subscriptions) s.close();
+        PacketHub.getInstance().removeAsync(this);
+        worker.interrupt();
+        if (queue != null) queue.clear();
+        if (latest != null) latest.clear();
+    }
+
+    public String name() { return name; }
+    public Overflow overflow() { return overflow; }
+    public int capacity() { return capacity; }
+
+    /** Packets waiting for the listener. */
+    public int depth() { return queue != null ? queue.size() : latest.size(); }
+
+    public long enqueued() { return enqueued.get(); }
+    /** Packets discarded (or, for LATEST_PER_MSGID, superseded) before the listener saw them. */
+    public long dropped() { return dropped.get(); }
+    public long processed() { return processed.get(); }
+    public long failed() { return failed.get(); }
+
+    /** Time from receive to listener start, since creation. */
+    public LatencyHistogram queueWait() { return queueWait; }
+
+    /** Listener run time, since creation. */
+    public LatencyHistogram processing() { return processing; }
+
+    @Override
+    public String toString() {
+        LatencyHistogram.Snapshot w = queueWait.snapshot();
+        LatencyHistogram.Snapshot p = processing.snapshot();
+        return String.format("%s[%s] depth=%d/%d drops=%d done=%d wait p50=%s p99=%s run p50=%s p99=%s max=%s",
+                name, overflow, depth(), capacity, dropped(), processed(),
+                LatencyHistogram.format(w.p50()), LatencyHistogram.format(w.p99()),
+                LatencyHistogram.format(p.p50()), LatencyHistogram.format(p.p99()), LatencyHistogram.format(p.max()));
+    }
+
+    /**
+     * Newest envelope per key, at most {@code capacity} pending, in arrival order of the keys.
+     * Keys live in a fixed open-addressing table (twice the capacity, rounded to a power of
+     * two) and keep their slot while idle, so a steady set of streams allocates and boxes
+     * nothing; an idle slot may be taken over by a new key. Pending slots are queued in a
+     * ring of slot indices. Publishers and the worker share one short lock.
+     */
+    private static final class LatestSlots {
+        private final long[] keys;
+        private final boolean[] used;
+        private final PacketEnvelope[] values;
+        private final int mask;
+        private final int[] order;
+        private final int capacity;
+        private int head;
+        private int pending;
+        private final java.util.concurrent.locks.ReentrantLock lock = new java.util.concurrent.locks.ReentrantLock();
+        private final java.util.concurrent.locks.Condition notEmpty = lock.newCondition();
+
+        LatestSlots(int capacity) {
+            this.capacity = capacity;
+            int size = Integer.highestOneBit(Math.max(2, capacity * 2 - 1)) << 1;
+            keys = new long[size];
+            used = new boolean[size];
+            values = new PacketEnvelope[size];
+            mask = size - 1;
+            order = new int[capacity];
+        }
+
+        /** @return false if an older packet was replaced or dropped to make room */
+        boolean put(long key, PacketEnvelope env) {
+            lock.lock();
+            try {
+                int slot = -1;
+                int idle = -1;
+                for (int i = (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask, n = 0; n <= mask; i = (i + 1) & mask, n++) {
+                    if (!used[i]) {
+                        if (idle < 0) idle = i;
+                        break;
+                    }
+                    if (keys[i] == key) {
+                        slot = i;
+                        break;
+                    }
+                    if (idle < 0 && values[i] == null) idle = i;
+                }
+                if (slot >= 0 && values[slot] != null) {
+                    values[slot] = env;
+                    return false;
+                }
+                boolean kept = true;
+                if (pending == capacity) {
+                    // Oldest pending key goes; its slot becomes idle
+                    int oldest = order[head];
+                    values[oldest] = null;
+                    head = (head + 1) % capacity;
+                    pending--;
+                    kept = false;
+                    if (slot < 0 && idle < 0) idle = oldest;
+                }
+                if (slot < 0) {
+                    slot = idle;
+                    keys[slot] = key;
+                    used[slot] = true;
+                }
+                values[slot] = env;
+                order[(head + pending) % capacity] = slot;
+                pending++;
+                notEmpty.signal();
+                return kept;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        PacketEnvelope poll(long timeout, TimeUnit unit) throws InterruptedException {
+            long nanos = unit.toNanos(timeout);
+            lock.lockInterruptibly();
+            try {
+                while (pending == 0) {
+                    if (nanos <= 0L) return null;
+                    nanos = notEmpty.awaitNanos(nanos);
+                }
+                int slot = order[head];
+                head = (head + 1) % capacity;
+                pending--;
+                PacketEnvelope env = values[slot];
+                values[slot] = null;
+                return env;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int size() {
+            lock.lock();
+            try {
+                return pending;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void clear() {
+            lock.lock();
+            try {
+                java.util.Arrays.fill(values, null);
+                head = 0;
+                pending = 0;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.serialcomm.service;
+
+import javafx.application.Platform;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Byte-oriented counterpart of {@link UiAppender}.
+ * Router threads append raw bytes; a periodic flush hands one bounded chunk to the
+ * consumer on the FX thread. Text rendering (HEX/ASCII) is left to the consumer so
+ * that only bytes which actually reach the UI are ever formatted. A consumer that prepares
+ * its text first can take the chunk on the flush thread instead ({@link #setDeliverOnFxThread})
+ * and post the result itself.
+ */
+public final class ByteAppender {
+    private final Consumer<byte[]> flushConsumer;
+    private final Object lock = new Object();
+    private byte[] buffer = new byte[4096];
+    private int length;
+    private volatile int flushIntervalMs = 100;
+    private volatile int maxFlushBytes = Integer.MAX_VALUE;
+    private volatile int bufferCapBytes = Integer.MAX_VALUE;
+    private volatile boolean deliverOnFxThread = true;
+    private ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> task;
+
+    public ByteAppender(Consumer<byte[]> flushConsumer) {
+        this.flushConsumer = Objects.requireNonNull(flushConsumer, "flushConsumer");
+    }
+
+    public ByteAppender setFlushIntervalMs(int ms) {
+        this.flushIntervalMs = Math.max(20, Math.min(1000, ms));
+        restart();
+        return this;
+    }
+
+    /** Upper bound of bytes handed to the consumer per flush. */
+    public ByteAppender setMaxFlushBytes(int bytes) {
+        this.maxFlushBytes = Math.max(256, bytes);
+        return this;
+    }
+
+    /** Upper bound of pending bytes; the oldest bytes are discarded beyond this. */
+    public ByteAppender setBufferCapBytes(int bytes) {
+        this.bufferCapBytes = Math.max(1024, bytes);
+        return this;
+    }
+
+    /** Run the consumer on the FX thread (default) or directly on the flush thread. */
+    public ByteAppender setDeliverOnFxThread(boolean fx) {
+        this.deliverOnFxThread = fx;
+        return this;
+    }
+
+    public void clearBuffer() {
+        synchronized (lock) {
+            length = 0;
+        }
+    }
+
+    /** Copy the remaining bytes of {@code data}; the caller keeps ownership of the buffer. */
+    public void append(ByteBuffer data) {
+        if (data == null || !data.hasRemaining()) return;
+        ByteBuffer src = data.duplicate();
+        synchronized (lock) {
+            int n = src.remaining();
+            int cap = bufferCapBytes;
+            if (n >= cap) {
+                // Only the newest cap bytes can survive
+                src.position(src.limit() - cap);
+                n = cap;
+                length = 0;
+            } else if (length + n > cap) {
+                int drop = length + n - cap;
+                System.arraycopy(buffer, drop, buffer, 0, length - drop);
+                length -= drop;
+            }
+            ensureCapacity(length + n);
+            src.get(buffer, length, n);
+            length += n;
+        }
+        ensure();
+    }
+
+    public void start() {
+        ensure();
+    }
+
+    public void stop() {
+        synchronized (lock) {
+            if (task != null) {
+                task.cancel(false);
+                task = null;
+            }
+            scheduler = null;
+        }
+    }
+
+    private void restart() {
+        stop();
+        ensure();
+    }
+
+    private void ensure() {
+        synchronized (lock) {
+            if (task != null && !task.isCancelled()) return;
+            scheduler = Scheduler.getInstance().ensureMonitoring();
+            long period = flushIntervalMs;
+            task = scheduler.scheduleAtFixedRate(this::flushOnce, period, period, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void ensureCapacity(int needed) {
+        if (needed <= buffer.length) return;
+        int next = buffer.length;
+        while (next < needed) next <<= 1;
+        byte[] grown = new byte[next];
+        System.arraycopy(buffer, 0, grown, 0, length);
+        buffer = grown;
+    }
+
+    private void flushOnce() {
+        final byte[] chunk;
+        synchronized (lock) {
+            if (length == 0) return;
+            int n = Math.min(length, maxFlushBytes);
+            chunk = new byte[n];
+            System.arraycopy(buffer, 0, chunk, 0, n);
+            System.arraycopy(buffer, n, buffer, 0, length - n);
+            length -= n;
+        }
+        if (deliverOnFxThread) {
+            Platform.runLater(() -> flushConsumer.accept(chunk));
+            return;
+        }
+        try {
+            flushConsumer.accept(chunk);
+        } catch (Throwable t) {
+            com.serialcomm.util.ErrorMonitor.record("ui.bytes.flush", t);
+        }
+    }
+}
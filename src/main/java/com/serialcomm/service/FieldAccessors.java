@@ -0,0 +1,223 @@
+package com.serialcomm.service;
+
+import com.MAVLink.Messages.MAVLinkMessage;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-message-class field accessors built once on first use.
+ * Each payload field gets a getter {@link MethodHandle} already adapted to
+ * {@code (Object)long} (integral fields) and {@code (Object)double} (all numeric fields), so
+ * values are read as primitives without {@link Field#get} boxing or per-call lookup.
+ * Field indices follow the class's public instance fields, excluding the
+ * {@link MAVLinkMessage} header fields. Values are the raw Java field values: unsigned
+ * MAVLink types are declared one size wider by the generator and are never negative.
+ * <p>
+ * Reading a whole message goes through {@link #copyInto}: one handle per class that chains
+ * every getter into its column store, so the JIT sees a single call site per update instead
+ * of one non-constant handle per field.
+ */
+public final class FieldAccessors {
+
+    /** Shape of one field. */
+    public enum Kind { INTEGRAL, FLOATING, ARRAY, OTHER }
+
+    private static final ClassValue<FieldAccessors> CACHE = new ClassValue<>() {
+        @Override
+        protected FieldAccessors computeValue(Class<?> type) { return new FieldAccessors(type); }
+    };
+    private static final MethodType AS_LONG = MethodType.methodType(long.class, Object.class);
+    private static final MethodType AS_DOUBLE = MethodType.methodType(double.class, Object.class);
+    private static final MethodType AS_OBJECT = MethodType.methodType(Object.class, Object.class);
+    /** (msg, longs, doubles, refs, base)void */
+    private static final MethodType COPY_INTO = MethodType.methodType(void.class,
+            Object.class, long[].class, double[].class, Object[].class, int.class);
+    private static final MethodHandle ADD_INT;
+    static {
+        try {
+            ADD_INT = MethodHandles.lookup().findStatic(FieldAccessors.class, "add",
+                    MethodType.methodType(int.class, int.class, int.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final Class<?> type;
+    private final String[] names;
+    private final Kind[] kinds;
+    private final Class<?>[] fieldTypes;
+    /** (Object)long for INTEGRAL, else null */
+    private final MethodHandle[] asLong;
+    /** (Object)double for INTEGRAL/FLOATING, else null */
+    private final MethodHandle[] asDouble;
+    /** (Object)Object for every field (boxes; for arrays and rare reads) */
+    private final MethodHandle[] asObject;
+    /** {@link #COPY_INTO}: every field into its column at base + index */
+    private final MethodHandle copyInto;
+    private final Map<String, Integer> indexByName = new HashMap<>();
+    /** Field indices sorted by name (for stable, alphabetical views) */
+    private final int[] byName;
+
+    /** Accessors for a message class (cached per class). */
+    public static FieldAccessors of(Class<?> type) { return CACHE.get(type); }
+
+    private FieldAccessors(Class<?> type) {
+        this.type = type;
+        List<Field> fields = new ArrayList<>();
+        for (Field f : type.getFields()) {
+            if (Modifier.isStatic(f.getModifiers()) || f.getDeclaringClass() == MAVLinkMessage.class) continue;
+            fields.add(f);
+        }
+        int n = fields.size();
+        names = new String[n];
+        kinds = new Kind[n];
+        fieldTypes = new Class<?>[n];
+        asLong = new MethodHandle[n];
+        asDouble = new MethodHandle[n];
+        asObject = new MethodHandle[n];
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        for (int i = 0; i < n; i++) {
+            Field f = fields.get(i);
+            Class<?> t = f.getType();
+            names[i] = f.getName();
+            fieldTypes[i] = t;
+            kinds[i] = kindOf(t);
+            indexByName.put(f.getName(), i);
+            try {
+                MethodHandle getter = lookup.unreflectGetter(f);
+                asObject[i] = getter.asType(AS_OBJECT);
+                if (kinds[i] == Kind.INTEGRAL) asLong[i] = getter.asType(AS_LONG);
+                if (kinds[i] == Kind.INTEGRAL || kinds[i] == Kind.FLOATING) asDouble[i] = getter.asType(AS_DOUBLE);
+            } catch (IllegalAccessException e) {
+                throw new IllegalArgumentException("field " + type.getName() + "." + f.getName(), e);
+            }
+        }
+        copyInto = buildCopyInto();
+        byName = java.util.stream.IntStream.range(0, n).boxed()
+                .sorted((a, b) -> names[a].compareTo(names[b]))
+                .mapToInt(Integer::intValue).toArray();
+    }
+
+    /** Fold one column store per field, last field innermost, so fields are written in index order. */
+    private MethodHandle buildCopyInto() {
+        MethodHandle all = MethodHandles.empty(COPY_INTO);
+        for (int i = names.length - 1; i >= 0; i--) {
+            MethodHandle store;
+            int column;
+            switch (kinds[i]) {
+                case INTEGRAL:
+                    store = MethodHandles.filterArguments(MethodHandles.arrayElementSetter(long[].class), 2, asLong[i]);
+                    column = 1;
+                    break;
+                case FLOATING:
+                    store = MethodHandles.filterArguments(MethodHandles.arrayElementSetter(double[].class), 2, asDouble[i]);
+                    column = 2;
+                    break;
+                default:
+                    store = MethodHandles.filterArguments(MethodHandles.arrayElementSetter(Object[].class), 2, asObject[i]);
+                    column = 3;
+            }
+            // (column, base, msg)void: slot base + i
+            store = MethodHandles.filterArguments(store, 1, MethodHandles.insertArguments(ADD_INT, 1, i));
+            all = MethodHandles.foldArguments(all, MethodHandles.permuteArguments(store, COPY_INTO, column, 4, 0));
+        }
+        return all;
+    }
+
+    private static int add(int a, int b) { return a + b; }
+
+    private static Kind kindOf(Class<?> t) {
+        if (t == byte.class || t == short.class || t == int.class || t == long.class) return Kind.INTEGRAL;
+        if (t == float.class || t == double.class) return Kind.FLOATING;
+        if (t.isArray()) return Kind.ARRAY;
+        return Kind.OTHER;
+    }
+
+    public Class<?> type() { return type; }
+    public int fieldCount() { return names.length; }
+    public String fieldName(int i) { return names[i]; }
+    public Kind kind(int i) { return kinds[i]; }
+    public Class<?> fieldType(int i) { return fieldTypes[i]; }
+
+    /** Index of the {@code k}-th field in name order. */
+    public int fieldByName(int k) { return byName[k]; }
+
+    /** Field index by name, or -1. */
+    public int indexOf(String name) {
+        Integer i = indexByName.get(name);
+        return i != null ? i : -1;
+    }
+
+    /** INTEGRAL field as long. */
+    public long getLong(Object msg, int i) {
+        MethodHandle h = asLong[i];
+        if (h == null) throw new IllegalArgumentException(names[i] + " is not integral");
+        try {
+            return (long) h.invokeExact(msg);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    /** INTEGRAL or FLOATING field as double. */
+    public double getDouble(Object msg, int i) {
+        MethodHandle h = asDouble[i];
+        if (h == null) throw new IllegalArgumentException(names[i] + " is not numeric");
+        try {
+            return (double) h.invokeExact(msg);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    /**
+     * Store every field of {@code msg} at {@code base + index}: INTEGRAL fields in {@code longs},
+     * FLOATING in {@code doubles}, the rest (arrays as-is) in {@code refs}. The slots of the
+     * other two columns are left alone.
+     */
+    public void copyInto(Object msg, long[] longs, double[] doubles, Object[] refs, int base) {
+        try {
+            copyInto.invokeExact(msg, longs, doubles, refs, base);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    /** Any field as an object (arrays are returned as-is, primitives boxed). */
+    public Object get(Object msg, int i) {
+        try {
+            return asObject[i].invokeExact(msg);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    /** Scalar field as text in its declared type (float stays float); arrays and others via String.valueOf. */
+    public String format(Object msg, int i) {
+        switch (kinds[i]) {
+            case INTEGRAL:
+                return Long.toString(getLong(msg, i));
+            case FLOATING:
+                double d = getDouble(msg, i);
+                return fieldTypes[i] == float.class ? Float.toString((float) d) : Double.toString(d);
+            default:
+                return String.valueOf(get(msg, i));
+        }
+    }
+}
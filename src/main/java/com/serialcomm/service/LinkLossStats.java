@@ -0,0 +1,285 @@
+package com.serialcomm.service;
+
+import com.serialcomm.util.RateCounter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Packet loss per (session, sysid, compid) from the MAVLink sequence numbers.
+ * Each sender stamps its frames with an 8-bit counter; a tracker remembers the newest seq and,
+ * for each of the last 256, whether it was seen or counted lost (two bitmaps of four longs),
+ * so every frame is classified in O(1): in order, ahead (the seqs jumped over count as lost),
+ * behind and counted lost (reordered: the loss is taken back), behind and neither (reordered,
+ * older than the tracker) or behind and already seen (duplicate).
+ * A jump of 128 or more ahead (a dropout of 128 to 255 frames, or a sender restart) first
+ * looks like late frames; once {@value #RESYNC_RUN} consecutive seqs arrived behind, none of
+ * them counted lost before, the run is taken as the new stream position: its frames are
+ * reclassified as in order and the seqs between the previous position and the run count as
+ * lost. A dropout that ends fewer than {@value #RESYNC_RUN} frames short of a multiple of
+ * 256 reads as duplicates of the newest frames and is not counted. Totals are kept since first
+ * sight and, through {@link RateCounter}s, over a sliding window of {@value #WINDOW_MS} ms
+ * (the window keeps the duplicates of a resynced run until they age out).
+ * Trackers are found by array index and ingest allocates nothing after a tracker's first frame.
+ *
+ * <p>Fed from {@link PacketHub} once {@link #start()} is called. Frames dropped for a bad
+ * CRC never reach the hub and show up here as lost.
+ */
+public final class LinkLossStats {
+    /** Sliding window of the windowed figures */
+    public static final long WINDOW_MS = 5000L;
+    /** Consecutive seqs behind the newest that are taken as a jump instead of late frames */
+    static final int RESYNC_RUN = 3;
+    private static final Tracker[] NONE = new Tracker[0];
+    /** After NONE: the constructor reads it */
+    private static final LinkLossStats INSTANCE = new LinkLossStats();
+
+    /** Figures of one (session, sysid, compid); totals since first sight plus the last window. */
+    public static final class Stats {
+        public final String sessionId;
+        public final int systemId;
+        public final int componentId;
+        public final long received;
+        /** Seqs jumped over that have not arrived late since */
+        public final long lost;
+        public final long duplicates;
+        /** Frames that arrived after a newer one */
+        public final long reordered;
+        public final long windowReceived;
+        public final long windowLost;
+        public final long windowDuplicates;
+        public final long windowReordered;
+
+        Stats(Tracker t, long nowMs) {
+            sessionId = t.sessionId;
+            systemId = t.id >>> 8;
+            componentId = t.id & 0xFF;
+            synchronized (t) {
+                received = t.received;
+                lost = t.lost;
+                duplicates = t.duplicates;
+                reordered = t.reordered;
+            }
+            windowReceived = Math.round(t.windowReceived.hz(nowMs, WINDOW_MS) * WINDOW_MS / 1000.0);
+            windowLost = Math.round(t.windowLost.hz(nowMs, WINDOW_MS) * WINDOW_MS / 1000.0);
+            windowDuplicates = Math.round(t.windowDuplicates.hz(nowMs, WINDOW_MS) * WINDOW_MS / 1000.0);
+            windowReordered = Math.round(t.windowReordered.hz(nowMs, WINDOW_MS) * WINDOW_MS / 1000.0);
+        }
+
+        /** Lost share of the frames sent since first sight, in percent. */
+        public double lossPercent() { return percent(lost, received - duplicates); }
+
+        /** Lost share of the frames sent in the last window, in percent. */
+        public double windowLossPercent() { return percent(windowLost - windowReordered, windowReceived - windowDuplicates); }
+
+        private static double percent(long missing, long unique) {
+            missing = Math.max(0L, missing);
+            long sent = unique + missing;
+            return sent > 0 ? missing * 100.0 / sent : 0.0;
+        }
+    }
+
+    private static final class Tracker {
+        final String sessionId;
+        final int id;
+        final RateCounter windowReceived = new RateCounter();
+        final RateCounter windowLost = new RateCounter();
+        final RateCounter windowDuplicates = new RateCounter();
+        final RateCounter windowReordered = new RateCounter();
+        /** Bit per seq value: seen since the counter last passed it */
+        final long[] seen = new long[4];
+        /** Bit per seq value: jumped over when the counter last passed it, and not seen since */
+        final long[] missing = new long[4];
+        int last = -1;
+        /** Seq of the previous frame, whatever its class */
+        int previous;
+        /** Consecutive seqs behind {@link #last} and not counted lost so far, from {@link #runStart} */
+        int runLength;
+        int runStart;
+        int runDuplicates;
+        int runReordered;
+        long received;
+        long lost;
+        long duplicates;
+        long reordered;
+
+        Tracker(String sessionId, int id) {
+            this.sessionId = sessionId;
+            this.id = id;
+        }
+
+        synchronized void accept(int seq, long nowMs) {
+            received++;
+            windowReceived.record(nowMs);
+            if (last < 0) {
+                last = seq;
+                previous = seq;
+                set(seen, seq);
+                return;
+            }
+            int ahead = (seq - last) & 0xFF;
+            if (ahead != 0 && ahead < 128) {
+                runLength = 0;
+                advance(seq, nowMs);
+            } else if (isSet(missing, seq)) {
+                // A late frame of a seq counted lost: never part of a jump
+                clear(missing, seq);
+                set(seen, seq);
+                lost--;
+                reordered++;
+                windowReordered.record(nowMs);
+                runLength = 0;
+            } else {
+                if (runLength > 0 && seq == ((previous + 1) & 0xFF)) {
+                    runLength++;
+                } else {
+                    runLength = 1;
+                    runStart = seq;
+                    runDuplicates = 0;
+                    runReordered = 0;
+                }
+                if (isSet(seen, seq)) {
+                    duplicates++;
+                    runDuplicates++;
+                    windowDuplicates.record(nowMs);
+                } else {
+                    set(seen, seq);
+                    reordered++;
+                    runReordered++;
+                }
+                if (runLength == RESYNC_RUN) resync(seq, nowMs);
+            }
+            previous = seq;
+        }
+
+        /** {@code seq} is ahead of {@link #last}: the seqs in between count as lost. */
+        private void advance(int seq, long nowMs) {
+            int skipped = ((seq - last) & 0xFF) - 1;
+            for (int s = last + 1; s != last + skipped + 1; s++) {
+                clear(seen, s & 0xFF);
+                set(missing, s & 0xFF);
+            }
+            set(seen, seq);
+            clear(missing, seq);
+            last = seq;
+            if (skipped > 0) {
+                lost += skipped;
+                windowLost.record(nowMs, skipped);
+            }
+        }
+
+        /** The run from {@link #runStart} to {@code seq} is the stream after a jump, not late frames. */
+        private void resync(int seq, long nowMs) {
+            duplicates -= runDuplicates;
+            reordered -= runReordered;
+            int gap = (runStart - last) & 0xFF;
+            int skipped = (gap == 0 ? 256 : gap) - 1;
+            java.util.Arrays.fill(seen, 0L);
+            java.util.Arrays.fill(missing, 0L);
+            for (int s = last + 1; s != last + skipped + 1; s++) set(missing, s & 0xFF);
+            for (int s = runStart; s != runStart + runLength; s++) set(seen, s & 0xFF);
+            last = seq;
+            runLength = 0;
+            if (skipped > 0) {
+                lost += skipped;
+                windowLost.record(nowMs, skipped);
+            }
+        }
+
+        private static void set(long[] bits, int seq) { bits[seq >>> 6] |= 1L << seq; }
+        private static void clear(long[] bits, int seq) { bits[seq >>> 6] &= ~(1L << seq); }
+        private static boolean isSet(long[] bits, int seq) { return (bits[seq >>> 6] & (1L << seq)) != 0; }
+    }
+
+    /** Trackers of one session by {@link VehicleStore#id} */
+    private final ConcurrentHashMap<String, AtomicReferenceArray<Tracker>> sessions = new ConcurrentHashMap<>();
+    private volatile Tracker[] all = NONE;
+    private volatile PacketHub.Subscription subscription;
+
+    public static LinkLossStats getInstance() { return INSTANCE; }
+
+    /** Standalone instance (benchmarks, tests); the application uses {@link #getInstance()}. */
+    public LinkLossStats() {}
+
+    /** Subscribe to every packet on the hub (idempotent). */
+    public synchronized void start() {
+        if (subscription != null) return;
+        subscription = PacketHub.getInstance().subscribeAll(this::onPacket);
+    }
+
+    public synchronized void stop() {
+        if (subscription == null) return;
+        subscription.close();
+        subscription = null;
+    }
+
+    private void onPacket(PacketEnvelope env) {
+        accept(env.sessionId(), env.sysid(), env.compid(), env.packet().seq, System.currentTimeMillis());
+    }
+
+    /** Account one received frame. */
+    public void accept(String sessionId, int sysid, int compid, int seq, long nowMs) {
+        String session = sessionId != null ? sessionId : "";
+        AtomicReferenceArray<Tracker> trackers = sessions.get(session);
+        int id = VehicleStore.id(sysid, compid);
+        Tracker t = trackers != null ? trackers.get(id) : null;
+        if (t == null) t = create(session, id);
+        t.accept(seq & 0xFF, nowMs);
+    }
+
+    private synchronized Tracker create(String session, int id) {
+        AtomicReferenceArray<Tracker> trackers = sessions.computeIfAbsent(session, k -> new AtomicReferenceArray<>(1 << 16));
+        Tracker t = trackers.get(id);
+        if (t != null) return t;
+        t = new Tracker(session, id);
+        trackers.set(id, t);
+        Tracker[] cur = all;
+        Tracker[] next = java.util.Arrays.copyOf(cur, cur.length + 1);
+        next[cur.length] = t;
+        all = next;
+        return t;
+    }
+
+    /** Figures of every tracker, in order of first sight. */
+    public List<Stats> snapshot(long nowMs) {
+        Tracker[] ts = all;
+        List<Stats> out = new ArrayList<>(ts.length);
+        for (Tracker t : ts) out.add(new Stats(t, nowMs));
+        return out;
+    }
+
+    /**
+     * Loss of {@code sysid}/{@code compid} over the last window, all links together, in
+     * percent; -1 if nothing was received from it in the window.
+     */
+    public double windowLossPercent(int sysid, int compid, long nowMs) {
+        int id = VehicleStore.id(sysid, compid);
+        double missing = 0.0;
+        double unique = 0.0;
+        for (Tracker t : all) {
+            if (t.id != id) continue;
+            double received = t.windowReceived.hz(nowMs, WINDOW_MS);
+            if (received <= 0.0) continue;
+            unique += received - t.windowDuplicates.hz(nowMs, WINDOW_MS);
+            missing += Math.max(0.0, t.windowLost.hz(nowMs, WINDOW_MS) - t.windowReordered.hz(nowMs, WINDOW_MS));
+        }
+        if (unique <= 0.0) return -1.0;
+        return missing * 100.0 / (unique + missing);
+    }
+
+    /** One-line summary of the trackers that lost, duplicated or reordered frames, for logging. */
+    public String summary() {
+        StringBuilder sb = new StringBuilder();
+        for (Stats s : snapshot(System.currentTimeMillis())) {
+            if (s.lost == 0 && s.duplicates == 0 && s.reordered == 0) continue;
+            if (sb.length() > 0) sb.append(", ");
+            sb.append(String.format(Locale.ROOT, "%s %d:%d rx=%d lost=%d dup=%d reord=%d loss=%.2f%% (%ds %.2f%%)",
+                    s.sessionId, s.systemId, s.componentId, s.received, s.lost, s.duplicates, s.reordered,
+                    s.lossPercent(), WINDOW_MS / 1000, s.windowLossPercent()));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,285 @@
+package com.serialcomm.service;
+
+import com.MAVLink.MAVLinkPacket;
+
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
+
+/**
+ * Bulk MAVLink framer: takes byte ranges instead of one byte per call.
+ * Scans for the 0xFE/0xFD start byte, then checks flags, length, CRC_EXTRA and checksum of
+ * the whole candidate frame in one pass and hands the sink a {@link Frame} view into the
+ * caller's array (no copy). A frame split across calls is completed from a small carry buffer.
+ *
+ * <p>Accept/reject and resync behave exactly like {@code com.MAVLink.Parser.mavlink_parse_char}:
+ * a failed candidate is not rescanned, scanning resumes at the byte after the one that failed
+ * (bad v2 incompat flags, CRC low byte, CRC high byte), unknown msgids and signed v2 frames are
+ * CRC errors, and a signed frame's signature bytes are scanned as ordinary bytes.
+ * Not thread-safe; use one framer per stream.
+ */
+public final class MavlinkFramer {
+    private static final int STX_V1 = 0xFE;
+    private static final int STX_V2 = 0xFD;
+    private static final int V1_HEADER_LEN = 6;
+    private static final int V2_HEADER_LEN = 10;
+    /** v2 header + max payload + CRC; signatures are never part of an accepted frame */
+    private static final int MAX_FRAME_LEN = V2_HEADER_LEN + 255 + 2;
+    private static final int NEED_MORE = -1;
+
+    private final Frame frame = new Frame();
+    private final Consumer<Frame> sink;
+    private Consumer<Frame> rejectSink;
+    /** Start of a frame that straddles the previous range end */
+    private final byte[] carry = new byte[MAX_FRAME_LEN];
+    private int carryLen;
+    private byte[] scratch;
+
+    private long frames;
+    private long crcErrors;
+    private long badFlags;
+
+    /** {@code sink} sees each accepted frame; the view is only valid during the call. */
+    public MavlinkFramer(Consumer<Frame> sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * Also report complete candidates that were rejected (bad checksum, unknown msgid, signed),
+     * e.g. for a raw-frame view; scanning still resumes exactly as without a listener.
+     */
+    public MavlinkFramer setRejectListener(Consumer<Frame> listener) {
+        this.rejectSink = listener;
+        return this;
+    }
+
+    /** Frame all bytes of {@code buf[off, off+len)}. */
+    public void feed(byte[] buf, int off, int len) {
+        int pos = off;
+        int end = off + len;
+        if (carryLen > 0) {
+            pos = completeCarry(buf, pos, end);
+            if (pos < 0) return;
+        }
+        while (pos < end) {
+            byte b = buf[pos];
+            if (b != (byte) STX_V1 && b != (byte) STX_V2) {
+                pos++;
+                continue;
+            }
+            int used = frameAt(buf, pos, end - pos);
+            if (used == NEED_MORE) {
+                carryLen = end - pos;
+                System.arraycopy(buf, pos, carry, 0, carryLen);
+                return;
+            }
+            pos += used;
+        }
+    }
+
+    /** Frame the remaining bytes of {@code data}; its position is advanced to the limit. */
+    public void feed(ByteBuffer data) {
+        int n = data.remaining();
+        if (data.hasArray()) {
+            feed(data.array(), data.arrayOffset() + data.position(), n);
+            data.position(data.limit());
+            return;
+        }
+        if (scratch == null) scratch = new byte[4096];
+        while (data.hasRemaining()) {
+            int k = Math.min(scratch.length, data.remaining());
+            data.get(scratch, 0, k);
+            feed(scratch, 0, k);
+        }
+    }
+
+    /** Drop any partial frame (e.g. after the stream was switched). */
+    public void reset() { carryLen = 0; }
+
+    public long frames() { return frames; }
+    /** Checksum mismatches, unknown msgids and (rejected) signed frames. */
+    public long crcErrors() { return crcErrors; }
+    /** v2 candidates dropped for incompat flags other than 0/1. */
+    public long badFlags() { return badFlags; }
+
+    /**
+     * Top up the carried partial frame from {@code buf} one decision point at a time.
+     * Returns where scanning continues in {@code buf}, or -1 if everything was absorbed.
+     */
+    private int completeCarry(byte[] buf, int pos, int end) {
+        while (true) {
+            int need = bytesNeeded(carry, carryLen);
+            int take = Math.min(need - carryLen, end - pos);
+            System.arraycopy(buf, pos, carry, carryLen, take);
+            carryLen += take;
+            pos += take;
+            if (carryLen < need) return -1;
+            int used = frameAt(carry, 0, carryLen);
+            if (used == NEED_MORE) continue;
+            // Bytes after the failure point came from buf (decisions are made as soon as
+            // their byte is present), so rewinding into buf rescans them like Parser does.
+            pos -= carryLen - used;
+            carryLen = 0;
+            return pos;
+        }
+    }
+
+    /** Bytes of the candidate at {@code b[0]} required before the next accept/reject decision. */
+    private static int bytesNeeded(byte[] b, int have) {
+        if (have < 2) return 2;
+        boolean v2 = (b[0] & 0xFF) == STX_V2;
+        if (v2 && have < 3) return 3;
+        return (v2 ? V2_HEADER_LEN : V1_HEADER_LEN) + (b[1] & 0xFF) + 2;
+    }
+
+    /**
+     * Judge the candidate starting at {@code b[s]} (a start byte) with {@code avail} bytes present.
+     * Returns the bytes consumed before scanning resumes, or {@link #NEED_MORE}.
+     */
+    private int frameAt(byte[] b, int s, int avail) {
+        if (avail < 2) return NEED_MORE;
+        boolean v2 = (b[s] & 0xFF) == STX_V2;
+        int len = b[s + 1] & 0xFF;
+        int incompat = 0;
+        if (v2) {
+            if (avail < 3) return NEED_MORE;
+            incompat = b[s + 2] & 0xFF;
+            if (incompat > 1) {
+                badFlags++;
+                return 3;
+            }
+        }
+        int hdr = v2 ? V2_HEADER_LEN : V1_HEADER_LEN;
+        int total = hdr + len + 2;
+        if (avail < total) return NEED_MORE;
+        int msgid = v2
+                ? (b[s + 7] & 0xFF) | (b[s + 8] & 0xFF) << 8 | (b[s + 9] & 0xFF) << 16
+                : b[s + 5] & 0xFF;
+        int extra = CrcTable.extra(msgid);
+        if (extra < 0) return reject(b, s, total, v2, len, msgid, -1, false, hdr + len + 1);
+        int crc = CrcTable.accumulate(0xFFFF, b, s + 1, hdr - 1 + len);
+        crc = CrcTable.accumulate(crc, extra);
+        if ((b[s + hdr + len] & 0xFF) != (crc & 0xFF)) return reject(b, s, total, v2, len, msgid, crc, false, hdr + len + 1);
+        if ((b[s + hdr + len + 1] & 0xFF) != (crc >>> 8)) return reject(b, s, total, v2, len, msgid, crc, false, total);
+        if (incompat == 1) return reject(b, s, total, v2, len, msgid, crc, true, total);
+        frames++;
+        frame.set(b, s, total, v2, len, msgid, crc, true);
+        sink.accept(frame);
+        return total;
+    }
+
+    private int reject(byte[] b, int s, int total, boolean v2, int len, int msgid, int crc, boolean crcOk, int used) {
+        crcErrors++;
+        Consumer<Frame> r = rejectSink;
+        if (r != null) {
+            frame.set(b, s, total, v2, len, msgid, crc, crcOk);
+            r.accept(frame);
+        }
+        return used;
+    }
+
+    /** View of one framed candidate inside the caller's (or the carry) buffer. */
+    public static final class Frame {
+        private byte[] buf;
+        private int off;
+        private int length;
+        private boolean v2;
+        private int payloadLen;
+        private int msgid;
+        private int crc;
+        private boolean crcValid;
+
+        private Frame() {}
+
+        void set(byte[] buf, int off, int length, boolean v2, int payloadLen, int msgid, int crc, boolean crcValid) {
+            this.buf = buf;
+            this.off = off;
+            this.length = length;
+            this.v2 = v2;
+            this.payloadLen = payloadLen;
+            this.msgid = msgid;
+            this.crc = crc;
+            this.crcValid = crcValid;
+        }
+
+        /** Backing array; the frame is {@code array()[offset(), offset()+length())}. */
+        public byte[] array() { return buf; }
+        public int offset() { return off; }
+        public int length() { return length; }
+        public boolean isV2() { return v2; }
+        public int payloadOffset() { return off + (v2 ? V2_HEADER_LEN : V1_HEADER_LEN); }
+        public int payloadLength() { return payloadLen; }
+        public int seq() { return buf[off + (v2 ? 4 : 2)] & 0xFF; }
+        public int sysid() { return buf[off + (v2 ? 5 : 3)] & 0xFF; }
+        public int compid() { return buf[off + (v2 ? 6 : 4)] & 0xFF; }
+        public int msgid() { return msgid; }
+        public int compatFlags() { return v2 ? buf[off + 3] & 0xFF : 0; }
+        /** Computed checksum; -1 if the msgid has no CRC_EXTRA. */
+        public int crc() { return crc; }
+        /** False for checksum mismatches and unknown msgids; true for accepted and signed frames. */
+        public boolean crcValid() { return crcValid; }
+        /** v2 frame with the signed flag (only ever seen by the reject listener). */
+        public boolean isSigned() { return v2 && (buf[off + 2] & 0xFF) == 1; }
+
+        /** Copy of the frame bytes. */
+        public byte[] toBytes() {
+            byte[] out = new byte[length];
+            System.arraycopy(buf, off, out, 0, length);
+            return out;
+        }
+
+        /** Materialize the same packet {@code Parser} would have returned. */
+        public MAVLinkPacket toPacket() {
+            MAVLinkPacket p = new MAVLinkPacket(payloadLen, v2);
+            p.seq = seq();
+            p.sysid = sysid();
+            p.compid = compid();
+            p.msgid = msgid;
+            if (v2) p.compatFlags = compatFlags();
+            int po = payloadOffset();
+            for (int i = 0; i < payloadLen; i++) p.payload.add(buf[po + i]);
+            p.generateCRC(payloadLen);
+            return p;
+        }
+    }
+
+    /** X.25 (MCRF4XX) lookup table and per-msgid CRC_EXTRA, built once. */
+    static final class CrcTable {
+        private static final int[] TABLE = new int[256];
+        /** CRC_EXTRA per msgid below 0x10000, -1 if the bundled dialects do not define it */
+        private static final short[] EXTRA = new short[0x10000];
+
+        static {
+            for (int i = 0; i < 256; i++) {
+                int c = i;
+                for (int k = 0; k < 8; k++) c = (c & 1) != 0 ? (c >>> 1) ^ 0x8408 : c >>> 1;
+                TABLE[i] = c;
+            }
+            // The library keeps CRC_EXTRA private; recover it from the checksum finish_checksum
+            // leaves behind (one byte folded into the fresh 0xFFFF state is a bijection).
+            short[] byCrc = new short[0x10000];
+            java.util.Arrays.fill(byCrc, (short) -1);
+            for (int e = 0; e < 256; e++) byCrc[accumulate(0xFFFF, e)] = (short) e;
+            java.util.Arrays.fill(EXTRA, (short) -1);
+            com.MAVLink.all.CRC probe = new com.MAVLink.all.CRC();
+            for (int id = 0; id < EXTRA.length; id++) {
+                probe.start_checksum();
+                if (probe.finish_checksum(id)) EXTRA[id] = byCrc[probe.getMSB() << 8 | probe.getLSB()];
+            }
+        }
+
+        private CrcTable() {}
+
+        static int extra(int msgid) {
+            return msgid < EXTRA.length ? EXTRA[msgid] : -1;
+        }
+
+        static int accumulate(int crc, int b) {
+            return (crc >>> 8) ^ TABLE[(crc ^ b) & 0xFF];
+        }
+
+        static int accumulate(int crc, byte[] b, int off, int len) {
+            for (int i = off, end = off + len; i < end; i++) crc = (crc >>> 8) ^ TABLE[(crc ^ b[i]) & 0xFF];
+            return crc;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.serialcomm.service;
+
+import com.MAVLink.MAVLinkPacket;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Locale;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+/**
+ * Static msgid -> message table built once from the bundled MAVLink classes.
+ * Lets listeners name a packet without decoding it. When two dialects define the same
+ * msgid, the earlier one in {@link #DIALECT_ORDER} wins (then alphabetical).
+ */
+public final class MessageNames {
+    private static final String[] DIALECT_ORDER = {"minimal", "common", "ardupilotmega"};
+    private static final int TABLE_SIZE = 0x10000;
+
+    private MessageNames() {}
+
+    /** MAVLink name, e.g. {@code ATTITUDE}; {@code MSG#<id>} if unknown. */
+    public static String name(int msgid) {
+        String[] t = Table.NAMES;
+        String s = msgid >= 0 && msgid < t.length ? t[msgid] : null;
+        return s != null ? s : "MSG#" + msgid;
+    }
+
+    /** Generated class simple name, e.g. {@code msg_attitude}; null if unknown. */
+    public static String simpleName(int msgid) {
+        String[] t = Table.SIMPLE_NAMES;
+        return msgid >= 0 && msgid < t.length ? t[msgid] : null;
+    }
+
+    /** Force the table to load (e.g. from a background task at startup). */
+    public static int size() { return Table.count; }
+
+    /** Lazily-initialized holder; the scan loads every message class once. */
+    private static final class Table {
+        static int count;
+        static final String[] SIMPLE_NAMES = build();
+        static final String[] NAMES = upperNames(SIMPLE_NAMES);
+
+        private static String[] upperNames(String[] simple) {
+            String[] out = new String[simple.length];
+            for (int i = 0; i < simple.length; i++) {
+                if (simple[i] != null) out[i] = simple[i].substring(4).toUpperCase(Locale.ROOT);
+            }
+            return out;
+        }
+
+        private static String[] build() {
+            String[] names = new String[TABLE_SIZE];
+            List<String> classes = new ArrayList<>();
+            try {
+                URI src = MAVLinkPacket.class.getProtectionDomain().getCodeSource().getLocation().toURI();
+                Path path = Paths.get(src);
+                if (Files.isDirectory(path)) {
+                    try (Stream<Path> files = Files.walk(path.resolve("com/MAVLink"))) {
+                        files.forEach(f -> addIfMessage(classes, path.relativize(f).toString().replace('\\', '/')));
+                    }
+                } else {
+                    try (JarFile jar = new JarFile(path.toFile())) {
+                        Enumeration<JarEntry> en = jar.entries();
+                        while (en.hasMoreElements()) addIfMessage(classes, en.nextElement().getName());
+                    }
+                }
+            } catch (IOException | java.net.URISyntaxException | RuntimeException e) {
+                com.serialcomm.util.ErrorMonitor.record("mavlink.names.scan", e);
+            }
+            classes.sort((a, b) -> Integer.compare(rank(a), rank(b)) != 0 ? Integer.compare(rank(a), rank(b)) : a.compareTo(b));
+            ClassLoader loader = MAVLinkPacket.class.getClassLoader();
+            for (String cn : classes) {
+                try {
+                    Class<?> c = Class.forName(cn, true, loader);
+                    String simple = c.getSimpleName();
+                    int id = c.getField("MAVLINK_MSG_ID_" + simple.substring(4).toUpperCase(Locale.ROOT)).getInt(null);
+                    if (id >= 0 && id < TABLE_SIZE && names[id] == null) {
+                        names[id] = simple;
+                        count++;
+                    }
+                } catch (ReflectiveOperationException | LinkageError | RuntimeException ignore) {
+                    // not a generated message class
+                }
+            }
+            return names;
+        }
+
+        private static void addIfMessage(List<String> out, String entry) {
+            if (!entry.startsWith("com/MAVLink/") || !entry.endsWith(".class")) return;
+            String file = entry.substring(entry.lastIndexOf('/') + 1);
+            if (!file.startsWith("msg_") || file.indexOf('$') >= 0) return;
+            out.add(entry.substring(0, entry.length() - 6).replace('/', '.'));
+        }
+
+        private static int rank(String className) {
+            for (int i = 0; i < DIALECT_ORDER.length; i++) {
+                if (className.startsWith("com.MAVLink." + DIALECT_ORDER[i] + ".")) return i;
+            }
+            return DIALECT_ORDER.length;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.serialcomm.service;
+
+import com.MAVLink.MAVLinkPacket;
+import com.MAVLink.Messages.MAVLinkMessage;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * One received packet as handed to {@link PacketHub} subscribers.
+ * The decoded message is created lazily on the first {@link #message()} call and shared by
+ * every subscriber afterwards, so a packet is unpacked at most once however many listeners
+ * look at it; {@link #name()} needs no decode at all.
+ */
+public final class PacketEnvelope {
+    private static final LongAdder DECODES = new LongAdder();
+    /** Marker for "decoded to null" so a failed unpack is not retried */
+    private static final Object UNDECODABLE = new Object();
+
+    private final String sessionId;
+    private final MAVLinkPacket packet;
+    /** nanoTime when the hub received the packet (for queue-wait measurement); 0 = not timed */
+    private final long receivedNanos;
+    /** nanoTime of the link read that completed the frame; 0 = unknown */
+    private final long readNanos;
+    private volatile Object decoded;
+
+    public PacketEnvelope(String sessionId, MAVLinkPacket packet) {
+        this(sessionId, packet, 0L);
+    }
+
+    /** @param readNanos {@link ReadStamp} of the frame's read; 0 = unknown, the hub receipt time is used */
+    public PacketEnvelope(String sessionId, MAVLinkPacket packet, long readNanos) {
+        this(sessionId, packet, readNanos, System.nanoTime());
+    }
+
+    /** Hub use: {@code receivedNanos} 0 for a packet it does not time, so no clock is read. */
+    PacketEnvelope(String sessionId, MAVLinkPacket packet, long readNanos, long receivedNanos) {
+        this.sessionId = sessionId;
+        this.packet = packet;
+        this.receivedNanos = receivedNanos;
+        this.readNanos = readNanos != 0L ? readNanos : receivedNanos;
+    }
+
+    public String sessionId() { return sessionId; }
+    public MAVLinkPacket packet() { return packet; }
+    public int msgid() { return packet.msgid; }
+    public int sysid() { return packet.sysid; }
+    public int compid() { return packet.compid; }
+    /** nanoTime when the hub received the packet, 0 if the hub did not time it. */
+    public long receivedNanos() { return receivedNanos; }
+    /** Whether the hub timed this packet (see {@link PipelineLatency#setSampleEvery}). */
+    public boolean timed() { return receivedNanos != 0L; }
+    /** nanoTime of the link read that completed the frame (the hub receipt time if unknown), 0 if neither is known. */
+    public long readNanos() { return readNanos; }
+
+    /** MAVLink message name from the static table, e.g. {@code ATTITUDE}. */
+    public String name() { return MessageNames.name(packet.msgid); }
+
+    /** Decoded message (unpacked once, then cached), or null if the dialect does not know it. */
+    public MAVLinkMessage message() {
+        Object d = decoded;
+        if (d == null) {
+            synchronized (this) {
+                d = decoded;
+                if (d == null) {
+                    MAVLinkMessage m = null;
+                    try {
+                        m = packet.unpack();
+                    } catch (RuntimeException e) {
+                        com.serialcomm.util.ErrorMonitor.record("envelope.unpack", e);
+                    }
+                    DECODES.increment();
+                    d = m != null ? m : UNDECODABLE;
+                    decoded = d;
+                }
+            }
+        }
+        return d == UNDECODABLE ? null : (MAVLinkMessage) d;
+    }
+
+    /** Decoded message if it is of the given type, else null. */
+    public <T extends MAVLinkMessage> T message(Class<T> type) {
+        MAVLinkMessage m = message();
+        return type.isInstance(m) ? type.cast(m) : null;
+    }
+
+    /** Total unpacks performed through envelopes (all subscribers, all links). */
+    public static long decodeCount() { return DECODES.sum(); }
+}
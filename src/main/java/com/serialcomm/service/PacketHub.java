@@ -0,0 +1,257 @@
+package com.serialcomm.service;
+
+import com.MAVLink.MAVLinkPacket;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Msgid-indexed packet subscriptions on top of {@link MavlinkDispatcher}.
+ * The hub registers one session listener with the dispatcher and fans each packet out only
+ * to the subscribers of its msgid (plus wildcard subscribers), looked up in a flat array
+ * indexed by msgid. Subscriptions may narrow further by sysid/compid. The table is
+ * copy-on-write: subscribing is rare and synchronized, dispatch reads one volatile array.
+ * All subscribers of a packet share one {@link PacketEnvelope}, so it is decoded at most once.
+ * Listeners run on the parsing thread unless subscribed with {@link #subscribeAsync}. Only the
+ * packets {@link PipelineLatency} samples are timed: for those the hub records the
+ * {@link PipelineLatency} stages and the time each listener takes, per subscription
+ * ({@link Subscription#handling()}); every other packet is delivered without reading the clock.
+ */
+public final class PacketHub {
+    /** Largest indexable msgid; every bundled dialect stays below it, so the table stays small */
+    private static final int MAX_MSGID = 0xFFFF;
+    private static final Subscription[] NONE = new Subscription[0];
+    /** Declared after NONE, which the constructor's field initializers use */
+    private static final PacketHub INSTANCE = new PacketHub();
+
+    /** One registration; {@link #close()} removes it. */
+    public final class Subscription implements AutoCloseable {
+        final int msgid;
+        final int sysid;
+        final int compid;
+        final Consumer<PacketEnvelope> listener;
+        final com.serialcomm.util.LatencyHistogram handling = new com.serialcomm.util.LatencyHistogram();
+
+        Subscription(int msgid, int sysid, int compid, Consumer<PacketEnvelope> listener) {
+            this.msgid = msgid;
+            this.sysid = sysid;
+            this.compid = compid;
+            this.listener = listener;
+        }
+
+        /** Msgid, or -1 for all messages. */
+        public int msgid() { return msgid; }
+
+        /** Time the listener spent per sampled packet (for async subscribers: enqueueing only). */
+        public com.serialcomm.util.LatencyHistogram handling() { return handling; }
+
+        /** Listener's owning class (or async subscriber name), e.g. {@code TelemetryStore}. */
+        public String label() {
+            if (listener instanceof AsyncSubscriber) return "async:" + ((AsyncSubscriber) listener).name();
+            String n = listener.getClass().getSimpleName();
+            int cut = n.indexOf("$$");
+            return cut > 0 ? n.substring(0, cut) : n;
+        }
+
+        @Override
+        public void close() { unsubscribe(this); }
+    }
+
+    /** byMsgid[msgid] = subscribers of that msgid; sized to the largest subscribed msgid */
+    private volatile Subscription[][] byMsgid = new Subscription[0][];
+    private volatile Subscription[] wildcard = NONE;
+    private volatile boolean installed;
+    private final java.util.concurrent.CopyOnWriteArrayList<AsyncSubscriber> asyncSubscribers = new java.util.concurrent.CopyOnWriteArrayList<>();
+    /** Packets seen, for sampling; parsing threads race on it harmlessly (it only spaces samples) */
+    private int sampleTick;
+
+    public static PacketHub getInstance() { return INSTANCE; }
+
+    private PacketHub() {}
+
+    /** All packets of one msgid. */
+    public Subscription subscribe(int msgid, Consumer<PacketEnvelope> listener) {
+        return subscribe(msgid, -1, -1, listener);
+    }
+
+    /** Packets of {@code msgid} (-1 = every message) from {@code sysid}/{@code compid} (-1 = any). */
+    public synchronized Subscription subscribe(int msgid, int sysid, int compid, Consumer<PacketEnvelope> listener) {
+        if (listener == null) throw new IllegalArgumentException("listener");
+        if (msgid < -1 || msgid > MAX_MSGID) throw new IllegalArgumentException("msgid " + msgid);
+        ensureInstalled();
+        Subscription s = new Subscription(msgid, sysid, compid, listener);
+        if (msgid < 0) {
+            wildcard = append(wildcard, s);
+        } else {
+            Subscription[][] table = byMsgid;
+            if (msgid >= table.length) table = Arrays.copyOf(table, msgid + 1);
+            else table = table.clone();
+            Subscription[] row = table[msgid];
+            table[msgid] = append(row != null ? row : NONE, s);
+            byMsgid = table;
+        }
+        return s;
+    }
+
+    /** Every packet (e.g. inspectors and loggers). */
+    public Subscription subscribeAll(Consumer<PacketEnvelope> listener) {
+        return subscribe(-1, -1, -1, listener);
+    }
+
+    /** Same listener for several msgids; returns one subscription per msgid. */
+    public Subscription[] subscribe(int[] msgids, Consumer<PacketEnvelope> listener) {
+        Subscription[] subs = new Subscription[msgids.length];
+        for (int i = 0; i < msgids.length; i++) subs[i] = subscribe(msgids[i], listener);
+        return subs;
+    }
+
+    /**
+     * Subscribe {@code msgids} (empty = every message) with a listener that runs on its own
+     * virtual thread behind a bounded queue of {@code capacity} packets.
+     */
+    public AsyncSubscriber subscribeAsync(String name, int[] msgids, AsyncSubscriber.Overflow overflow, int capacity,
+                                          Consumer<PacketEnvelope> listener) {
+        AsyncSubscriber a = new AsyncSubscriber(name, overflow, capacity, listener);
+        Subscription[] subs = msgids.length == 0 ? new Subscription[] { subscribeAll(a) } : subscribe(msgids, a);
+        a.bind(subs);
+        asyncSubscribers.add(a);
+        return a;
+    }
+
+    void removeAsync(AsyncSubscriber a) { asyncSubscribers.remove(a); }
+
+    public java.util.List<AsyncSubscriber> asyncSubscribers() { return java.util.List.copyOf(asyncSubscribers); }
+
+    /** One line per async subscriber with queue depth, drops and latencies; empty if none. */
+    public String asyncSummary() {
+        StringBuilder sb = new StringBuilder();
+        for (AsyncSubscriber a : asyncSubscribers) {
+            if (sb.length() > 0) sb.append('\n');
+            sb.append(a);
+        }
+        return sb.toString();
+    }
+
+    public synchronized void unsubscribe(Subscription s) {
+        if (s == null) return;
+        if (s.msgid < 0) {
+            wildcard = remove(wildcard, s);
+            return;
+        }
+        Subscription[][] table = byMsgid;
+        if (s.msgid >= table.length || table[s.msgid] == null) return;
+        table = table.clone();
+        Subscription[] row = remove(table[s.msgid], s);
+        table[s.msgid] = row.length == 0 ? null : row;
+        byMsgid = table;
+    }
+
+    /** Deliver one packet; called by the dispatcher on the parsing thread. */
+    public void dispatch(String sessionId, MAVLinkPacket pkt) {
+        if (pkt == null) return;
+        Subscription[][] table = byMsgid;
+        int id = pkt.msgid;
+        Subscription[] row = id >= 0 && id < table.length ? table[id] : null;
+        Subscription[] all = wildcard;
+        if (row == null && all.length == 0) return;
+        long read = ReadStamp.current();
+        PipelineLatency latency = PipelineLatency.getInstance();
+        int mask = latency.sampleMask();
+        if (mask < 0 || (++sampleTick & mask) != 0) {
+            PacketEnvelope env = new PacketEnvelope(sessionId, pkt, read, 0L);
+            if (row != null) deliver(row, env);
+            if (all.length > 0) deliver(all, env);
+            return;
+        }
+        long received = System.nanoTime();
+        PacketEnvelope env = new PacketEnvelope(sessionId, pkt, read, received);
+        if (read != 0L) latency.readToFramed().record(received - read);
+        long done = received;
+        if (row != null) done = deliverTimed(row, env, done);
+        if (all.length > 0) done = deliverTimed(all, env, done);
+        latency.framedToDispatched().record(done - received);
+    }
+
+    private static void deliver(Subscription[] subs, PacketEnvelope env) {
+        MAVLinkPacket pkt = env.packet();
+        for (Subscription s : subs) {
+            if (s.sysid >= 0 && s.sysid != pkt.sysid) continue;
+            if (s.compid >= 0 && s.compid != pkt.compid) continue;
+            try {
+                s.listener.accept(env);
+            } catch (Throwable e) {
+                com.serialcomm.util.ErrorMonitor.record("hub.listener", e);
+            }
+        }
+    }
+
+    /** As {@link #deliver}, timing each listener; @return nanoTime when the last one returned ({@code start} if none ran) */
+    private static long deliverTimed(Subscription[] subs, PacketEnvelope env, long start) {
+        MAVLinkPacket pkt = env.packet();
+        long t = start;
+        for (Subscription s : subs) {
+            if (s.sysid >= 0 && s.sysid != pkt.sysid) continue;
+            if (s.compid >= 0 && s.compid != pkt.compid) continue;
+            try {
+                s.listener.accept(env);
+            } catch (Throwable e) {
+                com.serialcomm.util.ErrorMonitor.record("hub.listener", e);
+            }
+            // One clock read per listener: its end is the next one's start
+            long end = System.nanoTime();
+            s.handling.record(end - t);
+            t = end;
+        }
+        return t;
+    }
+
+    /**
+     * Listener handling times since the previous call, one line per listener label (its
+     * subscriptions merged), busiest first; empty if no listener ran.
+     */
+    public String listenerLatencySummary() {
+        java.util.Map<String, com.serialcomm.util.LatencyHistogram.Snapshot> byLabel = new java.util.LinkedHashMap<>();
+        java.util.List<Subscription> subs = new java.util.ArrayList<>(Arrays.asList(wildcard));
+        for (Subscription[] row : byMsgid) if (row != null) subs.addAll(Arrays.asList(row));
+        for (Subscription s : subs) byLabel.merge(s.label(), s.handling.snapshotAndReset(), com.serialcomm.util.LatencyHistogram.Snapshot::plus);
+        StringBuilder sb = new StringBuilder();
+        byLabel.entrySet().stream()
+                .filter(e -> e.getValue().count() > 0)
+                .sorted((a, b) -> Long.compare(b.getValue().count(), a.getValue().count()))
+                .forEach(e -> {
+                    if (sb.length() > 0) sb.append('\n');
+                    sb.append(e.getKey()).append(' ').append(e.getValue());
+                });
+        return sb.toString();
+    }
+
+    /** Number of subscriptions for a msgid, wildcards excluded. */
+    public int subscriberCount(int msgid) {
+        Subscription[][] table = byMsgid;
+        Subscription[] row = msgid >= 0 && msgid < table.length ? table[msgid] : null;
+        return row != null ? row.length : 0;
+    }
+
+    private void ensureInstalled() {
+        if (installed) return;
+        MavlinkDispatcher.getInstance().addSessionListener(this::dispatch);
+        installed = true;
+    }
+
+    private static Subscription[] append(Subscription[] arr, Subscription s) {
+        Subscription[] out = Arrays.copyOf(arr, arr.length + 1);
+        out[arr.length] = s;
+        return out;
+    }
+
+    private static Subscription[] remove(Subscription[] arr, Subscription s) {
+        for (int i = 0; i < arr.length; i++) {
+            if (arr[i] != s) continue;
+            Subscription[] out = new Subscription[arr.length - 1];
+            System.arraycopy(arr, 0, out, 0, i);
+            System.arraycopy(arr, i + 1, out, i, arr.length - i - 1);
+            return out.length == 0 ? NONE : out;
+        }
+        return arr;
+    }
+}
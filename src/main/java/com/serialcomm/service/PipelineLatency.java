@@ -0,0 +1,140 @@
+package com.serialcomm.service;
+
+import com.serialcomm.util.LatencyHistogram;
+
+/**
+ * Stage latencies of received frames, from the {@link ReadStamp} of the link read that
+ * completed each frame:
+ * <ul>
+ *   <li>{@link #readToFramed()}: read until the dispatcher hands the parsed frame to the hub
+ *   (framing, CRC and the dispatcher's own bookkeeping);</li>
+ *   <li>{@link #framedToDispatched()}: hub entry until every synchronous subscriber returned
+ *   (per listener: {@link PacketHub#listenerLatencySummary()});</li>
+ *   <li>{@link #readToUi()}: read until a view applied the value on the FX thread.</li>
+ * </ul>
+ * Together they tell whether lag is in the link, the parser or the FX thread. Two stages
+ * outside the receive path are kept alongside: {@link #uiFlush()}, sampled by a probe
+ * submitted to {@link com.serialcomm.util.UiUpdateQueue} (submit until run on the FX thread),
+ * and {@link #tileLoad()}, around map tile fetches of sources wrapped by {@link #timed}
+ * (offline sources only; online tiles are not measured). All are {@link LatencyHistogram}s.
+ *
+ * <p>The receive stages are sampled: {@link PacketHub} times one packet in
+ * {@link #sampleEvery()} and delivers the others without reading the clock, and samples
+ * nothing until a consumer turns sampling on with {@link #setSampleEvery}. Percentiles of a
+ * steady stream are unaffected; counts are of sampled packets.
+ */
+public final class PipelineLatency {
+    /** Sampling rate for a consumer that reads the receive stages */
+    public static final int DEFAULT_SAMPLE_EVERY = 64;
+    private static final PipelineLatency INSTANCE = new PipelineLatency();
+
+    private final LatencyHistogram readToFramed = new LatencyHistogram();
+    private final LatencyHistogram framedToDispatched = new LatencyHistogram();
+    private final LatencyHistogram readToUi = new LatencyHistogram();
+    private final LatencyHistogram uiFlush = new LatencyHistogram();
+    private final LatencyHistogram tileLoad = new LatencyHistogram();
+    private volatile java.util.concurrent.ScheduledFuture<?> uiProbe;
+    /** sampleEvery - 1 (a power of two minus one); -1 = sampling off */
+    private volatile int sampleMask = -1;
+
+    public static PipelineLatency getInstance() { return INSTANCE; }
+
+    private PipelineLatency() {}
+
+    public LatencyHistogram readToFramed() { return readToFramed; }
+    public LatencyHistogram framedToDispatched() { return framedToDispatched; }
+    public LatencyHistogram readToUi() { return readToUi; }
+    public LatencyHistogram uiFlush() { return uiFlush; }
+    public LatencyHistogram tileLoad() { return tileLoad; }
+
+    /**
+     * Time one received packet in {@code n} (rounded up to a power of two) in the hub stages
+     * and listener histograms; 0 turns sampling off.
+     */
+    public void setSampleEvery(int n) {
+        sampleMask = n <= 0 ? -1 : Integer.highestOneBit(Math.min(n, 1 << 30) * 2 - 1) - 1;
+    }
+
+    /** Packets per sample, 0 if sampling is off. */
+    public int sampleEvery() { return sampleMask + 1; }
+
+    int sampleMask() { return sampleMask; }
+
+    /** Submit a probe to the UI queue every {@code periodMs} and record its delay (idempotent). */
+    public synchronized void startUiProbe(long periodMs) {
+        if (uiProbe != null) return;
+        uiProbe = Scheduler.getInstance().ensureMonitoring().scheduleAtFixedRate(() -> {
+            long submitted = System.nanoTime();
+            com.serialcomm.util.UiUpdateQueue.get().submit("latency.probe", () -> uiFlush.record(System.nanoTime() - submitted));
+        }, periodMs, periodMs, java.util.concurrent.TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stopUiProbe() {
+        if (uiProbe == null) return;
+        uiProbe.cancel(false);
+        uiProbe = null;
+    }
+
+    /**
+     * {@code source} with its tile fetches timed into {@link #tileLoad()}. HTTP sources are
+     * returned as they are and their fetches are not measured: the map view cancels in-flight
+     * requests on zoom and source changes only for an {@code HttpTileSource} it recognizes by
+     * type (a final class), so a wrapper would keep stale downloads running.
+     */
+    public com.serialcomm.map.TileSource timed(com.serialcomm.map.TileSource source) {
+        if (source == null || source instanceof com.serialcomm.map.HttpTileSource || source instanceof TimedTileSource) return source;
+        return new TimedTileSource(source, tileLoad);
+    }
+
+    /**
+     * Every stage since the previous call, one line per stage that saw values, followed by
+     * the hub listeners; empty if nothing was recorded. Each call starts a new interval.
+     */
+    public String intervalSummary() {
+        StringBuilder sb = new StringBuilder();
+        append(sb, "read->framed", readToFramed);
+        append(sb, "framed->dispatched", framedToDispatched);
+        append(sb, "read->ui", readToUi);
+        append(sb, "ui.flush", uiFlush);
+        append(sb, "tile.load (offline)", tileLoad);
+        String listeners = PacketHub.getInstance().listenerLatencySummary();
+        if (!listeners.isEmpty()) {
+            if (sb.length() > 0) sb.append('\n');
+            sb.append(listeners);
+        }
+        return sb.toString();
+    }
+
+    private static void append(StringBuilder sb, String stage, LatencyHistogram h) {
+        LatencyHistogram.Snapshot s = h.snapshotAndReset();
+        if (s.count() == 0) return;
+        if (sb.length() > 0) sb.append('\n');
+        sb.append(stage).append(' ').append(s);
+    }
+
+    /** Delegating tile source that records the time until each fetch completes. */
+    private static final class TimedTileSource implements com.serialcomm.map.TileSource {
+        private final com.serialcomm.map.TileSource delegate;
+        private final LatencyHistogram histogram;
+
+        TimedTileSource(com.serialcomm.map.TileSource delegate, LatencyHistogram histogram) {
+            this.delegate = delegate;
+            this.histogram = histogram;
+        }
+
+        @Override public String getName() { return delegate.getName(); }
+        @Override public String getId() { return delegate.getId(); }
+        @Override public boolean isOnline() { return delegate.isOnline(); }
+        @Override public int getMinZoom() { return delegate.getMinZoom(); }
+        @Override public int getMaxZoom() { return delegate.getMaxZoom(); }
+        @Override public boolean supportsPoint(double lat, double lon) { return delegate.supportsPoint(lat, lon); }
+
+        @Override
+        public java.util.concurrent.CompletableFuture<javafx.scene.image.Image> fetchTileImage(int z, int x, int y) {
+            long start = System.nanoTime();
+            java.util.concurrent.CompletableFuture<javafx.scene.image.Image> f = delegate.fetchTileImage(z, x, y);
+            if (f != null) f.whenComplete((image, error) -> histogram.record(System.nanoTime() - start));
+            return f;
+        }
+    }
+}
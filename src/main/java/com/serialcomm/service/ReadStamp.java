@@ -0,0 +1,21 @@
+package com.serialcomm.service;
+
+/**
+ * {@code System.nanoTime()} of the link read whose bytes the current thread is parsing.
+ * Link routers carry the time of each read through their receive ring and set it on the
+ * receiver thread before handing the bytes to {@link MavlinkDispatcher}, which parses on
+ * the calling thread and publishes every completed frame to {@link PacketHub} before
+ * returning, so the hub picks up the stamp of the read that completed the frame.
+ * One {@code long[1]} per thread; stamping and reading allocate nothing.
+ */
+public final class ReadStamp {
+    private static final ThreadLocal<long[]> CURRENT = ThreadLocal.withInitial(() -> new long[1]);
+
+    private ReadStamp() {}
+
+    /** Adopt the stamp of a read made on another thread; call before parsing its bytes. */
+    public static void set(long readNanos) { CURRENT.get()[0] = readNanos; }
+
+    /** Stamp of the current thread's last read, 0 if it never read. */
+    public static long current() { return CURRENT.get()[0]; }
+}
@@ -0,0 +1,118 @@
+package com.serialcomm.service;
+
+import com.serialcomm.util.SpscByteRing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Decouples the link reader threads from downstream receive work.
+ * A reader copies each chunk into an off-heap {@link SpscByteRing} as records tagged with
+ * the sink it was offered for, and returns; a dedicated consumer thread drains the ring and
+ * hands each record to that sink, so bytes queued before a tab switch still reach the tab
+ * they were read for. Several links may be read at once (serial event thread, selector,
+ * loopback generator), so producers take a short lock around the ring, the only writer-side
+ * state; the consumer side stays lock-free.
+ */
+public final class ReceivePipeline {
+    private static final Logger logger = LoggerFactory.getLogger(ReceivePipeline.class);
+    private static final ReceivePipeline INSTANCE = new ReceivePipeline();
+
+    private static final int RING_BYTES = 1 << 20;
+    /** Largest record; longer chunks are split, so a drained record is never cut */
+    private static final int RECORD_BYTES = 16 * 1024;
+
+    private final SpscByteRing ring = new SpscByteRing(RING_BYTES);
+    /** Serializes producers; held only for the copy into the ring */
+    private final Object producerLock = new Object();
+    /** Registered sinks by id (copy-on-write) */
+    private volatile Consumer<ByteBuffer>[] sinks = newSinks(0);
+    private volatile boolean consumerWaiting;
+    private volatile Thread consumer;
+
+    public static ReceivePipeline getInstance() { return INSTANCE; }
+
+    private ReceivePipeline() {}
+
+    /**
+     * Register a sink for {@link #offer}; ids are never reused, so register once per
+     * long-lived receiver (a controller), not per chunk.
+     * @return id to pass to {@link #offer}
+     */
+    public synchronized int register(Consumer<ByteBuffer> sink) {
+        Consumer<ByteBuffer>[] cur = sinks;
+        Consumer<ByteBuffer>[] next = newSinks(cur.length + 1);
+        System.arraycopy(cur, 0, next, 0, cur.length);
+        next[cur.length] = sink;
+        sinks = next;
+        return cur.length;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Consumer<ByteBuffer>[] newSinks(int n) { return (Consumer<ByteBuffer>[]) new Consumer<?>[n]; }
+
+    /**
+     * Enqueue bytes from a reader thread for sink {@code sinkId}; never waits on the consumer.
+     * The whole chunk is queued or, when the ring is full, dropped.
+     * @return false if the chunk was dropped (ring overrun)
+     */
+    public boolean offer(int sinkId, byte[] buffer, int off, int len) {
+        ensureConsumer();
+        boolean ok;
+        synchronized (producerLock) {
+            ok = ring.offerRecords(buffer, off, len, sinkId, RECORD_BYTES);
+        }
+        // The ring publishes with a release store; order it before reading the waiting flag
+        java.lang.invoke.VarHandle.fullFence();
+        if (consumerWaiting) LockSupport.unpark(consumer);
+        return ok;
+    }
+
+    public long highWaterMark() { return ring.highWaterMark(); }
+
+    public long overruns() { return ring.overruns(); }
+
+    public long droppedBytes() { return ring.droppedBytes(); }
+
+    public int pending() { return ring.size(); }
+
+    public int capacity() { return ring.capacity(); }
+
+    private void ensureConsumer() {
+        if (consumer != null) return;
+        synchronized (this) {
+            if (consumer != null) return;
+            Thread t = Scheduler.getInstance().namedFactory("rx-pipeline").newThread(this::drainLoop);
+            t.setDaemon(true);
+            t.start();
+            consumer = t;
+        }
+    }
+
+    private void drainLoop() {
+        byte[] chunk = new byte[RECORD_BYTES];
+        long[] sinkId = new long[1];
+        ByteBuffer view = ByteBuffer.wrap(chunk);
+        while (!Thread.currentThread().isInterrupted()) {
+            int n = ring.drainRecord(chunk, sinkId);
+            if (n == 0) {
+                consumerWaiting = true;
+                // Parked until offer() unparks it; costs nothing while the link is idle
+                if (ring.size() == 0) LockSupport.park(this);
+                consumerWaiting = false;
+                continue;
+            }
+            Consumer<ByteBuffer> target = sinks[(int) sinkId[0]];
+            try {
+                view.clear().limit(n);
+                target.accept(view);
+            } catch (Exception e) {
+                logger.error("Receive pipeline sink failed", e);
+                com.serialcomm.util.ErrorMonitor.record("rx.pipeline.sink", e);
+            }
+        }
+    }
+}
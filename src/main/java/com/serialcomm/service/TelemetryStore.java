@@ -0,0 +1,423 @@
+package com.serialcomm.service;
+
+import com.MAVLink.Messages.MAVLinkMessage;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * Latest value of every received message field, stored in primitive columns.
+ * Each (sysid, compid, msgid) is interned once into a row; its fields occupy consecutive
+ * slots {@code base .. base+fieldCount-1}, so (sys, comp, msgid, fieldIndex) maps to a dense
+ * int id. Integral fields go to a {@code long[]} column, float/double to a {@code double[]}
+ * column and arrays to a reference column; an update timestamp, the {@link ReadStamp} of the
+ * latest values and a {@link com.serialcomm.util.RateCounter} are kept per row.
+ * Ingest reads fields through {@link FieldAccessors} and formats nothing: text is produced
+ * by {@link #format} only for rows a view actually shows.
+ *
+ * <p>When the slots are used up, a new key takes over an existing row chosen by CLOCK
+ * (second-chance) eviction: every ingest sets the row's reference bit, and the hand skips
+ * (and clears) referenced rows. Rows keep their slot block for life and are grouped into one
+ * clock ring per block width, so an eviction is O(1) amortized and never sorts or moves data.
+ *
+ * <p>Views register a {@link Watch} on (sysid, compid, msgid) instead of polling: changed rows
+ * are collected in the watch's bitset and delivered as one coalesced batch per period, and
+ * nothing runs while nothing changes.
+ *
+ * <p>Fed from {@link PacketHub} once {@link #start()} is called. Writers are the parsing
+ * threads; readers may look at any row below {@link #rowCount()} without locking (a row
+ * may be re-keyed by eviction while it is read).
+ */
+public final class TelemetryStore {
+    /** Field slots kept; beyond this, new keys evict old rows */
+    public static final int DEFAULT_MAX_ITEMS = 16_384;
+    private static final TelemetryStore INSTANCE = new TelemetryStore(DEFAULT_MAX_ITEMS);
+
+    private final int maxItems;
+    /** Open-addressing index: (rowKey << 24) | (row + 1); 0 = empty */
+    private final AtomicLongArray index;
+    private final int indexMask;
+
+    private final long[] rowKey;
+    private final int[] rowBase;
+    private final FieldAccessors[] rowAccessors;
+    private final long[] rowUpdatedMs;
+    /** nanoTime of the link read that delivered the row's latest values */
+    private final long[] rowReadNanos;
+    /** Receive rate per row */
+    private final com.serialcomm.util.RateCounter[] rowRates;
+    /** Slots owned by the row (its width when first allocated) */
+    private final int[] rowCapacity;
+    /** CLOCK reference bit, set on every ingest */
+    private final byte[] rowReferenced;
+    private volatile int rowCount;
+    private int slotsUsed;
+
+    /** Widest message in the bundled dialects stays well below this */
+    private static final int MAX_WIDTH = 256;
+    /** ringRows[w] = rows owning exactly w slots, swept by ringHand[w] */
+    private final int[][] ringRows = new int[MAX_WIDTH + 1][];
+    private final int[] ringSize = new int[MAX_WIDTH + 1];
+    private final int[] ringHand = new int[MAX_WIDTH + 1];
+
+    private final long[] longs;
+    private final double[] doubles;
+    private final Object[] refs;
+
+    private final java.util.concurrent.atomic.LongAdder updates = new java.util.concurrent.atomic.LongAdder();
+    private volatile long rejectedRows;
+    private volatile long evictions;
+    private volatile PacketHub.Subscription subscription;
+    private volatile Watch[] watches = new Watch[0];
+
+    public static TelemetryStore getInstance() { return INSTANCE; }
+
+    /** Standalone store (benchmarks, tests); the application uses {@link #getInstance()}. */
+    public TelemetryStore(int maxItems) {
+        this.maxItems = Math.max(1, maxItems);
+        int cap = Integer.highestOneBit(this.maxItems * 2 - 1) << 1;
+        this.index = new AtomicLongArray(cap);
+        this.indexMask = cap - 1;
+        this.rowKey = new long[this.maxItems];
+        this.rowBase = new int[this.maxItems];
+        this.rowAccessors = new FieldAccessors[this.maxItems];
+        this.rowUpdatedMs = new long[this.maxItems];
+        this.rowReadNanos = new long[this.maxItems];
+        this.rowRates = new com.serialcomm.util.RateCounter[this.maxItems];
+        this.rowCapacity = new int[this.maxItems];
+        this.rowReferenced = new byte[this.maxItems];
+        this.longs = new long[this.maxItems];
+        this.doubles = new double[this.maxItems];
+        this.refs = new Object[this.maxItems];
+    }
+
+    /** Subscribe to every packet on the hub (idempotent). */
+    public synchronized void start() {
+        if (subscription != null) return;
+        subscription = PacketHub.getInstance().subscribeAll(this::ingest);
+    }
+
+    public synchronized void stop() {
+        if (subscription == null) return;
+        subscription.close();
+        subscription = null;
+    }
+
+    private void ingest(PacketEnvelope env) {
+        MAVLinkMessage msg = env.message();
+        if (msg != null) ingest(env.sysid(), env.compid(), env.msgid(), msg, System.currentTimeMillis(), env.readNanos());
+    }
+
+    /** Store all fields of a decoded message as the latest values of its row. */
+    public void ingest(int sysid, int compid, int msgid, MAVLinkMessage msg, long nowMs) {
+        ingest(sysid, compid, msgid, msg, nowMs, System.nanoTime());
+    }
+
+    /** As above, for a message whose bytes were read at {@code readNanos}. */
+    public void ingest(int sysid, int compid, int msgid, MAVLinkMessage msg, long nowMs, long readNanos) {
+        FieldAccessors acc = FieldAccessors.of(msg.getClass());
+        int row = rowFor(packKey(sysid, compid, msgid), acc);
+        if (row < 0) return;
+        acc.copyInto(msg, longs, doubles, refs, rowBase[row]);
+        rowUpdatedMs[row] = nowMs;
+        rowReadNanos[row] = readNanos;
+        rowRates[row].record(nowMs);
+        rowReferenced[row] = 1;
+        updates.increment();
+        Watch[] ws = watches;
+        for (Watch w : ws) {
+            if (w.matches(sysid, compid, msgid)) w.mark(row);
+        }
+    }
+
+    /**
+     * Deliver the rows matching {@code sysid}/{@code compid}/{@code msgid} (-1 = any) that
+     * changed, at most once per {@code periodMs}, on the monitoring scheduler thread.
+     * A row delivered may have been re-keyed by eviction since the view last saw it.
+     */
+    public synchronized Watch watch(int sysid, int compid, int msgid, long periodMs, Consumer<int[]> listener) {
+        Watch w = new Watch(sysid, compid, msgid, Math.max(1, periodMs), listener);
+        Watch[] ws = java.util.Arrays.copyOf(watches, watches.length + 1);
+        ws[ws.length - 1] = w;
+        watches = ws;
+        return w;
+    }
+
+    synchronized void unwatch(Watch w) {
+        Watch[] ws = watches;
+        for (int i = 0; i < ws.length; i++) {
+            if (ws[i] != w) continue;
+            Watch[] out = new Watch[ws.length - 1];
+            System.arraycopy(ws, 0, out, 0, i);
+            System.arraycopy(ws, i + 1, out, i, ws.length - i - 1);
+            watches = out;
+            return;
+        }
+    }
+
+    /** Interest in a set of rows; {@link #close()} stops deliveries. */
+    public final class Watch implements AutoCloseable {
+        private final int sysid;
+        private final int compid;
+        private final int msgid;
+        private final long periodMs;
+        private final Consumer<int[]> listener;
+        /** One bit per row */
+        private final AtomicLongArray dirty = new AtomicLongArray((maxItems + 63) >>> 6);
+        private final java.util.concurrent.atomic.AtomicBoolean scheduled = new java.util.concurrent.atomic.AtomicBoolean();
+        private volatile boolean open = true;
+        private volatile long batches;
+        private volatile long rowsDelivered;
+
+        private Watch(int sysid, int compid, int msgid, long periodMs, Consumer<int[]> listener) {
+            this.sysid = sysid;
+            this.compid = compid;
+            this.msgid = msgid;
+            this.periodMs = periodMs;
+            this.listener = listener;
+        }
+
+        boolean matches(int sys, int comp, int id) {
+            return (sysid < 0 || sysid == sys) && (compid < 0 || compid == comp) && (msgid < 0 || msgid == id);
+        }
+
+        void mark(int row) {
+            int w = row >>> 6;
+            long bit = 1L << row;
+            // Already pending: the common case at high rates costs one read
+            if ((dirty.get(w) & bit) == 0) dirty.getAndAccumulate(w, bit, (a, b) -> a | b);
+            if (!scheduled.get() && scheduled.compareAndSet(false, true)) {
+                com.serialcomm.service.Scheduler.getInstance().ensureMonitoring()
+                        .schedule(this::flush, periodMs, java.util.concurrent.TimeUnit.MILLISECONDS);
+            }
+        }
+
+        private void flush() {
+            // Re-arm first: a mark racing with the drain below schedules the next batch
+            scheduled.set(false);
+            if (!open) return;
+            int[] rows = new int[16];
+            int n = 0;
+            for (int w = 0; w < dirty.length(); w++) {
+                if (dirty.get(w) == 0) continue;
+                long bits = dirty.getAndSet(w, 0);
+                while (bits != 0) {
+                    if (n == rows.length) rows = java.util.Arrays.copyOf(rows, n * 2);
+                    rows[n++] = (w << 6) + Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                }
+            }
+            if (n == 0) return;
+            batches++;
+            rowsDelivered += n;
+            try {
+                listener.accept(n == rows.length ? rows : java.util.Arrays.copyOf(rows, n));
+            } catch (Throwable t) {
+                com.serialcomm.util.ErrorMonitor.record("telemetry.watch.listener", t);
+            }
+        }
+
+        /** Batches delivered so far. */
+        public long batches() { return batches; }
+        /** Rows delivered so far (each row once per batch however often it changed). */
+        public long rowsDelivered() { return rowsDelivered; }
+
+        @Override
+        public void close() {
+            open = false;
+            unwatch(this);
+        }
+    }
+
+    private static long packKey(int sysid, int compid, int msgid) {
+        return ((long) (sysid & 0xFF) << 32) | ((long) (compid & 0xFF) << 24) | (msgid & 0xFFFFFF);
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /** Row of a key, interning it on first sight; -1 if no row can hold it. */
+    private int rowFor(long key, FieldAccessors acc) {
+        for (int i = hash(key) & indexMask; ; i = (i + 1) & indexMask) {
+            long e = index.get(i);
+            if (e == 0) break;
+            if (e >>> 24 == key) {
+                int row = (int) (e & 0xFFFFFF) - 1;
+                // Re-check: the row may have just been re-keyed by an eviction
+                if (rowKey[row] == key) return row;
+                break;
+            }
+        }
+        return intern(key, acc);
+    }
+
+    private synchronized int intern(long key, FieldAccessors acc) {
+        int i = hash(key) & indexMask;
+        for (long e; (e = index.get(i)) != 0; i = (i + 1) & indexMask) {
+            if (e >>> 24 == key) return (int) (e & 0xFFFFFF) - 1;
+        }
+        int width = Math.max(1, acc.fieldCount());
+        int row;
+        if (slotsUsed + width <= maxItems && width <= MAX_WIDTH) {
+            row = rowCount;
+            rowBase[row] = slotsUsed;
+            rowCapacity[row] = width;
+            slotsUsed += width;
+            addToRing(width, row);
+            rowRates[row] = new com.serialcomm.util.RateCounter();
+        } else {
+            row = evict(width);
+            if (row < 0) {
+                rejectedRows++;
+                return -1;
+            }
+            removeFromIndex(rowKey[row]);
+            rowRates[row].reset();
+            evictions++;
+            // The index slot found above may have moved during removal
+            i = hash(key) & indexMask;
+            while (index.get(i) != 0) i = (i + 1) & indexMask;
+        }
+        rowKey[row] = key;
+        rowAccessors[row] = acc;
+        rowReferenced[row] = 0;
+        index.set(i, (key << 24) | (row + 1));
+        if (row == rowCount) rowCount = row + 1;
+        return row;
+    }
+
+    private void addToRing(int width, int row) {
+        int[] ring = ringRows[width];
+        if (ring == null) ring = ringRows[width] = new int[8];
+        else if (ringSize[width] == ring.length) ring = ringRows[width] = java.util.Arrays.copyOf(ring, ring.length * 2);
+        ring[ringSize[width]++] = row;
+    }
+
+    /**
+     * CLOCK victim from the ring of exactly {@code width} slots, else from the narrowest wider
+     * ring (the row keeps its larger block). -1 if no row is wide enough.
+     */
+    private int evict(int width) {
+        for (int w = width; w <= MAX_WIDTH; w++) {
+            int n = ringSize[w];
+            if (n == 0) continue;
+            int[] ring = ringRows[w];
+            int hand = ringHand[w];
+            // At most two passes: the first clears every reference bit it skips
+            for (int step = 0; step < 2 * n; step++) {
+                int row = ring[hand];
+                hand = hand + 1 == n ? 0 : hand + 1;
+                if (rowReferenced[row] != 0) {
+                    rowReferenced[row] = 0;
+                    continue;
+                }
+                ringHand[w] = hand;
+                return row;
+            }
+            ringHand[w] = hand;
+        }
+        return -1;
+    }
+
+    /** Linear-probing delete with backward shift (no tombstones). */
+    private void removeFromIndex(long key) {
+        int i = hash(key) & indexMask;
+        for (long e; (e = index.get(i)) != 0; i = (i + 1) & indexMask) {
+            if (e >>> 24 == key) break;
+        }
+        if (index.get(i) == 0) return;
+        for (int j = (i + 1) & indexMask; ; j = (j + 1) & indexMask) {
+            long e = index.get(j);
+            if (e == 0) break;
+            int home = hash(e >>> 24) & indexMask;
+            // Move e into the hole unless its home lies cyclically in (i, j]
+            boolean homeBetween = i <= j ? (home > i && home <= j) : (home > i || home <= j);
+            if (!homeBetween) {
+                index.set(i, e);
+                i = j;
+            }
+        }
+        index.set(i, 0);
+    }
+
+    /** Rows interned so far; rows 0..rowCount()-1 are readable. */
+    public int rowCount() { return rowCount; }
+
+    /** Row of (sysid, compid, msgid), or -1 if nothing was received for it. */
+    public int findRow(int sysid, int compid, int msgid) {
+        long key = packKey(sysid, compid, msgid);
+        for (int i = hash(key) & indexMask; ; i = (i + 1) & indexMask) {
+            long e = index.get(i);
+            if (e == 0) return -1;
+            if (e >>> 24 == key) {
+                int row = (int) (e & 0xFFFFFF) - 1;
+                return rowKey[row] == key ? row : -1;
+            }
+        }
+    }
+
+    public int sysid(int row) { return (int) (rowKey[row] >>> 32) & 0xFF; }
+    public int compid(int row) { return (int) (rowKey[row] >>> 24) & 0xFF; }
+    public int msgid(int row) { return (int) rowKey[row] & 0xFFFFFF; }
+    /** Generated class simple name, e.g. {@code msg_attitude}. */
+    public String messageName(int row) { return rowAccessors[row].type().getSimpleName(); }
+    public long updatedMs(int row) { return rowUpdatedMs[row]; }
+    /** nanoTime of the link read that delivered the row's latest values, 0 if unknown. */
+    public long readNanos(int row) { return rowReadNanos[row]; }
+    /** Receive rate of the row (reset when the row is re-keyed). */
+    public com.serialcomm.util.RateCounter rate(int row) { return rowRates[row]; }
+    public int fieldCount(int row) { return rowAccessors[row].fieldCount(); }
+    public String fieldName(int row, int field) { return rowAccessors[row].fieldName(field); }
+    public FieldAccessors.Kind fieldKind(int row, int field) { return rowAccessors[row].kind(field); }
+    public FieldAccessors accessors(int row) { return rowAccessors[row]; }
+    /** Dense id of one field slot. */
+    public int fieldId(int row, int field) { return rowBase[row] + field; }
+
+    /** INTEGRAL field value. */
+    public long longValue(int row, int field) { return longs[rowBase[row] + field]; }
+
+    /** Numeric field value as double (integral fields widened). */
+    public double doubleValue(int row, int field) {
+        int id = rowBase[row] + field;
+        return rowAccessors[row].kind(field) == FieldAccessors.Kind.INTEGRAL ? longs[id] : doubles[id];
+    }
+
+    /** Field value as display text (arrays: first 16 elements). */
+    public String format(int row, int field) {
+        FieldAccessors acc = rowAccessors[row];
+        int id = rowBase[row] + field;
+        switch (acc.kind(field)) {
+            case INTEGRAL:
+                return Long.toString(longs[id]);
+            case FLOATING:
+                return acc.fieldType(field) == float.class ? Float.toString((float) doubles[id]) : Double.toString(doubles[id]);
+            case ARRAY:
+                return joinArray(refs[id], 16);
+            default:
+                return String.valueOf(refs[id]);
+        }
+    }
+
+    private static String joinArray(Object array, int max) {
+        if (array == null) return "";
+        int n = java.lang.reflect.Array.getLength(array);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0, k = Math.min(n, max); i < k; i++) {
+            if (i > 0) sb.append(',');
+            sb.append(java.lang.reflect.Array.get(array, i));
+        }
+        if (n > max) sb.append("...");
+        return sb.toString();
+    }
+
+    /** Messages stored since startup. */
+    public long updates() { return updates.sum(); }
+    /** New keys refused because no row was wide enough to take over. */
+    public long rejectedRows() { return rejectedRows; }
+    /** Rows re-keyed by CLOCK eviction. */
+    public long evictions() { return evictions; }
+    public int maxItems() { return maxItems; }
+    public int itemCount() { return slotsUsed; }
+}
@@ -0,0 +1,137 @@
+package com.serialcomm.service;
+
+import com.serialcomm.util.TimingWheel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Online/offline tracking of vehicles from their heartbeats, without periodic scans.
+ * Deadlines live in a {@link TimingWheel} (O(1) to move); the monitoring tick only touches
+ * vehicles whose deadline passed. Every HEARTBEAT moves the vehicle's offline deadline, and
+ * a vehicle without one for the offline time is logged OFFLINE. The purge deadline follows
+ * the last update of any kind: it is set when {@link VehicleStore} creates the slot, and
+ * when it passes, a slot updated meanwhile gets a new deadline from its last update, while
+ * one idle for the purge age is removed. So vehicles that send no heartbeat are purged too,
+ * and ones whose telemetry continues are kept. Replaces the per-second scans of
+ * {@code HeartbeatMonitor} and {@code VehicleState.purgeStaleEntries}.
+ */
+public final class VehicleLiveness {
+    private static final Logger logger = LoggerFactory.getLogger("session.online");
+    private static final VehicleLiveness INSTANCE = new VehicleLiveness();
+    /** VehicleState is still fed by the dispatcher; nothing reads its stale entries, so purge it rarely */
+    private static final long LEGACY_PURGE_PERIOD_MS = 60_000L;
+
+    /** online[id] = 1 between the first heartbeat and the offline deadline */
+    private final AtomicIntegerArray online = new AtomicIntegerArray(1 << 16);
+    private volatile TimingWheel wheel;
+    private volatile long offlineMs;
+    private volatile long purgeAfterMs;
+    private java.util.concurrent.ScheduledFuture<?> tickTask;
+    private PacketHub.Subscription subscription;
+    private long lastLegacyPurgeMs;
+    /** Purge deadlines that passed in the current tick, checked once the wheel is released */
+    private int[] purgeDue = new int[64];
+    private int purgeDueCount;
+    private volatile long offlineEvents;
+    private volatile long purged;
+
+    public static VehicleLiveness getInstance() { return INSTANCE; }
+
+    private VehicleLiveness() {}
+
+    /**
+     * Track heartbeats and store updates; deadlines are checked every {@code tickMs}, so
+     * detection is at most two ticks late (rounding up to a tick, then the next check).
+     * Keys of the wheel are {@code id << 1} (offline) and {@code id << 1 | 1} (purge).
+     */
+    public synchronized void start(long tickMs, long offlineMs, long purgeAfterMs) {
+        if (tickTask != null) return;
+        long tick = Math.max(10L, tickMs);
+        this.offlineMs = offlineMs;
+        this.purgeAfterMs = purgeAfterMs;
+        // Enough slots that the purge deadline fits in one turn
+        int slots = (int) Math.min(1 << 16, Math.max(offlineMs, purgeAfterMs) / tick + 1);
+        long now = System.currentTimeMillis();
+        TimingWheel w = new TimingWheel(1 << 17, slots, tick, now);
+        wheel = w;
+        lastLegacyPurgeMs = now;
+        VehicleStore store = VehicleStore.getInstance();
+        store.setCreatedListener(id -> w.schedule(id << 1 | 1, System.currentTimeMillis() + purgeAfterMs));
+        for (int id : store.ids()) w.schedule(id << 1 | 1, now + purgeAfterMs);
+        subscription = PacketHub.getInstance().subscribe(com.MAVLink.minimal.msg_heartbeat.MAVLINK_MSG_ID_HEARTBEAT,
+                env -> heartbeat(env.sysid(), env.compid(), System.currentTimeMillis()));
+        tickTask = Scheduler.getInstance().ensureMonitoring()
+                .scheduleAtFixedRate(this::tick, tick, tick, java.util.concurrent.TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (tickTask == null) return;
+        tickTask.cancel(false);
+        tickTask = null;
+        VehicleStore.getInstance().setCreatedListener(null);
+        subscription.close();
+        subscription = null;
+    }
+
+    /** A heartbeat from {@code sysid}/{@code compid} arrived at {@code nowMs}. */
+    public void heartbeat(int sysid, int compid, long nowMs) {
+        TimingWheel w = wheel;
+        if (w == null) return;
+        int id = VehicleStore.id(sysid, compid);
+        w.schedule(id << 1, nowMs + offlineMs);
+        if (online.getAndSet(id, 1) == 0) logger.debug("ONLINE sys={} comp={}", sysid, compid);
+    }
+
+    private void tick() {
+        try {
+            long now = System.currentTimeMillis();
+            wheel.advance(now, this::expired);
+            checkPurges(now);
+            if (now - lastLegacyPurgeMs >= LEGACY_PURGE_PERIOD_MS) {
+                lastLegacyPurgeMs = now;
+                VehicleState.getInstance().purgeStaleEntries(purgeAfterMs);
+            }
+        } catch (Throwable t) {
+            com.serialcomm.util.ErrorMonitor.record("vehicle.liveness.tick", t);
+        }
+    }
+
+    private void expired(int key) {
+        int id = key >>> 1;
+        if ((key & 1) == 0) {
+            if (online.getAndSet(id, 0) == 1) {
+                offlineEvents++;
+                logger.debug("OFFLINE sys={} comp={} (no heartbeat for {} ms)", id >>> 8, id & 0xFF, offlineMs);
+            }
+        } else {
+            // The wheel is locked here; the store is checked after advance
+            if (purgeDueCount == purgeDue.length) purgeDue = java.util.Arrays.copyOf(purgeDue, purgeDueCount * 2);
+            purgeDue[purgeDueCount++] = id;
+        }
+    }
+
+    /** Remove vehicles idle for the purge age; reschedule the others from their last update. */
+    private void checkPurges(long now) {
+        VehicleStore store = VehicleStore.getInstance();
+        for (int i = 0; i < purgeDueCount; i++) {
+            int id = purgeDue[i];
+            if (store.removeIfIdle(id, now - purgeAfterMs)) {
+                purged++;
+                continue;
+            }
+            long last = store.lastUpdateMs(id);
+            if (last >= 0) wheel.schedule(id << 1 | 1, last + purgeAfterMs);
+        }
+        purgeDueCount = 0;
+    }
+
+    public boolean isOnline(int sysid, int compid) { return online.get(VehicleStore.id(sysid, compid)) == 1; }
+
+    /** Online-to-offline transitions so far. */
+    public long offlineEvents() { return offlineEvents; }
+
+    /** Vehicles removed from {@link VehicleStore} for silence so far. */
+    public long purged() { return purged; }
+}
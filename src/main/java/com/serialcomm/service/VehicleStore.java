@@ -0,0 +1,365 @@
+package com.serialcomm.service;
+
+import com.MAVLink.Messages.MAVLinkMessage;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.IntConsumer;
+
+/**
+ * Latest state of every vehicle, indexed by the packed id {@code sysid << 8 | compid}.
+ * Each vehicle has its own slot guarded by its own {@link StampedLock} used as a seqlock:
+ * writers of different vehicles never meet, and readers copy a slot with an optimistic read
+ * that is retried if a write overlapped it, so readers never block writers. Slots are created
+ * on first sight and found by array index (no string keys, no map lookup).
+ * Fields and units follow {@link VehicleState.Snapshot}; a vehicle seen on several links
+ * shares one slot and {@link View#sessionId} is the link of the last update.
+ *
+ * <p>Fed from {@link PacketHub} once {@link #start()} is called.
+ */
+public final class VehicleStore {
+    /** HEARTBEAT, SYS_STATUS, GPS_RAW_INT, SCALED_PRESSURE, ATTITUDE, GLOBAL_POSITION_INT, VFR_HUD, BATTERY_STATUS */
+    private static final int[] MSGIDS = {0, 1, 24, 29, 30, 33, 74, 147};
+    private static final int[] NONE = new int[0];
+    /** After NONE: the constructor reads it */
+    private static final VehicleStore INSTANCE = new VehicleStore();
+
+    /** One vehicle's state; {@link #read} fills a caller-owned instance. */
+    public static class View {
+        public String sessionId;
+        public int systemId;
+        public int componentId;
+        public boolean mavlink2;
+        public int vehicleType;
+        public int autopilot;
+        public int baseMode;
+        public int systemStatus;
+        public int batteryVoltageMv;
+        public int batteryCurrentMa;
+        public int batteryRemainingPct;
+        public float rollRad;
+        public float pitchRad;
+        public float yawRad;
+        public int latE7;
+        public int lonE7;
+        public int altMm;
+        public int relativeAltMm;
+        public int fixType;
+        public int satCount;
+        public int vxCms;
+        public int vyCms;
+        public int vzCms;
+        public int hdgCdeg;
+        public long timeBootMs;
+        public float pressAbsHpa;
+        public int temperatureCdegC;
+        public float vfrAltM;
+        public float vfrClimbMs;
+        public int vfrThrottlePct;
+        public int vfrHeadingDeg;
+        public float vfrGroundspeedMs;
+        public long heartbeatTimeMs;
+        public long sysStatusTimeMs;
+        public long attitudeTimeMs;
+        public long positionTimeMs;
+        public long lastUpdateMs;
+
+        void copyFrom(View o) {
+            sessionId = o.sessionId;
+            systemId = o.systemId;
+            componentId = o.componentId;
+            mavlink2 = o.mavlink2;
+            vehicleType = o.vehicleType;
+            autopilot = o.autopilot;
+            baseMode = o.baseMode;
+            systemStatus = o.systemStatus;
+            batteryVoltageMv = o.batteryVoltageMv;
+            batteryCurrentMa = o.batteryCurrentMa;
+            batteryRemainingPct = o.batteryRemainingPct;
+            rollRad = o.rollRad;
+            pitchRad = o.pitchRad;
+            yawRad = o.yawRad;
+            latE7 = o.latE7;
+            lonE7 = o.lonE7;
+            altMm = o.altMm;
+            relativeAltMm = o.relativeAltMm;
+            fixType = o.fixType;
+            satCount = o.satCount;
+            vxCms = o.vxCms;
+            vyCms = o.vyCms;
+            vzCms = o.vzCms;
+            hdgCdeg = o.hdgCdeg;
+            timeBootMs = o.timeBootMs;
+            pressAbsHpa = o.pressAbsHpa;
+            temperatureCdegC = o.temperatureCdegC;
+            vfrAltM = o.vfrAltM;
+            vfrClimbMs = o.vfrClimbMs;
+            vfrThrottlePct = o.vfrThrottlePct;
+            vfrHeadingDeg = o.vfrHeadingDeg;
+            vfrGroundspeedMs = o.vfrGroundspeedMs;
+            heartbeatTimeMs = o.heartbeatTimeMs;
+            sysStatusTimeMs = o.sysStatusTimeMs;
+            attitudeTimeMs = o.attitudeTimeMs;
+            positionTimeMs = o.positionTimeMs;
+            lastUpdateMs = o.lastUpdateMs;
+        }
+    }
+
+    private static final class Slot extends View {
+        final StampedLock lock = new StampedLock();
+        /** Stamp of the write lock held by the current writer */
+        long writeStamp;
+        /** Set under the write lock once the slot has left the table */
+        boolean removed;
+    }
+
+    private final AtomicReferenceArray<Slot> slots = new AtomicReferenceArray<>(1 << 16);
+    /** Ids of existing slots, ascending */
+    private volatile int[] ids = NONE;
+    private final LongAdder updates = new LongAdder();
+    private final LongAdder readRetries = new LongAdder();
+    private volatile PacketHub.Subscription[] subscriptions;
+    private volatile IntConsumer createdListener;
+
+    public static VehicleStore getInstance() { return INSTANCE; }
+
+    /** Standalone store (benchmarks, tests); the application uses {@link #getInstance()}. */
+    public VehicleStore() {}
+
+    public static int id(int sysid, int compid) { return (sysid & 0xFF) << 8 | (compid & 0xFF); }
+
+    /** Subscribe to the state messages on the hub (idempotent). */
+    public synchronized void start() {
+        if (subscriptions != null) return;
+        subscriptions = PacketHub.getInstance().subscribe(MSGIDS, this::onPacket);
+    }
+
+    public synchronized void stop() {
+        if (subscriptions == null) return;
+        for (PacketHub.Subscription s : subscriptions) s.close();
+        subscriptions = null;
+    }
+
+    private void onPacket(PacketEnvelope env) {
+        MAVLinkMessage msg = env.message();
+        if (msg != null) update(env.sessionId(), env.sysid(), env.compid(), env.packet().isMavlink2, msg, System.currentTimeMillis());
+    }
+
+    /** Apply one decoded message; messages that carry no vehicle state are ignored. */
+    public void update(String sessionId, int sysid, int compid, boolean mavlink2, MAVLinkMessage msg, long nowMs) {
+        Slot s;
+        switch (msg.msgid) {
+            case com.MAVLink.minimal.msg_heartbeat.MAVLINK_MSG_ID_HEARTBEAT: {
+                com.MAVLink.minimal.msg_heartbeat m = (com.MAVLink.minimal.msg_heartbeat) msg;
+                s = lockSlot(sysid, compid);
+                s.mavlink2 = mavlink2;
+                s.vehicleType = m.type;
+                s.autopilot = m.autopilot;
+                s.baseMode = m.base_mode;
+                s.systemStatus = m.system_status;
+                s.heartbeatTimeMs = nowMs;
+                break;
+            }
+            case com.MAVLink.common.msg_sys_status.MAVLINK_MSG_ID_SYS_STATUS: {
+                com.MAVLink.common.msg_sys_status m = (com.MAVLink.common.msg_sys_status) msg;
+                s = lockSlot(sysid, compid);
+                s.batteryVoltageMv = m.voltage_battery;
+                s.batteryCurrentMa = m.current_battery * 10;
+                s.batteryRemainingPct = m.battery_remaining;
+                s.sysStatusTimeMs = nowMs;
+                break;
+            }
+            case com.MAVLink.common.msg_battery_status.MAVLINK_MSG_ID_BATTERY_STATUS: {
+                com.MAVLink.common.msg_battery_status m = (com.MAVLink.common.msg_battery_status) msg;
+                s = lockSlot(sysid, compid);
+                s.batteryVoltageMv = m.voltages != null && m.voltages.length > 0 ? m.voltages[0] : -1;
+                s.batteryCurrentMa = m.current_battery;
+                s.batteryRemainingPct = m.battery_remaining;
+                s.sysStatusTimeMs = nowMs;
+                break;
+            }
+            case com.MAVLink.common.msg_gps_raw_int.MAVLINK_MSG_ID_GPS_RAW_INT: {
+                com.MAVLink.common.msg_gps_raw_int m = (com.MAVLink.common.msg_gps_raw_int) msg;
+                s = lockSlot(sysid, compid);
+                s.fixType = m.fix_type;
+                s.satCount = m.satellites_visible;
+                s.latE7 = m.lat;
+                s.lonE7 = m.lon;
+                s.altMm = m.alt;
+                s.positionTimeMs = nowMs;
+                break;
+            }
+            case com.MAVLink.common.msg_scaled_pressure.MAVLINK_MSG_ID_SCALED_PRESSURE: {
+                com.MAVLink.common.msg_scaled_pressure m = (com.MAVLink.common.msg_scaled_pressure) msg;
+                s = lockSlot(sysid, compid);
+                s.timeBootMs = m.time_boot_ms & 0xFFFFFFFFL;
+                s.pressAbsHpa = m.press_abs;
+                s.temperatureCdegC = m.temperature;
+                break;
+            }
+            case com.MAVLink.common.msg_attitude.MAVLINK_MSG_ID_ATTITUDE: {
+                com.MAVLink.common.msg_attitude m = (com.MAVLink.common.msg_attitude) msg;
+                s = lockSlot(sysid, compid);
+                s.rollRad = m.roll;
+                s.pitchRad = m.pitch;
+                s.yawRad = m.yaw;
+                s.attitudeTimeMs = nowMs;
+                break;
+            }
+            case com.MAVLink.common.msg_global_position_int.MAVLINK_MSG_ID_GLOBAL_POSITION_INT: {
+                com.MAVLink.common.msg_global_position_int m = (com.MAVLink.common.msg_global_position_int) msg;
+                s = lockSlot(sysid, compid);
+                s.latE7 = m.lat;
+                s.lonE7 = m.lon;
+                s.altMm = m.alt;
+                s.relativeAltMm = m.relative_alt;
+                s.vxCms = m.vx;
+                s.vyCms = m.vy;
+                s.vzCms = m.vz;
+                s.hdgCdeg = m.hdg;
+                s.positionTimeMs = nowMs;
+                break;
+            }
+            case com.MAVLink.common.msg_vfr_hud.MAVLINK_MSG_ID_VFR_HUD: {
+                com.MAVLink.common.msg_vfr_hud m = (com.MAVLink.common.msg_vfr_hud) msg;
+                s = lockSlot(sysid, compid);
+                s.vfrGroundspeedMs = m.groundspeed;
+                s.vfrHeadingDeg = m.heading;
+                s.vfrThrottlePct = m.throttle;
+                s.vfrAltM = m.alt;
+                s.vfrClimbMs = m.climb;
+                break;
+            }
+            default:
+                return;
+        }
+        s.sessionId = sessionId;
+        s.lastUpdateMs = nowMs;
+        s.lock.unlockWrite(s.writeStamp);
+        updates.increment();
+    }
+
+    /** Slot of {@code sysid}/{@code compid}, created if needed, write-locked ({@link Slot#writeStamp}). */
+    private Slot lockSlot(int sysid, int compid) {
+        int id = id(sysid, compid);
+        while (true) {
+            Slot s = slots.get(id);
+            if (s == null) {
+                s = create(id);
+                IntConsumer l = createdListener;
+                if (l != null) l.accept(id);
+            }
+            long stamp = s.lock.writeLock();
+            if (!s.removed) {
+                s.writeStamp = stamp;
+                return s;
+            }
+            // Removed after we fetched it: write to the slot that replaces it instead
+            s.lock.unlockWrite(stamp);
+        }
+    }
+
+    private synchronized Slot create(int id) {
+        Slot s = slots.get(id);
+        if (s != null) return s;
+        s = new Slot();
+        s.systemId = id >>> 8;
+        s.componentId = id & 0xFF;
+        slots.set(id, s);
+        int[] cur = ids;
+        int at = -java.util.Arrays.binarySearch(cur, id) - 1;
+        int[] next = new int[cur.length + 1];
+        System.arraycopy(cur, 0, next, 0, at);
+        next[at] = id;
+        System.arraycopy(cur, at, next, at + 1, cur.length - at);
+        ids = next;
+        return s;
+    }
+
+    /**
+     * Called with the id of every slot created from now on, on the thread of the message
+     * that created it (outside any lock of the store). One listener; null removes it.
+     */
+    public void setCreatedListener(IntConsumer listener) { this.createdListener = listener; }
+
+    /** Forget vehicle {@code id}; it is re-created by its next message. */
+    public void remove(int id) { removeIfIdle(id, Long.MAX_VALUE); }
+
+    /**
+     * Forget vehicle {@code id} unless it was updated after {@code cutoffMs}. Decided under
+     * the slot's write lock, so an update cannot land in between and be lost with the slot;
+     * one already waiting for the lock goes to a new slot instead.
+     * @return true if the vehicle was removed
+     */
+    public synchronized boolean removeIfIdle(int id, long cutoffMs) {
+        Slot s = slots.get(id & 0xFFFF);
+        if (s == null) return false;
+        long stamp = s.lock.writeLock();
+        try {
+            if (s.lastUpdateMs > cutoffMs) return false;
+            s.removed = true;
+        } finally {
+            s.lock.unlockWrite(stamp);
+        }
+        slots.set(id & 0xFFFF, null);
+        int[] cur = ids;
+        int at = java.util.Arrays.binarySearch(cur, id & 0xFFFF);
+        int[] next = new int[cur.length - 1];
+        System.arraycopy(cur, 0, next, 0, at);
+        System.arraycopy(cur, at + 1, next, at, cur.length - at - 1);
+        ids = next;
+        return true;
+    }
+
+    /** Time of the last update of vehicle {@code id}, or -1 if there is none. */
+    public long lastUpdateMs(int id) {
+        Slot s = slots.get(id & 0xFFFF);
+        if (s == null) return -1L;
+        long stamp = s.lock.tryOptimisticRead();
+        long t = s.lastUpdateMs;
+        if (s.lock.validate(stamp)) return t;
+        stamp = s.lock.readLock();
+        try {
+            return s.lastUpdateMs;
+        } finally {
+            s.lock.unlockRead(stamp);
+        }
+    }
+
+    /** Ids of all vehicles seen so far, ascending (do not modify). */
+    public int[] ids() { return ids; }
+
+    public int vehicleCount() { return ids.length; }
+
+    /**
+     * Copy the state of vehicle {@code id} into {@code out} without blocking its writers.
+     * @return false if nothing was received from it yet
+     */
+    public boolean read(int id, View out) {
+        Slot s = slots.get(id & 0xFFFF);
+        if (s == null) return false;
+        StampedLock lock = s.lock;
+        while (true) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0) {
+                out.copyFrom(s);
+                if (lock.validate(stamp)) return true;
+            }
+            readRetries.increment();
+            Thread.onSpinWait();
+        }
+    }
+
+    /** Copy of the state of {@code sysid}/{@code compid}, or null if nothing was received from it. */
+    public View get(int sysid, int compid) {
+        View v = new View();
+        return read(id(sysid, compid), v) ? v : null;
+    }
+
+    /** Messages applied so far. */
+    public long updates() { return updates.sum(); }
+
+    /** Optimistic reads that overlapped a write and were repeated. */
+    public long readRetries() { return readRetries.sum(); }
+}
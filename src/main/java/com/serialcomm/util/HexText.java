@@ -0,0 +1,49 @@
+package com.serialcomm.util;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Table-driven HEX rendering for raw byte views.
+ * Replaces per-byte String.format("%02X ") on the receive path; output format is
+ * unchanged ("FD 09 00 ... ", upper case, one trailing space per byte).
+ */
+public final class HexText {
+    private static final char[] DIGITS = "0123456789ABCDEF".toCharArray();
+
+    private HexText() {}
+
+    /** Append bytes [off, off+len) as space-separated upper-case HEX. */
+    public static StringBuilder appendHex(StringBuilder sb, byte[] data, int off, int len) {
+        sb.ensureCapacity(sb.length() + len * 3);
+        for (int i = off, end = off + len; i < end; i++) {
+            int v = data[i] & 0xFF;
+            sb.append(DIGITS[v >>> 4]).append(DIGITS[v & 0x0F]).append(' ');
+        }
+        return sb;
+    }
+
+    /** Render bytes [off, off+len) as space-separated upper-case HEX. */
+    public static String toHex(byte[] data, int off, int len) {
+        if (data == null || len <= 0) return "";
+        char[] out = new char[len * 3];
+        int p = 0;
+        for (int i = off, end = off + len; i < end; i++) {
+            int v = data[i] & 0xFF;
+            out[p++] = DIGITS[v >>> 4];
+            out[p++] = DIGITS[v & 0x0F];
+            out[p++] = ' ';
+        }
+        return new String(out);
+    }
+
+    /** Render the remaining bytes of a buffer without moving its position. */
+    public static String toHex(ByteBuffer data) {
+        if (data == null || !data.hasRemaining()) return "";
+        if (data.hasArray()) {
+            return toHex(data.array(), data.arrayOffset() + data.position(), data.remaining());
+        }
+        byte[] tmp = new byte[data.remaining()];
+        data.duplicate().get(tmp);
+        return toHex(tmp, 0, tmp.length);
+    }
+}
@@ -0,0 +1,158 @@
+package com.serialcomm.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of durations in nanoseconds over log-linear buckets: values below 64 ns get a
+ * bucket each, and every power of two above is split into 32 equal buckets, so a bucket is
+ * never wider than 1/32 (3.1%) of its values. Values from 2^41 ns (about 36 min) up share
+ * the last bucket. Memory is fixed (1184 counters); recording is one atomic increment and
+ * allocates nothing, so any number of threads may record while others read percentiles.
+ * {@link #snapshotAndReset()} moves the counts out bucket by bucket with an atomic swap, so
+ * consecutive intervals lose and double-count nothing while writers keep recording.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BITS = 5;
+    private static final int SUB = 1 << SUB_BITS;
+    /** Values below this get one bucket each */
+    private static final int LINEAR = SUB << 1;
+    private static final int MAX_EXP = 40;
+    private static final int BUCKETS = LINEAR + (MAX_EXP - SUB_BITS) * SUB;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private volatile long max;
+
+    /** Record one duration; negative values count as 0. */
+    public void record(long nanos) {
+        long v = Math.max(0L, nanos);
+        counts.incrementAndGet(bucket(v));
+        if (v > max) raiseMax(v);
+    }
+
+    private synchronized void raiseMax(long v) {
+        if (v > max) max = v;
+    }
+
+    private synchronized long takeMax() {
+        long m = max;
+        max = 0L;
+        return m;
+    }
+
+    static int bucket(long v) {
+        if (v < LINEAR) return (int) v;
+        int exp = 63 - Long.numberOfLeadingZeros(v);
+        if (exp > MAX_EXP) return BUCKETS - 1;
+        return LINEAR + (exp - SUB_BITS - 1) * SUB + (int) ((v >>> (exp - SUB_BITS)) & (SUB - 1));
+    }
+
+    /** Smallest value that falls into bucket {@code i}. */
+    static long lowestIn(int i) { return i == 0 ? 0L : highestIn(i - 1) + 1; }
+
+    /** Largest value that falls into bucket {@code i}. */
+    static long highestIn(int i) {
+        if (i < LINEAR) return i;
+        int k = i - LINEAR;
+        int exp = k / SUB + SUB_BITS + 1;
+        long width = 1L << (exp - SUB_BITS);
+        return (1L << exp) + (k % SUB) * width + width - 1;
+    }
+
+    /** Values recorded so far. */
+    public long count() {
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++) n += counts.get(i);
+        return n;
+    }
+
+    /** Largest value recorded (exact). */
+    public long max() { return max; }
+
+    /** Value at quantile {@code q} (0..1); see {@link Snapshot#percentile}. */
+    public long percentile(double q) { return snapshot().percentile(q); }
+
+    /** Copy of the counts so far. */
+    public Snapshot snapshot() {
+        long[] c = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) c[i] = counts.get(i);
+        return new Snapshot(c, max);
+    }
+
+    /** Counts since the previous call (or since creation), leaving the histogram empty. */
+    public Snapshot snapshotAndReset() {
+        long[] c = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            if (counts.get(i) != 0) c[i] = counts.getAndSet(i, 0L);
+        }
+        return new Snapshot(c, takeMax());
+    }
+
+    /** Forget all values. */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) counts.set(i, 0L);
+        takeMax();
+    }
+
+    /** e.g. {@code n=1200 p50=41.0us p99=880.6us p99.9=1.2ms max=2.1ms}. */
+    @Override
+    public String toString() { return snapshot().toString(); }
+
+    /** Immutable copy of the counts, for percentiles and merging. */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long max;
+
+        Snapshot(long[] counts, long max) {
+            long n = 0;
+            for (long c : counts) n += c;
+            this.counts = counts;
+            this.count = n;
+            this.max = max;
+        }
+
+        public long count() { return count; }
+        public long max() { return max; }
+        public long p50() { return percentile(0.50); }
+        public long p99() { return percentile(0.99); }
+        public long p999() { return percentile(0.999); }
+
+        /**
+         * Value at quantile {@code q} (0..1): the upper edge of the bucket holding it, capped at
+         * {@link #max()}; 0 if empty.
+         */
+        public long percentile(double q) {
+            if (count == 0) return 0L;
+            long rank = Math.max(1L, (long) Math.ceil(Math.min(1.0, Math.max(0.0, q)) * count));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen < rank) continue;
+                long high = highestIn(i);
+                // A value recorded across an interval reset may have raised the other max
+                return max >= lowestIn(i) ? Math.min(high, max) : high;
+            }
+            return max;
+        }
+
+        /** Both snapshots together. */
+        public Snapshot plus(Snapshot o) {
+            long[] c = counts.clone();
+            for (int i = 0; i < BUCKETS; i++) c[i] += o.counts[i];
+            return new Snapshot(c, Math.max(max, o.max));
+        }
+
+        @Override
+        public String toString() {
+            return "n=" + count + " p50=" + format(p50()) + " p99=" + format(p99()) + " p99.9=" + format(p999()) + " max=" + format(max);
+        }
+    }
+
+    /** Duration as short text in ns, us, ms or s. */
+    public static String format(long nanos) {
+        if (nanos < 1_000L) return nanos + "ns";
+        if (nanos < 1_000_000L) return String.format(java.util.Locale.ROOT, "%.1fus", nanos / 1e3);
+        if (nanos < 1_000_000_000L) return String.format(java.util.Locale.ROOT, "%.1fms", nanos / 1e6);
+        return String.format(java.util.Locale.ROOT, "%.2fs", nanos / 1e9);
+    }
+}
@@ -0,0 +1,106 @@
+package com.serialcomm.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Event rate over a fixed ring of time buckets (one second each by default).
+ * Each slot packs the bucket number it belongs to with its count, so recording is a single
+ * CAS on one long and a slot left over from an earlier lap reads as empty; there is no
+ * separate head to advance and nothing to prune. Memory is fixed at construction, recording
+ * is O(1) and rate reads are O(buckets); neither allocates. Any number of threads may record
+ * and read. Times are epoch milliseconds; an event older than its slot's current bucket
+ * (a late writer across a boundary) is dropped.
+ */
+public final class RateCounter {
+    private static final int COUNT_BITS = 36;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+    /** Bucket numbers are kept modulo 2^28 (8.5 years of one-second buckets) */
+    private static final long STAMP_MASK = (1L << (64 - COUNT_BITS)) - 1;
+
+    private final AtomicLongArray slots;
+    private final long bucketMs;
+
+    /** Eight one-second buckets: windows up to 7 s. */
+    public RateCounter() {
+        this(8, 1000L);
+    }
+
+    /** {@code buckets} of {@code bucketMs}; the longest readable window is (buckets - 1) * bucketMs. */
+    public RateCounter(int buckets, long bucketMs) {
+        if (buckets < 2) throw new IllegalArgumentException("buckets " + buckets);
+        this.slots = new AtomicLongArray(buckets);
+        this.bucketMs = Math.max(1L, bucketMs);
+    }
+
+    public void record(long nowMs) {
+        record(nowMs, 1);
+    }
+
+    public void record(long nowMs, long n) {
+        long bucket = nowMs / bucketMs;
+        int i = (int) Math.floorMod(bucket, (long) slots.length());
+        long stamp = bucket & STAMP_MASK;
+        while (true) {
+            long v = slots.get(i);
+            long slotStamp = v >>> COUNT_BITS;
+            long next;
+            if (slotStamp == stamp) {
+                next = v + n;
+            } else if (v != 0 && ((slotStamp - stamp) & STAMP_MASK) < (STAMP_MASK >>> 1)) {
+                return; // slot already belongs to a later bucket
+            } else {
+                next = stamp << COUNT_BITS | (n & COUNT_MASK);
+            }
+            if (slots.compareAndSet(i, v, next)) return;
+        }
+    }
+
+    /** Events in bucket {@code bucket}, 0 if its slot has moved on. */
+    private long count(long bucket) {
+        long v = slots.get((int) Math.floorMod(bucket, (long) slots.length()));
+        return (v >>> COUNT_BITS) == (bucket & STAMP_MASK) ? v & COUNT_MASK : 0L;
+    }
+
+    /**
+     * Events per second over the last {@code windowMs} (sliding: the current partial bucket
+     * plus the covered share of the oldest one). Windows longer than the ring are clamped.
+     */
+    public double hz(long nowMs, long windowMs) {
+        long maxWindow = (slots.length() - 1) * bucketMs;
+        long window = Math.max(1L, Math.min(windowMs, maxWindow));
+        long bucket = nowMs / bucketMs;
+        long intoCurrent = nowMs % bucketMs;
+        double events = count(bucket);
+        long rest = window - intoCurrent;
+        long b = bucket - 1;
+        while (rest > 0) {
+            long c = count(b--);
+            events += rest >= bucketMs ? c : c * (double) rest / bucketMs;
+            rest -= bucketMs;
+        }
+        return events * 1000.0 / window;
+    }
+
+    /**
+     * Exponentially weighted rate over the completed buckets, newest weighted 1 and each
+     * older one by exp(-bucketMs / tauMs) more; the current partial bucket is not included.
+     */
+    public double ewmaHz(long nowMs, long tauMs) {
+        double decay = Math.exp(-(double) bucketMs / Math.max(1L, tauMs));
+        long bucket = nowMs / bucketMs;
+        double weight = 1.0;
+        double sum = 0.0;
+        double weights = 0.0;
+        for (int k = 1; k < slots.length(); k++) {
+            sum += weight * count(bucket - k);
+            weights += weight;
+            weight *= decay;
+        }
+        return sum / weights * 1000.0 / bucketMs;
+    }
+
+    /** Forget all events. */
+    public void reset() {
+        for (int i = 0; i < slots.length(); i++) slots.set(i, 0L);
+    }
+}
@@ -0,0 +1,206 @@
+package com.serialcomm.util;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded single-producer/single-consumer byte ring backed by off-heap memory.
+ * The producer never blocks: a chunk that does not fit is dropped whole and counted
+ * as an overrun, so a slow consumer shows up in the counters instead of stalling I/O.
+ * Exactly one thread may call {@link #offer}, and exactly one thread may call {@link #drain}.
+ * <p>
+ * A ring can instead carry records ({@link #offerRecord} or {@link #offerRecords}, then
+ * {@link #drainRecord}): each chunk keeps its boundaries and a {@code long} stamp, e.g. the
+ * time of the read that produced it.
+ * A ring is used either for plain bytes or for records, never both.
+ */
+public final class SpscByteRing {
+    private final ByteBuffer storage;
+    private final int capacity;
+    private final int mask;
+
+    /** Total bytes written (producer-owned, published with release semantics) */
+    private final AtomicLong tail = new AtomicLong();
+    /** Total bytes read (consumer-owned, published with release semantics) */
+    private final AtomicLong head = new AtomicLong();
+
+    private final AtomicLong highWater = new AtomicLong();
+    private final AtomicLong overruns = new AtomicLong();
+    private final AtomicLong droppedBytes = new AtomicLong();
+    /** Records cut by {@link #drainRecord} to fit the caller's buffer (consumer-owned) */
+    private volatile long truncatedRecords;
+
+    /** Record header: payload length (int) and stamp (long) */
+    public static final int RECORD_HEADER = 12;
+    private final byte[] headerIn = new byte[RECORD_HEADER];
+    private final byte[] headerOut = new byte[RECORD_HEADER];
+
+    /** @param capacityBytes rounded up to a power of two (min 1024); a power of two is kept as is */
+    public SpscByteRing(int capacityBytes) {
+        int cap = Integer.highestOneBit(Math.max(1024, capacityBytes) - 1) << 1;
+        this.capacity = cap;
+        this.mask = cap - 1;
+        this.storage = ByteBuffer.allocateDirect(cap);
+    }
+
+    /**
+     * Copy {@code len} bytes into the ring.
+     * @return false if the chunk was dropped because the ring is full
+     */
+    public boolean offer(byte[] src, int off, int len) {
+        if (len <= 0) return true;
+        long t = tail.get();
+        long used = t - head.get();
+        if (len > capacity - used) {
+            overruns.incrementAndGet();
+            droppedBytes.addAndGet(len);
+            return false;
+        }
+        copyIn(t, src, off, len);
+        publish(t + len, used + len);
+        return true;
+    }
+
+    /**
+     * Copy {@code len} bytes into the ring as one record stamped with {@code stamp}.
+     * @return false if the record was dropped because the ring is full
+     */
+    public boolean offerRecord(byte[] src, int off, int len, long stamp) {
+        if (len <= 0) return true;
+        long t = tail.get();
+        long used = t - head.get();
+        if (RECORD_HEADER + len > capacity - used) {
+            overruns.incrementAndGet();
+            droppedBytes.addAndGet(len);
+            return false;
+        }
+        byte[] h = headerIn;
+        putInt(h, 0, len);
+        putInt(h, 4, (int) (stamp >>> 32));
+        putInt(h, 8, (int) stamp);
+        copyIn(t, h, 0, RECORD_HEADER);
+        copyIn(t + RECORD_HEADER, src, off, len);
+        publish(t + RECORD_HEADER + len, used + RECORD_HEADER + len);
+        return true;
+    }
+
+    /**
+     * Copy {@code len} bytes into the ring as consecutive records of at most {@code maxRecord}
+     * bytes, each stamped with {@code stamp}; either all of them fit or the whole chunk is
+     * dropped and counted as one overrun.
+     * @return false if the chunk was dropped because the ring is full
+     */
+    public boolean offerRecords(byte[] src, int off, int len, long stamp, int maxRecord) {
+        if (len <= 0) return true;
+        int records = (len + maxRecord - 1) / maxRecord;
+        long t = tail.get();
+        long used = t - head.get();
+        long needed = (long) records * RECORD_HEADER + len;
+        if (needed > capacity - used) {
+            overruns.incrementAndGet();
+            droppedBytes.addAndGet(len);
+            return false;
+        }
+        byte[] h = headerIn;
+        putInt(h, 4, (int) (stamp >>> 32));
+        putInt(h, 8, (int) stamp);
+        long at = t;
+        for (int done = 0; done < len; ) {
+            int n = Math.min(maxRecord, len - done);
+            putInt(h, 0, n);
+            copyIn(at, h, 0, RECORD_HEADER);
+            copyIn(at + RECORD_HEADER, src, off + done, n);
+            at += RECORD_HEADER + n;
+            done += n;
+        }
+        publish(at, used + needed);
+        return true;
+    }
+
+    /**
+     * Move up to {@code dst.length - off} bytes out of the ring.
+     * @return number of bytes copied (0 when empty)
+     */
+    public int drain(byte[] dst, int off, int maxLen) {
+        long h = head.get();
+        int available = (int) (tail.get() - h);
+        int n = Math.min(available, maxLen);
+        if (n <= 0) return 0;
+        copyOut(h, dst, off, n);
+        head.lazySet(h + n);
+        return n;
+    }
+
+    /**
+     * Move the oldest record into {@code dst} and its stamp into {@code stamp[0]}.
+     * {@code dst} should hold the largest record offered; a longer payload is cut to fit,
+     * the rest is skipped and the record counted in {@link #truncatedRecords()}.
+     * @return payload length delivered (0 when empty)
+     */
+    public int drainRecord(byte[] dst, long[] stamp) {
+        long h = head.get();
+        if (tail.get() == h) return 0;
+        byte[] hdr = headerOut;
+        copyOut(h, hdr, 0, RECORD_HEADER);
+        int len = getInt(hdr, 0);
+        stamp[0] = ((long) getInt(hdr, 4) << 32) | (getInt(hdr, 8) & 0xFFFFFFFFL);
+        int n = Math.min(len, dst.length);
+        if (n < len) truncatedRecords++;
+        copyOut(h + RECORD_HEADER, dst, 0, n);
+        head.lazySet(h + RECORD_HEADER + len);
+        return n;
+    }
+
+    private void copyIn(long at, byte[] src, int off, int len) {
+        int pos = (int) (at & mask);
+        int first = Math.min(len, capacity - pos);
+        storage.put(pos, src, off, first);
+        if (first < len) storage.put(0, src, off + first, len - first);
+    }
+
+    private void copyOut(long at, byte[] dst, int off, int n) {
+        int pos = (int) (at & mask);
+        int first = Math.min(n, capacity - pos);
+        storage.get(pos, dst, off, first);
+        if (first < n) storage.get(0, dst, off + first, n - first);
+    }
+
+    private void publish(long newTail, long level) {
+        tail.lazySet(newTail);
+        if (level > highWater.get()) highWater.lazySet(level);
+    }
+
+    private static void putInt(byte[] b, int i, int v) {
+        b[i] = (byte) (v >>> 24);
+        b[i + 1] = (byte) (v >>> 16);
+        b[i + 2] = (byte) (v >>> 8);
+        b[i + 3] = (byte) v;
+    }
+
+    private static int getInt(byte[] b, int i) {
+        return (b[i] << 24) | ((b[i + 1] & 0xFF) << 16) | ((b[i + 2] & 0xFF) << 8) | (b[i + 3] & 0xFF);
+    }
+
+    /** Discard buffered bytes; consumer thread only. */
+    public void skipAll() {
+        head.lazySet(tail.get());
+    }
+
+    public int capacity() { return capacity; }
+
+    public int size() { return (int) (tail.get() - head.get()); }
+
+    /** Bytes that can be offered before the ring is full (records also need their header). */
+    public int free() { return capacity - size(); }
+
+    /** Highest fill level observed since creation (bytes). */
+    public long highWaterMark() { return highWater.get(); }
+
+    /** Number of chunks (or records) dropped because the ring was full. */
+    public long overruns() { return overruns.get(); }
+
+    public long droppedBytes() { return droppedBytes.get(); }
+
+    /** Records delivered cut short because the consumer's buffer was smaller (a sizing bug upstream). */
+    public long truncatedRecords() { return truncatedRecords; }
+}
@@ -0,0 +1,110 @@
+package com.serialcomm.util;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Hashed timing wheel of int-keyed deadlines.
+ * Each key (0 .. capacity-1) has at most one deadline, kept in an intrusive doubly linked
+ * list of the wheel slot its tick hashes to, so scheduling, rescheduling and cancelling are
+ * O(1) and allocate nothing. {@link #advance} walks only the slots of the ticks that passed
+ * and touches only the keys found there; a key rescheduled before its deadline (a heartbeat
+ * renewing a timeout) has already left the slot and is never looked at. Deadlines further
+ * away than one turn of the wheel wait in their slot for the later round.
+ * Methods are synchronized; every operation holds the lock for O(1) work, except advance,
+ * which is O(ticks passed + keys found).
+ */
+public final class TimingWheel {
+    private static final int NIL = -1;
+    private static final long NIL_TICK = Long.MIN_VALUE;
+
+    private final long tickMs;
+    private final int mask;
+    /** Head key of each slot's list */
+    private final int[] heads;
+    private final int[] next;
+    private final int[] prev;
+    /** Deadline tick per key; NIL_TICK when not scheduled */
+    private final long[] deadline;
+    /** Last tick processed by advance */
+    private long currentTick;
+    private int scheduled;
+
+    /**
+     * @param capacity keys 0 .. capacity-1
+     * @param slots wheel size, rounded up to a power of two; ideally covers the longest timeout
+     * @param tickMs resolution: deadlines are rounded up to the next tick boundary
+     */
+    public TimingWheel(int capacity, int slots, long tickMs, long nowMs) {
+        this.tickMs = Math.max(1L, tickMs);
+        int n = Integer.highestOneBit(Math.max(2, slots) * 2 - 1);
+        this.mask = n - 1;
+        this.heads = new int[n];
+        Arrays.fill(heads, NIL);
+        this.next = new int[capacity];
+        this.prev = new int[capacity];
+        this.deadline = new long[capacity];
+        Arrays.fill(deadline, NIL_TICK);
+        this.currentTick = nowMs / this.tickMs;
+    }
+
+    /** Set (or move) the deadline of {@code key}. */
+    public synchronized void schedule(int key, long deadlineMs) {
+        if (deadline[key] != NIL_TICK) unlink(key);
+        // Never into a tick already processed: that slot would only be seen a full turn later
+        long tick = Math.max(currentTick + 1, (deadlineMs + tickMs - 1) / tickMs);
+        deadline[key] = tick;
+        int slot = (int) (tick & mask);
+        int head = heads[slot];
+        next[key] = head;
+        prev[key] = NIL;
+        if (head != NIL) prev[head] = key;
+        heads[slot] = key;
+        scheduled++;
+    }
+
+    /** Drop the deadline of {@code key}, if any. */
+    public synchronized void cancel(int key) {
+        if (deadline[key] != NIL_TICK) unlink(key);
+    }
+
+    public synchronized boolean isScheduled(int key) { return deadline[key] != NIL_TICK; }
+
+    public synchronized int scheduledCount() { return scheduled; }
+
+    /**
+     * Process every tick up to {@code nowMs}, passing each key whose deadline passed to
+     * {@code expired} (called with the lock held; it must not call back into the wheel).
+     * @return number of expired keys
+     */
+    public synchronized int advance(long nowMs, IntConsumer expired) {
+        long target = nowMs / tickMs;
+        int fired = 0;
+        // After a long stall, one pass over all slots covers every tick in between
+        long from = Math.max(currentTick + 1, target - mask);
+        for (long tick = from; tick <= target; tick++) {
+            int key = heads[(int) (tick & mask)];
+            while (key != NIL) {
+                int following = next[key];
+                if (deadline[key] <= target) {
+                    unlink(key);
+                    expired.accept(key);
+                    fired++;
+                }
+                key = following;
+            }
+        }
+        if (target > currentTick) currentTick = target;
+        return fired;
+    }
+
+    private void unlink(int key) {
+        int p = prev[key];
+        int n = next[key];
+        if (p != NIL) next[p] = n;
+        else heads[(int) (deadline[key] & mask)] = n;
+        if (n != NIL) prev[n] = p;
+        deadline[key] = NIL_TICK;
+        scheduled--;
+    }
+}
@@ -0,0 +1,78 @@
+package com.serialcomm.util;
+
+/**
+ * Byte token bucket on the nanoTime clock.
+ * Tokens refill continuously at {@code ratePerSec} up to {@code burst}; a caller reserves
+ * tokens for a write and is told how long to wait. Reservations may run the bucket into
+ * debt, which keeps large frames from starving behind a bucket smaller than the frame.
+ * Single consumer (the router sender thread); readers of the metrics may be any thread.
+ */
+public final class TokenBucket {
+    private volatile double ratePerSec;
+    private volatile double burst;
+    private double tokens;
+    private long lastRefillNanos;
+    private volatile double lastLevel;
+    private volatile long throttleEvents;
+    private volatile long throttledNanos;
+
+    public TokenBucket(double ratePerSec, double burst) {
+        this.ratePerSec = Math.max(1.0, ratePerSec);
+        this.burst = Math.max(1.0, burst);
+        this.tokens = this.burst;
+        this.lastLevel = this.burst;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /** Change rate and burst; the current fill level is clamped to the new burst. */
+    public synchronized void reconfigure(double ratePerSec, double burst) {
+        refill(System.nanoTime());
+        this.ratePerSec = Math.max(1.0, ratePerSec);
+        this.burst = Math.max(1.0, burst);
+        if (tokens > this.burst) tokens = this.burst;
+    }
+
+    /**
+     * Take {@code n} tokens.
+     * @return nanoseconds the caller must wait before sending (0 when tokens were available)
+     */
+    public synchronized long reserve(int n) {
+        long now = System.nanoTime();
+        refill(now);
+        tokens -= n;
+        lastLevel = tokens;
+        if (tokens >= 0) return 0L;
+        long wait = (long) (-tokens / ratePerSec * 1_000_000_000L);
+        throttleEvents++;
+        throttledNanos += wait;
+        return wait;
+    }
+
+    /**
+     * Nanoseconds until {@link #reserve(int) reserve(n)} would not have to wait; takes nothing.
+     * A request larger than the burst only needs a full bucket, as it may run into debt.
+     */
+    public synchronized long waitNanos(int n) {
+        refill(System.nanoTime());
+        double missing = Math.min(n, burst) - tokens;
+        return missing <= 0 ? 0L : (long) Math.ceil(missing / ratePerSec * 1_000_000_000L);
+    }
+
+    private void refill(long now) {
+        long dt = now - lastRefillNanos;
+        if (dt <= 0) return;
+        lastRefillNanos = now;
+        tokens = Math.min(burst, tokens + dt * ratePerSec / 1_000_000_000L);
+    }
+
+    public double ratePerSec() { return ratePerSec; }
+
+    /** Fill level at the last reservation, 0..1 (negative while in debt). */
+    public double fillRatio() { return lastLevel / burst; }
+
+    /** Reservations that had to wait. */
+    public long throttleEvents() { return throttleEvents; }
+
+    /** Total wait imposed by this bucket. */
+    public long throttledNanos() { return throttledNanos; }
+}